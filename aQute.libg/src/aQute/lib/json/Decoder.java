@@ -9,7 +9,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
@@ -24,6 +23,9 @@ import aQute.lib.io.IO;
 public class Decoder implements Closeable {
 	final JSONCodec		codec;
 	Reader				reader;
+	char[]				buffer;
+	int					position;
+	int					limit;
 	int					current;
 	MessageDigest		digest;
 	Map<String, Object>	extra;
@@ -50,7 +52,10 @@ public class Decoder implements Closeable {
 	}
 
 	public Decoder from(byte[] data) throws Exception {
-		return from(new ByteArrayInputStream(data));
+		if (inflate)
+			return from(new ByteArrayInputStream(data));
+
+		return from(new String(data, encoding));
 	}
 
 	public Decoder charset(String encoding) {
@@ -69,6 +74,8 @@ public class Decoder implements Closeable {
 
 	public Decoder from(Reader in) throws Exception {
 		reader = in;
+		buffer = new char[8192];
+		position = limit = 0;
 		read();
 		return this;
 	}
@@ -78,7 +85,12 @@ public class Decoder implements Closeable {
 	}
 
 	public Decoder from(String in) throws Exception {
-		return from(new StringReader(in));
+		reader = null;
+		buffer = in.toCharArray();
+		position = 0;
+		limit = buffer.length;
+		read();
+		return this;
 	}
 
 	public Decoder mark() throws NoSuchAlgorithmException {
@@ -139,7 +151,10 @@ public class Decoder implements Closeable {
 	}
 
 	int read() throws Exception {
-		current = reader.read();
+		if (position >= limit && !fill())
+			current = -1;
+		else
+			current = buffer[position++];
 		if (digest != null) {
 			digest.update((byte) (current / 256));
 			digest.update((byte) (current % 256));
@@ -147,6 +162,14 @@ public class Decoder implements Closeable {
 		return current;
 	}
 
+	private boolean fill() throws IOException {
+		if (reader == null || limit < 0)
+			return false;
+		position = 0;
+		limit = reader.read(buffer, 0, buffer.length);
+		return limit > 0;
+	}
+
 	int current() {
 		return current;
 	}
@@ -186,7 +209,8 @@ public class Decoder implements Closeable {
 
 	@Override
 	public void close() throws IOException {
-		reader.close();
+		if (reader != null)
+			reader.close();
 	}
 
 	public Map<String, Object> getExtra() {
@@ -196,7 +220,7 @@ public class Decoder implements Closeable {
 	}
 
 	public Decoder inflate() {
-		if (reader != null)
+		if (buffer != null)
 			throw new IllegalStateException("Reader already set, inflate must come before from()");
 		inflate = true;
 		return this;
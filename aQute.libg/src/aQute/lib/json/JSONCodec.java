@@ -55,6 +55,7 @@ public class JSONCodec {
 
 	// Handlers
 	private final static WeakHashMap<Type, Handler>	handlers			= new WeakHashMap<>();
+	private final static ClassValue<Handler>		classHandlers		= new ClassHandlers();
 	private static StringHandler					sh					= new StringHandler();
 	private static BooleanHandler					bh					= new BooleanHandler();
 	private static CharacterHandler					ch					= new CharacterHandler();
@@ -156,103 +157,70 @@ public class JSONCodec {
 				return byteh;
 		}
 
-		Handler h;
-		synchronized (handlers) {
-			h = handlers.get(type);
-		}
-
-		if (h != null)
-			return h;
-
-		h = localHandlers.get(type);
+		Handler h = localHandlers.get(type);
 		if (h != null)
 			return h;
 
 		if (type instanceof Class) {
+			try {
+				return classHandlers.get((Class<?>) type);
+			} catch (HandlerException e) {
+				throw e.exception;
+			}
+		}
 
-			Class<?> clazz = (Class<?>) type;
-
-			if (Enum.class.isAssignableFrom(clazz))
-				h = new EnumHandler(clazz);
-			else if (Iterable.class.isAssignableFrom(clazz)) // A Non Generic
-																// collection
-
-				h = dch;
-			else if (clazz.isArray()) // Non generic array
-				h = new ArrayHandler(clazz, clazz.getComponentType());
-			else if (Map.class.isAssignableFrom(clazz)) // A Non Generic map
-				h = new MapHandler(clazz, Object.class, Object.class);
-			else if (Number.class.isAssignableFrom(clazz) || clazz.isPrimitive())
-				h = new NumberHandler(clazz);
-			else {
-				Method valueOf = null;
-				Constructor<?> constructor = null;
+		synchronized (handlers) {
+			h = handlers.get(type);
+		}
 
-				try {
-					constructor = clazz.getConstructor(String.class);
-				} catch (Exception e) {
-					// Ignore
-				}
-				try {
-					valueOf = clazz.getMethod("valueOf", String.class);
-				} catch (Exception e) {
-					// Ignore
-				}
-				if (constructor != null || valueOf != null)
-					h = new SpecialHandler(clazz, constructor, valueOf);
-				else
-					h = new ObjectHandler(this, clazz); // Hmm, might not be a
-														// data class ...
-			}
+		if (h != null)
+			return h;
 
-		} else {
-
-			// We have generic information available
-			// We only support generics on Collection, Map, and arrays
-
-			if (type instanceof ParameterizedType) {
-				ParameterizedType pt = (ParameterizedType) type;
-				Type rawType = pt.getRawType();
-				if (rawType instanceof Class) {
-					Class<?> rawClass = (Class<?>) rawType;
-					if (Iterable.class.isAssignableFrom(rawClass))
-						h = new CollectionHandler(rawClass, pt.getActualTypeArguments()[0]);
-					else if (Map.class.isAssignableFrom(rawClass))
-						h = new MapHandler(rawClass, pt.getActualTypeArguments()[0], pt.getActualTypeArguments()[1]);
-					else if (Dictionary.class.isAssignableFrom(rawClass))
-						h = new MapHandler(Hashtable.class, pt.getActualTypeArguments()[0],
-							pt.getActualTypeArguments()[1]);
-					else
-						//
-						// We try to use the rawtype instead.
-						//
-						return getHandler(rawType, null);
-				}
-			} else if (type instanceof GenericArrayType) {
-				GenericArrayType gat = (GenericArrayType) type;
-				if (gat.getGenericComponentType() == byte[].class)
-					h = byteh;
+		// We have generic information available
+		// We only support generics on Collection, Map, and arrays
+
+		if (type instanceof ParameterizedType) {
+			ParameterizedType pt = (ParameterizedType) type;
+			Type rawType = pt.getRawType();
+			if (rawType instanceof Class) {
+				Class<?> rawClass = (Class<?>) rawType;
+				if (Iterable.class.isAssignableFrom(rawClass))
+					h = new CollectionHandler(rawClass, pt.getActualTypeArguments()[0]);
+				else if (Map.class.isAssignableFrom(rawClass))
+					h = new MapHandler(rawClass, pt.getActualTypeArguments()[0], pt.getActualTypeArguments()[1]);
+				else if (Dictionary.class.isAssignableFrom(rawClass))
+					h = new MapHandler(Hashtable.class, pt.getActualTypeArguments()[0],
+						pt.getActualTypeArguments()[1]);
 				else
-					h = new ArrayHandler(getRawClass(type), gat.getGenericComponentType());
-			} else if (type instanceof TypeVariable) {
-				if (actual != null)
 					//
-					// We can save ourselves a lot of work if we have
-					// an actual type (the type of the object to encode)
+					// We try to use the rawtype instead.
 					//
-					h = getHandler(actual, null);
-				else {
-					TypeVariable<?> tv = (TypeVariable<?>) type;
-					Type[] bounds = tv.getBounds();
-					if (bounds == null || bounds.length == 0) {
-						h = new ObjectHandler(this, Object.class);
-					} else {
-						h = getHandler(bounds[bounds.length - 1], null);
-					}
+					return getHandler(rawType, null);
+			}
+		} else if (type instanceof GenericArrayType) {
+			GenericArrayType gat = (GenericArrayType) type;
+			if (gat.getGenericComponentType() == byte[].class)
+				h = byteh;
+			else
+				h = new ArrayHandler(getRawClass(type), gat.getGenericComponentType());
+		} else if (type instanceof TypeVariable) {
+			if (actual != null)
+				//
+				// We can save ourselves a lot of work if we have
+				// an actual type (the type of the object to encode)
+				//
+				h = getHandler(actual, null);
+			else {
+				TypeVariable<?> tv = (TypeVariable<?>) type;
+				Type[] bounds = tv.getBounds();
+				if (bounds == null || bounds.length == 0) {
+					h = new ObjectHandler(this, Object.class);
+				} else {
+					h = getHandler(bounds[bounds.length - 1], null);
 				}
-			} else
-				throw new IllegalArgumentException("Found a parameterized type that is not a map or collection");
-		}
+			}
+		} else
+			throw new IllegalArgumentException("Found a parameterized type that is not a map or collection");
 		synchronized (handlers) {
 			// We might actually have duplicates
 			// but who cares? They should be identical
@@ -261,6 +229,72 @@ public class JSONCodec {
 		return h;
 	}
 
+	/**
+	 * Create the handler for a class. Handlers for classes do not depend on
+	 * the codec so they are shared and cached in a {@link ClassValue}, which
+	 * does not need locking to look them up and does not keep classes from
+	 * being unloaded.
+	 */
+	static Handler createHandler(Class<?> clazz) throws Exception {
+		if (Enum.class.isAssignableFrom(clazz))
+			return new EnumHandler(clazz);
+
+		if (Iterable.class.isAssignableFrom(clazz)) // A Non Generic collection
+			return dch;
+
+		if (clazz.isArray()) // Non generic array
+			return new ArrayHandler(clazz, clazz.getComponentType());
+
+		if (Map.class.isAssignableFrom(clazz)) // A Non Generic map
+			return new MapHandler(clazz, Object.class, Object.class);
+
+		if (Number.class.isAssignableFrom(clazz) || clazz.isPrimitive())
+			return new NumberHandler(clazz);
+
+		Method valueOf = null;
+		Constructor<?> constructor = null;
+
+		try {
+			constructor = clazz.getConstructor(String.class);
+		} catch (Exception e) {
+			// Ignore
+		}
+		try {
+			valueOf = clazz.getMethod("valueOf", String.class);
+		} catch (Exception e) {
+			// Ignore
+		}
+		if (constructor != null || valueOf != null)
+			return new SpecialHandler(clazz, constructor, valueOf);
+
+		return new ObjectHandler(null, clazz); // Hmm, might not be a data
+												// class ...
+	}
+
+	static class ClassHandlers extends ClassValue<Handler> {
+		@Override
+		protected Handler computeValue(Class<?> type) {
+			try {
+				return createHandler(type);
+			} catch (Exception e) {
+				throw new HandlerException(e);
+			}
+		}
+	}
+
+	/**
+	 * Carries a checked exception out of {@link ClassValue#computeValue}.
+	 */
+	static class HandlerException extends RuntimeException {
+		private static final long	serialVersionUID	= 1L;
+		final Exception				exception;
+
+		HandlerException(Exception exception) {
+			super(exception);
+			this.exception = exception;
+		}
+	}
+
 	Object decode(Type type, Decoder isr) throws Exception {
 		int c = isr.skipWs();
 		Handler h;
@@ -1,6 +1,12 @@
 package aQute.lib.json;
 
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -11,12 +17,16 @@ import java.util.List;
 import java.util.Map;
 
 public class ObjectHandler extends Handler {
-	@SuppressWarnings("rawtypes")
-	final Class		rawClass;
-	final Field		fields[];
-	final Type		types[];
-	final Object	defaults[];
-	final Field		extra;
+	final static MethodType		GETTER	= methodType(Object.class, Object.class);
+	final static MethodType		SETTER	= methodType(void.class, Object.class, Object.class);
+	final Class<?>				rawClass;
+	final Field					fields[];
+	final Type					types[];
+	final Object				defaults[];
+	final Field					extra;
+	final MethodHandle			getters[];
+	final MethodHandle			setters[];
+	final MethodHandle			constructor;
 
 	ObjectHandler(JSONCodec codec, Class<?> c) throws Exception {
 		rawClass = c;
@@ -41,6 +51,8 @@ public class ObjectHandler extends Handler {
 
 		types = new Type[this.fields.length];
 		defaults = new Object[this.fields.length];
+		getters = new MethodHandle[this.fields.length];
+		setters = new MethodHandle[this.fields.length];
 
 		Field x = null;
 		for (int i = 0; i < this.fields.length; i++) {
@@ -48,17 +60,39 @@ public class ObjectHandler extends Handler {
 				.equals("__extra"))
 				x = this.fields[i];
 			types[i] = this.fields[i].getGenericType();
+
+			// Unreflecting on every access is expensive so we do it once.
+			// If the field is not accessible we fall back to the slow path
+			// so the error is reported when the field is used.
+			try {
+				getters[i] = publicLookup().unreflectGetter(this.fields[i])
+					.asType(GETTER);
+				if (!Modifier.isFinal(this.fields[i].getModifiers()))
+					setters[i] = publicLookup().unreflectSetter(this.fields[i])
+						.asType(SETTER);
+			} catch (IllegalAccessException e) {
+				// Ignore
+			}
 		}
 		if (x != null && Map.class.isAssignableFrom(x.getType()))
 			extra = x;
 		else
 			extra = null;
 
+		MethodHandle mh = null;
 		try {
-			Object template = newInstance(c);
+			mh = publicLookup().findConstructor(c, methodType(void.class))
+				.asType(methodType(Object.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			// Ignore
+		}
+		constructor = mh;
+
+		try {
+			Object template = newInstance();
 
 			for (int i = 0; i < this.fields.length; i++) {
-				defaults[i] = getField(this.fields[i], template);
+				defaults[i] = get(i, template);
 			}
 		} catch (Exception e) {
 			// Ignore
@@ -76,7 +110,7 @@ public class ObjectHandler extends Handler {
 					.startsWith("__"))
 					continue;
 
-				Object value = getField(fields[i], object);
+				Object value = get(i, object);
 				if (!app.writeDefaults) {
 					if (value == defaults[i])
 						continue;
@@ -100,8 +134,7 @@ public class ObjectHandler extends Handler {
 	@Override
 	public Object decodeObject(Decoder r) throws Exception {
 		assert r.current() == '{';
-		@SuppressWarnings("unchecked")
-		Object targetObject = newInstance(rawClass);
+		Object targetObject = newInstance();
 
 		int c = r.next();
 		while (JSONCodec.START_CHARACTERS.indexOf(c) >= 0) {
@@ -118,15 +151,15 @@ public class ObjectHandler extends Handler {
 
 			// Get value
 
-			Field f = getField(key);
-			if (f != null) {
+			int i = getField(key);
+			if (i >= 0) {
 				// We have a field and thus a type
-				Object value = r.codec.decode(f.getGenericType(), r);
+				Object value = r.codec.decode(types[i], r);
 				if (value != null || !r.codec.ignorenull) {
-					if (Modifier.isFinal(f.getModifiers()))
-						throw new IllegalArgumentException("Field " + f + " is final");
+					if (Modifier.isFinal(fields[i].getModifiers()))
+						throw new IllegalArgumentException("Field " + fields[i] + " is final");
 
-					setField(f, targetObject, value);
+					set(i, targetObject, value);
 				}
 			} else {
 				// No field, but may extra is defined
@@ -167,15 +200,60 @@ public class ObjectHandler extends Handler {
 		return targetObject;
 	}
 
-	private Field getField(String key) {
-		for (int i = 0; i < fields.length; i++) {
-			int n = key.compareTo(fields[i].getName());
+	private int getField(String key) {
+		int low = 0;
+		int high = fields.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int n = key.compareTo(fields[mid].getName());
 			if (n == 0)
-				return fields[i];
+				return mid;
 			if (n < 0)
-				return null;
+				high = mid - 1;
+			else
+				low = mid + 1;
+		}
+		return -1;
+	}
+
+	private Object newInstance() throws Exception {
+		if (constructor == null)
+			return newInstance(rawClass);
+		try {
+			return (Object) constructor.invokeExact();
+		} catch (Error | Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private Object get(int i, Object targetObject) throws Exception {
+		MethodHandle getter = getters[i];
+		if (getter == null)
+			return getField(fields[i], targetObject);
+		try {
+			return (Object) getter.invokeExact(targetObject);
+		} catch (Error | Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private void set(int i, Object targetObject, Object value) throws Exception {
+		MethodHandle setter = setters[i];
+		if (setter == null) {
+			setField(fields[i], targetObject, value);
+			return;
+		}
+		try {
+			setter.invokeExact(targetObject, value);
+		} catch (Error | Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
 		}
-		return null;
 	}
 
 }
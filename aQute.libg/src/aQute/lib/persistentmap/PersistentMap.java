@@ -1,43 +1,119 @@
 package aQute.lib.persistentmap;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import aQute.lib.io.IO;
 import aQute.lib.json.JSONCodec;
 
 /**
- * Implements a low performance but easy to use map that is backed on a
+ * Implements an easy to use map that is backed by an append-only log file in a
  * directory. All objects are stored as JSON objects and therefore should be
- * DTOs. Each key is a file name and the contents is the value encoded in JSON.
- * The PersistentMap will attempt to lock the directory. This is a
- * non-concurrent implementation so you must ensure it is only used in a single
- * thread. It cannot of course also not share the data directory.
+ * DTOs.
+ * <p>
+ * Each put or remove appends a record to the log and an in-memory index maps
+ * the keys to the position of their last record. Values are only decoded when
+ * they are accessed and are then held with a soft reference. When more than
+ * half of the log consists of records that are no longer live, the live
+ * records are copied into the log of the next generation. The current
+ * generation is stored in the lock file. The log of an older generation is
+ * never changed since other instances may still read it. It is deleted when
+ * it is no longer open.
+ * <p>
+ * Secondary indexes can be added with {@link #addIndex(String, Function)}.
+ * The index keys are stored with the records so that the indexes can be
+ * rebuilt on start up without decoding the values.
+ * <p>
+ * The PersistentMap will lock the directory for each operation and will pick
+ * up records appended or a compaction done by another instance on the same
+ * directory. Directories in the older file-per-entry layout are converted on
+ * first access. The older data directory is left in place.
  */
 public class PersistentMap<V> extends AbstractMap<String, V> implements Closeable {
 
-	final static JSONCodec				codec	= new JSONCodec();
-	final File							dir;
-	final File							data;
-	final RandomAccessFile				lockFile;
-	final Map<String, SoftReference<V>>	cache	= new HashMap<>();
-	boolean								inited	= false;
-	boolean								closed	= false;
+	final static JSONCodec									codec			= new JSONCodec();
+	final static byte[]										MAGIC			= {
+		'b', 'n', 'd', 'm', 'a', 'p', 0, 1
+	};
+	final static byte										PUT				= 1;
+	final static byte										REMOVE			= 2;
+	final static long										COMPACT_MIN		= 64 * 1024;
+
+	final File												dir;
+	final File												data;
+	final RandomAccessFile									lockFile;
+	final Map<String, Record<V>>							cache			= new HashMap<>();
+	final Map<String, Function<? super V, String>>			indexers		= new LinkedHashMap<>();
+	final Map<String, Map<String, Set<String>>>				indexes			= new HashMap<>();
+	RandomAccessFile										logFile;
+	FileChannel												channel;
+	long													end;
+	long													garbage;
+	long													generation;
+	boolean													inited			= false;
+	boolean													closed			= false;
+
+	Type													type;
+
+	static class Record<V> {
+		final long			start;
+		final int			size;
+		final long			offset;
+		final int			length;
+		final long			modified;
+		Map<String, String>	keys;
+		SoftReference<V>	value;
+
+		Record(long start, int size, long offset, int length, long modified, Map<String, String> keys) {
+			this.start = start;
+			this.size = size;
+			this.offset = offset;
+			this.length = length;
+			this.modified = modified;
+			this.keys = keys;
+		}
 
-	Type								type;
+		Record<V> moveTo(long start) {
+			Record<V> r = new Record<>(start, size, offset - this.start + start, length, modified, keys);
+			r.value = value;
+			return r;
+		}
+	}
 
 	public PersistentMap(File dir, Type type) throws Exception {
 		this.dir = dir;
@@ -51,20 +127,7 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 
 		File f = new File(dir, "lock");
 		lockFile = new RandomAccessFile(f, "rw");
-
-		FileLock lock = lock();
-		try {
-			data = new File(dir, "data").getAbsoluteFile();
-			IO.mkdirs(data);
-			if (!dir.isDirectory())
-				throw new IllegalArgumentException("PersistentMap cannot create data directory " + dir);
-
-			if (!data.canWrite())
-				throw new IllegalArgumentException("PersistentMap cannot write data directory " + data);
-		} finally {
-			unlock(lock);
-		}
-
+		data = new File(dir, "data").getAbsoluteFile();
 	}
 
 	public PersistentMap(File dir, Class<V> type) throws Exception {
@@ -81,7 +144,45 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 		putAll(map);
 	}
 
-	void init() {
+	/**
+	 * Add a secondary index. The indexer calculates the index key of a value,
+	 * it may return null if the value should not be indexed. Indexes should be
+	 * added before the map is used, otherwise all values must be decoded to
+	 * index them.
+	 *
+	 * @param name the name of the index
+	 * @param indexer calculates the index key of a value
+	 */
+	public synchronized void addIndex(String name, Function<? super V, String> indexer) {
+		indexers.put(name, indexer);
+		indexes.put(name, new HashMap<>());
+		if (inited) {
+			for (Map.Entry<String, Record<V>> entry : cache.entrySet()) {
+				index(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Find the keys of the entries that have the given key in a secondary
+	 * index.
+	 *
+	 * @param name the name of the index
+	 * @param indexKey the index key
+	 * @return the keys of the entries, never null
+	 */
+	public synchronized Set<String> findKeys(String name, String indexKey) {
+		init();
+		Map<String, Set<String>> index = indexes.get(name);
+		if (index == null)
+			throw new IllegalArgumentException("PersistentMap " + dir + " has no index " + name);
+		Set<String> keys = index.get(indexKey);
+		if (keys == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(new LinkedHashSet<>(keys));
+	}
+
+	synchronized void init() {
 		if (inited)
 			return;
 
@@ -89,12 +190,9 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 			throw new IllegalStateException("PersistentMap " + dir + " is already closed");
 
 		try {
-			inited = true;
 			FileLock lock = lock();
 			try {
-				for (File file : data.listFiles()) {
-					cache.put(file.getName(), null);
-				}
+				sync();
 			} finally {
 				unlock(lock);
 			}
@@ -105,23 +203,411 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 		}
 	}
 
+	/**
+	 * Bring the in-memory index up to date with the log. Must be called while
+	 * holding the lock.
+	 */
+	private void sync() throws Exception {
+		long current = readGeneration();
+		if (!inited || current != generation) {
+			load(current);
+			return;
+		}
+		if (channel.size() != end) {
+			replay(end);
+		}
+	}
+
+	private void load(long current) throws Exception {
+		IO.close(logFile);
+		cache.clear();
+		for (Map<String, Set<String>> index : indexes.values()) {
+			index.clear();
+		}
+		end = 0;
+		garbage = 0;
+		generation = current;
+
+		logFile = new RandomAccessFile(log(current), "rw");
+		channel = logFile.getChannel();
+		inited = true;
+		deleteOlderGenerations();
+
+		if (channel.size() < MAGIC.length || !hasMagic()) {
+			channel.truncate(0);
+			channel.write(ByteBuffer.wrap(MAGIC), 0);
+			end = MAGIC.length;
+			if (current == 0 && data.isDirectory())
+				convert();
+			return;
+		}
+		replay(MAGIC.length);
+
+		for (Map.Entry<String, Record<V>> entry : cache.entrySet()) {
+			Record<V> record = entry.getValue();
+			if (!record.keys.keySet()
+				.containsAll(indexers.keySet())) {
+				index(entry.getKey(), record);
+			}
+		}
+	}
+
+	private boolean hasMagic() throws IOException {
+		ByteBuffer bb = ByteBuffer.allocate(MAGIC.length);
+		channel.read(bb, 0);
+		return Arrays.equals(MAGIC, bb.array());
+	}
+
+	/**
+	 * Read the records from the given position to the end of the log. A
+	 * partially written or corrupt record at the end is cut off.
+	 */
+	private void replay(long position) throws Exception {
+		long size = channel.size();
+		CheckedInputStream cin = new CheckedInputStream(
+			new BufferedInputStream(Channels.newInputStream(channel.position(position))), new CRC32());
+		CountingInputStream counter = new CountingInputStream(cin);
+		DataInputStream din = new DataInputStream(counter);
+		long start = position;
+		try {
+			while (start < size) {
+				cin.getChecksum()
+					.reset();
+				counter.count = 0;
+				byte op = din.readByte();
+				long modified = din.readLong();
+				String key = din.readUTF();
+				Map<String, String> keys = new HashMap<>();
+				int length = 0;
+				long offset = 0;
+				if (op == PUT) {
+					int n = din.readUnsignedShort();
+					for (int i = 0; i < n; i++) {
+						String name = din.readUTF();
+						keys.put(name, din.readUTF());
+					}
+					length = din.readInt();
+					offset = start + counter.count;
+					if (length < 0 || offset + length + 4 > size)
+						throw new EOFException();
+					int skip = length;
+					while (skip > 0) {
+						int skipped = din.skipBytes(skip);
+						if (skipped <= 0)
+							throw new EOFException();
+						skip -= skipped;
+					}
+				} else if (op != REMOVE)
+					throw new EOFException();
+
+				int checksum = (int) cin.getChecksum()
+					.getValue();
+				if (din.readInt() != checksum)
+					throw new EOFException();
+
+				int recordSize = (int) counter.count;
+				if (op == PUT) {
+					apply(key, new Record<>(start, recordSize, offset, length, modified, keys));
+				} else {
+					apply(key, null);
+					garbage += recordSize;
+				}
+				start += recordSize;
+			}
+		} catch (EOFException | UTFDataFormatException e) {
+			channel.truncate(start);
+		}
+		end = start;
+	}
+
+	static class CountingInputStream extends FilterInputStream {
+		long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c = super.read();
+			if (c >= 0)
+				count++;
+			return c;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0)
+				count += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	private void apply(String key, Record<V> record) {
+		Record<V> old = record == null ? cache.remove(key) : cache.put(key, record);
+		if (old != null) {
+			garbage += old.size;
+			unindex(key, old);
+		}
+		if (record != null) {
+			addToIndexes(key, record);
+		}
+	}
+
+	private void addToIndexes(String key, Record<V> record) {
+		for (Map.Entry<String, String> e : record.keys.entrySet()) {
+			Map<String, Set<String>> index = indexes.get(e.getKey());
+			if (index != null && !e.getValue()
+				.isEmpty())
+				index.computeIfAbsent(e.getValue(), k -> new LinkedHashSet<>())
+					.add(key);
+		}
+	}
+
+	private void unindex(String key, Record<V> record) {
+		for (Map.Entry<String, String> e : record.keys.entrySet()) {
+			Map<String, Set<String>> index = indexes.get(e.getKey());
+			if (index != null) {
+				Set<String> keys = index.get(e.getValue());
+				if (keys != null) {
+					keys.remove(key);
+					if (keys.isEmpty())
+						index.remove(e.getValue());
+				}
+			}
+		}
+	}
+
+	private void index(String key, Record<V> record) {
+		V value = value(record);
+		unindex(key, record);
+		Map<String, String> keys = new HashMap<>(record.keys);
+		keys.putAll(indexKeys(value));
+		record.keys = keys;
+		addToIndexes(key, record);
+	}
+
+	private Map<String, String> indexKeys(V value) {
+		Map<String, String> keys = new HashMap<>();
+		for (Map.Entry<String, Function<? super V, String>> e : indexers.entrySet()) {
+			String indexKey = e.getValue()
+				.apply(value);
+			// an empty index key records that the value is not indexed
+			keys.put(e.getKey(), indexKey == null ? "" : indexKey);
+		}
+		return keys;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(Record<V> record) {
+		SoftReference<V> ref = record.value;
+		V value = ref == null ? null : ref.get();
+		if (value == null) {
+			try {
+				ByteBuffer bb = ByteBuffer.allocate(record.length);
+				while (bb.hasRemaining()) {
+					if (channel.read(bb, record.offset + bb.position()) < 0)
+						throw new EOFException("PersistentMap " + dir + " is truncated");
+				}
+				value = (V) codec.dec()
+					.from(bb.array())
+					.get(type);
+				record.value = new SoftReference<>(value);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return value;
+	}
+
+	private static byte[] record(byte op, long modified, String key, Map<String, String> keys, byte[] json)
+		throws IOException {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		DataOutputStream dout = new DataOutputStream(bout);
+		dout.writeByte(op);
+		dout.writeLong(modified);
+		dout.writeUTF(key);
+		if (op == PUT) {
+			dout.writeShort(keys.size());
+			for (Map.Entry<String, String> e : keys.entrySet()) {
+				dout.writeUTF(e.getKey());
+				dout.writeUTF(e.getValue());
+			}
+			dout.writeInt(json.length);
+			dout.write(json);
+		}
+		dout.writeInt(0);
+		dout.flush();
+		byte[] record = bout.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length - 4);
+		int checksum = (int) crc.getValue();
+		int n = record.length - 4;
+		record[n] = (byte) (checksum >>> 24);
+		record[n + 1] = (byte) (checksum >>> 16);
+		record[n + 2] = (byte) (checksum >>> 8);
+		record[n + 3] = (byte) checksum;
+		return record;
+	}
+
+	private Record<V> append(byte op, long modified, String key, Map<String, String> keys, byte[] json)
+		throws IOException {
+		byte[] record = record(op, modified, key, keys, json);
+		ByteBuffer bb = ByteBuffer.wrap(record);
+		long start = end;
+		while (bb.hasRemaining()) {
+			channel.write(bb, start + bb.position());
+		}
+		end += record.length;
+		if (op == REMOVE) {
+			garbage += record.length;
+			return null;
+		}
+		return new Record<>(start, record.length, start + record.length - 4 - json.length, json.length, modified,
+			keys);
+	}
+
+	private void write(String key, V value, long modified) throws Exception {
+		byte[] json = codec.enc()
+			.put(value)
+			.toString()
+			.getBytes(UTF_8);
+		Record<V> record = append(PUT, modified, key, indexKeys(value), json);
+		record.value = new SoftReference<>(value);
+		apply(key, record);
+	}
+
+	private void delete(String key) throws Exception {
+		append(REMOVE, System.currentTimeMillis(), key, null, null);
+		apply(key, null);
+	}
+
+	/**
+	 * Copy the live records into the log of the next generation when more than
+	 * half of the log is garbage. Must be called while holding the lock.
+	 */
+	private void compact() throws Exception {
+		if (garbage < COMPACT_MIN || garbage * 2 < end)
+			return;
+
+		long next = generation + 1;
+		Map<String, Record<V>> moved = new HashMap<>();
+		try (RandomAccessFile out = new RandomAccessFile(log(next), "rw")) {
+			out.setLength(0);
+			FileChannel target = out.getChannel();
+			target.write(ByteBuffer.wrap(MAGIC), 0);
+			long position = MAGIC.length;
+			for (Map.Entry<String, Record<V>> entry : cache.entrySet()) {
+				Record<V> record = entry.getValue();
+				long transferred = 0;
+				while (transferred < record.size) {
+					transferred += channel.transferTo(record.start + transferred, record.size - transferred,
+						target.position(position + transferred));
+				}
+				moved.put(entry.getKey(), record.moveTo(position));
+				position += record.size;
+			}
+		}
+		switchTo(next);
+		cache.putAll(moved);
+		end = channel.size();
+		garbage = 0;
+	}
+
+	/**
+	 * Make the given generation the current one. The log of that generation
+	 * must have been written. Must be called while holding the lock.
+	 */
+	private void switchTo(long next) throws IOException {
+		IO.close(logFile);
+		logFile = new RandomAccessFile(log(next), "rw");
+		channel = logFile.getChannel();
+		writeGeneration(next);
+		generation = next;
+		deleteOlderGenerations();
+	}
+
+	/**
+	 * Delete the logs of the older generations. This fails while another
+	 * instance still has such a log open on a platform like Windows, it is
+	 * then tried again later. Must be called while holding the lock.
+	 */
+	private void deleteOlderGenerations() {
+		File[] logs = dir.listFiles((d, name) -> name.startsWith("log."));
+		if (logs == null)
+			return;
+		for (File file : logs) {
+			try {
+				if (Long.parseLong(file.getName()
+					.substring(4)) < generation)
+					IO.delete(file);
+			} catch (NumberFormatException e) {
+				// not a log
+			}
+		}
+	}
+
+	private File log(long generation) {
+		return new File(dir, "log." + generation).getAbsoluteFile();
+	}
+
+	/**
+	 * Convert a directory in the older file-per-entry layout.
+	 */
+	@SuppressWarnings("unchecked")
+	private void convert() throws Exception {
+		File[] files = data.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				V value = (V) codec.dec()
+					.from(file)
+					.get(type);
+				write(file.getName(), value, file.lastModified());
+			}
+		}
+	}
+
+	private long readGeneration() throws IOException {
+		if (lockFile.length() < 8)
+			return 0;
+		lockFile.seek(0);
+		return lockFile.readLong();
+	}
+
+	private void writeGeneration(long generation) throws IOException {
+		lockFile.seek(0);
+		lockFile.writeLong(generation);
+	}
+
 	@Override
 	public Set<java.util.Map.Entry<String, V>> entrySet() {
 		return new AbstractSet<Map.Entry<String, V>>() {
 
 			@Override
 			public int size() {
-				init();
-				return cache.size();
+				return PersistentMap.this.size();
 			}
 
 			@Override
 			public Iterator<java.util.Map.Entry<String, V>> iterator() {
-				init();
+				List<String> keys;
+				synchronized (PersistentMap.this) {
+					init();
+					keys = new ArrayList<>(cache.keySet());
+				}
 				return new Iterator<Map.Entry<String, V>>() {
-					Iterator<java.util.Map.Entry<String, SoftReference<V>>>	it	= cache.entrySet()
-						.iterator();
-					java.util.Map.Entry<String, SoftReference<V>>			entry;
+					Iterator<String>	it	= keys.iterator();
+					String				current;
 
 					@Override
 					public boolean hasNext() {
@@ -129,51 +615,35 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 					}
 
 					@Override
-					@SuppressWarnings("unchecked")
 					public java.util.Map.Entry<String, V> next() {
-						try {
-							entry = it.next();
-							SoftReference<V> ref = entry.getValue();
-							V value = null;
-							if (ref != null)
-								value = ref.get();
-
-							if (value == null) {
-								File file = new File(data, entry.getKey());
-								value = (V) codec.dec()
-									.from(file)
-									.get(type);
-								entry.setValue(new SoftReference<>(value));
+						final String key = current = it.next();
+
+						return new Map.Entry<String, V>() {
+
+							@Override
+							public String getKey() {
+								return key;
+							}
+
+							/*
+							 * The log can be compacted or replaced after next()
+							 * so the current record of the key is used
+							 */
+							@Override
+							public V getValue() {
+								return get(key);
 							}
 
-							final V v = value;
-
-							return new Map.Entry<String, V>() {
-
-								@Override
-								public String getKey() {
-									return entry.getKey();
-								}
-
-								@Override
-								public V getValue() {
-									return v;
-								}
-
-								@Override
-								public V setValue(V value) {
-									return put(entry.getKey(), value);
-								}
-							};
-						} catch (Exception e) {
-							e.printStackTrace();
-							throw new RuntimeException(e);
-						}
+							@Override
+							public V setValue(V value) {
+								return put(key, value);
+							}
+						};
 					}
 
 					@Override
 					public void remove() {
-						PersistentMap.this.remove(entry.getKey());
+						PersistentMap.this.remove(current);
 					}
 				};
 			}
@@ -181,22 +651,38 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 	}
 
 	@Override
-	public V put(String key, V value) {
+	public synchronized int size() {
 		init();
-		try {
-			V old = null;
-			SoftReference<V> ref = cache.get(key);
-			if (ref != null)
-				old = ref.get();
+		return cache.size();
+	}
+
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		init();
+		return cache.containsKey(key);
+	}
+
+	@Override
+	public synchronized V get(Object key) {
+		init();
+		Record<V> record = cache.get(key);
+		if (record == null)
+			return null;
+		return value(record);
+	}
 
+	@Override
+	public synchronized V put(String key, V value) {
+		init();
+		try {
 			FileLock lock = lock();
 			try {
-				File file = new File(data, key);
-				codec.enc()
-					.to(file)
-					.put(value);
-				cache.put(key, new SoftReference<>(value));
-				return old;
+				sync();
+				Record<V> old = cache.get(key);
+				V v = old == null || old.value == null ? null : old.value.get();
+				write(key, value, System.currentTimeMillis());
+				compact();
+				return v;
 			} finally {
 				unlock(lock);
 			}
@@ -236,15 +722,24 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 		lock.release();
 	}
 
-	public V remove(String key) {
+	@Override
+	public V remove(Object key) {
+		return remove((String) key);
+	}
+
+	public synchronized V remove(String key) {
 		try {
 			init();
 			FileLock lock = lock();
 			try {
-				File file = new File(data, key);
-				IO.deleteWithException(file);
-				return cache.remove(key)
-					.get();
+				sync();
+				Record<V> old = cache.get(key);
+				if (old == null)
+					return null;
+				V v = value(old);
+				delete(key);
+				compact();
+				return v;
 			} finally {
 				unlock(lock);
 			}
@@ -256,14 +751,24 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 	}
 
 	@Override
-	public void clear() {
+	public synchronized void clear() {
 		init();
 		try {
 			FileLock lock = lock();
 			try {
-				IO.deleteWithException(data);
+				sync();
+				long next = generation + 1;
+				try (RandomAccessFile out = new RandomAccessFile(log(next), "rw")) {
+					out.setLength(0);
+					out.write(MAGIC);
+				}
+				switchTo(next);
 				cache.clear();
-				IO.mkdirs(data);
+				for (Map<String, Set<String>> index : indexes.values()) {
+					index.clear();
+				}
+				end = MAGIC.length;
+				garbage = 0;
 			} finally {
 				unlock(lock);
 			}
@@ -275,13 +780,8 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 	}
 
 	@Override
-	public Set<String> keySet() {
-		init();
-		return cache.keySet();
-	}
-
-	@Override
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
+		IO.close(logFile);
 		lockFile.close();
 		closed = true;
 		inited = false;
@@ -292,16 +792,17 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 		return "PersistentMap[" + dir + "] " + super.toString();
 	}
 
-	public void clear(long whenOlder) {
+	public synchronized void clear(long whenOlder) {
 		init();
 		try {
 			FileLock lock = lock();
 			try {
-				for (File f : data.listFiles()) {
-					if (f.lastModified() < whenOlder)
-						IO.deleteWithException(f);
+				sync();
+				for (Map.Entry<String, Record<V>> entry : new HashMap<>(cache).entrySet()) {
+					if (entry.getValue().modified < whenOlder)
+						delete(entry.getKey());
 				}
-				cache.clear();
+				compact();
 			} finally {
 				unlock(lock);
 			}
@@ -312,4 +813,4 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 		}
 	}
 
-}
\ No newline at end of file
+}
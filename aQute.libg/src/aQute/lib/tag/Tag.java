@@ -347,6 +347,134 @@ public class Tag {
 		return result;
 	}
 
+	/**
+	 * Print the DTO object in arguments as XML. The output is the same as
+	 * printing the result of {@link #fromDTO(String, String, Object)} with
+	 * {@link #print(int, PrintWriter)} at indent 0 but the tags are written
+	 * while the DTO is traversed, they are not built in memory first.
+	 *
+	 * @param rootName the name of the root tag, may be {@code null}.
+	 * @param arrayElementName a generic name for elements in lists, if
+	 *            {@code null} or empty, the default value "element" will be
+	 *            used.
+	 * @param dto the DTO to print, if {@code null} an empty element is
+	 *            printed.
+	 * @param pw the writer to print to
+	 */
+	public static void printDTO(String rootName, String arrayElementName, Object dto, PrintWriter pw) {
+		if (arrayElementName != null && !arrayElementName.isEmpty() && dto != null) {
+			printDTO(rootName, arrayElementName, dto, true, 0, pw);
+		} else {
+			printDTO(rootName, dto, pw);
+		}
+	}
+
+	/**
+	 * Print the DTO object in arguments as XML. The output is the same as
+	 * printing the result of {@link #fromDTO(String, Object)} with
+	 * {@link #print(int, PrintWriter)} at indent 0 but the tags are written
+	 * while the DTO is traversed, they are not built in memory first.
+	 *
+	 * @param rootName the name of the root tag, may be {@code null}.
+	 * @param dto the DTO to print, if {@code null} an empty element is
+	 *            printed.
+	 * @param pw the writer to print to
+	 */
+	public static void printDTO(String rootName, Object dto, PrintWriter pw) {
+		if (dto == null) {
+			new Tag(rootName).print(0, pw);
+		} else {
+			printDTO(rootName, Tag.ARRAY_ELEMENT_NAME, dto, true, 0, pw);
+		}
+	}
+
+	private static void printDTO(String name, String arrayElementName, Object dto, boolean suffix, int indent,
+		PrintWriter pw) {
+		for (int i = 0; i < indent; i++) {
+			pw.print(' ');
+		}
+		pw.print('<');
+		pw.print(name);
+
+		if (!isComplex(dto)) {
+			pw.print('>');
+			pw.print(escape(dto.toString()));
+			pw.print("</");
+			pw.print(name);
+			pw.print(">\n");
+			return;
+		}
+
+		boolean empty = true;
+		if (dto.getClass()
+			.isArray() || dto instanceof Collection) {
+			String elementName = suffix ? computeArrayElementName(name, arrayElementName) : arrayElementName;
+			Iterable<?> elements = dto instanceof Collection ? (Collection<?>) dto : arrayElements(dto);
+			for (Object element : elements) {
+				if (element != null) {
+					empty = openDTO(empty, pw);
+					printDTO(elementName, arrayElementName, element, false, indent + 2, pw);
+				}
+			}
+		} else if (dto instanceof Map) {
+			for (Entry<?, ?> entry : ((Map<?, ?>) dto).entrySet()) {
+				if (entry.getValue() != null && entry.getKey() != null) {
+					empty = openDTO(empty, pw);
+					printDTO(Objects.toString(entry.getKey()), arrayElementName, entry.getValue(), true, indent + 2,
+						pw);
+				}
+			}
+		} else {
+			for (Field field : (Iterable<Field>) getFields(dto.getClass())::iterator) {
+				Object nextDTO;
+				try {
+					nextDTO = MethodHandles.publicLookup()
+						.unreflectGetter(field)
+						.invoke(dto);
+					/* should not be thrown if input respect dto spec */
+				} catch (Error | RuntimeException bug) {
+					throw bug;
+				} catch (Throwable bug) {
+					throw new RuntimeException(bug);
+				}
+				if (nextDTO != null) {
+					empty = openDTO(empty, pw);
+					printDTO(field.getName(), arrayElementName, nextDTO, true, indent + 2, pw);
+				}
+			}
+		}
+
+		if (empty) {
+			pw.print("/>\n");
+		} else {
+			for (int i = 0; i < indent; i++) {
+				pw.print(' ');
+			}
+			pw.print("</");
+			pw.print(name);
+			pw.print(">\n");
+		}
+	}
+
+	/*
+	 * Close the start tag before the first child is printed
+	 */
+	private static boolean openDTO(boolean empty, PrintWriter pw) {
+		if (empty) {
+			pw.print(">\n");
+		}
+		return false;
+	}
+
+	private static Iterable<Object> arrayElements(Object array) {
+		List<Object> elements = new ArrayList<>();
+		int length = Array.getLength(array);
+		for (int i = 0; i < length; i++) {
+			elements.add(Array.get(array, i));
+		}
+		return elements;
+	}
+
 	private static String computeArrayElementName(String name, String arrayElementName) {
 		if (name != null && name.length() > 0) {
 			final char lastChar = name.charAt(name.length() - 1);
@@ -0,0 +1,25 @@
+package aQute.lib.xml;
+
+import javax.xml.stream.XMLInputFactory;
+
+/**
+ * Factories for XML parsers that are safe to use on untrusted content.
+ */
+public class XMLFactories {
+
+	private XMLFactories() {}
+
+	/**
+	 * Create a factory for streaming parsers that do not support DTDs and do
+	 * not resolve external entities. The parsers are not namespace aware.
+	 *
+	 * @return a new factory that can be further configured by the caller
+	 */
+	public static XMLInputFactory newInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+}
@@ -1095,4 +1095,48 @@ public class JSONTest extends TestCase {
 			.toString();
 		assertEquals("{'foo':'bar'}".replace('\'', '"'), s);
 	}
+
+	public static class Buffered {
+		public List<String>	strings	= new ArrayList<>();
+		public long			number;
+		public final int	fixed	= 1;
+	}
+
+	/**
+	 * The decoder reads in chunks, make sure tokens spanning the chunks are
+	 * decoded correctly.
+	 */
+	public void testDecodeAcrossBuffers() throws Exception {
+		Buffered b = new Buffered();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			sb.append((char) ('a' + i % 26));
+			b.strings.add(sb.toString());
+		}
+		b.number = 1234567890123L;
+		String s = codec.enc()
+			.put(b)
+			.toString();
+		assertTrue(s.length() > 8192 * 2);
+
+		Buffered fromReader = codec.dec()
+			.from(new StringReader(s))
+			.get(Buffered.class);
+		assertEquals(b.strings, fromReader.strings);
+		assertEquals(b.number, fromReader.number);
+
+		Buffered fromBytes = codec.dec()
+			.from(s.getBytes("UTF-8"))
+			.get(Buffered.class);
+		assertEquals(b.strings, fromBytes.strings);
+
+		try {
+			codec.dec()
+				.from("{\"fixed\":2}")
+				.get(Buffered.class);
+			fail("Final fields cannot be set");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
 }
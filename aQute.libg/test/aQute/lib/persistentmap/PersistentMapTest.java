@@ -1,8 +1,11 @@
 package aQute.lib.persistentmap;
 
 import java.io.File;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -70,4 +73,189 @@ public class PersistentMapTest extends TestCase {
 			IO.delete(tmp);
 		}
 	}
+
+	public void testIndex() throws Exception {
+		File tmp = new File("tmp");
+		PersistentMap<X> pm = new PersistentMap<>(new File(tmp, "index"), X.class);
+		try {
+			pm.addIndex("abc", x -> x.abc);
+			for (int i = 0; i < 10; i++) {
+				X x = new X();
+				x.abc = "v" + (i % 3);
+				x.def = i;
+				pm.put("k" + i, x);
+			}
+			assertEquals(new HashSet<>(Arrays.asList("k0", "k3", "k6", "k9")), pm.findKeys("abc", "v0"));
+			pm.remove("k3");
+			X x = pm.get("k6");
+			x.abc = "other";
+			pm.put("k6", x);
+			assertEquals(new HashSet<>(Arrays.asList("k0", "k9")), pm.findKeys("abc", "v0"));
+			assertEquals(Collections.singleton("k6"), pm.findKeys("abc", "other"));
+			assertTrue(pm.findKeys("abc", "none")
+				.isEmpty());
+			pm.close();
+
+			PersistentMap<X> pm2 = new PersistentMap<>(new File(tmp, "index"), X.class);
+			pm2.addIndex("abc", v -> v.abc);
+			pm2.addIndex("def", v -> Integer.toString(v.def));
+			assertEquals(new HashSet<>(Arrays.asList("k0", "k9")), pm2.findKeys("abc", "v0"));
+			assertEquals(Collections.singleton("k7"), pm2.findKeys("def", "7"));
+			assertEquals(9, pm2.size());
+			pm2.close();
+		} finally {
+			pm.close();
+			IO.delete(tmp);
+		}
+	}
+
+	public void testCompaction() throws Exception {
+		File tmp = new File("tmp");
+		File dir = new File(tmp, "compact");
+		PersistentMap<X> pm = new PersistentMap<>(dir, X.class);
+		try {
+			X x = new X();
+			for (int i = 0; i < 200; i++)
+				x.list.add("a fairly long string to make the records large enough " + i);
+
+			for (int round = 0; round < 20; round++) {
+				for (int i = 0; i < 10; i++) {
+					x.def = round;
+					pm.put("k" + i, x);
+				}
+			}
+			File[] logs = logs(dir);
+			assertEquals(1, logs.length);
+			assertFalse(logs[0].getName()
+				.equals("log.0"));
+			long size = logs[0].length();
+			assertTrue("log should have been compacted " + size, size < 20 * 10 * 10000);
+
+			PersistentMap<X> pm2 = new PersistentMap<>(dir, X.class);
+			assertEquals(10, pm2.size());
+			for (int i = 0; i < 10; i++) {
+				assertEquals(19, pm2.get("k" + i).def);
+			}
+
+			// records appended by another instance are picked up on write
+			pm2.put("new", x);
+			pm.put("k0", x);
+			assertTrue(pm.containsKey("new"));
+
+			// a compaction by another instance does not change the log that
+			// is still open in this instance
+			for (int round = 20; round < 40; round++) {
+				for (int i = 0; i < 10; i++) {
+					x.def = round;
+					pm2.put("k" + i, x);
+				}
+			}
+			assertFalse(logs[0].getName()
+				.equals(logs(dir)[0].getName()));
+			assertEquals(19, pm.get("new").def);
+
+			// and the new generation is picked up on write
+			pm.put("new", x);
+			assertEquals(39, pm.get("k1").def);
+			assertEquals(1, logs(dir).length);
+			pm2.close();
+		} finally {
+			pm.close();
+			IO.delete(tmp);
+		}
+	}
+
+	public void testIteratorAfterCompaction() throws Exception {
+		File tmp = new File("tmp");
+		File dir = new File(tmp, "iterator");
+		PersistentMap<X> pm = new PersistentMap<>(dir, X.class);
+		try {
+			X x = new X();
+			for (int i = 0; i < 200; i++)
+				x.list.add("a fairly long string to make the records large enough " + i);
+			for (int i = 0; i < 10; i++)
+				pm.put("k" + i, x);
+
+			List<Map.Entry<String, X>> entries = new ArrayList<>();
+			for (Map.Entry<String, X> e : pm.entrySet())
+				entries.add(e);
+
+			for (int round = 1; round < 20; round++) {
+				for (int i = 0; i < 10; i++) {
+					x.def = round;
+					pm.put("k" + i, x);
+				}
+			}
+			pm.remove("k0");
+			assertFalse(logs(dir)[0].getName()
+				.equals("log.0"));
+
+			for (Map.Entry<String, X> e : entries) {
+				if (e.getKey()
+					.equals("k0"))
+					assertNull(e.getValue());
+				else
+					assertEquals(19, e.getValue().def);
+			}
+		} finally {
+			pm.close();
+			IO.delete(tmp);
+		}
+	}
+
+	public void testTornWrite() throws Exception {
+		File tmp = new File("tmp");
+		File dir = new File(tmp, "torn");
+		PersistentMap<String> pm = new PersistentMap<>(dir, String.class);
+		try {
+			pm.put("a", "1");
+			pm.put("b", "2");
+			pm.close();
+
+			File log = new File(dir, "log.0");
+			try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+				raf.setLength(raf.length() - 3);
+			}
+
+			pm = new PersistentMap<>(dir, String.class);
+			assertEquals(Collections.singleton("a"), pm.keySet());
+			assertEquals("1", pm.get("a"));
+			pm.put("c", "3");
+			pm.close();
+
+			pm = new PersistentMap<>(dir, String.class);
+			assertEquals(new HashSet<>(Arrays.asList("a", "c")), pm.keySet());
+		} finally {
+			pm.close();
+			IO.delete(tmp);
+		}
+	}
+
+	public void testConvertOldLayout() throws Exception {
+		File tmp = new File("tmp");
+		File dir = new File(tmp, "old");
+		File data = new File(dir, "data");
+		IO.mkdirs(data);
+		IO.store("\"def\"", new File(data, "abc"));
+		IO.store("\"xyz\"", new File(data, "uvw"));
+		PersistentMap<String> pm = new PersistentMap<>(dir, String.class);
+		try {
+			assertEquals("def", pm.get("abc"));
+			assertEquals("xyz", pm.get("uvw"));
+			assertTrue(data.isDirectory());
+
+			// the old layout is only converted once
+			pm.remove("abc");
+			pm.close();
+			pm = new PersistentMap<>(dir, String.class);
+			assertEquals(Collections.singleton("uvw"), pm.keySet());
+		} finally {
+			pm.close();
+			IO.delete(tmp);
+		}
+	}
+
+	private static File[] logs(File dir) {
+		return dir.listFiles((d, name) -> name.startsWith("log."));
+	}
 }
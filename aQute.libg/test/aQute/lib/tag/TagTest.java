@@ -9,6 +9,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import junit.framework.TestCase;
 
@@ -152,18 +153,36 @@ public class TagTest extends TestCase {
 		LinkedList<String> e = new LinkedList<>(Arrays.asList(elements));
 		depthCompare(Tag.fromDTO(rootName, dto), e);
 		assertEquals(0, e.size());
+		printCompare(Tag.fromDTO(rootName, dto), pw -> Tag.printDTO(rootName, dto, pw));
 	}
 
 	private static void depthCompareTweak(String rootName, String genericName, Object dto, String... elements) {
 		LinkedList<String> e = new LinkedList<>(Arrays.asList(elements));
 		depthCompare(Tag.fromDTO(rootName, genericName, dto), e);
 		assertEquals(0, e.size());
+		printCompare(Tag.fromDTO(rootName, genericName, dto), pw -> Tag.printDTO(rootName, genericName, dto, pw));
 	}
 
 	private static void depthCompare(Object dto, String... elements) {
 		LinkedList<String> e = new LinkedList<>(Arrays.asList(elements));
 		depthCompare(Tag.fromDTO("root", dto), e);
 		assertEquals(0, e.size());
+		printCompare(Tag.fromDTO("root", dto), pw -> Tag.printDTO("root", dto, pw));
+	}
+
+	/*
+	 * Printing a DTO directly must give the same output as printing its tags
+	 */
+	private static void printCompare(Tag tag, Consumer<PrintWriter> printDTO) {
+		StringWriter expected = new StringWriter();
+		try (PrintWriter pw = new PrintWriter(expected)) {
+			tag.print(0, pw);
+		}
+		StringWriter actual = new StringWriter();
+		try (PrintWriter pw = new PrintWriter(actual)) {
+			printDTO.accept(pw);
+		}
+		assertEquals(expected.toString(), actual.toString());
 	}
 
 	private static void depthCompare(Tag tag, LinkedList<String> elements) {
@@ -63,12 +63,16 @@ import org.gradle.api.GradleException
 import org.gradle.api.Task
 import org.gradle.api.artifacts.Configuration
 import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.tasks.CacheableTask
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFile
 import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
 
+@CacheableTask
 public class Baseline extends DefaultTask {
   private ConfigurableFileCollection bundleCollection
   private ConfigurableFileCollection baselineCollection
@@ -131,6 +135,7 @@ public class Baseline extends DefaultTask {
    * not result in exactly one file.
    */
   @InputFile
+  @PathSensitive(PathSensitivity.NAME_ONLY)
   public File getBundle() {
     return bundleCollection.singleFile
   }
@@ -154,6 +159,7 @@ public class Baseline extends DefaultTask {
    * not result in exactly one file.
    */
   @InputFile
+  @PathSensitive(PathSensitivity.NAME_ONLY)
   public File getBaseline() {
     return baselineCollection.singleFile
   }
@@ -58,7 +58,7 @@ public class BndPlugin implements Plugin<Project> {
         throw new GradleException("The '${PLUGINID}' plugin cannot be applied to the root project. Perhaps you meant to use the '${BndBuilderPlugin.PLUGINID}' plugin?")
       }
       if (!parent.hasProperty('bndWorkspace')) {
-        parent.ext.bndWorkspace = new Workspace(parent.projectDir).setOffline(gradle.startParameter.offline)
+        parent.ext.bndWorkspace = Workspace.getSharedWorkspace(parent.projectDir, Workspace.CNFDIR).setOffline(gradle.startParameter.offline)
       }
       this.bndProject = bndWorkspace.getProject(name)
       if (bndProject == null) {
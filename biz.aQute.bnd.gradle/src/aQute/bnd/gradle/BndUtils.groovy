@@ -4,17 +4,25 @@
 
 package aQute.bnd.gradle
 
+import aQute.bnd.header.Parameters
+import aQute.bnd.osgi.Constants
+import aQute.bnd.osgi.Processor
+import aQute.libg.uri.URIUtil
 import groovy.transform.CompileStatic
 import org.gradle.api.Action
 import org.gradle.api.Buildable
 import org.gradle.api.Project
 import org.gradle.api.Task
 import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.tasks.ClasspathNormalizer
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskInputFilePropertyBuilder
 import org.gradle.api.tasks.TaskProvider
 import org.gradle.api.logging.Logger
 import org.gradle.util.GradleVersion
 
 class BndUtils {
+  private static final boolean IS_GRADLE_MIN_43 = GradleVersion.current().compareTo(GradleVersion.version("4.3"))>=0
   private static final boolean IS_GRADLE_MIN_50 = GradleVersion.current().compareTo(GradleVersion.version("5.0"))>=0
 
   private BndUtils() { }
@@ -100,6 +108,58 @@ class BndUtils {
     }
   }
 
+  /**
+   * Fingerprint the input files as a classpath. Before Gradle 4.3,
+   * only the file names and content are used.
+   */
+  @CompileStatic
+  public static TaskInputFilePropertyBuilder withClasspathNormalizer(TaskInputFilePropertyBuilder builder) {
+    if (IS_GRADLE_MIN_43) {
+      return builder.withNormalizer(ClasspathNormalizer.class)
+    } else {
+      return builder.withPathSensitivity(PathSensitivity.NAME_ONLY)
+    }
+  }
+
+  /**
+   * Return the files included, directly or indirectly, by the
+   * specified bnd file.
+   */
+  public static Set<File> includedFiles(File bndfile) {
+    if (!bndfile?.isFile()) {
+      return []
+    }
+    new Processor().withCloseable { Processor processor ->
+      processor.setBase(bndfile.parentFile)
+      processor.setProperties(bndfile.parentFile, processor.loadProperties(bndfile))
+      return processor.getIncluded() as Set
+    }
+  }
+
+  /**
+   * Return the locations of the repository indexes of the -standalone
+   * instruction in the specified bndrun file.
+   *
+   * <p>
+   * Returns null if the repositories are defined by the plugins
+   * of the bndrun file.
+   */
+  public static List<URI> standaloneLocations(File bndrun) {
+    if (!bndrun?.isFile()) {
+      return []
+    }
+    new Processor().withCloseable { Processor processor ->
+      processor.setProperties(bndrun)
+      List<String> locations = new Parameters(processor.getProperty(Constants.STANDALONE), processor).keySet().collect {
+        Processor.removeDuplicateMarker(it)
+      }
+      if (locations.any { 'true'.equalsIgnoreCase(it) }) {
+        return null
+      }
+      return locations.collect { URIUtil.resolve(bndrun.toURI(), it) }
+    }
+  }
+
   @CompileStatic
   public static Object toTask(Object t) {
     if (IS_GRADLE_MIN_50) {
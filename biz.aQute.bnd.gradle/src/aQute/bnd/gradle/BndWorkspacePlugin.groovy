@@ -99,9 +99,13 @@ public class BndWorkspacePlugin implements Plugin<Object> {
       /* Initialize the Bnd workspace */
       Workspace.setDriver(Constants.BNDDRIVER_GRADLE)
       Workspace.addGestalt(Constants.GESTALT_BATCH, null)
-      Workspace workspace = new Workspace(rootDir, cnf).setOffline(startParameter.offline)
+      Workspace workspace
       if (gradle.ext.has('bndWorkspaceConfigure')) {
+        workspace = new Workspace(rootDir, cnf).setOffline(startParameter.offline)
         gradle.bndWorkspaceConfigure(workspace)
+      } else {
+        /* Reuse the workspace of a previous build in this daemon */
+        workspace = Workspace.getSharedWorkspace(rootDir, cnf).setOffline(startParameter.offline)
       }
 
       /* Prepare each project in the workspace to establish complete 
@@ -154,9 +158,12 @@ public class BndWorkspacePlugin implements Plugin<Object> {
       if (!ext.has('bndWorkspace')) { // if not passed from settings
         Workspace.setDriver(Constants.BNDDRIVER_GRADLE)
         Workspace.addGestalt(Constants.GESTALT_BATCH, null)
-        ext.bndWorkspace = new Workspace(projectDir, bnd_cnf).setOffline(gradle.startParameter.offline)
         if (gradle.ext.has('bndWorkspaceConfigure')) {
+          ext.bndWorkspace = new Workspace(projectDir, bnd_cnf).setOffline(gradle.startParameter.offline)
           gradle.bndWorkspaceConfigure(bndWorkspace)
+        } else {
+          /* Reuse the workspace of a previous build in this daemon */
+          ext.bndWorkspace = Workspace.getSharedWorkspace(projectDir, bnd_cnf).setOffline(gradle.startParameter.offline)
         }
       }
 
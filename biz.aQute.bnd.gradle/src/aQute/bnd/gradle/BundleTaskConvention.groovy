@@ -19,16 +19,25 @@
  * <li>classpath - This is the FileCollection to use for the buildpath
  * for the bnd builder. It defaults to 'sourceSet.compileClasspath'.</li>
  * </ul>
+ *
+ * <p>
+ * The task outputs are cacheable. The classpath, the source set, the bnd file
+ * and the files it includes are inputs of the task and are fingerprinted
+ * independent of the location of the project. The values of the project and
+ * task properties that the bnd instructions refer to, like ${project.version},
+ * are inputs with the paths of the project made relative.
  */
 
 package aQute.bnd.gradle
 
 import static aQute.bnd.gradle.BndUtils.logReport
 import static aQute.bnd.gradle.BndUtils.builtBy
+import static aQute.bnd.gradle.BndUtils.withClasspathNormalizer
 
 import java.util.Properties
 import java.util.jar.Manifest
 import java.util.regex.Matcher
+import java.util.regex.Pattern
 import java.util.zip.ZipException
 import java.util.zip.ZipFile
 
@@ -47,9 +56,11 @@ import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFile
 import org.gradle.api.tasks.InputFiles
 import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.SourceSet
 
 class BundleTaskConvention {
+  private static final Pattern GRADLE_MACRO = ~/\$[\{\(\[<\u00ab\u2039]((?:project|task)\.[\w.]+)/
   private final Task task
   private final Project project
   private File bndfile
@@ -73,9 +84,13 @@ class BundleTaskConvention {
     setSourceSet(project.sourceSets.main)
     classpathModified = false
     // need to programmatically add to inputs since @InputFiles in a convention is not processed
-    task.inputs.files(classpathCollection).withPropertyName('classpath')
-    task.inputs.file({ getBndfile() }).optional().withPropertyName('bndfile')
+    withClasspathNormalizer(task.inputs.files(classpathCollection)).withPropertyName('classpath')
+    task.inputs.file({ getBndfile() }).optional().withPathSensitivity(PathSensitivity.RELATIVE).withPropertyName('bndfile')
+    task.inputs.files({ getIncludedFiles() }).withPathSensitivity(PathSensitivity.RELATIVE).withPropertyName('includedFiles')
+    task.inputs.files({ getSourceSet().allSource }).withPathSensitivity(PathSensitivity.RELATIVE).withPropertyName('sourcepath')
     task.inputs.property('bnd', { getBnd() })
+    task.inputs.property('gradleProperties', { getGradleProperties() })
+    task.outputs.cacheIf('bnd bundles are cacheable') { true }
   }
 
   /**
@@ -190,6 +205,86 @@ class BundleTaskConvention {
     }
   }
 
+  /**
+   * Return the files included by the bnd instructions of the task.
+   *
+   * <p>
+   * The instructions come from the jar task manifest and from the
+   * bndfile property or the bnd property.
+   */
+  Set<File> getIncludedFiles() {
+    new Processor().withCloseable { Processor processor ->
+      UTF8Properties properties = task.manifest.effectiveManifest.attributes.inject(new UTF8Properties()) { props, key, value ->
+        if (key != 'Manifest-Version') {
+          props.setProperty(key, value.toString())
+        }
+        return props
+      }.replaceHere(project.projectDir)
+      if (bndfile?.isFile()) {
+        properties.putAll(processor.loadProperties(bndfile))
+      } else if (!bnd.empty) {
+        UTF8Properties props = new UTF8Properties()
+        props.load(bnd, project.buildFile, processor)
+        properties.putAll(props.replaceHere(project.projectDir))
+      }
+      processor.setBase(project.projectDir)
+      processor.setProperties(project.projectDir, properties)
+      return processor.getIncluded() as Set
+    }
+  }
+
+  /**
+   * Return the values of the project and task properties the bundle depends on.
+   *
+   * <p>
+   * These are the properties that the bnd instructions of the task refer
+   * to with macros like ${project.version} and the task properties that are
+   * used for the default bundle symbolic name and version. The paths of the
+   * project are made relative so the values do not depend on the location
+   * of the project.
+   */
+  Map<String, String> getGradleProperties() {
+    StringBuilder text = new StringBuilder()
+    task.manifest.effectiveManifest.attributes.each { key, value ->
+      text.append(value).append('\n')
+    }
+    if (bndfile?.isFile()) {
+      text.append(bndfile.getText('UTF-8')).append('\n')
+    } else {
+      text.append(bnd)
+    }
+    getIncludedFiles().each { File file ->
+      if (file.isFile()) {
+        text.append(file.getText('UTF-8')).append('\n')
+      }
+    }
+
+    Set<String> keys = new TreeSet<>(['task.baseName', 'task.version'])
+    Matcher matcher = GRADLE_MACRO.matcher(text)
+    while (matcher.find()) {
+      keys.add(matcher.group(1))
+    }
+
+    Properties gradleProperties = new PropertiesWrapper()
+    gradleProperties.put('task', task)
+    gradleProperties.put('project', project)
+    return keys.collectEntries { String key ->
+      String value = (key == 'project.output') ? project.buildDir.canonicalPath : gradleProperties.getProperty(key)
+      return [(key): relativePaths(value)]
+    }
+  }
+
+  private String relativePaths(String value) {
+    if (value == null) {
+      return null
+    }
+    [project.projectDir, project.rootDir].each { File dir ->
+      String relative = project.relativePath(dir) ?: '.'
+      value = value.replace(dir.canonicalPath, relative).replace(dir.absolutePath, relative)
+    }
+    return value
+  }
+
   void buildBundle() {
     task.configure {
       // create Builder
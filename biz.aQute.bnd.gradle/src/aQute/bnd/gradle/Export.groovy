@@ -37,13 +37,20 @@
  * 'sourceSets.main.runtimeClasspath' plus
  * 'configurations.archives.artifacts.files'.</li>
  * </ul>
+ *
+ * <p>
+ * The task outputs are cacheable when the bndrun file is not in a bnd
+ * workspace and all the repository indexes of its -standalone instruction
+ * are local files. Otherwise the repositories are not inputs of the task.
  */
 
 package aQute.bnd.gradle
 
 import static aQute.bnd.exporter.executable.ExecutableJarExporter.EXECUTABLE_JAR
 import static aQute.bnd.exporter.runbundles.RunbundlesExporter.RUNBUNDLES
+import static aQute.bnd.gradle.BndUtils.includedFiles
 import static aQute.bnd.gradle.BndUtils.logReport
+import static aQute.bnd.gradle.BndUtils.standaloneLocations
 
 import aQute.bnd.build.Run
 import aQute.bnd.build.Workspace
@@ -51,12 +58,17 @@ import aQute.lib.io.IO
 
 import org.gradle.api.DefaultTask
 import org.gradle.api.GradleException
+import org.gradle.api.tasks.CacheableTask
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.InputFiles
 import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
 
+@CacheableTask
 public class Export extends DefaultTask {
   /**
    * This property is replace by exporter.
@@ -87,6 +99,12 @@ public class Export extends DefaultTask {
     if (bndWorkspace == null) {
       convention.plugins.bundles = new FileSetRepositoryConvention(this)
     }
+    outputs.doNotCacheIf('bnd workspace repositories are not task inputs') {
+      bndWorkspace != null
+    }
+    outputs.doNotCacheIf('-standalone repositories are not local files') {
+      standaloneLocations(bndrun)?.every { it.scheme == 'file' } != true
+    }
   }
 
   /**
@@ -94,10 +112,33 @@ public class Export extends DefaultTask {
    *
    */
   @InputFile
+  @PathSensitive(PathSensitivity.RELATIVE)
   public File getBndrun() {
     return bndrun
   }
 
+  /**
+   * Return the files included by the bndrun file.
+   *
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public Set<File> getIncludedFiles() {
+    return includedFiles(bndrun)
+  }
+
+  /**
+   * Return the local repository index files of the -standalone
+   * instruction of the bndrun file.
+   *
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NAME_ONLY)
+  public List<File> getRepositoryIndexes() {
+    List<URI> locations = standaloneLocations(bndrun) ?: []
+    return locations.findAll { it.scheme == 'file' }.collect { new File(it) }
+  }
+
   /**
    * Set the bndfile to be exported.
    *
@@ -22,6 +22,7 @@ import org.gradle.api.Project
 import org.gradle.api.Task
 import org.gradle.api.file.ConfigurableFileCollection
 import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.PathSensitivity
 
 
 class FileSetRepositoryConvention {
@@ -37,7 +38,7 @@ class FileSetRepositoryConvention {
     bundleCollection = project.files()
     bundles(project.sourceSets.main.runtimeClasspath, project.configurations.archives.artifacts.files)
     // need to programmatically add to inputs since @InputFiles in a convention is not processed
-    task.inputs.files(bundleCollection).withPropertyName('bundles')
+    task.inputs.files(bundleCollection).withPathSensitivity(PathSensitivity.NAME_ONLY).withPropertyName('bundles')
   }
 
   /**
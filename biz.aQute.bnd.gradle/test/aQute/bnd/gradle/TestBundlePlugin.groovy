@@ -117,4 +117,68 @@ class TestBundlePlugin extends Specification {
           result.task(':bundle').outcome == UP_TO_DATE
           result.task(':jar').outcome == UP_TO_DATE
     }
+
+    def "Bnd Builder Plugin Build Cache Test"() {
+        given:
+          String testProject = 'builderplugin2'
+          File testProjectDir = new File(testResources, testProject).canonicalFile
+          assert testProjectDir.isDirectory()
+          File testProjectBuildDir = new File(testProjectDir, 'build').canonicalFile
+          File bundle = new File(testProjectBuildDir, "libs/${testProject}-1.0.0.jar")
+
+        when:
+          def result = TestHelper.getGradleRunner()
+            .withProjectDir(testProjectDir)
+            .withArguments('--stacktrace', '--build-cache', 'jar')
+            .withPluginClasspath()
+            .forwardOutput()
+            .build()
+
+        then:
+          result.task(':jar').outcome == SUCCESS
+          bundle.isFile()
+
+        when:
+          result = TestHelper.getGradleRunner()
+            .withProjectDir(testProjectDir)
+            .withArguments('--stacktrace', '--build-cache', 'clean', 'jar')
+            .withPluginClasspath()
+            .forwardOutput()
+            .build()
+
+        then:
+          result.task(':jar').outcome == FROM_CACHE
+          new JarFile(bundle).withCloseable { JarFile jar ->
+            jar.getManifest().getMainAttributes().getValue('X-Included')
+          } == 'first'
+
+        when:
+          new File(testProjectDir, 'other.bnd').text = 'X-Included: second\n'
+          result = TestHelper.getGradleRunner()
+            .withProjectDir(testProjectDir)
+            .withArguments('--stacktrace', '--build-cache', 'jar')
+            .withPluginClasspath()
+            .forwardOutput()
+            .build()
+
+        then:
+          result.task(':jar').outcome == SUCCESS
+          new JarFile(bundle).withCloseable { JarFile jar ->
+            jar.getManifest().getMainAttributes().getValue('X-Included')
+          } == 'second'
+
+        when:
+          result = TestHelper.getGradleRunner()
+            .withProjectDir(testProjectDir)
+            .withArguments('--stacktrace', '--build-cache', '-PbundleDescription=second', 'jar')
+            .withPluginClasspath()
+            .forwardOutput()
+            .build()
+
+        then:
+          result.task(':jar').outcome == SUCCESS
+          new JarFile(bundle).withCloseable { JarFile jar ->
+            jar.getManifest().getMainAttributes().getValue('Bundle-Description')
+          } == 'second'
+    }
 }
@@ -0,0 +1,5 @@
+package doubler;
+
+public interface Doubler {
+    int doubleIt(int toDouble);
+}
@@ -20,11 +20,13 @@ public class BundleBuilder implements BundleSpecBuilder {
 	final JUnitFramework		ws;
 	final BuilderSpecification	spec		= new BuilderSpecification();
 	final List<Closeable>		closeables	= new ArrayList<>();
+	final String				generated;
 
 	BundleBuilder(JUnitFramework ws) {
 		this.ws = ws;
 		spec.classpath.add(ws.builder.local.bin_test);
-		bundleSymbolicName("t-" + JUnitFrameworkBuilder.counter.incrementAndGet());
+		generated = "t-" + JUnitFrameworkBuilder.counter.incrementAndGet();
+		bundleSymbolicName(generated);
 	}
 
 	/**
@@ -72,6 +74,15 @@ public class BundleBuilder implements BundleSpecBuilder {
 		return name;
 	}
 
+	/**
+	 * Build the bundle on the remote workspace, or take it from the cache when
+	 * an identical specification was built before.
+	 */
+	byte[] build() throws Exception {
+		return BundleCache.get(spec, generated, () -> JUnitFrameworkBuilder.workspace
+			.build(JUnitFrameworkBuilder.projectDir.getAbsolutePath(), spec));
+	}
+
 	void addClose(Closeable closeable) {
 		closeables.add(closeable);
 	}
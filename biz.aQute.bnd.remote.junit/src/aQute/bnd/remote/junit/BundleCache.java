@@ -0,0 +1,251 @@
+package aQute.bnd.remote.junit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.osgi.framework.Constants;
+
+import aQute.bnd.service.specifications.BuilderSpecification;
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
+
+/**
+ * A JVM wide cache of the bundles built from a {@link BuilderSpecification}.
+ * Many tests build the same bundle, building it requires a round trip to the
+ * remote workspace that runs a full bnd Builder.
+ * <p>
+ * A bundle is keyed on a digest of its specification and of the content of
+ * the files it is built from: every file in the directories and JARs on the
+ * classpath, the files in the include resource instructions, relative to the
+ * project directory, and the project's bnd file when the specification
+ * inherits from the project. A Bundle-SymbolicName that was
+ * generated by the {@link BundleBuilder} is not part of the key, a cached
+ * bundle gets the generated name of the builder that requests it. The size of
+ * the cache is set with the {@value #SIZE_PROPERTY} system property, 0
+ * disables the cache.
+ */
+class BundleCache {
+	final static String						SIZE_PROPERTY	= "junit.bundle.cache.size";
+	final static int						SIZE			= Integer.getInteger(SIZE_PROPERTY, 64);
+
+	private final static Map<String, Cached>	cache			= new LinkedHashMap<>(64, 0.75f, true);
+
+	private BundleCache() {}
+
+	/**
+	 * Answer the bundle for a specification, build it when it is not cached.
+	 *
+	 * @param spec the specification of the bundle
+	 * @param generated the generated Bundle-SymbolicName of the specification
+	 *            or {@code null}
+	 * @param build builds the bundle when it is not cached
+	 * @return the bytes of the bundle
+	 */
+	static byte[] get(BuilderSpecification spec, String generated, Callable<byte[]> build) throws Exception {
+		if (SIZE <= 0)
+			return build.call();
+
+		String key = key(spec, generated);
+		Cached cached;
+		synchronized (cache) {
+			cached = cache.get(key);
+		}
+		if (cached != null) {
+			if (generated == null || generated.equals(cached.bsn))
+				return cached.bundle;
+			return rename(cached.bundle, generated);
+		}
+
+		byte[] bundle = build.call();
+
+		synchronized (cache) {
+			cache.put(key, new Cached(generated, bundle));
+			for (Iterator<String> i = cache.keySet()
+				.iterator(); i.hasNext() && cache.size() > SIZE;) {
+				i.next();
+				i.remove();
+			}
+		}
+		return bundle;
+	}
+
+	/**
+	 * Answer the number of cached bundles.
+	 */
+	static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Remove all cached bundles.
+	 */
+	static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/*
+	 * Calculate the digest of the specification and the files it refers to
+	 */
+	static String key(BuilderSpecification spec, String generated) throws Exception {
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (DataOutputStream out = new DataOutputStream(digester)) {
+			write(out, JUnitFrameworkBuilder.projectDir.getAbsolutePath());
+			out.writeBoolean(spec.inherit);
+			out.writeBoolean(spec.failOk);
+			out.writeBoolean(spec.sources);
+			out.writeBoolean(spec.resourceOnly);
+			write(out, spec.bundleVersion);
+			write(out, spec.bundleActivator);
+			if (generated != null && spec.bundleSymbolicName.size() == 1 && spec.bundleSymbolicName.get(generated)
+				.isEmpty())
+				write(out, Collections.emptyMap());
+			else
+				write(out, spec.bundleSymbolicName);
+			write(out, spec.fragmentHost);
+			write(out, spec.requireBundle);
+			write(out, spec.bundleNativeCode);
+			write(out, spec.importPackage);
+			write(out, spec.exportPackage);
+			write(out, spec.provideCapability);
+			write(out, spec.requireCapability);
+			write(out, spec.includeresource);
+			write(out, spec.exportContents);
+			write(out, spec.privatePackage);
+			for (Map.Entry<String, String> e : new TreeMap<>(spec.other).entrySet()) {
+				write(out, e.getKey());
+				write(out, e.getValue());
+			}
+
+			for (String path : spec.classpath) {
+				write(out, path);
+				if (path != null)
+					content(out, new File(path));
+			}
+
+			//
+			// Include resources that are not found on the classpath
+			//
+
+			for (String include : spec.includeresource.keySet()) {
+				String source = include.replaceAll("~+$", "");
+				source = source.substring(source.lastIndexOf('=') + 1)
+					.replaceAll("^[{@-]+|}$", "");
+				File file = IO.getFile(JUnitFrameworkBuilder.projectDir, source);
+				if (file.exists())
+					content(out, file);
+			}
+
+			if (spec.inherit)
+				content(out, new File(JUnitFrameworkBuilder.projectDir, "bnd.bnd"));
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	/*
+	 * Replace the Bundle-SymbolicName in the manifest of a bundle
+	 */
+	private static byte[] rename(byte[] bundle, String bsn) throws IOException {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream(bundle.length);
+		try (JarInputStream jin = new JarInputStream(new ByteArrayInputStream(bundle), false)) {
+			Manifest manifest = jin.getManifest();
+			manifest.getMainAttributes()
+				.putValue(Constants.BUNDLE_SYMBOLICNAME, bsn);
+			try (JarOutputStream jout = new JarOutputStream(bout, manifest)) {
+				byte[] buffer = new byte[8192];
+				for (JarEntry entry; (entry = jin.getNextJarEntry()) != null;) {
+					JarEntry copy = new JarEntry(entry.getName());
+					copy.setTime(entry.getTime());
+					jout.putNextEntry(copy);
+					for (int size; (size = jin.read(buffer, 0, buffer.length)) > 0;) {
+						jout.write(buffer, 0, size);
+					}
+					jout.closeEntry();
+				}
+			}
+		}
+		return bout.toByteArray();
+	}
+
+	private static void content(DataOutputStream out, File file) throws IOException {
+		if (file.isDirectory()) {
+			Path root = file.toPath();
+			List<Path> paths;
+			try (Stream<Path> walk = Files.walk(root)) {
+				paths = walk.filter(Files::isRegularFile)
+					.sorted()
+					.collect(Collectors.toList());
+			}
+			for (Path path : paths) {
+				write(out, root.relativize(path)
+					.toString());
+				content(out, path.toFile());
+			}
+		} else if (file.isFile()) {
+			out.writeLong(file.length());
+			IO.copy(file, out);
+		} else {
+			out.writeLong(-1L);
+		}
+	}
+
+	private static void write(DataOutputStream out, Map<String, Map<String, String>> map) throws IOException {
+		out.writeInt(map.size());
+		for (Map.Entry<String, Map<String, String>> e : map.entrySet()) {
+			write(out, e.getKey());
+			Map<String, String> attrs = e.getValue();
+			out.writeInt(attrs == null ? -1 : attrs.size());
+			if (attrs != null) {
+				for (Map.Entry<String, String> a : attrs.entrySet()) {
+					write(out, a.getKey());
+					write(out, a.getValue());
+				}
+			}
+		}
+	}
+
+	static class Cached {
+		final String	bsn;
+		final byte[]	bundle;
+
+		Cached(String bsn, byte[] bundle) {
+			this.bsn = bsn;
+			this.bundle = bundle;
+		}
+	}
+
+	private static void write(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -926,8 +926,7 @@ public interface BundleSpecBuilder {
 	}
 
 	default Bundle install() throws Exception {
-		byte[] build = JUnitFrameworkBuilder.workspace.build(JUnitFrameworkBuilder.projectDir.getAbsolutePath(),
-				x().spec);
+		byte[] build = x().build();
 		String name = x().spec.bundleSymbolicName.toString();
 		ByteArrayInputStream bin = new ByteArrayInputStream(build);
 		return x().ws.getBundleContext()
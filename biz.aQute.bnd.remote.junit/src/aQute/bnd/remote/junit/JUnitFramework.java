@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -48,6 +50,7 @@ import org.osgi.framework.launch.Framework;
 import org.osgi.framework.namespace.PackageNamespace;
 import org.osgi.framework.wiring.BundleCapability;
 import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
 import org.osgi.util.tracker.ServiceTracker;
 
 import aQute.bnd.header.Parameters;
@@ -55,6 +58,7 @@ import aQute.bnd.osgi.Builder;
 import aQute.lib.converter.Converter;
 import aQute.lib.exceptions.Exceptions;
 import aQute.lib.inject.Injector;
+import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.libg.glob.Glob;
 
@@ -87,11 +91,15 @@ public class JUnitFramework implements AutoCloseable {
 	final Map<Class<?>, ServiceTracker<?, ?>>	injectedDoNotClose		= new HashMap<>();
 	final Set<String>							frameworkExports;
 	final List<String>							errors					= new ArrayList<>();
+	final List<Closeable>						hidden					= new CopyOnWriteArrayList<>();
 
 	Bundle										testbundle;
 	boolean										debug;
 	PrintStream									out						= System.err;
 	ServiceTracker<FindHook, FindHook>			hooks;
+	String										poolKey;
+	Set<Long>									baseline;
+	Set<Long>									active;
 
 	JUnitFramework(JUnitFrameworkBuilder jUnitFrameworkBuilder, Framework framework) {
 		try {
@@ -293,10 +301,20 @@ public class JUnitFramework implements AutoCloseable {
 	}
 
 	/**
-	 * Close this framework
+	 * Close this framework. A pooled framework is reset to its baseline and
+	 * returned to the pool instead.
 	 */
 	@Override
 	public void close() throws Exception {
+		if (poolKey != null) {
+			try {
+				reset();
+				JUnitFrameworkBuilder.release(poolKey, this);
+				return;
+			} catch (Exception e) {
+				report("Failed to reset the pooled framework, stopping it : %s", e);
+			}
+		}
 		report("Stop the framework");
 		framework.stop();
 		report("Stopped the framework");
@@ -619,10 +637,17 @@ public class JUnitFramework implements AutoCloseable {
 
 			}, null);
 
-		return () -> {
-			eventReg.unregister();
-			findReg.unregister();
+		Closeable closeable = new Closeable() {
+			@Override
+			public void close() {
+				if (hidden.remove(this)) {
+					eventReg.unregister();
+					findReg.unregister();
+				}
+			}
 		};
+		hidden.add(closeable);
+		return closeable;
 	}
 
 	/**
@@ -692,6 +717,68 @@ public class JUnitFramework implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Make this started framework a pooled framework. The bundles that are
+	 * installed now, except the test bundle, are the baseline it is reset to
+	 * when it is closed.
+	 */
+	void pool(String poolKey) {
+		this.baseline = Stream.of(framework.getBundleContext()
+			.getBundles())
+			.filter(b -> b != testbundle)
+			.map(Bundle::getBundleId)
+			.collect(Collectors.toSet());
+		this.active = Stream.of(framework.getBundleContext()
+			.getBundles())
+			.filter(b -> b.getState() == Bundle.ACTIVE)
+			.map(Bundle::getBundleId)
+			.collect(Collectors.toSet());
+		this.poolKey = poolKey;
+	}
+
+	/**
+	 * Reset a pooled framework to its baseline. All bundles installed after
+	 * the baseline are uninstalled, the packages are refreshed, and baseline
+	 * bundles that were active and have been stopped are started again.
+	 */
+	void reset() throws Exception {
+		report("Reset the framework to its baseline");
+		hidden.forEach(IO::close);
+
+		for (Bundle b : framework.getBundleContext()
+			.getBundles()) {
+			if (!baseline.contains(b.getBundleId())) {
+				report("Uninstalling %s", b);
+				b.uninstall();
+			}
+		}
+		testbundle = null;
+
+		CountDownLatch refreshed = new CountDownLatch(1);
+		framework.adapt(FrameworkWiring.class)
+			.refreshBundles(null, event -> refreshed.countDown());
+		if (!refreshed.await(builder.closeTimeout, TimeUnit.MILLISECONDS))
+			throw new TimeoutException("Refreshing the bundles of " + framework + " timed out");
+
+		for (Bundle b : framework.getBundleContext()
+			.getBundles()) {
+			if (active.contains(b.getBundleId()) && b.getState() != Bundle.ACTIVE) {
+				report("Restarting %s", b);
+				b.start();
+			}
+		}
+		errors.clear();
+		frameworkEvents.clear();
+	}
+
+	/**
+	 * Prepare a pooled framework that was reset for the next test
+	 */
+	void reuse() {
+		if (builder.testbundle)
+			testbundle();
+	}
+
 	/**
 	 * Stop the framework if not yet stopped
 	 */
@@ -6,10 +6,15 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,12 +38,13 @@ import aQute.lib.strings.Strings;
  */
 public class JUnitFrameworkBuilder implements AutoCloseable {
 
-	final static ExecutorService	executor	= Executors.newCachedThreadPool();
-	final static File				projectDir	= IO.work;
-	final static RemoteWorkspace	workspace	= RemoteWorkspaceClientFactory.create(projectDir,
+	final static ExecutorService					executor	= Executors.newCachedThreadPool();
+	final static File								projectDir	= IO.work;
+	final static RemoteWorkspace					workspace	= RemoteWorkspaceClientFactory.create(projectDir,
 		new RemoteWorkspaceClient() {});
-	final static RunSpecification	projectTestSetup;
-	final static AtomicInteger		counter		= new AtomicInteger();
+	final static RunSpecification					projectTestSetup;
+	final static AtomicInteger						counter		= new AtomicInteger();
+	final static Map<String, Deque<JUnitFramework>>	pool		= new HashMap<>();
 
 	static {
 		projectTestSetup = workspace.analyzeTestSetup(IO.work.getAbsolutePath());
@@ -55,6 +61,17 @@ public class JUnitFrameworkBuilder implements AutoCloseable {
 
 		Runtime.getRuntime()
 			.addShutdownHook(new Thread(() -> {
+				synchronized (pool) {
+					pool.values()
+						.forEach(frameworks -> frameworks.forEach(jUnitFramework -> {
+							try {
+								jUnitFramework.framework.stop();
+							} catch (Exception e) {
+								// ignore
+							}
+						}));
+					pool.clear();
+				}
 				try {
 					workspace.close();
 				} catch (IOException e) {
@@ -68,6 +85,7 @@ public class JUnitFrameworkBuilder implements AutoCloseable {
 	boolean				testbundle	= true;
 	long				closeTimeout	= 60000;
 	boolean				debug;
+	boolean				pooled;
 
 	/**
 	 * Start a framework assuming the current working directory is the project
@@ -169,7 +187,34 @@ public class JUnitFrameworkBuilder implements AutoCloseable {
 		return this;
 	}
 
+	/**
+	 * Take the framework from a pool of frameworks with the same
+	 * configuration. A pooled framework is started once and installs its
+	 * runbundles once. When it is closed it is reset to this baseline: all
+	 * bundles that were installed afterwards, including the test bundle, are
+	 * uninstalled and runbundles that were active are started again if they
+	 * were stopped. The framework is then returned to the pool for the next
+	 * test. A framework that is created in {@link #nostart()} mode is never
+	 * pooled.
+	 */
+	public JUnitFrameworkBuilder pooled() {
+		this.pooled = true;
+		return this;
+	}
+
 	public JUnitFramework create() {
+		String poolKey = null;
+		if (pooled && start) {
+			poolKey = getPoolKey();
+			JUnitFramework jUnitFramework = take(poolKey);
+			if (jUnitFramework != null) {
+				jUnitFramework.debug = debug;
+				jUnitFramework.report("Reusing pooled framework %s", jUnitFramework.framework);
+				jUnitFramework.reuse();
+				return jUnitFramework;
+			}
+		}
+
 		try {
 			File storage = IO.getFile(new File(local.target), "junit-fw-" + counter.incrementAndGet());
 			IO.delete(storage);
@@ -201,12 +246,46 @@ public class JUnitFrameworkBuilder implements AutoCloseable {
 				jUnitFramework.start();
 			}
 
+			if (poolKey != null) {
+				jUnitFramework.pool(poolKey);
+			}
+
 			return jUnitFramework;
 		} catch (Exception e) {
 			throw Exceptions.duck(e);
 		}
 	}
 
+	/*
+	 * Frameworks can be shared when everything that is used to create and
+	 * start them is the same. The properties that create() sets are derived
+	 * from the other parts of the key.
+	 */
+	private String getPoolKey() {
+		Map<String, String> properties = new TreeMap<>(local.properties);
+		properties.remove(Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA);
+		properties.remove(Constants.FRAMEWORK_SYSTEMCAPABILITIES_EXTRA);
+		properties.remove(Constants.FRAMEWORK_STORAGE);
+		properties.remove(Constants.FRAMEWORK_STORAGE_CLEAN);
+		properties.remove(Constants.FRAMEWORK_BUNDLE_PARENT);
+		return Strings.join("\n", Arrays.asList(local.runfw, local.runpath, local.runbundles, local.extraSystemPackages,
+			local.extraSystemCapabilities, properties, local.bin_test, testbundle));
+	}
+
+	private static JUnitFramework take(String poolKey) {
+		synchronized (pool) {
+			Deque<JUnitFramework> frameworks = pool.get(poolKey);
+			return frameworks == null ? null : frameworks.pollFirst();
+		}
+	}
+
+	static void release(String poolKey, JUnitFramework jUnitFramework) {
+		synchronized (pool) {
+			pool.computeIfAbsent(poolKey, k -> new ArrayDeque<>())
+				.addFirst(jUnitFramework);
+		}
+	}
+
 	// private Map<String, Map<String, String>> addUses(Map<String, Map<String,
 	// String>> extraSystemPackages) {
 	// String uses = extraSystemPackages.keySet()
@@ -23,6 +23,7 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.launch.Framework;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -36,6 +37,7 @@ import aQute.bnd.remote.junit.test.inject.SomeService;
 import aQute.bnd.remoteworkspace.client.RemoteWorkspaceClientFactory;
 import aQute.bnd.service.remoteworkspace.RemoteWorkspace;
 import aQute.bnd.service.remoteworkspace.RemoteWorkspaceClient;
+import aQute.bnd.service.specifications.BuilderSpecification;
 import aQute.lib.io.IO;
 
 public class JUnitFrameworkTest {
@@ -411,6 +413,83 @@ public class JUnitFrameworkTest {
 		}
 
 	}
+	@Test
+	public void testPooled() throws Exception {
+		Framework framework;
+		Bundle x;
+		try (JUnitFramework fw = builder.runfw("org.apache.felix.framework")
+			.pooled()
+			.create()) {
+			framework = fw.getFramework();
+			x = fw.bundle()
+				.start();
+			assertThat(x.getState()).isEqualTo(Bundle.ACTIVE);
+			fw.register(String.class, "Hello");
+		}
+		assertThat(x.getState()).isEqualTo(Bundle.UNINSTALLED);
+
+		try (JUnitFramework fw = new JUnitFrameworkBuilder().runfw("org.apache.felix.framework")
+			.pooled()
+			.create()) {
+			assertThat(fw.getFramework()).isSameAs(framework);
+			assertThat(fw.getBundleContext()
+				.getBundle(x.getBundleId())).isNull();
+			assertThat(fw.getService(String.class)).isEmpty();
+			assertThat(fw.testbundle.getState()).isEqualTo(Bundle.ACTIVE);
+		}
+
+		try (JUnitFramework fw = new JUnitFrameworkBuilder().runfw("org.apache.felix.framework")
+			.create()) {
+			assertThat(fw.getFramework()).isNotSameAs(framework);
+		}
+	}
+
+	@Test
+	public void testBundleCache() throws Exception {
+		try (JUnitFramework fw = builder.runfw("org.apache.felix.framework")
+			.create()) {
+			BundleCache.clear();
+
+			Bundle a = fw.bundle()
+				.header("Foo", "bar")
+				.install();
+			Bundle b = fw.bundle()
+				.header("Foo", "bar")
+				.install();
+			assertThat(BundleCache.size()).isEqualTo(1);
+			assertThat(b.getSymbolicName()).isNotEqualTo(a.getSymbolicName());
+			assertThat(b.getHeaders()
+				.get("Foo")).isEqualTo("bar");
+
+			fw.bundle()
+				.header("Foo", "baz")
+				.install();
+			assertThat(BundleCache.size()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	public void testBundleCacheKey() throws Exception {
+		File dir = IO.getFile("generated/tmp/test/testBundleCacheKey");
+		IO.delete(dir);
+		File file = IO.getFile(dir, "resource.txt");
+		try {
+			IO.store("first", file);
+			long modified = file.lastModified();
+
+			BuilderSpecification spec = new BuilderSpecification();
+			spec.includeresource.put("resource.txt=generated/tmp/test/testBundleCacheKey/resource.txt", null);
+			String key = BundleCache.key(spec, null);
+			assertThat(BundleCache.key(spec, null)).isEqualTo(key);
+
+			IO.store("other", file);
+			file.setLastModified(modified);
+			assertThat(BundleCache.key(spec, null)).isNotEqualTo(key);
+		} finally {
+			IO.delete(dir);
+		}
+	}
+
 	// wait a bit until this is supported by gradle and Eclipse
 	// @Test(expected = IllegalArgumentException.class)
 	// public void testMissingBundle() throws Exception {
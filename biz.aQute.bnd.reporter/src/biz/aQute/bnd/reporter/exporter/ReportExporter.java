@@ -18,8 +18,12 @@ import biz.aQute.bnd.reporter.helpers.FileHelper;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.URL;
 import java.util.AbstractMap;
 import java.util.Arrays;
@@ -28,7 +32,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import org.osgi.util.promise.Promise;
 
 /**
  * Provide the ReportExporterService service. This implementation is configured by the user with the
@@ -42,6 +48,8 @@ class ReportExporter implements ReportExporterService {
 
   private final ReportGeneratorService _generator;
 
+  private static final int PIPE_SIZE = 64 * 1024;
+
   private final Cache _cache = new Cache();
 
   ReportExporter(final String scope, final Processor processor,
@@ -153,12 +161,11 @@ class ReportExporter implements ReportExporterService {
       final String serializationExtension =
           ArrayHelper.oneInBoth(plugin.getHandledModelExtensions(), serializerExtensions);
 
-      try (InputStream isT = templateResource.openInputStream()) {
+      try (InputStream isT = templateResource.openInputStream();
+          InputStream data =
+              openGeneratedReport(source, locale, configName, serializationExtension)) {
         try {
-          plugin.transform(
-              new ByteArrayInputStream(
-                  getGeneratedReport(source, locale, configName, serializationExtension)),
-              isT, bos, parameters);
+          plugin.transform(data, isT, bos, parameters);
         } catch (final Exception e) {
           _processor.exception(e, "Failed to transform the report");
         }
@@ -193,14 +200,82 @@ class ReportExporter implements ReportExporterService {
         k -> serializeReport(getGeneratedReport(source, locale, configName), extension));
   }
 
+  /*
+   * open a serialized report as a stream for a transformation. If the report was not already
+   * serialized, the serializer writes the report to the stream while the transformer reads it, so
+   * that the serialized report is never held in memory.
+   */
+  private InputStream openGeneratedReport(final Object source, final String locale,
+      final String configName, final String extension) throws IOException {
+    final byte[] cached = _cache.reportsByteCache.get(locale + configName + extension);
+    if (cached != null) {
+      return new ByteArrayInputStream(cached);
+    }
+
+    final Map<String, Object> reportDTO = getGeneratedReport(source, locale, configName);
+    final ReportSerializerPlugin plugin = getSerializer(extension);
+    if (plugin == null) {
+      return new ByteArrayInputStream(serializeReport(reportDTO, extension));
+    }
+
+    final PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+    final PipedOutputStream out = new PipedOutputStream(in);
+    final Thread caller = Thread.currentThread();
+    final AtomicBoolean inline = new AtomicBoolean();
+    final AtomicBoolean closed = new AtomicBoolean();
+    final Promise<Void> serializer = Processor.getPromiseFactory().submit(() -> {
+      /*
+       * a saturated executor runs the task on the calling thread, which would block on the pipe
+       */
+      if (Thread.currentThread() == caller) {
+        inline.set(true);
+        return null;
+      }
+      try (OutputStream o = out) {
+        plugin.serialize(reportDTO, o);
+      } catch (final Exception e) {
+        /*
+         * the transformer closed the stream before it read the whole report
+         */
+        if (!closed.get()) {
+          throw e;
+        }
+      }
+      return null;
+    });
+
+    if (inline.get()) {
+      IO.close(out);
+      IO.close(in);
+      return new ByteArrayInputStream(serializeReport(reportDTO, extension));
+    }
+
+    /*
+     * closing the stream stops the serializer if the transformer did not read the whole report
+     */
+    return new FilterInputStream(in) {
+      @Override
+      public void close() throws IOException {
+        closed.set(true);
+        super.close();
+        try {
+          final Throwable e = serializer.getFailure();
+          if (e != null) {
+            _processor.exception(e, "Failed to serialize the report to %s", extension);
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+  }
+
   /*
    * perform the serialization of a report given the wanted resulting file extension (which specify
    * the serialization format)
    */
   private byte[] serializeReport(final Map<String, Object> reportDTO, final String extension) {
-    final ReportSerializerPlugin plugin = _processor.getPlugins(ReportSerializerPlugin.class)
-        .stream().filter(p -> ArrayHelper.containsIgnoreCase(p.getHandledExtensions(), extension))
-        .findFirst().orElse(null);
+    final ReportSerializerPlugin plugin = getSerializer(extension);
 
     final ByteArrayOutputStream bos = new ByteArrayOutputStream();
     if (plugin != null) {
@@ -216,6 +291,12 @@ class ReportExporter implements ReportExporterService {
     return bos.toByteArray();
   }
 
+  private ReportSerializerPlugin getSerializer(final String extension) {
+    return _processor.getPlugins(ReportSerializerPlugin.class).stream()
+        .filter(p -> ArrayHelper.containsIgnoreCase(p.getHandledExtensions(), extension))
+        .findFirst().orElse(null);
+  }
+
   /*
    * return all the file extensions to which a report can actually be serialize into the
    * corresponding format.
@@ -5,15 +5,19 @@ import aQute.bnd.build.Project;
 import aQute.bnd.build.ProjectBuilder;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.Processor;
 import aQute.bnd.service.Plugin;
 import aQute.bnd.service.reporter.ReportEntryPlugin;
 import aQute.bnd.service.reporter.ReportGeneratorService;
+import aQute.lib.exceptions.Exceptions;
 import aQute.lib.strings.Strings;
 import aQute.service.reporter.Reporter;
 import biz.aQute.bnd.reporter.generator.EntryNamesReference;
 import biz.aQute.bnd.reporter.generator.ReportGeneratorBuilder;
 import biz.aQute.bnd.reporter.generator.ReportGeneratorConstants;
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -24,12 +28,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import org.osgi.util.promise.Promise;
 
 /**
  * This plugins allows to extract all the bundles built by a bnd project. The user can set the
  * {@link BndProjectContentsPlugin#EXCLUDES_PROPERTY} to skip some bundles and the
  * {@link BndProjectContentsPlugin#USE_CONFIG_PROPERTY} to the desired configuration name that will
- * be used to generate the report of the bundles.
+ * be used to generate the report of the bundles. The reports of the bundles are generated in
+ * parallel.
  */
 @BndPlugin(name = "entry." + EntryNamesReference.BUNDLES)
 public class BndProjectContentsPlugin implements ReportEntryPlugin<Project>, Plugin {
@@ -90,41 +96,20 @@ public class BndProjectContentsPlugin implements ReportEntryPlugin<Project>, Plu
       if (jarFiles != null) {
         final List<Builder> builders = pb.getSubBuilders();
 
+        /* the reports of the bundles are generated in parallel and collected in order */
+        final List<Promise<Map<String, Object>>> promises = new ArrayList<>();
         for (final File jarFile : jarFiles) {
-          try (final Jar jar = new Jar(jarFile)) {
-            final Optional<Builder> opt = builders.stream().filter(b -> {
-              try {
-                return b.getBsn().equals(jar.getBsn());
-              } catch (final Exception exception) {
-                throw new RuntimeException(exception);
-              }
-            }).findAny();
-            if (opt.isPresent()) {
-              final Builder builder = opt.get();
-              if (!getExcludes().contains(jar.getBsn())) {
-                final ReportGeneratorService generator =
-                    _generatorBuilder.setProcessor(builder).build();
-                if (getConfigName() != null) {
-                  bundlesReports.add(generator.generateReportOf(jar, locale,
-                      "(" + ReportGeneratorConstants.CONFIG_NAME_PROPERTY + "=" + getConfigName()
-                          + ")"));
-                } else {
-                  bundlesReports.add(generator.generateReportOf(jar, locale));
-                }
-                if (!builder.isOk()) {
-                  if (!builder.getErrors().isEmpty()) {
-                    _reporter.error("Creating report of Jar %s generates errors: %s", jar.getBsn(),
-                        Strings.join(",", builder.getErrors()));
-                  }
-                  if (!builder.getWarnings().isEmpty()) {
-                    _reporter.error("Creating report of Jar %s generates warnings: %s",
-                        jar.getBsn(), Strings.join(",", builder.getWarnings()));
-                  }
-                }
-              } else {
-                builder.close();
-              }
+          promises.add(
+              Processor.getPromiseFactory().submit(() -> generateReportOf(jarFile, builders, locale)));
+        }
+        for (final Promise<Map<String, Object>> promise : promises) {
+          try {
+            final Map<String, Object> report = promise.getValue();
+            if (report != null) {
+              bundlesReports.add(report);
             }
+          } catch (final InvocationTargetException e) {
+            throw Exceptions.duck(e.getCause());
           }
         }
       }
@@ -135,4 +120,49 @@ public class BndProjectContentsPlugin implements ReportEntryPlugin<Project>, Plu
       return null;
     }
   }
+
+  private Map<String, Object> generateReportOf(final File jarFile, final List<Builder> builders,
+      final Locale locale) throws Exception {
+    try (final Jar jar = new Jar(jarFile)) {
+      final Optional<Builder> opt = builders.stream().filter(b -> {
+        try {
+          return b.getBsn().equals(jar.getBsn());
+        } catch (final Exception exception) {
+          throw new RuntimeException(exception);
+        }
+      }).findAny();
+      if (opt.isPresent()) {
+        final Builder builder = opt.get();
+        if (!getExcludes().contains(jar.getBsn())) {
+          final ReportGeneratorService generator;
+          synchronized (_generatorBuilder) {
+            generator = _generatorBuilder.setProcessor(builder).build();
+          }
+          final Map<String, Object> report;
+          if (getConfigName() != null) {
+            report = generator.generateReportOf(jar, locale,
+                "(" + ReportGeneratorConstants.CONFIG_NAME_PROPERTY + "=" + getConfigName() + ")");
+          } else {
+            report = generator.generateReportOf(jar, locale);
+          }
+          if (!builder.isOk()) {
+            synchronized (_reporter) {
+              if (!builder.getErrors().isEmpty()) {
+                _reporter.error("Creating report of Jar %s generates errors: %s", jar.getBsn(),
+                    Strings.join(",", builder.getErrors()));
+              }
+              if (!builder.getWarnings().isEmpty()) {
+                _reporter.error("Creating report of Jar %s generates warnings: %s", jar.getBsn(),
+                    Strings.join(",", builder.getWarnings()));
+              }
+            }
+          }
+          return report;
+        } else {
+          builder.close();
+        }
+      }
+    }
+    return null;
+  }
 }
@@ -3,14 +3,18 @@ package biz.aQute.bnd.reporter.plugins.entries.bndworkspace;
 import aQute.bnd.annotation.plugin.BndPlugin;
 import aQute.bnd.build.Project;
 import aQute.bnd.build.Workspace;
+import aQute.bnd.osgi.Processor;
 import aQute.bnd.service.Plugin;
 import aQute.bnd.service.reporter.ReportEntryPlugin;
 import aQute.bnd.service.reporter.ReportGeneratorService;
+import aQute.lib.exceptions.Exceptions;
 import aQute.lib.strings.Strings;
 import aQute.service.reporter.Reporter;
 import biz.aQute.bnd.reporter.generator.EntryNamesReference;
 import biz.aQute.bnd.reporter.generator.ReportGeneratorBuilder;
 import biz.aQute.bnd.reporter.generator.ReportGeneratorConstants;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -20,12 +24,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import org.osgi.util.promise.Promise;
 
 /**
  * This plugins allows to extract all the bnd projects built by a bnd workspace. The user can set
  * the {@link BndWorkspaceContentsPlugin#EXCLUDES_PROPERTY} to skip some projects and the
  * {@link BndWorkspaceContentsPlugin#USE_CONFIG_PROPERTY} to the desired configuration name that
- * will be used to generate the report of the projects.
+ * will be used to generate the report of the projects. The reports of the projects are generated in
+ * parallel.
  */
 @BndPlugin(name = "entry." + EntryNamesReference.PROJECTS)
 public class BndWorkspaceContentsPlugin implements ReportEntryPlugin<Workspace>, Plugin {
@@ -78,25 +84,36 @@ public class BndWorkspaceContentsPlugin implements ReportEntryPlugin<Workspace>,
   public Object extract(final Workspace workspace, final Locale locale) throws Exception {
     Objects.requireNonNull(workspace, "workspace");
 
-    final List<Map<String, Object>> projectReports = new LinkedList<>();
+    /*
+     * the reports of the projects are generated in parallel, they are collected and the problems
+     * of the projects are reported in the order of the projects
+     */
+    final Set<String> excludes = getExcludes();
+    final List<Project> projects = new ArrayList<>();
+    final List<Promise<Map<String, Object>>> promises = new ArrayList<>();
     for (final Project project : workspace.getAllProjects()) {
-      if (!getExcludes().contains(project.toString())) {
-        final ReportGeneratorService generator = _generatorBuilder.setProcessor(project).build();
-        if (getConfigName() != null) {
-          projectReports.add(generator.generateReportOf(project, locale,
-              "(" + ReportGeneratorConstants.CONFIG_NAME_PROPERTY + "=" + getConfigName() + ")"));
-        } else {
-          projectReports.add(generator.generateReportOf(project, locale));
+      if (!excludes.contains(project.toString())) {
+        projects.add(project);
+        promises.add(Processor.getPromiseFactory().submit(() -> generateReportOf(project, locale)));
+      }
+    }
+
+    final List<Map<String, Object>> projectReports = new LinkedList<>();
+    for (int i = 0; i < projects.size(); i++) {
+      final Project project = projects.get(i);
+      try {
+        projectReports.add(promises.get(i).getValue());
+      } catch (final InvocationTargetException e) {
+        throw Exceptions.duck(e.getCause());
+      }
+      if (!project.isOk()) {
+        if (!project.getErrors().isEmpty()) {
+          _reporter.error("Creating report of Project %s generates errors: %s", project.getName(),
+              Strings.join(",", project.getErrors()));
         }
-        if (!project.isOk()) {
-          if (!project.getErrors().isEmpty()) {
-            _reporter.error("Creating report of Project %s generates errors: %s", project.getName(),
-                Strings.join(",", project.getErrors()));
-          }
-          if (!project.getWarnings().isEmpty()) {
-            _reporter.error("Creating report of Project %s generates warnings: %s",
-                project.getName(), Strings.join(",", project.getWarnings()));
-          }
+        if (!project.getWarnings().isEmpty()) {
+          _reporter.error("Creating report of Project %s generates warnings: %s",
+              project.getName(), Strings.join(",", project.getWarnings()));
         }
       }
     }
@@ -107,4 +124,17 @@ public class BndWorkspaceContentsPlugin implements ReportEntryPlugin<Workspace>,
       return null;
     }
   }
+
+  private Map<String, Object> generateReportOf(final Project project, final Locale locale) {
+    final ReportGeneratorService generator;
+    synchronized (_generatorBuilder) {
+      generator = _generatorBuilder.setProcessor(project).build();
+    }
+    if (getConfigName() != null) {
+      return generator.generateReportOf(project, locale,
+          "(" + ReportGeneratorConstants.CONFIG_NAME_PROPERTY + "=" + getConfigName() + ")");
+    } else {
+      return generator.generateReportOf(project, locale);
+    }
+  }
 }
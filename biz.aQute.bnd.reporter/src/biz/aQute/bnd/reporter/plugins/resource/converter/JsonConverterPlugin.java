@@ -1,6 +1,5 @@
 package biz.aQute.bnd.reporter.plugins.resource.converter;
 
-import aQute.lib.json.Decoder;
 import aQute.lib.json.JSONCodec;
 import biz.aQute.bnd.reporter.service.resource.converter.ResourceConverterPlugin;
 import java.io.InputStream;
@@ -10,7 +9,7 @@ public class JsonConverterPlugin implements ResourceConverterPlugin {
 
   static private final String[] _ext = {"json"};
 
-  private final Decoder dec = new JSONCodec().dec().keepOpen();
+  private final JSONCodec codec = new JSONCodec();
 
   @Override
   public String[] getHandledExtensions() {
@@ -21,6 +20,6 @@ public class JsonConverterPlugin implements ResourceConverterPlugin {
   public Object extract(final InputStream input) throws Exception {
     Objects.requireNonNull(input, "input");
 
-    return dec.from(input).get();
+    return codec.dec().keepOpen().from(input).get();
   }
 }
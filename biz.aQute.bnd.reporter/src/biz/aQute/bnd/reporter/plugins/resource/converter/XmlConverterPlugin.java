@@ -22,16 +22,11 @@ public class XmlConverterPlugin implements ResourceConverterPlugin {
 
   static private final String[] _ext = {"xml"};
 
-  private final DocumentBuilder _db;
+  private final DocumentBuilderFactory _dbf;
 
   public XmlConverterPlugin() {
-    try {
-      final DocumentBuilderFactory b = DocumentBuilderFactory.newInstance();
-      b.setNamespaceAware(true);
-      _db = b.newDocumentBuilder();
-    } catch (final ParserConfigurationException exception) {
-      throw new RuntimeException(exception);
-    }
+    _dbf = DocumentBuilderFactory.newInstance();
+    _dbf.setNamespaceAware(true);
   }
 
   @Override
@@ -43,7 +38,16 @@ public class XmlConverterPlugin implements ResourceConverterPlugin {
   public Object extract(final InputStream input) throws Exception {
     Objects.requireNonNull(input, "input");
 
-    return toDto(_db.parse(input).getDocumentElement());
+    return toDto(newDocumentBuilder().parse(input).getDocumentElement());
+  }
+
+  /*
+   * A document builder is not thread safe, reports can be generated in parallel.
+   */
+  private DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+    synchronized (_dbf) {
+      return _dbf.newDocumentBuilder();
+    }
   }
 
   private Object toDto(final Element node) {
@@ -27,7 +27,7 @@ public class XmlReportSerializerPlugin implements ReportSerializerPlugin {
     final PrintWriter pw = IO.writer(output, UTF_8);
     try {
       pw.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-      Tag.fromDTO("report", data).print(0, pw);
+      Tag.printDTO("report", data, pw);
     } finally {
       pw.flush();
     }
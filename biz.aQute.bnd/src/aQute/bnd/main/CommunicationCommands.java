@@ -93,7 +93,7 @@ public class CommunicationCommands extends Processor {
 					OutputStream out;
 					if (options.output()
 						.equals(".")) {
-						out = System.out;
+						out = bnd.out;
 					} else {
 						File fout = bnd.getFile(options.output());
 						fout.getParentFile()
@@ -124,9 +124,9 @@ public class CommunicationCommands extends Processor {
 		while (!arguments.isEmpty()) {
 			URI uri = new URI(arguments.remove(0));
 			if (cache.clear(uri)) {
-				System.out.println("existed, removed");
+				bnd.out.println("existed, removed");
 			} else {
-				System.out.println("not found");
+				bnd.out.println("not found");
 			}
 		}
 	}
@@ -0,0 +1,480 @@
+package aQute.bnd.main;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.build.Project;
+import aQute.bnd.build.Workspace;
+import aQute.bnd.osgi.About;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.util.home.Home;
+import aQute.lib.getopt.Description;
+import aQute.lib.getopt.Options;
+import aQute.lib.hex.Hex;
+import aQute.lib.io.IO;
+import aQute.lib.link.Link;
+
+/**
+ * A daemon that runs bnd commands on behalf of thin clients. The daemon keeps
+ * the workspaces it has seen, with their repositories and indexes, so that
+ * subsequent commands do not pay the start up costs again. A workspace or
+ * project is refreshed before a command when its properties have changed.
+ * <p>
+ * The daemon listens on the loopback interface and registers its port and a
+ * secret in {@code ~/.bnd/daemon/<port>}. When the {@code BND_DAEMON}
+ * environment variable is set, the bnd main method forwards its arguments to a
+ * running daemon and copies the output of the command to its own output. If no
+ * daemon can be reached the command is run locally.
+ * <p>
+ * Commands are executed one at a time. They run with the client's working
+ * directory as base.
+ */
+public class DaemonCommand extends Processor {
+	private final static Logger	logger		= LoggerFactory.getLogger(DaemonCommand.class);
+	final static String			BND_DAEMON	= "BND_DAEMON";
+	final static String			DAEMON		= "daemon";
+	final static int			BUFFER_SIZE	= 8 * 1024;
+
+	/**
+	 * The interface of the daemon as seen by the client
+	 */
+	public interface Daemon {
+		String getBndVersion();
+
+		/**
+		 * Execute a bnd command. The output is sent to the client and
+		 * {@link DaemonClient#exit(int)} is called when the command is done.
+		 */
+		void execute(String secret, String workdir, List<String> args);
+
+		void stop(String secret);
+	}
+
+	/**
+	 * The interface of the client as seen by the daemon
+	 */
+	public interface DaemonClient {
+		boolean stdout(byte[] data);
+
+		boolean stderr(byte[] data);
+
+		void exit(int code);
+	}
+
+	@Description("Manage a daemon that keeps workspaces and repositories loaded between bnd commands. "
+		+ "Commands are forwarded to the daemon when the BND_DAEMON environment variable is set.")
+	interface DaemonOptions extends Options {}
+
+	private final bnd					bnd;
+	private final Set<Workspace>		workspaces	= new LinkedHashSet<>();
+	private final Lock					lock		= new ReentrantLock(true);
+	private final CountDownLatch		stopped		= new CountDownLatch(1);
+	private final ExecutorService		executor	= Executors.newCachedThreadPool();
+	private String						secret;
+	private volatile long				lastUsed	= System.currentTimeMillis();
+
+	DaemonCommand(bnd bnd) {
+		super(bnd);
+		this.bnd = bnd;
+		use(bnd);
+	}
+
+	@Description("Start the daemon in the foreground")
+	interface StartOptions extends Options {
+		@Description("Stop after being idle for the given number of minutes, 0 is never. The default is 60")
+		int idle(int deflt);
+	}
+
+	@Description("Start the daemon in the foreground")
+	public void _start(StartOptions options) throws Exception {
+		byte[] random = new byte[16];
+		new SecureRandom().nextBytes(random);
+		secret = Hex.toHexString(random);
+
+		ServerSocket socket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+		File registration = getRegistration(socket.getLocalPort());
+		try (Closeable server = Link.server("bnd-daemon", DaemonClient.class, socket, Session::new, true,
+			executor)) {
+			register(registration, secret);
+			bnd.out.printf("bnd daemon %s listening on port %s%n", About.CURRENT, socket.getLocalPort());
+			bnd.out.flush();
+
+			long idle = TimeUnit.MINUTES.toMillis(options.idle(60));
+			while (!stopped.await(1, TimeUnit.MINUTES)) {
+				if (idle > 0 && System.currentTimeMillis() - lastUsed > idle && lock.tryLock()) {
+					lock.unlock();
+					logger.info("Stopping idle daemon");
+					break;
+				}
+			}
+		} finally {
+			IO.delete(registration);
+			executor.shutdownNow();
+			workspaces.forEach(IO::close);
+		}
+	}
+
+	@Description("Stop the running daemons")
+	interface StopOptions extends Options {}
+
+	@Description("Stop the running daemons")
+	public void _stop(StopOptions options) throws Exception {
+		for (File registration : getRegistrations()) {
+			try (Connection c = connect(registration)) {
+				c.daemon.stop(c.secret);
+				bnd.out.printf("Stopped daemon on port %s%n", registration.getName());
+			} catch (Exception e) {
+				IO.delete(registration);
+			}
+		}
+	}
+
+	@Description("Show the running daemons")
+	interface StatusOptions extends Options {}
+
+	@Description("Show the running daemons")
+	public void _status(StatusOptions options) throws Exception {
+		for (File registration : getRegistrations()) {
+			try (Connection c = connect(registration)) {
+				bnd.out.printf("%s %s%n", registration.getName(), c.daemon.getBndVersion());
+			} catch (Exception e) {
+				logger.debug("Daemon at {} is not reachable", registration, e);
+				IO.delete(registration);
+			}
+		}
+	}
+
+	/**
+	 * A session with one client. Public since the link calls it reflectively.
+	 */
+	public class Session implements Daemon {
+		final Link<Daemon, DaemonClient> link;
+
+		Session(Link<Daemon, DaemonClient> link) {
+			this.link = link;
+		}
+
+		@Override
+		public String getBndVersion() {
+			return About.CURRENT.toString();
+		}
+
+		@Override
+		public void execute(String secret, String workdir, List<String> args) {
+			DaemonClient client = link.getRemote();
+			int code = 1;
+			PrintStream out = new PrintStream(new ClientStream(client, false), false);
+			PrintStream err = new PrintStream(new ClientStream(client, true), false);
+			try {
+				if (!DaemonCommand.this.secret.equals(secret))
+					throw new SecurityException("Invalid secret");
+
+				lock.lock();
+				try {
+					File dir = new File(workdir);
+					prepare(dir);
+					code = aQute.bnd.main.bnd.mainInDaemon(args.toArray(new String[0]), dir, out, err);
+				} finally {
+					lastUsed = System.currentTimeMillis();
+					lock.unlock();
+				}
+			} catch (Throwable e) {
+				e.printStackTrace(err);
+			} finally {
+				out.flush();
+				err.flush();
+				client.exit(code);
+			}
+		}
+
+		@Override
+		public void stop(String secret) {
+			if (DaemonCommand.this.secret.equals(secret))
+				stopped.countDown();
+		}
+	}
+
+	/*
+	 * Keep the workspace of the directory and refresh what has changed since
+	 * the last command
+	 */
+	void prepare(File dir) throws Exception {
+		Workspace workspace = Workspace.findWorkspace(dir);
+		if (workspace != null)
+			workspaces.add(workspace);
+
+		for (Workspace ws : workspaces) {
+			if (ws.needsRefresh())
+				ws.refresh();
+			ws.refreshProjects();
+			ws.clear();
+
+			for (Project p : ws.getCurrentProjects()) {
+				if (p.needsRefresh())
+					p.refresh();
+				p.clear();
+			}
+		}
+	}
+
+	/*
+	 * Forwards the output of a command to the client. Data is buffered and
+	 * sent on flush, the calls to the client block so the order is maintained.
+	 */
+	static class ClientStream extends OutputStream {
+		final DaemonClient	client;
+		final boolean		stderr;
+		final byte[]		buffer	= new byte[BUFFER_SIZE];
+		int					count;
+
+		ClientStream(DaemonClient client, boolean stderr) {
+			this.client = client;
+			this.stderr = stderr;
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			if (count == buffer.length)
+				flush();
+			buffer[count++] = (byte) b;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			while (len > 0) {
+				if (count == buffer.length)
+					flush();
+				int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public synchronized void flush() {
+			if (count == 0)
+				return;
+			byte[] data = Arrays.copyOf(buffer, count);
+			count = 0;
+			if (stderr)
+				client.stderr(data);
+			else
+				client.stdout(data);
+		}
+	}
+
+	/**
+	 * Forward a command line to a running daemon if the {@code BND_DAEMON}
+	 * environment variable is set.
+	 *
+	 * @param args the command line
+	 * @return the exit code of the command or -1 if the command was not
+	 *         forwarded
+	 */
+	static int forward(String[] args) {
+		String enabled = System.getenv(BND_DAEMON);
+		if (enabled == null || enabled.isEmpty() || "false".equalsIgnoreCase(enabled))
+			return -1;
+
+		if (DAEMON.equals(getCommand(args)))
+			return -1;
+
+		for (File registration : getRegistrations()) {
+			try {
+				return forward(registration, args);
+			} catch (Exception e) {
+				logger.debug("Failed to forward to daemon {}", registration, e);
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Answer the command of a bnd command line, the first argument after the
+	 * options of bnd
+	 */
+	static String getCommand(String[] args) {
+		Set<String> withValue = new HashSet<>();
+		for (Method m : aQute.bnd.main.bnd.bndOptions.class.getDeclaredMethods()) {
+			if (m.getReturnType() != boolean.class)
+				withValue.add(m.getName());
+		}
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--"))
+				return i + 1 < args.length ? args[i + 1] : null;
+
+			if (!arg.startsWith("-"))
+				return arg;
+
+			if (arg.startsWith("--")) {
+				if (withValue.contains(arg.substring(2)))
+					i++;
+			} else {
+				// only the last of a set of single character options can take
+				// a value
+				char last = arg.charAt(arg.length() - 1);
+				if (withValue.stream()
+					.anyMatch(name -> name.charAt(0) == last))
+					i++;
+			}
+		}
+		return null;
+	}
+
+	private static int forward(File registration, String[] args) throws Exception {
+		Client client = new Client(System.out, System.err);
+		try (Connection c = connect(registration, client)) {
+			if (!About.CURRENT.toString()
+				.equals(c.daemon.getBndVersion()))
+				return -1;
+
+			c.daemon.execute(c.secret, IO.work.getAbsolutePath(), Arrays.asList(args));
+			return client.waitFor(c);
+		}
+	}
+
+	/**
+	 * Copies the output of a command to the given streams, which may be null
+	 */
+	public static class Client implements DaemonClient {
+		final PrintStream			out;
+		final PrintStream			err;
+		final CountDownLatch		done	= new CountDownLatch(1);
+		volatile int				code	= -1;
+
+		public Client(PrintStream out, PrintStream err) {
+			this.out = out;
+			this.err = err;
+		}
+
+		@Override
+		public boolean stdout(byte[] data) {
+			write(out, data);
+			return true;
+		}
+
+		@Override
+		public boolean stderr(byte[] data) {
+			write(err, data);
+			return true;
+		}
+
+		private void write(PrintStream stream, byte[] data) {
+			if (stream != null) {
+				stream.write(data, 0, data.length);
+				stream.flush();
+			}
+		}
+
+		@Override
+		public void exit(int code) {
+			this.code = code;
+			done.countDown();
+		}
+
+		int waitFor(Connection c) throws Exception {
+			while (!done.await(1, TimeUnit.SECONDS)) {
+				if (!c.link.isOpen())
+					throw new IOException("Daemon closed the connection");
+			}
+			return code;
+		}
+	}
+
+	static class Connection implements Closeable {
+		final Link<DaemonClient, Daemon>	link;
+		final Daemon						daemon;
+		final String						secret;
+
+		Connection(Link<DaemonClient, Daemon> link, String secret) {
+			this.link = link;
+			this.daemon = link.getRemote();
+			this.secret = secret;
+		}
+
+		@Override
+		public void close() throws IOException {
+			link.close();
+		}
+	}
+
+	private static Connection connect(File registration) throws Exception {
+		return connect(registration, new Client(null, null));
+	}
+
+	static Connection connect(File registration, DaemonClient client) throws Exception {
+		int port = Integer.parseInt(registration.getName());
+		String secret = IO.collect(registration, UTF_8)
+			.trim();
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		Link<DaemonClient, Daemon> link = new Link<>(Daemon.class, socket, Processor.getExecutor());
+		link.open(client);
+		return new Connection(link, secret);
+	}
+
+	static File getRegistration(int port) {
+		return IO.getFile(Home.getUserHomeBnd() + "/" + DAEMON + "/" + port);
+	}
+
+	/*
+	 * The registered daemons, newest first
+	 */
+	static List<File> getRegistrations() {
+		File dir = IO.getFile(Home.getUserHomeBnd() + "/" + DAEMON);
+		File[] files = dir.listFiles((d, name) -> name.matches("\\d+"));
+		if (files == null)
+			return new ArrayList<>();
+
+		List<File> registrations = new ArrayList<>(Arrays.asList(files));
+		registrations.sort((a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+		return registrations;
+	}
+
+	/*
+	 * Store the secret in a file that is only readable by the owner
+	 */
+	private static void register(File registration, String secret) throws IOException {
+		IO.mkdirs(registration.getParentFile());
+		Path path = registration.toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			Files.createFile(path);
+		}
+		IO.store(secret, registration);
+		registration.deleteOnExit();
+	}
+}
@@ -45,12 +45,12 @@ public class ExportReportCommand extends Processor {
 		if (arguments.isEmpty()) {
 			Justif f = new Justif(80, 20, 22, 72);
 			handler.help(f.formatter(), this);
-			System.err.append(f.wrap());
+			_bnd.err.append(f.wrap());
 		} else {
 			String cmd = arguments.remove(0);
 			String help = handler.execute(this, cmd, arguments);
 			if (help != null) {
-				System.err.println(help);
+				_bnd.err.println(help);
 			}
 		}
 	}
@@ -79,10 +79,10 @@ public class ExportReportCommand extends Processor {
 			.getAvailableReportsOf(p);
 
 		if (reports.isEmpty()) {
-			System.out.println(resultPrefix + ": no reports");
+			_bnd.out.println(resultPrefix + ": no reports");
 		} else {
 			reports.forEach(path -> {
-				System.out.println(resultPrefix + ": " + path);
+				_bnd.out.println(resultPrefix + ": " + path);
 			});
 		}
 		getInfo(p);
@@ -132,12 +132,12 @@ public class ExportReportCommand extends Processor {
 
 	private void printExportResult(Map<String, Resource> reports, String prefix) {
 		if (reports.isEmpty()) {
-			System.out.println(prefix + "no reports");
+			_bnd.out.println(prefix + "no reports");
 		} else {
 			reports.forEach((f, r) -> {
 				try {
 					r.write(new FileOutputStream(f));
-					System.out.println(prefix + f);
+					_bnd.out.println(prefix + f);
 				} catch (Exception e1) {
 					exception(e1, prefix + "failed to write report at %s", f);
 				}
@@ -200,7 +200,7 @@ public class ExportReportCommand extends Processor {
 			reports.forEach((f, r) -> {
 				try {
 					r.write(new FileOutputStream(f));
-					System.out.println(prefix + f);
+					_bnd.out.println(prefix + f);
 				} catch (Exception e1) {
 					exception(e1, prefix + "failed to write report at %s", f);
 				}
@@ -11,7 +11,6 @@ import aQute.bnd.osgi.repository.SimpleIndexer;
 import aQute.lib.getopt.Arguments;
 import aQute.lib.getopt.Description;
 import aQute.lib.io.FileTree;
-import aQute.lib.io.IO;
 
 public class IndexCommand extends Processor {
 
@@ -46,13 +45,15 @@ public class IndexCommand extends Processor {
 	public void _index(indexOptions opts) throws Exception {
 		File outputDir = opts.directory();
 		if (outputDir == null) {
-			outputDir = IO.work;
+			outputDir = bnd.getBase();
+		} else {
+			outputDir = bnd.getFile(outputDir.getPath());
 		}
 		File repositoryFile = opts.repositoryIndex();
 		if (repositoryFile == null) {
-			repositoryFile = new File(outputDir, DEFAULT_INDEX_FILE).getAbsoluteFile();
+			repositoryFile = new File(outputDir, DEFAULT_INDEX_FILE);
 		} else {
-			repositoryFile = repositoryFile.getAbsoluteFile();
+			repositoryFile = bnd.getFile(repositoryFile.getPath());
 		}
 		boolean compress = false;
 		if (repositoryFile.getName()
@@ -65,13 +65,13 @@ class RemoteCommand extends Processor {
 
 		@Override
 		public boolean stdout(String out) throws Exception {
-			System.out.print(out);
+			bnd.out.print(out);
 			return true;
 		}
 
 		@Override
 		public boolean stderr(String out) throws Exception {
-			System.err.print(out);
+			bnd.err.print(out);
 			return true;
 		}
 
@@ -81,7 +81,7 @@ class RemoteCommand extends Processor {
 
 		@Override
 		public void event(Event e) throws Exception {
-			System.out.println(e);
+			bnd.out.println(e);
 		}
 
 	}
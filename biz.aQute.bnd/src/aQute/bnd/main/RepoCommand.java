@@ -877,7 +877,7 @@ public class RepoCommand {
 
 		OutputStream out;
 		if ("console".equals(sout))
-			out = System.out;
+			out = bnd.out;
 		else {
 			File f = bnd.getFile(sout);
 			out = IO.outputStream(f);
@@ -890,7 +890,10 @@ public class RepoCommand {
 			po.gav = name;
 			r.toPom(out, po);
 		} finally {
-			out.close();
+			if (out == bnd.out)
+				out.flush();
+			else
+				out.close();
 		}
 	}
 
@@ -38,7 +38,6 @@ import aQute.bnd.osgi.resource.ResourceUtils.IdentityCapability;
 import aQute.lib.getopt.Arguments;
 import aQute.lib.getopt.Description;
 import aQute.lib.getopt.Options;
-import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import biz.aQute.resolve.Bndrun;
 import biz.aQute.resolve.ProjectResolver;
@@ -68,7 +67,7 @@ public class ResolveCommand extends Processor {
 			Project p = bnd.getProject(options.project());
 			Workspace workspace = p == null ? bnd.getWorkspace(options.workspace()) : p.getWorkspace();
 
-			Run run = new Run(workspace, p != null ? p.getBase() : IO.work, IO.getFile(bndrun));
+			Run run = new Run(workspace, p != null ? p.getBase() : bnd.getBase(), bnd.getFile(bndrun));
 
 			ProjectResolver pr = new ProjectResolver(run);
 			addClose(pr);
@@ -172,6 +171,12 @@ public class ResolveCommand extends Processor {
 
 		@Description("Include all output details")
 		boolean all();
+
+		@Description("Resolve the resources in parallel")
+		boolean parallel();
+
+		@Description("Only resolve the resources that changed since the last validation, the state is kept in the given file")
+		String incremental();
 	}
 
 	@Description("Resolve a repository index against a base to determine if the index is 'complete'")
@@ -191,7 +196,7 @@ public class ResolveCommand extends Processor {
 			system.addProvideCapabilities(options.capabilities());
 
 		if (options.system() != null) {
-			File f = IO.getFile(options.system());
+			File f = bnd.getFile(options.system());
 			if (!f.isFile()) {
 				error("Specified system file but not found: %s", f);
 				return;
@@ -208,6 +213,9 @@ public class ResolveCommand extends Processor {
 		validator.use(bnd);
 		validator.addRepository(index.toURI());
 		validator.setSystem(system.build());
+		validator.setParallel(options.parallel());
+		if (options.incremental() != null)
+			validator.setIncremental(getFile(options.incremental()));
 
 		List<Resolution> result = validator.validate();
 		Set<Requirement> done = new HashSet<>();
@@ -264,23 +272,23 @@ public class ResolveCommand extends Processor {
 
 		for (File f : hwpo.files()) {
 			if (options.verbose()) {
-				System.out.println("resolve " + f);
+				bnd.out.println("resolve " + f);
 			}
 			if (!f.isFile()) {
-				System.out.println("nofile " + f);
+				bnd.out.println("nofile " + f);
 				error("Missing bndrun file: %s", f);
 			} else {
 				try (Bndrun bndrun = Bndrun.createBndrun(hwpo.workspace(), f)) {
 					try {
 						String runbundles = bndrun.resolve(false, options.write(), runbundlesFormatter);
 						if (bndrun.isOk()) {
-							System.out.printf("# %-50s ok%n", f.getName());
+							bnd.out.printf("# %-50s ok%n", f.getName());
 							if (options.bundles()) {
-								System.out.println(runbundles);
+								bnd.out.println(runbundles);
 							}
 						}
 					} catch (Exception e) {
-						System.out.printf("%-50s %s\n", f.getName(), e);
+						bnd.out.printf("%-50s %s\n", f.getName(), e);
 						exception(e, "Failed to resolve %s: %s", f, e);
 					}
 					getInfo(bndrun);
@@ -2,7 +2,6 @@ package aQute.bnd.main;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -14,13 +13,12 @@ import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import aQute.bnd.osgi.Analyzer;
-import aQute.bnd.osgi.Clazz;
 import aQute.bnd.osgi.Descriptors;
 import aQute.bnd.osgi.Descriptors.PackageRef;
 import aQute.bnd.osgi.Descriptors.TypeRef;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Jar;
-import aQute.bnd.osgi.Resource;
+import aQute.bnd.osgi.XRefIndex;
 import aQute.lib.collections.MultiMap;
 import aQute.lib.collections.SortedList;
 import aQute.lib.getopt.Arguments;
@@ -84,41 +82,30 @@ public class XRefCommand {
 			try {
 				File file = bnd.getFile(arg);
 				try (Jar jar = new Jar(file.getName(), file)) {
-					for (Map.Entry<String,Resource> entry : jar.getResources().entrySet()) {
-						String key = entry.getKey();
-						Resource r = entry.getValue();
-						if (key.endsWith(".class")) {
-							TypeRef ref = analyzer.getTypeRefFromPath(key);
-							String fqn = ref.getFQN();
-
-							if (filter.matches(fqn) && source.matches(fqn)) {
-								bnd.getLogger().info("# include {}", fqn);
-								set.add(ref);
-
-								try (InputStream in = r.openInputStream()) {
-									Clazz clazz = new Clazz(analyzer, key, r);
-
-									// TODO use the proper bcp instead
-									// of using the default layout
-
-									Set<TypeRef> s = clazz.parseClassFile();
-									for (Iterator<TypeRef> t = s.iterator(); t.hasNext();) {
-										TypeRef tr = t.next();
-										while (tr.isArray())
-											tr = tr.getComponentTypeRef();
-
-										if (!destination.matches(tr.getFQN()) || tr.isJava() || tr.isPrimitive())
-											t.remove();
-										else {
-											packages.add(ref.getPackageRef(), tr.getPackageRef());
-										}
-									}
-									if (!s.isEmpty()) {
-										table.addAll(ref, s);
-										set.addAll(s);
-									}
+					XRefIndex index = XRefIndex.of(analyzer, jar);
+					for (int cls = 0; cls < index.getClasses(); cls++) {
+						TypeRef ref = analyzer.getTypeRef(index.getType(cls));
+						String fqn = ref.getFQN();
+
+						if (filter.matches(fqn) && source.matches(fqn)) {
+							bnd.getLogger().info("# include {}", fqn);
+							set.add(ref);
+
+							Set<TypeRef> s = new LinkedHashSet<>();
+							for (int type : index.getReferences(cls)) {
+								TypeRef tr = analyzer.getTypeRef(index.getType(type));
+								while (tr.isArray())
+									tr = tr.getComponentTypeRef();
+
+								if (destination.matches(tr.getFQN()) && !tr.isJava() && !tr.isPrimitive()
+										&& s.add(tr)) {
+									packages.add(ref.getPackageRef(), tr.getPackageRef());
 								}
 							}
+							if (!s.isEmpty()) {
+								table.addAll(ref, s);
+								set.addAll(s);
+							}
 						}
 					}
 				}
@@ -158,8 +158,10 @@ public class bnd extends Processor {
 		"([^=]+) (= ( ?: (\"|'|) (.+) \\3 )? ) ?", Pattern.COMMENTS);
 	Settings									settings				= new Settings(
 		Home.getUserHomeBnd() + "/settings.json");
-	final PrintStream							err						= System.err;
-	final public PrintStream					out						= System.out;
+	final PrintStream							err;
+	final public PrintStream					out;
+	final File									workdir;
+	boolean										daemon;
 	Justif										justif					= new Justif(80, 40, 42, 70);
 	BndMessages									messages				= ReporterMessages.base(this,
 		BndMessages.class);
@@ -173,6 +175,12 @@ public class bnd extends Processor {
 																				return false;
 																			};
 																		};
+	static final ThreadLocal<Integer>			exitCode				= new ThreadLocal<Integer>() {
+																			@Override
+																			protected Integer initialValue() {
+																				return 0;
+																			};
+																		};
 	private static final String					DEFAULT_LOG_LEVEL_KEY	= "org.slf4j.simpleLogger.defaultLogLevel";
 
 	static Pattern								JARCOMMANDS				= Pattern
@@ -259,11 +267,34 @@ public class bnd extends Processor {
 
 	public bnd(Workspace ws) {
 		super(ws);
+		this.out = System.out;
+		this.err = System.err;
+		this.workdir = IO.work;
 	}
 
-	public bnd() {}
+	public bnd() {
+		this.out = System.out;
+		this.err = System.err;
+		this.workdir = IO.work;
+	}
+
+	/**
+	 * Used by the daemon to run a command on behalf of a client in another
+	 * directory
+	 */
+	bnd(File workdir, PrintStream out, PrintStream err) {
+		this.out = out;
+		this.err = err;
+		this.workdir = workdir;
+		this.daemon = true;
+		setBase(workdir);
+	}
 
 	public static void main(String args[]) throws Exception {
+		int code = DaemonCommand.forward(args);
+		if (code >= 0)
+			exitWithCode(code);
+
 		Workspace.setDriver(Constants.BNDDRIVER_BND);
 		Workspace.addGestalt(Constants.GESTALT_SHELL, null);
 
@@ -273,6 +304,23 @@ public class bnd extends Processor {
 		exitWithCode(0);
 	}
 
+	/**
+	 * Run a command in the daemon. The exit code is returned instead of
+	 * exiting.
+	 */
+	static int mainInDaemon(String args[], File workdir, PrintStream out, PrintStream err) throws Exception {
+		noExit.set(true);
+		exitCode.set(0);
+		try (bnd main = new bnd(workdir, out, err)) {
+			main.start(args);
+		} finally {
+			out.flush();
+			err.flush();
+			noExit.remove();
+		}
+		return exitCode.get();
+	}
+
 	/**
 	 * For testing
 	 */
@@ -405,9 +453,11 @@ public class bnd extends Processor {
 			set(FAIL_OK, options.failok() + "");
 			setExceptions(options.exceptions());
 			setTrace(options.trace());
-			doLogging(options);
+			// The log level is global to the JVM, the daemon keeps its own
+			if (!daemon)
+				doLogging(options);
 
-			workspace = Workspace.findWorkspace(IO.work);
+			workspace = Workspace.findWorkspace(workdir);
 			if (workspace != null) {
 				logger.debug("Using workspace {}", workspace);
 				workspace.use(this);
@@ -2768,9 +2818,9 @@ public class bnd extends Processor {
 	public Workspace getWorkspace(String where) throws Exception {
 		Workspace ws;
 		if (where == null) {
-			ws = Workspace.findWorkspace(IO.work);
+			ws = Workspace.findWorkspace(workdir);
 			if (ws == null)
-				ws = Workspace.createStandaloneWorkspace(new Processor(), IO.work.toURI());
+				ws = Workspace.createStandaloneWorkspace(new Processor(), workdir.toURI());
 		} else {
 			File f = getFile(where);
 			ws = Workspace.findWorkspace(f);
@@ -4694,6 +4744,7 @@ public class bnd extends Processor {
 		if (!noExit.get()) {
 			System.exit(code);
 		}
+		exitCode.set(code);
 	}
 
 	/**
@@ -4731,6 +4782,17 @@ public class bnd extends Processor {
 		}
 	}
 
+	@Description("Manage a daemon that keeps workspaces and repositories loaded between bnd commands")
+	public void _daemon(DaemonCommand.DaemonOptions options) throws Exception {
+		try (DaemonCommand dc = new DaemonCommand(this)) {
+			String help = options._command()
+				.subCmd(options, dc);
+			if (help != null)
+				out.println(help);
+			getInfo(dc);
+		}
+	}
+
 	@Description("Start an interactive shell")
 	public void _shell(Shell.ShellOptions options) throws Exception {
 		try (Shell shell = new Shell(this, options)) {
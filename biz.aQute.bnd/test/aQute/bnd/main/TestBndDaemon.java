@@ -0,0 +1,150 @@
+package aQute.bnd.main;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Manifest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import aQute.bnd.main.DaemonCommand.Client;
+import aQute.bnd.main.DaemonCommand.Connection;
+import aQute.bnd.osgi.About;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.util.home.Home;
+
+public class TestBndDaemon {
+
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+
+	private String			home;
+
+	@Before
+	public void setUp() throws Exception {
+		home = System.getProperty(Home.USER_HOME_BND_SYSTEM_PROP);
+		System.setProperty(Home.USER_HOME_BND_SYSTEM_PROP, folder.newFolder("home")
+			.getAbsolutePath());
+	}
+
+	@After
+	public void tearDown() {
+		if (home == null)
+			System.clearProperty(Home.USER_HOME_BND_SYSTEM_PROP);
+		else
+			System.setProperty(Home.USER_HOME_BND_SYSTEM_PROP, home);
+	}
+
+	@Test
+	public void testExecute() throws Exception {
+		File workdir = folder.newFolder("work");
+		Thread daemon = new Thread(() -> {
+			try {
+				bnd.mainNoExit(new String[] {
+					"daemon", "start"
+				}, workdir.toPath());
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		daemon.start();
+
+		List<File> registrations = DaemonCommand.getRegistrations();
+		for (int i = 0; i < 200 && registrations.isEmpty(); i++) {
+			Thread.sleep(100);
+			registrations = DaemonCommand.getRegistrations();
+		}
+		assertEquals(1, registrations.size());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Client client = new Client(new PrintStream(out), null);
+		try (Connection c = DaemonCommand.connect(registrations.get(0), client)) {
+			assertEquals(About.CURRENT.toString(), c.daemon.getBndVersion());
+
+			c.daemon.execute(c.secret, workdir.getAbsolutePath(), Arrays.asList("version"));
+			assertEquals(0, client.waitFor(c));
+			assertThat(out.toString(), containsString(About.CURRENT.getWithoutQualifier()
+				.toString()));
+		}
+
+		out.reset();
+		Client intruder = new Client(new PrintStream(out), null);
+		try (Connection c = DaemonCommand.connect(registrations.get(0), intruder)) {
+			c.daemon.execute("wrong", workdir.getAbsolutePath(), Arrays.asList("version"));
+			assertEquals(1, intruder.waitFor(c));
+			assertEquals(0, out.size());
+
+			c.daemon.stop(c.secret);
+		}
+
+		daemon.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(daemon.isAlive());
+		assertTrue(DaemonCommand.getRegistrations()
+			.isEmpty());
+	}
+
+	@Test
+	public void testIndexInDaemon() throws Exception {
+		File workdir = folder.newFolder("work");
+		try (Jar jar = new Jar("bundle")) {
+			Manifest manifest = new Manifest();
+			manifest.getMainAttributes()
+				.putValue("Manifest-Version", "1.0");
+			manifest.getMainAttributes()
+				.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+			manifest.getMainAttributes()
+				.putValue(Constants.BUNDLE_SYMBOLICNAME, "bundle");
+			jar.setManifest(manifest);
+			jar.write(new File(workdir, "bundle.jar"));
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		assertEquals(0, bnd.mainInDaemon(new String[] {
+			"index", "-v", "bundle.jar"
+		}, workdir, new PrintStream(out), new PrintStream(err)));
+
+		assertTrue(new File(workdir, IndexCommand.DEFAULT_INDEX_FILE).isFile());
+		assertThat(out.toString(), containsString("bundle.jar"));
+	}
+
+	@Test
+	public void testGetCommand() {
+		assertEquals("daemon", DaemonCommand.getCommand(new String[] {
+			"daemon", "start"
+		}));
+		assertEquals("daemon", DaemonCommand.getCommand(new String[] {
+			"-et", "--base", "dir", "daemon", "stop"
+		}));
+		assertEquals("resolve", DaemonCommand.getCommand(new String[] {
+			"resolve", "daemon.bndrun"
+		}));
+		assertEquals("build", DaemonCommand.getCommand(new String[] {
+			"-b", "daemon", "build"
+		}));
+		assertEquals("build", DaemonCommand.getCommand(new String[] {
+			"-tb", "daemon", "build"
+		}));
+		assertEquals("daemon", DaemonCommand.getCommand(new String[] {
+			"--", "daemon"
+		}));
+		assertNull(DaemonCommand.getCommand(new String[] {
+			"--trace"
+		}));
+	}
+}
@@ -1,5 +1,8 @@
 package biz.aQute.launcher;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -34,7 +37,7 @@ public class LauncherTest {
 
 	@Test
 	public void testPackaged() throws Exception {
-		File file = buildPackage();
+		File file = buildPackage("keep.bndrun");
 
 		System.setProperty("test.cmd", "quit.no.exit");
 		File fwdir = IO.getFile(base, "generated/keepfw");
@@ -50,9 +53,44 @@ public class LauncherTest {
 
 	}
 
-	private File buildPackage() throws Exception, IOException {
+	/**
+	 * With a cache, the runpath is extracted once and the framework storage is
+	 * preserved even if the executable is not kept.
+	 */
+	@Test
+	public void testPackagedCache() throws Exception {
+		File file = buildPackage("cache.bndrun");
+
+		System.setProperty("test.cmd", "quit.no.exit");
+		File cache = IO.getFile(base, "generated/launchercache");
+		IO.delete(cache);
+		System.setProperty("launcher.cache", cache.getAbsolutePath());
+		try {
+			String result = runFramework(file);
+			assertTrue(result.contains("installing jar/demo.jar"));
+
+			File[] storage = IO.getFile(cache, "storage")
+				.listFiles(File::isDirectory);
+			assertNotNull(storage);
+			assertEquals(1, storage.length);
+			assertTrue(result.contains("using working dir: " + storage[0]));
+
+			File[] extracted = cache.listFiles(f -> !f.getName()
+				.equals("storage"));
+			assertNotNull(extracted);
+			assertFalse(extracted.length == 0);
+
+			result = runFramework(file);
+			assertTrue(result.contains("not updating jar/demo.jar because identical digest"));
+		} finally {
+			System.getProperties()
+				.remove("launcher.cache");
+		}
+	}
+
+	private File buildPackage(String bndrun) throws Exception, IOException {
 		Workspace ws = Workspace.getWorkspace(base.getParentFile());
-		Run run = Run.createRun(ws, IO.getFile(base, "keep.bndrun"));
+		Run run = Run.createRun(ws, IO.getFile(base, bndrun));
 
 		File file = IO.getFile(base, GENERATED_PACKAGED_JAR);
 		try (Jar pack = run.pack(null)) {
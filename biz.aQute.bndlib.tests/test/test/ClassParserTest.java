@@ -10,11 +10,22 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import aQute.bnd.classfile.Attribute;
+import aQute.bnd.classfile.ClassFile;
+import aQute.bnd.classfile.CodeAttribute;
+import aQute.bnd.classfile.ConstantValueAttribute;
+import aQute.bnd.classfile.FieldInfo;
+import aQute.bnd.classfile.LineNumberTableAttribute;
+import aQute.bnd.classfile.MethodInfo;
 import aQute.bnd.osgi.Analyzer;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.ClassDataCollector;
@@ -24,6 +35,7 @@ import aQute.bnd.osgi.Descriptors.PackageRef;
 import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.service.Plugin;
+import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.io.IO;
 import aQute.service.reporter.Reporter;
 import junit.framework.TestCase;
@@ -43,6 +55,12 @@ class ConstantValues {
 	// public static final Class clss = Object.class;
 }
 
+class Utf8Constants {
+	public static final String	ascii	= "summer";
+	public static final String	latin	= "\u00e9t\u00e9";
+	public static final String	other	= "\u2603\u0000";
+}
+
 interface WithGenerics<VERYLONGTYPE, X extends Jar> {
 	List<? super VERYLONGTYPE> baz2();
 
@@ -444,4 +462,58 @@ public class ClassParserTest extends TestCase {
 			.contains(a.getPackageRef("javax/crypto")));
 	}
 
+	public void testLazyConstantPool() throws Exception {
+		ByteBuffer bb = ByteBuffer.wrap(IO.read(IO.getFile("bin_test/test/Utf8Constants.class")));
+		ClassFile eager = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb.duplicate()));
+		ClassFile lazy = ClassFile.parseClassFile(bb, Collections.singleton(ConstantValueAttribute.NAME));
+		assertEquals(0, bb.position());
+
+		assertEquals(eager.this_class, lazy.this_class);
+		assertEquals(eager.super_class, lazy.super_class);
+		assertEquals(eager.fields.length, lazy.fields.length);
+		for (int i = 0; i < eager.fields.length; i++) {
+			FieldInfo e = eager.fields[i];
+			FieldInfo l = lazy.fields[i];
+			assertEquals(e.name, l.name);
+			assertEquals(e.descriptor, l.descriptor);
+			assertEquals(((ConstantValueAttribute) e.attributes[0]).value,
+				((ConstantValueAttribute) l.attributes[0]).value);
+		}
+		assertEquals("\u00e9t\u00e9", ((ConstantValueAttribute) lazy.fields[1].attributes[0]).value);
+		assertEquals("\u2603\u0000", ((ConstantValueAttribute) lazy.fields[2].attributes[0]).value);
+		assertEquals(eager.constant_pool.toString(), lazy.constant_pool.toString());
+	}
+
+	public void testSelectiveAttributes() throws Exception {
+		ByteBuffer bb = ByteBuffer.wrap(IO.read(IO.getFile("bin_test/test/ClassParserTest.class")));
+		ClassFile all = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb.duplicate()));
+		ClassFile code = ClassFile.parseClassFile(bb, Collections.singleton(CodeAttribute.NAME));
+
+		assertEquals(all.methods.length, code.methods.length);
+		boolean lines = false;
+		for (int i = 0; i < all.methods.length; i++) {
+			MethodInfo a = all.methods[i];
+			MethodInfo c = code.methods[i];
+			assertEquals(a.name, c.name);
+			assertEquals(a.descriptor, c.descriptor);
+			for (Attribute attribute : c.attributes) {
+				assertEquals(CodeAttribute.NAME, attribute.name());
+				CodeAttribute ca = (CodeAttribute) attribute;
+				assertEquals(0, ca.attributes.length);
+			}
+			for (Attribute attribute : a.attributes) {
+				if (attribute instanceof CodeAttribute) {
+					lines |= Arrays.stream(((CodeAttribute) attribute).attributes)
+						.anyMatch(LineNumberTableAttribute.class::isInstance);
+				}
+			}
+		}
+		assertTrue(lines);
+		assertEquals(0, code.attributes.length);
+
+		ClassFile none = ClassFile.parseClassFile(bb, new HashSet<>());
+		for (MethodInfo m : none.methods) {
+			assertEquals(0, m.attributes.length);
+		}
+	}
 }
@@ -841,5 +841,39 @@ public class ClazzTest extends TestCase {
 			assertThat(clazz.isInnerClass()).isTrue();
 		}
 	}
-}
 
+	public void testClasspathClassParsedOnDemand() throws Exception {
+		try (Analyzer analyzer = new Analyzer()) {
+			analyzer.addClasspath(IO.getFile("bin_test"));
+
+			//
+			// A class from the classpath has enough information for queries on
+			// its hierarchy and annotations
+			//
+
+			Clazz clazz = analyzer.findClass(analyzer.getTypeRefFromFQN("test.ClazzTest$MetaAnnotated_b"));
+			assertTrue(clazz.is(QUERY.ANNOTATED, new Instruction("test.ClazzTest$MetaAnnotated"), analyzer));
+			assertTrue(clazz.is(QUERY.HIERARCHY_INDIRECTLY_ANNOTATED, new Instruction("test.ClazzTest$RecursiveAnno"),
+				analyzer));
+			assertTrue(clazz.is(QUERY.EXTENDS, new Instruction("java.lang.Object"), analyzer));
+
+			//
+			// The rest is parsed when needed
+			//
+
+			clazz = analyzer.findClass(analyzer.getTypeRefFromFQN("test.ClazzTest$Catching"));
+			assertTrue(clazz.is(QUERY.IMPORTS, new Instruction("org.xml.sax"), analyzer));
+			assertThat(clazz.methods()
+				.map(MethodDef::getName)).contains("foo");
+			assertThat(analyzer.findClass(analyzer.getTypeRefFromFQN("test.ClazzTest$Inner"))
+				.isInnerClass()).isTrue();
+
+			File file = IO.getFile("bin_test/test/ClazzTest$Catching.class");
+			Clazz parsed = new Clazz(analyzer, file.getPath(), new FileResource(file));
+			parsed.parseClassFile();
+			assertEquals(parsed.getReferred(), clazz.getReferred());
+			assertEquals(parsed.getAPIUses(), clazz.getAPIUses());
+			assertEquals(parsed.annotations(), clazz.annotations());
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package test;
+
+import java.io.File;
+import java.util.jar.Manifest;
+
+import aQute.bnd.header.Attrs;
+import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Builder;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.JarCache;
+import aQute.lib.io.IO;
+import junit.framework.TestCase;
+
+public class JarCacheTest extends TestCase {
+	private File tmp;
+
+	@Override
+	protected void setUp() throws Exception {
+		tmp = IO.getFile("generated/tmp/test/" + getName());
+		IO.delete(tmp);
+		IO.mkdirs(tmp);
+		JarCache.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JarCache.clear();
+		IO.delete(tmp);
+	}
+
+	public void testShared() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File file = new File(tmp, "a.jar");
+		write(file, "a", "1.0.0");
+
+		Jar a = JarCache.get(file);
+		Jar b = JarCache.get(file);
+		assertSame(a, b);
+		assertEquals(1, JarCache.size());
+
+		a.close();
+		b.close();
+
+		//
+		// A released JAR stays open in the cache
+		//
+
+		try (Jar c = JarCache.get(file)) {
+			assertSame(a, c);
+			assertNotNull(c.getResource("a/a.txt"));
+		}
+	}
+
+	public void testReadOnly() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File file = new File(tmp, "a.jar");
+		write(file, "a", "1.0.0");
+
+		try (Jar jar = JarCache.get(file)) {
+			try {
+				jar.putResource("b/b.txt", new EmbeddedResource("b", 0L));
+				fail("A shared JAR must not be modified");
+			} catch (UnsupportedOperationException e) {
+				// expected
+			}
+			try {
+				jar.remove("a/a.txt");
+				fail("A shared JAR must not be modified");
+			} catch (UnsupportedOperationException e) {
+				// expected
+			}
+			assertNotNull(jar.getResource("a/a.txt"));
+		}
+	}
+
+	public void testChanged() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File file = new File(tmp, "a.jar");
+		write(file, "a", "1.0.0");
+
+		Jar a = JarCache.get(file);
+		assertNotNull(a.getResource("a/a.txt"));
+
+		//
+		// Writing the file evicts it, the old JAR remains usable until it is
+		// released
+		//
+
+		write(file, "b", "2.0.0");
+		assertEquals(0, JarCache.size());
+		assertNotNull(a.getResource("a/a.txt"));
+
+		try (Jar b = JarCache.get(file)) {
+			assertNotSame(a, b);
+			assertNotNull(b.getResource("b/b.txt"));
+			assertNull(b.getResource("a/a.txt"));
+		}
+		a.close();
+
+		//
+		// A changed modification time invalidates the cached JAR
+		//
+
+		Jar b = JarCache.get(file);
+		b.close();
+		assertTrue(file.setLastModified(file.lastModified() + 10000L));
+		try (Jar c = JarCache.get(file)) {
+			assertNotSame(b, c);
+		}
+	}
+
+	public void testEviction() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File[] files = new File[300];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new File(tmp, "f" + i + ".jar");
+			write(files[i], "f" + i, "1.0.0");
+		}
+		Jar first = JarCache.get(files[0]);
+		for (int i = 1; i < files.length; i++) {
+			JarCache.get(files[i])
+				.close();
+		}
+
+		//
+		// The referenced JAR is not evicted, released JARs are
+		//
+
+		assertTrue(JarCache.size() <= 256);
+		try (Jar jar = JarCache.get(files[0])) {
+			assertSame(first, jar);
+		}
+		first.close();
+		assertTrue(JarCache.size() <= 256);
+	}
+
+	public void testBuilders() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File file = new File(tmp, "a.jar");
+		write(file, "a", "1.2.3");
+
+		//
+		// Every builder gets its own copy of the shared export attributes
+		//
+
+		for (int i = 0; i < 2; i++) {
+			try (Builder b = new Builder()) {
+				b.addClasspath(file);
+				b.setProperty(Constants.BUNDLE_SYMBOLICNAME, "b" + i);
+				b.setProperty(Constants.EXPORT_PACKAGE, "a");
+				b.build();
+				assertTrue(b.check());
+				Attrs attrs = b.getClasspathExports()
+					.getByFQN("a");
+				assertEquals("1.2.3", attrs.getVersion());
+				assertEquals("a-1.2.3", attrs.get(Constants.INTERNAL_EXPORTED_DIRECTIVE));
+				attrs.put("foo", "bar");
+			}
+		}
+		assertEquals(1, JarCache.size());
+
+		try (Builder b = new Builder()) {
+			b.addClasspath(file);
+			b.setProperty(Constants.EXPORT_PACKAGE, "a");
+			b.build();
+			assertNull(b.getClasspathExports()
+				.getByFQN("a")
+				.get("foo"));
+		}
+	}
+
+	public void testSharedByAnalyzers() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File file = new File(tmp, "a.jar");
+		write(file, "a", "1.0.0");
+
+		try (Analyzer a = new Analyzer(); Analyzer b = new Analyzer()) {
+			a.addClasspath(file);
+			b.addClasspath(file);
+			Jar jar = b.getClasspath()
+				.get(0);
+			assertSame(a.getClasspath()
+				.get(0), jar);
+
+			//
+			// An analyzer releases its reference once, even when closed twice
+			//
+
+			a.close();
+			a.close();
+			JarCache.evict(file);
+			assertNotNull(jar.getResource("a/a.txt"));
+			assertNotNull(jar.getManifest());
+		}
+	}
+
+	public void testSharedBySubBuilders() throws Exception {
+		if (!JarCache.isEnabled())
+			return;
+
+		File file = new File(tmp, "a.jar");
+		write(file, "a", "1.0.0");
+
+		try (Builder b = new Builder()) {
+			b.addClasspath(file);
+			Jar jar = b.getClasspath()
+				.get(0);
+			try (Builder sub = b.getSubBuilder()) {
+				assertSame(jar, sub.getClasspath()
+					.get(0));
+			}
+			JarCache.evict(file);
+			assertNotNull(jar.getResource("a/a.txt"));
+		}
+	}
+
+	private static void write(File file, String pkg, String version) throws Exception {
+		//
+		// The JDK caches open ZIP files on name and modification time
+		//
+		long lastModified = file.isFile() ? file.lastModified() + 10000L : System.currentTimeMillis();
+
+		try (Jar jar = new Jar(pkg)) {
+			Manifest m = new Manifest();
+			m.getMainAttributes()
+				.putValue("Manifest-Version", "1.0");
+			m.getMainAttributes()
+				.putValue(Constants.BUNDLE_SYMBOLICNAME, pkg);
+			m.getMainAttributes()
+				.putValue(Constants.BUNDLE_VERSION, version);
+			m.getMainAttributes()
+				.putValue(Constants.EXPORT_PACKAGE, pkg + ";version=" + version);
+			jar.setManifest(m);
+			jar.putResource(pkg + "/" + pkg + ".txt", new EmbeddedResource(pkg, lastModified));
+			jar.write(file);
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
@@ -21,6 +22,7 @@ import aQute.bnd.build.ProjectTester;
 import aQute.bnd.build.Run;
 import aQute.bnd.build.Workspace;
 import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Resource;
 import aQute.bnd.service.Strategy;
@@ -178,6 +180,91 @@ public class LauncherTest extends TestCase {
 		}
 	}
 
+	/**
+	 * Rejarred JARs are kept in the workspace cache, the next export of an
+	 * unchanged JAR reuses them
+	 */
+
+	public void testExecutableRejarCache() throws Exception {
+		Project project = getProject();
+		project.setProperty(Constants.EXECUTABLE, "rejar=STORE,strip='OSGI-OPT/*'");
+		File cache = project.getWorkspace()
+			.getCache("rejar");
+
+		File rejarred;
+		long lastModified;
+		try (Jar executable = project.getProjectLauncher()
+			.executable()) {
+			Resource demo = executable.getResource("jar/demo.jar");
+			assertThat(demo).isInstanceOf(FileResource.class);
+			rejarred = ((FileResource) demo).getFile();
+			assertEquals(cache, rejarred.getParentFile());
+			lastModified = demo.lastModified();
+		}
+		Object fileKey = java.nio.file.Files.readAttributes(rejarred.toPath(), BasicFileAttributes.class)
+			.fileKey();
+		long lastUsed = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+		rejarred.setLastModified(lastUsed);
+
+		//
+		// Unused JARs are pruned from the cache
+		//
+
+		File unused = new File(cache, "unused.jar");
+		IO.store("unused", unused);
+		unused.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(60));
+
+		try (Jar executable = project.getProjectLauncher()
+			.executable()) {
+			Resource demo = executable.getResource("jar/demo.jar");
+			assertEquals(rejarred, ((FileResource) demo).getFile());
+			assertEquals(fileKey, java.nio.file.Files.readAttributes(rejarred.toPath(), BasicFileAttributes.class)
+				.fileKey());
+			assertTrue(rejarred.lastModified() > lastUsed);
+
+			// Using the cache does not change the exported JAR
+			assertEquals(lastModified, demo.lastModified());
+		}
+		assertFalse(unused.exists());
+
+		//
+		// Other settings do not use the same cached JAR
+		//
+
+		project.setProperty(Constants.EXECUTABLE, "rejar=DEFLATE,strip='OSGI-OPT/*'");
+		try (Jar executable = project.getProjectLauncher()
+			.executable()) {
+			Resource demo = executable.getResource("jar/demo.jar");
+			assertFalse(rejarred.equals(((FileResource) demo).getFile()));
+		}
+	}
+
+	/**
+	 * An executable with cds=true has start scripts that use the class data
+	 * sharing archive, the archive is only created by Java 13 or later.
+	 */
+
+	public void testExecutableWithCDS() throws Exception {
+		Project project = getProject();
+		project.setProperty(Constants.EXECUTABLE, "cds=true");
+		ProjectLauncher l = project.getProjectLauncher();
+		try (Jar executable = l.executable()) {
+			String start = IO.collect(executable.getResource("start")
+				.openInputStream());
+			assertThat(start).contains("-XX:SharedArchiveFile=launcher.jsa")
+				.contains("aQute.launcher.pre.EmbeddedLauncher");
+
+			String version = System.getProperty("java.specification.version");
+			if (version.startsWith("1.") || Integer.parseInt(version) < 13) {
+				assertNull(executable.getResource("launcher.jsa"));
+				assertTrue(project.check("The training run for the class data sharing archive failed"));
+			} else {
+				assertNotNull(executable.getResource("launcher.jsa"));
+				assertTrue(project.check());
+			}
+		}
+	}
+
 	/**
 	 * Test the packager for remote
 	 * 
@@ -16,6 +16,7 @@ import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.resource.RequirementBuilder;
 import aQute.bnd.osgi.resource.ResourceBuilder;
 import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.service.reporter.Reporter.SetLocation;
 import junit.framework.TestCase;
@@ -466,4 +467,29 @@ public class ProcessorTest extends TestCase {
 		}
 	}
 
+	public void testNeedsRefresh() throws Exception {
+		File tmp = IO.getFile("generated/tmp/test/" + getName());
+		IO.delete(tmp);
+		IO.mkdirs(tmp);
+		try (Processor p = new Processor()) {
+			File props = IO.getFile(tmp, "p.bnd");
+			File include = IO.getFile(tmp, "include.bnd");
+			IO.store("-include: include.bnd\n", props);
+			IO.store("a: 1\n", include);
+			p.setProperties(props);
+			assertEquals("1", p.getProperty("a"));
+			assertFalse(p.needsRefresh());
+
+			include.setLastModified(p.lastModified() + 10000);
+			assertTrue(p.needsRefresh());
+			assertTrue(p.refresh());
+			assertFalse(p.needsRefresh());
+
+			IO.delete(include);
+			assertTrue(p.needsRefresh());
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+
 }
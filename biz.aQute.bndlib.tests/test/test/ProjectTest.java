@@ -11,7 +11,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 
@@ -27,6 +30,7 @@ import aQute.bnd.osgi.eclipse.EclipseClasspath;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.Strategy;
 import aQute.bnd.version.Version;
+import aQute.lib.collections.SortedList;
 import aQute.lib.deployer.FileRepo;
 import aQute.lib.io.IO;
 import junit.framework.TestCase;
@@ -361,6 +365,115 @@ public class ProjectTest extends TestCase {
 		assertEquals(2, runbundles.size());
 	}
 
+	/**
+	 * Repository clauses are looked up concurrently, the order of the result
+	 * and the errors must not change
+	 */
+
+	public void testRunbundlesOrderWithConcurrentLookup() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		Project top = ws.getProject("p1");
+		top.setProperty("-runbundles",
+			"org.apache.felix.configadmin;version='[1.1.0,1.1.0]',does.not.exist;version='[1,2)',org.apache.felix.configadmin;version='[1.0.1,1.0.1]'");
+		List<Container> runbundles = new ArrayList<>(top.getRunbundles());
+		assertTrue(top.check("Cannot find /error/does.not.exist", "does.not.exist;version=\\[1,2\\) Not found"));
+		assertEquals(2, runbundles.size());
+		assertEquals("1.1.0", runbundles.get(0)
+			.getVersion());
+		assertEquals("1.0.1", runbundles.get(1)
+			.getVersion());
+	}
+
+	/**
+	 * The errors reported by concurrent look ups are reported on the calling
+	 * thread in the order of the clauses
+	 */
+
+	public void testRunbundlesErrorsWithConcurrentLookup() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		ws.addBasicPlugin(new FileRepo() {
+			@Override
+			public String getName() {
+				return "failing";
+			}
+
+			@Override
+			public SortedSet<Version> versions(String bsn) throws Exception {
+				return bsn.startsWith("failing.") ? new SortedList<>(new Version("1.0.0")) : null;
+			}
+
+			@Override
+			public File get(String bsn, Version version, Map<String, String> properties,
+				DownloadListener... listeners) throws Exception {
+				if (!bsn.startsWith("failing."))
+					return null;
+				if (bsn.equals("failing.a"))
+					Thread.sleep(200);
+				File file = IO.getFile(tmp, bsn + ".jar");
+				for (DownloadListener listener : listeners) {
+					listener.failure(file, bsn);
+				}
+				return file;
+			}
+		});
+		Project top = ws.getProject("p1");
+		top.setProperty("-runbundles", "failing.a;version='[1,2)',failing.b;version='[1,2)'");
+		top.getRunbundles();
+		List<String> errors = new ArrayList<>(top.getErrors());
+		assertTrue(top.check("Download failing.a", "Download failing.b"));
+		int a = -1;
+		int b = -1;
+		for (int i = 0; i < errors.size(); i++) {
+			if (errors.get(i)
+				.startsWith("Download failing.a"))
+				a = i;
+			if (errors.get(i)
+				.startsWith("Download failing.b"))
+				b = i;
+		}
+		assertTrue(errors.toString(), a >= 0 && a < b);
+	}
+
+	/**
+	 * A failing look up does not leave the other concurrent look ups running
+	 */
+
+	public void testConcurrentLookupFailure() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		AtomicBoolean done = new AtomicBoolean();
+		ws.addBasicPlugin(new FileRepo() {
+			@Override
+			public String getName() {
+				return "failing";
+			}
+
+			@Override
+			public SortedSet<Version> versions(String bsn) throws Exception {
+				return bsn.startsWith("failing.") ? new SortedList<>(new Version("1.0.0")) : null;
+			}
+
+			@Override
+			public File get(String bsn, Version version, Map<String, String> properties,
+				DownloadListener... listeners) throws Exception {
+				if (bsn.equals("failing.a"))
+					throw new IllegalStateException("failing.a");
+				if (bsn.equals("failing.b")) {
+					Thread.sleep(500);
+					done.set(true);
+				}
+				return null;
+			}
+		});
+		Project top = ws.getProject("p1");
+		try {
+			top.getBundles(Strategy.HIGHEST, "failing.a;version='[1,2)',failing.b;version='[1,2)'", null);
+			fail("expected the look up of failing.a to fail");
+		} catch (IllegalStateException e) {
+			assertEquals("failing.a", e.getMessage());
+		}
+		assertTrue(done.get());
+	}
+
 	/**
 	 * Duplicates in runbundles gave a bad error, should be ignored
 	 */
@@ -6,6 +6,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.File;
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import aQute.bnd.build.Project;
 import aQute.bnd.build.Workspace;
@@ -55,6 +60,111 @@ public class WorkspaceTest extends TestCase {
 		}
 	}
 
+	/**
+	 * A project lock must only block the users of that project
+	 */
+	public void testProjectLocks() throws Exception {
+		try (Workspace w = new Workspace(tmp)) {
+			Project p1 = w.getProject("p1");
+			Project p2 = w.createProject("p2");
+
+			p1.writeLocked(() -> {
+				assertThat(inOtherThread(() -> p2.readLocked(() -> "p2", 1000))).isEqualTo("p2");
+				assertThat(inOtherThread(() -> p2.writeLocked(() -> "p2", 1000))).isEqualTo("p2");
+				assertThat(inOtherThread(() -> w.readLocked(() -> "w", 1000))).isEqualTo("w");
+				assertTimeout(() -> p1.readLocked(() -> "p1", 100));
+				return null;
+			});
+
+			w.writeLocked(() -> {
+				assertThat(inOtherThread(() -> p2.readLocked(() -> "p2", 1000))).isEqualTo("p2");
+				return null;
+			});
+
+			FutureTask<Void> change = new FutureTask<>(p1::propertiesChanged, null);
+			p1.readLocked(() -> {
+				assertThat(inOtherThread(() -> p1.readLocked(() -> "p1", 1000))).isEqualTo("p1");
+				assertTimeout(() -> p1.writeLocked(() -> "p1", 100));
+
+				new Thread(change).start();
+				try {
+					change.get(100, TimeUnit.MILLISECONDS);
+					fail("A change must wait for the readers");
+				} catch (TimeoutException e) {
+					// expected
+				}
+				return null;
+			});
+			change.get();
+
+			//
+			// A reader can prepare the project
+			//
+
+			p1.setChanged();
+			assertThat(p1.readLocked(() -> p1.getBuildpath(), 1000)).isNotNull();
+
+			//
+			// A prepared project does not wait for the readers
+			//
+
+			p1.readLocked(() -> {
+				assertThat(inOtherThread(() -> p1.getBuildpath())).isNotNull();
+				return null;
+			});
+		}
+	}
+
+	private void assertTimeout(Callable<String> c) throws Exception {
+		try {
+			inOtherThread(c);
+			fail("Expected a timeout");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+		}
+	}
+
+	private <T> T inOtherThread(Callable<T> c) throws Exception {
+		FutureTask<T> task = new FutureTask<>(c);
+		new Thread(task).start();
+		return task.get();
+	}
+
+	/**
+	 * A shared workspace is reused until the content of the cnf files changes
+	 */
+	public void testSharedWorkspace() throws Exception {
+		File build = IO.getFile(tmp, "cnf/build.bnd");
+		File bnd = IO.getFile(tmp, "p1/bnd.bnd");
+
+		Workspace w = Workspace.getSharedWorkspace(tmp, Workspace.CNFDIR);
+		try {
+			Project p1 = w.getProject("p1");
+			assertThat(p1.getProperty("foo")).isNull();
+			assertThat(Workspace.getSharedWorkspace(tmp, Workspace.CNFDIR)).isSameAs(w);
+
+			build.setLastModified(build.lastModified() + 10000);
+			assertThat(Workspace.getSharedWorkspace(tmp, Workspace.CNFDIR)).isSameAs(w);
+
+			IO.store("foo=bar\n", bnd);
+			bnd.setLastModified(System.currentTimeMillis() + 10000);
+			assertThat(Workspace.getSharedWorkspace(tmp, Workspace.CNFDIR)).isSameAs(w);
+			assertThat(w.getProject("p1")
+				.getProperty("foo")).isEqualTo("bar");
+
+			IO.store("bar=foo\n", build);
+			Workspace changed = Workspace.getSharedWorkspace(tmp, Workspace.CNFDIR);
+			assertThat(changed).isNotSameAs(w);
+			w = changed;
+			assertThat(w.getProperty("bar")).isEqualTo("foo");
+		} finally {
+			w.close();
+		}
+		try (Workspace other = Workspace.getSharedWorkspace(tmp, Workspace.CNFDIR)) {
+			assertThat(other).isNotSameAs(w);
+		}
+	}
+
 	private Set<String> getNames(Workspace w) throws Exception {
 		return w.getAllProjects()
 			.stream()
@@ -0,0 +1,188 @@
+package test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import aQute.bnd.make.calltree.CalltreeResource;
+import aQute.bnd.osgi.Builder;
+import aQute.bnd.osgi.Clazz;
+import aQute.bnd.osgi.XRefIndex;
+import aQute.lib.io.IO;
+import junit.framework.TestCase;
+
+public class XRefIndexTest extends TestCase {
+	File tmp;
+
+	@Override
+	protected void setUp() throws Exception {
+		tmp = IO.getFile("generated/tmp/test/" + getName());
+		IO.delete(tmp);
+		IO.mkdirs(tmp);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		IO.delete(tmp);
+	}
+
+	public void testCalls() throws Exception {
+		try (Builder b = builder(null)) {
+			b.build();
+			assertTrue(b.check());
+			XRefIndex index = b.getXRefIndex();
+			assertSame(index, b.getXRefIndex());
+			assertEquals(b.getClassspace()
+				.size(), index.getClasses());
+
+			int cls = index.indexOf("test/CalltreeTest");
+			assertTrue(cls >= 0 && cls < index.getClasses());
+			assertEquals(index.indexOf("junit/framework/TestCase"), index.getSuperClass(cls));
+			int calltree = index.indexOf("aQute/bnd/make/calltree/CalltreeResource");
+			assertTrue(contains(index.getReferences(cls), calltree));
+			assertTrue(contains(index.getReferrers(calltree), cls));
+
+			int source = member(index, cls, "testCalltree", "()V");
+			assertTrue(source >= 0);
+
+			int target = -1;
+			for (int call : index.getCalls(source)) {
+				if (index.getMemberName(call)
+					.equals("writeCalltree"))
+					target = call;
+			}
+			assertTrue(target >= 0);
+			assertEquals(calltree, index.getMemberClass(target));
+			assertEquals("(Ljava/io/PrintWriter;Ljava/util/Collection;)V", index.getMemberDescriptor(target));
+			assertTrue(contains(index.getCallers(target), source));
+		}
+	}
+
+	public void testStored() throws Exception {
+		File file = new File(tmp, "test.xref");
+		XRefIndex index;
+		try (Builder b = builder(file)) {
+			b.build();
+			assertTrue(b.check());
+			assertTrue(file.isFile());
+			index = b.getXRefIndex();
+			assertEquals(index.getKey(), XRefIndex.readKey(file));
+		}
+
+		XRefIndex read = XRefIndex.read(file);
+		assertEquals(index.getKey(), read.getKey());
+		assertEquals(index.getTypes(), read.getTypes());
+		assertEquals(index.getMemberCount(), read.getMemberCount());
+		int cls = index.indexOf("test/CalltreeTest");
+		assertEquals(cls, read.indexOf("test/CalltreeTest"));
+		int source = member(index, cls, "testCalltree", "()V");
+		assertEquals(source, member(read, cls, "testCalltree", "()V"));
+		assertTrue(Arrays.equals(index.getCalls(source), read.getCalls(source)));
+
+		//
+		// An up to date index is not built again
+		//
+
+		long modified = file.lastModified();
+		Thread.sleep(100);
+		try (Builder b = builder(file)) {
+			b.build();
+			assertTrue(b.check());
+			assertEquals(modified, file.lastModified());
+			assertEquals(index.getKey(), b.getXRefIndex()
+				.getKey());
+		}
+
+		//
+		// Other classes have another index
+		//
+
+		try (Builder b = builder(file)) {
+			b.setProperty("Private-Package", "test.deployer");
+			b.build();
+			assertTrue(b.check());
+			assertFalse(index.getKey()
+				.equals(XRefIndex.readKey(file)));
+		}
+	}
+
+	public void testSubset() throws Exception {
+		try (Builder b = builder(null)) {
+			b.build();
+			assertTrue(b.check());
+			assertSame(b.getXRefIndex(), XRefIndex.of(b.getClassspace()
+				.values()));
+
+			List<Clazz> subset = new ArrayList<>();
+			for (Clazz clazz : b.getClassspace()
+				.values()) {
+				if (clazz.getFQN()
+					.equals("test.CalltreeTest"))
+					subset.add(clazz);
+			}
+			assertEquals(1, subset.size());
+			XRefIndex index = XRefIndex.of(subset);
+			assertEquals(1, index.getClasses());
+
+			StringWriter sw = new StringWriter();
+			try (PrintWriter pw = new PrintWriter(sw)) {
+				CalltreeResource.writeCalltree(pw, subset);
+			}
+			assertTrue(sw.toString()
+				.contains("class='test.CalltreeTest'"));
+			assertFalse(sw.toString()
+				.contains("<method class='test.XRefIndexTest'"));
+		}
+	}
+
+	public void testCalltree() throws Exception {
+		try (Builder b = builder(null)) {
+			b.build();
+			assertTrue(b.check());
+			StringWriter sw = new StringWriter();
+			try (PrintWriter pw = new PrintWriter(sw)) {
+				CalltreeResource.writeCalltree(pw, b.getClassspace()
+					.values());
+			}
+			String calltree = sw.toString();
+			assertTrue(calltree.contains("<ref class='aQute.bnd.make.calltree.CalltreeResource' name='writeCalltree'"
+				+ " descriptor='(Ljava/io/PrintWriter;Ljava/util/Collection;)V'"));
+			assertTrue(calltree
+				.contains("<method class='test.CalltreeTest' public='true' static='true' name='testCalltree'"));
+		}
+	}
+
+	private Builder builder(File file) throws Exception {
+		Builder b = new Builder() {
+			@Override
+			protected File getXRefIndexFile() {
+				return file;
+			}
+		};
+		b.addClasspath(new File("bin_test"));
+		b.setProperty("Private-Package", "test");
+		return b;
+	}
+
+	private static int member(XRefIndex index, int cls, String name, String descriptor) {
+		for (int member : index.getMembers(cls)) {
+			if (index.getMemberName(member)
+				.equals(name)
+				&& index.getMemberDescriptor(member)
+					.equals(descriptor))
+				return member;
+		}
+		return -1;
+	}
+
+	private static boolean contains(int[] ints, int i) {
+		for (int n : ints) {
+			if (n == i)
+				return true;
+		}
+		return false;
+	}
+}
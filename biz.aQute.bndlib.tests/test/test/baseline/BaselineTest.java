@@ -389,6 +389,23 @@ public class BaselineTest extends TestCase {
 					.toString());
 
 		}
+		{
+			// the tree of the baseline jar is cached, the result is the same
+			File cache = getWorkspace().getCache("baseline");
+			assertEquals(1, cache.list().length);
+
+			builder = (ProjectBuilder) p3.getBuilder(null)
+				.getSubBuilder();
+			builder.setBundleVersion("1.2.0.b");
+			builder.setProperty(Constants.BASELINE, "*");
+			builder.setProperty(Constants.BASELINEREPO, "Baseline");
+			builder.build();
+
+			if (!builder.check("The bundle version \\(1.2.0/1.2.0\\) is too low, must be at least 1.3.0"))
+				fail(builder.getErrors()
+					.toString());
+			assertEquals(1, cache.list().length);
+		}
 	}
 
 	/**
@@ -449,6 +466,31 @@ public class BaselineTest extends TestCase {
 		}
 	}
 
+	// A serialized tree of the older jar gives the same result
+	public void testSerializedTree() throws Exception {
+		Processor processor = new Processor();
+
+		DiffPluginImpl differ = new DiffPluginImpl();
+		Baseline baseline = new Baseline(processor, differ);
+
+		try (Jar older = new Jar(IO.getFile("testresources/api-orig.jar"));
+			Jar newer = new Jar(IO.getFile("testresources/api-providerbump.jar"));) {
+
+			Tree o = differ.deserialize(differ.tree(older)
+				.serialize());
+			Set<Info> infoSet = baseline.baseline(differ.tree(newer), newer, o, older, null);
+
+			assertEquals(1, infoSet.size());
+			Info info = infoSet.iterator()
+				.next();
+
+			assertTrue(info.mismatch);
+			assertEquals("dummy.api", info.packageName);
+			assertEquals("1.1.0", info.suggestedVersion.toString());
+			assertEquals("1.1.0", baseline.getBundleInfo().suggestedVersion.toString());
+		}
+	}
+
 	// Adding a method to a ConsumerType produces a MINOR bump (1.0.0 -> 2.0.0)
 	public static void testConsumerTypeBump() throws Exception {
 		Processor processor = new Processor();
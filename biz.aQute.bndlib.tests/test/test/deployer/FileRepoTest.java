@@ -174,6 +174,94 @@ public class FileRepoTest extends TestCase {
 		assertNull(resource);
 	}
 
+	/**
+	 * Test that the index follows changes made outside the repo
+	 */
+	public void testIndexExternalChanges() throws Exception {
+		testIndexExternalChanges(indexedRepo);
+	}
+
+	public void testIndexExternalChangesPolling() throws Exception {
+		testIndexExternalChanges(createRepo(tmp, MAP.$("index", "true")
+			.$("watch", "false")));
+	}
+
+	private void testIndexExternalChanges(FileRepo repo) throws Exception {
+		try {
+			PutResult put = repo.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+			assertTrue(repo.refresh());
+			assertEquals(1, repo.getResources()
+				.size());
+
+			//
+			// Copy an artifact into the repository
+			//
+
+			File foo = IO.getFile(tmp, "foo/foo-1.0.0.jar");
+			IO.mkdirs(foo.getParentFile());
+			IO.copy(IO.getFile("testresources/test.jar"), foo);
+
+			assertEquals(Arrays.asList("foo", "osgi"), repo.list(null));
+			assertEquals(new Version("1.0.0"), repo.versions("foo")
+				.first());
+			assertEquals(foo.getAbsoluteFile(), repo.get("foo", new Version("1.0.0"), null));
+
+			byte[] digest = SHA1.digest(foo)
+				.digest();
+			ResourceDescriptor rd = repo.getResource(digest);
+			assertNotNull(rd);
+			assertEquals("foo", rd.bsn);
+			assertEquals(2, repo.getResources()
+				.size());
+
+			//
+			// Remove it again
+			//
+
+			IO.delete(foo);
+			assertTrue(repo.versions("foo")
+				.isEmpty());
+			assertNull(repo.get("foo", new Version("1.0.0"), null));
+			assertNull(repo.getResource(digest));
+			assertEquals(1, repo.getResources()
+				.size());
+			assertNotNull(repo.getResource(put.digest));
+
+			IO.delete(foo.getParentFile());
+			assertEquals(Arrays.asList("osgi"), repo.list(null));
+		} finally {
+			repo.close();
+		}
+	}
+
+	/**
+	 * Test that an artifact replaced while the repo was closed is indexed
+	 * again
+	 */
+	public void testIndexReplacedWhileClosed() throws Exception {
+		PutResult put = indexedRepo.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+		assertTrue(indexedRepo.refresh());
+		indexedRepo.close();
+
+		File file = IO.getFile(tmp, "osgi/osgi-4.0.0.jar");
+		assertTrue(file.isFile());
+		IO.copy(IO.getFile("testresources/test.jar"), file);
+		byte[] digest = SHA1.digest(file)
+			.digest();
+
+		FileRepo repo = createRepo(tmp, MAP.$("index", "true"));
+		try {
+			assertTrue(repo.refresh());
+			ResourceDescriptor desc = repo.getDescriptor("osgi", new Version("4.0.0"));
+			assertNotNull(desc);
+			assertTrue(Arrays.equals(digest, desc.id));
+			assertNull(repo.getResource(put.digest));
+			assertNotNull(repo.getResource(digest));
+		} finally {
+			repo.close();
+		}
+	}
+
 	public void testListBSNs() throws Exception {
 		List<String> list = testRepo.list(null);
 		assertNotNull(list);
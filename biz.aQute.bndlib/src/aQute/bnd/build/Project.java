@@ -37,8 +37,11 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
@@ -49,6 +52,8 @@ import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.service.repository.ContentNamespace;
 import org.osgi.service.repository.Repository;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -128,6 +133,7 @@ public class Project extends Processor {
 	public final static String		SHA_256							= "SHA-256";
 	final Workspace					workspace;
 	private final AtomicBoolean		preparedPaths					= new AtomicBoolean();
+	private final ReentrantReadWriteLock	lock						= new ReentrantReadWriteLock(true);
 	private final Set<Project>		dependenciesFull				= new LinkedHashSet<>();
 	private final Set<Project>		dependenciesBuild				= new LinkedHashSet<>();
 	private final Set<Project>		dependenciesTest				= new LinkedHashSet<>();
@@ -239,11 +245,16 @@ public class Project extends Processor {
 	 * clear any cached results.
 	 */
 	public void setChanged() {
-		// if (refresh()) {
-		preparedPaths.set(false);
-		files = null;
-		revision.getAndIncrement();
-		// }
+		Lock change = changeLock();
+		try {
+			// if (refresh()) {
+			preparedPaths.set(false);
+			files = null;
+			revision.getAndIncrement();
+			// }
+		} finally {
+			unlock(change);
+		}
 	}
 
 	public Workspace getWorkspace() {
@@ -265,6 +276,23 @@ public class Project extends Processor {
 			return;
 		}
 
+		// A prepared project only needs its output folders, the write lock is
+		// only taken when the paths must be prepared
+		if (preparedPaths.get()) {
+			getSrcOutput0();
+			getTarget0();
+			return;
+		}
+
+		Lock change = changeLock();
+		try {
+			preparePaths();
+		} finally {
+			unlock(change);
+		}
+	}
+
+	private void preparePaths() throws Exception {
 		synchronized (preparedPaths) {
 			if (preparedPaths.get()) {
 				// ensure output folders exist
@@ -587,8 +615,10 @@ public class Project extends Processor {
 	public List<Container> getBundles(Strategy strategyx, String spec, String source) throws Exception {
 		List<Container> result = new ArrayList<>();
 		Parameters bundles = new Parameters(spec, this);
+		Map<String, Prefetch> prefetched = Collections.emptyMap();
 
 		try {
+			prefetched = prefetchBundles(strategyx, bundles);
 			for (Iterator<Entry<String, Attrs>> i = bundles.entrySet()
 				.iterator(); i.hasNext();) {
 				Entry<String, Attrs> entry = i.next();
@@ -645,7 +675,11 @@ public class Project extends Processor {
 							found = new Container(this, bsn, "file", Container.TYPE.EXTERNAL, f, error, attrs, null);
 						}
 					} else if (!triedGetBundle) {
-						found = getBundle(bsn, versionRange, strategyx, attrs);
+						Prefetch prefetch = prefetched.get(entry.getKey());
+						if (prefetch != null)
+							found = prefetch.join();
+						else
+							found = getBundle(bsn, versionRange, strategyx, attrs);
 					}
 				}
 
@@ -679,10 +713,124 @@ public class Project extends Processor {
 			msgs.CircularDependencyContext_Message_(getName(), message);
 		} catch (IOException e) {
 			exception(e, "Unexpected exception in get bundles", spec);
+		} finally {
+			// do not leave look ups running when a clause failed
+			for (Prefetch prefetch : prefetched.values()) {
+				prefetch.await();
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Start the repository look ups of the clauses that do not depend on
+	 * workspace projects or local files concurrently. The clauses are still
+	 * processed in order by {@link #getBundles(Strategy, String, String)},
+	 * which joins each prefetch when it gets to it. Nothing is prefetched if
+	 * there is a wildcard clause since that clause ends the processing. The
+	 * errors and warnings of a prefetch are collected and reported on the
+	 * calling thread when the prefetch is joined.
+	 *
+	 * @param strategy the strategy to use
+	 * @param bundles the parsed clauses
+	 * @return a map of clause key to the started prefetch
+	 */
+	private Map<String, Prefetch> prefetchBundles(Strategy strategy, Parameters bundles) throws Exception {
+		List<Entry<String, Attrs>> candidates = new ArrayList<>();
+		for (Entry<String, Attrs> entry : bundles.entrySet()) {
+			String bsn = removeDuplicateMarker(entry.getKey());
+			if (bsn.indexOf('*') >= 0)
+				return Collections.emptyMap();
+
+			String versionRange = entry.getValue()
+				.get("version");
+			if (versionRange == null || !(versionRange.equals(VERSION_ATTR_LATEST)
+				|| versionRange.equals(VERSION_ATTR_SNAPSHOT) || versionRange.equals(VERSION_ATTR_PROJECT)
+				|| versionRange.equals("file"))) {
+				candidates.add(entry);
+			}
+		}
+
+		if (candidates.size() < 2)
+			return Collections.emptyMap();
+
+		// make sure the repositories are initialized on this thread
+		getWorkspace().getRepositories();
+
+		PromiseFactory promiseFactory = getPromiseFactory();
+		Map<String, Prefetch> prefetched = new HashMap<>();
+		for (Entry<String, Attrs> entry : candidates) {
+			String bsn = removeDuplicateMarker(entry.getKey());
+			Attrs attrs = entry.getValue();
+			prefetched.put(entry.getKey(), new Prefetch(promiseFactory, bsn, strategy, attrs));
+		}
+		return prefetched;
+	}
+
+	/*
+	 * A repository look up on another thread. Until the look up is joined, its
+	 * errors and warnings are collected instead of reported to the project.
+	 * They are reported to the project on the thread that joins the look up,
+	 * later problems, for example of a download, are reported directly.
+	 */
+	final class Prefetch extends Processor {
+		private Promise<Container>	promise;
+		private boolean				joined;
+
+		Prefetch(PromiseFactory promiseFactory, String bsn, Strategy strategy, Attrs attrs) {
+			promise = promiseFactory.submit(() -> getBundle(bsn, attrs.get("version"), strategy, attrs, this));
+		}
+
+		@Override
+		public synchronized SetLocation error(String format, Object... args) {
+			if (joined)
+				return Project.this.error(format, args);
+			return super.error(format, args);
+		}
+
+		@Override
+		public synchronized SetLocation warning(String format, Object... args) {
+			if (joined)
+				return Project.this.warning(format, args);
+			return super.warning(format, args);
+		}
+
+		Container join() throws Exception {
+			try {
+				return promise.getValue();
+			} catch (InvocationTargetException e) {
+				throw Exceptions.duck(e.getCause());
+			} finally {
+				report();
+			}
+		}
+
+		/*
+		 * Wait until the look up is done. If it was not joined its result and
+		 * problems are dropped since its clause was not processed.
+		 */
+		void await() {
+			try {
+				promise.getValue();
+			} catch (InvocationTargetException e) {
+				// the failure of a clause that was not processed is dropped
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+			}
+		}
+
+		private synchronized void report() {
+			joined = true;
+			for (String error : getErrors()) {
+				Project.this.error("%s", error);
+			}
+			for (String warning : getWarnings()) {
+				Project.this.warning("%s", warning);
+			}
+		}
+	}
+
 	/**
 	 * Just calls a new method with a default parm.
 	 *
@@ -1210,6 +1358,15 @@ public class Project extends Processor {
 
 	public Container getBundle(String bsn, String range, Strategy strategy, Map<String, String> attrs)
 		throws Exception {
+		return getBundle(bsn, range, strategy, attrs, this);
+	}
+
+	/*
+	 * Get a bundle and report the problems of the look up to the given
+	 * reporter
+	 */
+	private Container getBundle(String bsn, String range, Strategy strategy, Map<String, String> attrs,
+		Processor reporter) throws Exception {
 
 		if (range == null)
 			range = "0";
@@ -1217,7 +1374,7 @@ public class Project extends Processor {
 		if (VERSION_ATTR_SNAPSHOT.equals(range) || VERSION_ATTR_PROJECT.equals(range)) {
 			return getBundleFromProject(bsn, attrs);
 		} else if (VERSION_ATTR_HASH.equals(range)) {
-			return getBundleByHash(bsn, attrs);
+			return getBundleByHash(bsn, attrs, reporter);
 		}
 
 		Strategy useStrategy = strategy;
@@ -1244,7 +1401,7 @@ public class Project extends Processor {
 			// and return the first we find.
 			Version version = new Version(range);
 			for (RepositoryPlugin plugin : plugins) {
-				DownloadBlocker blocker = new DownloadBlocker(this);
+				DownloadBlocker blocker = new DownloadBlocker(reporter);
 				File result = plugin.get(bsn, version, attrs, blocker);
 				if (result != null)
 					return toContainer(bsn, range, attrs, result, blocker);
@@ -1280,7 +1437,7 @@ public class Project extends Processor {
 					// To query, we must have a real version
 					if (!versions.isEmpty() && Verifier.isVersion(range)) {
 						Version version = new Version(range);
-						DownloadBlocker blocker = new DownloadBlocker(this);
+						DownloadBlocker blocker = new DownloadBlocker(reporter);
 						File file = plugin.get(bsn, version, attrs, blocker);
 						// and the entry must exist
 						// if it does, return this as a result
@@ -1330,12 +1487,13 @@ public class Project extends Processor {
 					}
 
 					String version = provider.toString();
-					DownloadBlocker blocker = new DownloadBlocker(this);
+					DownloadBlocker blocker = new DownloadBlocker(reporter);
 					File result = repo.get(bsn, provider, attrs, blocker);
 					if (result != null)
 						return toContainer(bsn, version, attrs, result, blocker);
 				} else {
-					msgs.FoundVersions_ForStrategy_ButNoProvider(versions, useStrategy);
+					ReporterMessages.base(reporter, ProjectMessages.class)
+						.FoundVersions_ForStrategy_ButNoProvider(versions, useStrategy);
 				}
 			}
 		}
@@ -1453,7 +1611,7 @@ public class Project extends Processor {
 		}
 	}
 
-	private Container getBundleByHash(String bsn, Map<String, String> attrs) throws Exception {
+	private Container getBundleByHash(String bsn, Map<String, String> attrs, Processor reporter) throws Exception {
 		String hashStr = attrs.get("hash");
 		String algo = SHA_256;
 
@@ -1467,7 +1625,7 @@ public class Project extends Processor {
 
 		for (RepositoryPlugin plugin : workspace.getRepositories()) {
 			// The plugin *may* understand version=hash directly
-			DownloadBlocker blocker = new DownloadBlocker(this);
+			DownloadBlocker blocker = new DownloadBlocker(reporter);
 			File result = plugin.get(bsn, Version.LOWEST, Collections.unmodifiableMap(attrs), blocker);
 
 			// If not, and if the repository implements the OSGi Repository
@@ -2098,13 +2256,18 @@ public class Project extends Processor {
 	 */
 	@Override
 	public boolean refresh() {
-		versionMap.clear();
-		data = new RefreshData();
 		boolean changed = false;
 		if (isCnf()) {
 			changed = workspace.refresh();
 		}
-		return super.refresh() || changed;
+		Lock change = changeLock();
+		try {
+			versionMap.clear();
+			data = new RefreshData();
+			return super.refresh() || changed;
+		} finally {
+			unlock(change);
+		}
 	}
 
 	public boolean isCnf() {
@@ -2119,12 +2282,17 @@ public class Project extends Processor {
 
 	@Override
 	public void propertiesChanged() {
-		super.propertiesChanged();
-		preparedPaths.set(false);
-		files = null;
-		makefile = null;
-		versionMap.clear();
-		data = new RefreshData();
+		Lock change = changeLock();
+		try {
+			super.propertiesChanged();
+			preparedPaths.set(false);
+			files = null;
+			makefile = null;
+			versionMap.clear();
+			data = new RefreshData();
+		} finally {
+			unlock(change);
+		}
 	}
 
 	public String getName() {
@@ -3399,4 +3567,58 @@ public class Project extends Processor {
 		return new Parameters(mergeProperties(Constants.RUNSYSTEMCAPABILITIES));
 	}
 
+	/**
+	 * Lock this project for reading. The r parameter when called can freely
+	 * use any read function of this project. The workspace lock is not held so
+	 * readers and writers of other projects are not blocked. A caller that
+	 * needs the structure of the workspace must take the workspace lock first.
+	 *
+	 * @param r the lambda to run
+	 * @param timeoutInMs the timeout in milliseconds
+	 * @return the value of the lambda
+	 */
+	public <T> T readLocked(Callable<T> r, long timeoutInMs) throws Exception {
+		return workspace.locked(r, timeoutInMs, lock.readLock());
+	}
+
+	public <T> T readLocked(Callable<T> r) throws Exception {
+		return readLocked(r, 120000);
+	}
+
+	/**
+	 * Lock this project for all functions. The r parameter when called can
+	 * freely use any function of this project. A refresh, a change of the
+	 * properties and the preparation of the paths of this project take this
+	 * lock as well.
+	 *
+	 * @param r the lambda to run
+	 * @param timeoutInMs the timeout in milliseconds
+	 * @return the value of the lambda
+	 */
+	public <T> T writeLocked(Callable<T> r, long timeoutInMs) throws Exception {
+		return workspace.locked(r, timeoutInMs, lock.writeLock());
+	}
+
+	public <T> T writeLocked(Callable<T> r) throws Exception {
+		return writeLocked(r, 120000);
+	}
+
+	/*
+	 * Take the write lock for a change of this project. A read lock cannot be
+	 * upgraded so a thread that holds the read lock makes the change under
+	 * its read lock. This happens when a reader prepares the project, the
+	 * preparation is then still serialized by the monitor in prepare().
+	 */
+	private Lock changeLock() {
+		if (lock.getReadHoldCount() > 0)
+			return null;
+		Lock change = lock.writeLock();
+		change.lock();
+		return change;
+	}
+
+	private static void unlock(Lock change) {
+		if (change != null)
+			change.unlock();
+	}
 }
@@ -1,5 +1,7 @@
 package aQute.bnd.build;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,29 +30,37 @@ import aQute.bnd.differ.DiffPluginImpl;
 import aQute.bnd.header.Attrs;
 import aQute.bnd.header.OSGiHeader;
 import aQute.bnd.header.Parameters;
+import aQute.bnd.osgi.About;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Descriptors.TypeRef;
 import aQute.bnd.osgi.Instruction;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.JarCache;
 import aQute.bnd.osgi.Packages;
 import aQute.bnd.osgi.Verifier;
+import aQute.bnd.osgi.XRefIndex;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.diff.Diff;
+import aQute.bnd.service.diff.Tree;
+import aQute.bnd.service.diff.Tree.Data;
 import aQute.bnd.service.repository.InfoRepository;
 import aQute.bnd.service.repository.Phase;
 import aQute.bnd.service.repository.SearchableRepository.ResourceDescriptor;
 import aQute.bnd.version.Version;
 import aQute.lib.collections.SortedList;
 import aQute.lib.io.IO;
+import aQute.lib.json.JSONCodec;
 import aQute.lib.utf8properties.UTF8Properties;
+import aQute.libg.cryptography.SHA256;
 import aQute.libg.glob.PathSet;
 
 public class ProjectBuilder extends Builder {
 	private static final Predicate<String>	pomPropertiesFilter	= new PathSet("META-INF/maven/*/*/pom.properties")
 		.matches();
 	private final static Logger		logger	= LoggerFactory.getLogger(ProjectBuilder.class);
+	private final static JSONCodec	codec	= new JSONCodec();
 	private final DiffPluginImpl	differ	= new DiffPluginImpl();
 	Project							project;
 	boolean							initialized;
@@ -130,7 +140,7 @@ public class ProjectBuilder extends Builder {
 		if ((c.getType() == TYPE.PROJECT) && !file.exists()) {
 			return;
 		}
-		Jar jar = new Jar(file);
+		Jar jar = JarCache.get(file);
 		super.addClasspath(jar);
 		project.unreferencedClasspathEntries.put(jar.getName(), c);
 		if ((dependencies != null) && !Boolean.parseBoolean(c.getAttributes()
@@ -228,7 +238,11 @@ public class ProjectBuilder extends Builder {
 			logger.debug("baseline {}-{} against: {}", getBsn(), getVersion(), fromRepo.getName());
 			Baseline baseliner = new Baseline(this, differ);
 
-			Set<Info> infos = baseliner.baseline(dot, fromRepo, diffpackages);
+			// Both trees are made by an Analyzer over the jar alone so that
+			// inherited members are resolved the same way
+			Tree newerTree = differ.tree(dot);
+			Tree olderTree = getBaselineTree(fromRepo, diffignore);
+			Set<Info> infos = baseliner.baseline(newerTree, dot, olderTree, fromRepo, diffpackages);
 			if (infos.isEmpty())
 				logger.debug("no deltas");
 
@@ -354,6 +368,47 @@ public class ProjectBuilder extends Builder {
 		return jar;
 	}
 
+	/*
+	 * The API tree of a baseline JAR does not change, so it is cached in the
+	 * workspace. The key covers the content of the JAR, the diffignore
+	 * settings, and the bnd version that created the tree.
+	 */
+	private Tree getBaselineTree(Jar fromRepo, Parameters diffignore) throws Exception {
+		File source = fromRepo.getSource();
+		if (source == null || !source.isFile())
+			return differ.tree(fromRepo);
+
+		String key = SHA256.digest((SHA256.digest(source)
+			.asHex() + ";" + diffignore + ";" + About.CURRENT).getBytes(UTF_8))
+			.asHex();
+		File dir = project.getWorkspace()
+			.getCache("baseline");
+		File file = new File(dir, key + ".json");
+		if (file.isFile()) {
+			try {
+				Data data = codec.dec()
+					.from(file)
+					.get(Data.class);
+				return differ.deserialize(data);
+			} catch (Exception e) {
+				logger.debug("Cannot read cached baseline tree {}", file, e);
+			}
+		}
+
+		Tree tree = differ.tree(fromRepo);
+		try {
+			IO.mkdirs(dir);
+			File tmp = IO.createTempFile(dir, key, ".json");
+			codec.enc()
+				.to(tmp)
+				.put(tree.serialize());
+			IO.rename(tmp, file);
+		} catch (Exception e) {
+			logger.debug("Cannot cache baseline tree {}", file, e);
+		}
+		return tree;
+	}
+
 	/**
 	 * This method attempts to find the baseline jar for the current project. It
 	 * reads the -baseline property and treats it as instructions. These
@@ -745,6 +800,15 @@ public class ProjectBuilder extends Builder {
 		return super.getSourceFileFor(type, getSourcePath());
 	}
 
+	/**
+	 * The cross reference index is stored next to the JAR in the target
+	 * directory
+	 */
+	@Override
+	protected File getXRefIndexFile() {
+		return XRefIndex.getIndexFile(new File(project.getTargetDir(), getBsn() + ".jar"));
+	}
+
 	@Override
 	public boolean isInteractive() {
 		return getProject().isInteractive();
@@ -315,7 +315,7 @@ public abstract class ProjectLauncher extends Processor {
 		}
 	}
 
-	private String getJavaExecutable() {
+	protected String getJavaExecutable() {
 		String javaHome = System.getProperty("java.home");
 		if (javaHome == null) {
 			return "java";
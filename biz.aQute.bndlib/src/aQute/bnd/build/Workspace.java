@@ -2,6 +2,7 @@ package aQute.bnd.build;
 
 import static java.lang.invoke.MethodHandles.publicLookup;
 import static java.lang.invoke.MethodType.methodType;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.File;
 import java.io.IOException;
@@ -16,6 +17,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Formatter;
@@ -65,6 +67,7 @@ import aQute.bnd.osgi.Verifier;
 import aQute.bnd.remoteworkspace.server.RemoteWorkspaceServer;
 import aQute.bnd.resource.repository.ResourceRepositoryImpl;
 import aQute.bnd.service.BndListener;
+import aQute.bnd.service.Refreshable;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.action.Action;
 import aQute.bnd.service.extension.ExtensionActivator;
@@ -85,6 +88,8 @@ import aQute.lib.io.NonClosingInputStream;
 import aQute.lib.settings.Settings;
 import aQute.lib.strings.Strings;
 import aQute.lib.utf8properties.UTF8Properties;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.uri.URIUtil;
 import aQute.service.reporter.Reporter;
 
@@ -110,6 +115,7 @@ public class Workspace extends Processor {
 	}
 
 	private final static Map<File, WeakReference<Workspace>>	cache				= newHashMap();
+	private final static Map<File, Workspace>					shared				= newHashMap();
 	static Processor											defaults			= null;
 	final Map<String, Action>									commands			= newMap();
 	final Maven													maven			= new Maven(Processor.getExecutor());
@@ -133,6 +139,8 @@ public class Workspace extends Processor {
 	private File												buildDir;
 	private final ProjectTracker								projects;
 	private final ReadWriteLock									lock				= new ReentrantReadWriteLock(true);
+	private String												sharedDigest;
+	private final Map<String, Long>								repositoryRoots		= new HashMap<>();
 
 	public static boolean										remoteWorkspaces	= false;
 
@@ -242,6 +250,107 @@ public class Workspace extends Processor {
 		}
 	}
 
+	/**
+	 * Return a workspace that is shared between the callers in this VM. This is
+	 * intended for long running processes, like a build daemon, that would
+	 * otherwise create a new workspace for every build.
+	 * <p>
+	 * The shared workspace is kept as long as the content of its cnf files,
+	 * i.e. the build file, its includes and the extensions, does not change.
+	 * Otherwise it is closed and a new workspace is created. A workspace that
+	 * is reused is cleared, its stale projects are refreshed and its
+	 * refreshable repositories are refreshed when their root has changed.
+	 * <p>
+	 * A shared workspace must not be closed or modified by the caller.
+	 *
+	 * @param workspaceDir the workspace directory
+	 * @param bndDir the name of the cnf directory
+	 * @return the shared workspace
+	 */
+	public static Workspace getSharedWorkspace(File workspaceDir, String bndDir) throws Exception {
+		File key = new File(workspaceDir.getAbsoluteFile(), bndDir);
+		synchronized (shared) {
+			Workspace ws = shared.get(key);
+			if (ws != null) {
+				if (ws.cnfDigest()
+					.equals(ws.sharedDigest)) {
+					ws.refreshShared();
+					return ws;
+				}
+				logger.debug("Workspace {} changed, creating a new shared workspace", key);
+				ws.close();
+			}
+			ws = new Workspace(workspaceDir, bndDir);
+			ws.sharedDigest = ws.cnfDigest();
+			ws.refreshedRepositories();
+			shared.put(key, ws);
+			return ws;
+		}
+	}
+
+	/*
+	 * Refresh the parts of a shared workspace that can change without a
+	 * change in the cnf files
+	 */
+	private void refreshShared() throws Exception {
+		refreshProjects();
+		clear();
+		for (Project p : getCurrentProjects()) {
+			if (p.needsRefresh())
+				p.refresh();
+			p.clear();
+		}
+		for (Refreshable r : refreshedRepositories()) {
+			r.refresh();
+		}
+	}
+
+	/*
+	 * Answer the refreshable repositories whose root has changed since the
+	 * last time this method was called
+	 */
+	private List<Refreshable> refreshedRepositories() throws Exception {
+		List<Refreshable> changed = new ArrayList<>();
+		for (Refreshable r : getPlugins(Refreshable.class)) {
+			File root = r.getRoot();
+			if (root == null)
+				continue;
+			Long previous = repositoryRoots.put(root.getAbsolutePath(), root.lastModified());
+			if (previous != null && previous != root.lastModified())
+				changed.add(r);
+		}
+		return changed;
+	}
+
+	/*
+	 * Calculate a digest over the names and content of the files that define
+	 * the workspace.
+	 */
+	private String cnfDigest() throws Exception {
+		getProperties();
+		List<File> files = new ArrayList<>();
+		files.add(getPropertiesFile());
+		files.addAll(getIncluded());
+		File[] extensions = new File(getBuildDir(), EXT).listFiles();
+		if (extensions != null) {
+			Arrays.sort(extensions);
+			files.addAll(Arrays.asList(extensions));
+		}
+
+		Digester<SHA1> digester = SHA1.getDigester();
+		for (File file : files) {
+			if (file == null)
+				continue;
+			digester.write(file.getAbsolutePath()
+				.getBytes(UTF_8));
+			if (file.isFile())
+				IO.copy(file, digester);
+			digester.write(0);
+		}
+		return digester.digest()
+			.asHex();
+	}
+
 	public Workspace(File workspaceDir) throws Exception {
 		this(workspaceDir, CNFDIR);
 	}
@@ -901,6 +1010,10 @@ public class Workspace extends Processor {
 				cache.remove(getBase());
 			}
 		}
+		synchronized (shared) {
+			shared.values()
+				.remove(this);
+		}
 
 		projects.close();
 
@@ -1297,9 +1410,32 @@ public class Workspace extends Processor {
 		return ws;
 	}
 
+	/*
+	 * Lock order. The workspace lock guards the structure of the workspace:
+	 * the set of projects, the repositories and the workspace properties.
+	 * Each project has its own lock that guards the project, a refresh, a
+	 * change of its properties and the preparation of its paths take the
+	 * write lock of the project. Locks are acquired in this order:
+	 *
+	 * 1. the workspace lock, read or write
+	 *
+	 * 2. project locks. A project prepares its dependencies while holding its
+	 * own lock so project locks are acquired in dependency order. A thread
+	 * that needs the locks of unrelated projects acquires them in the order
+	 * of the project names.
+	 *
+	 * 3. the prepare monitor of a project, see Project.prepare()
+	 *
+	 * A thread that holds a project lock must not take the workspace lock. A
+	 * read lock can never be upgraded to a write lock.
+	 */
+
 	/**
 	 * Lock the workspace and its corresponding projects for reading. The r
 	 * parameter when called can freely use any read function in the workspace.
+	 * Readers of a single project should prefer
+	 * {@link Project#readLocked(Callable, long)} so they are not blocked by
+	 * writers of other projects.
 	 * 
 	 * @param r the lambda to run
 	 * @param timeoutInMs the timeout in milliseconds
@@ -1316,6 +1452,9 @@ public class Workspace extends Processor {
 	/**
 	 * Lock the workspace and its corresponding projects for all functions. The
 	 * r parameter when called can freely use any function in the workspace.
+	 * This should only be used to change the structure of the workspace.
+	 * Changes to a single project should use
+	 * {@link Project#writeLocked(Callable, long)}.
 	 * 
 	 * @param r the lambda to run
 	 * @param timeoutInMs the timeout in milliseconds
@@ -4,7 +4,10 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 import aQute.lib.io.ByteBufferDataInput;
 
@@ -60,6 +63,42 @@ public class ClassFile extends ElementInfo {
 	}
 
 	public static ClassFile parseClassFile(DataInput in) throws IOException {
+		return parseClassFile(in, null);
+	}
+
+	/**
+	 * Parse a class file but only the given attributes of the class, its
+	 * fields, its methods and their code. The other attributes are skipped and are not in
+	 * the result.
+	 *
+	 * @param in the class file
+	 * @param attributes the names of the attributes to parse or {@code null}
+	 *            to parse all attributes
+	 * @return the parsed class file
+	 */
+	public static ClassFile parseClassFile(DataInput in, Set<String> attributes) throws IOException {
+		return parseClassFile(in, null, attributes);
+	}
+
+	/**
+	 * Parse a class file in a buffer but only the given attributes of the
+	 * class, its fields, its methods and their code. The strings in the constant pool are
+	 * decoded when they are used and the code of the methods is not copied.
+	 * The class file therefore keeps a reference to the buffer, its content
+	 * must not change. The position of the buffer is not changed.
+	 *
+	 * @param bb the class file
+	 * @param attributes the names of the attributes to parse or {@code null}
+	 *            to parse all attributes
+	 * @return the parsed class file
+	 */
+	public static ClassFile parseClassFile(ByteBuffer bb, Set<String> attributes) throws IOException {
+		ByteBuffer buffer = bb.duplicate();
+		return parseClassFile(ByteBufferDataInput.wrap(buffer), buffer, attributes);
+	}
+
+	private static ClassFile parseClassFile(DataInput in, ByteBuffer buffer, Set<String> attributes)
+		throws IOException {
 		int magic = in.readInt();
 		if (magic != 0xCAFEBABE) {
 			throw new IOException("Not a valid class file (no CAFEBABE header)");
@@ -68,7 +107,7 @@ public class ClassFile extends ElementInfo {
 		int minor_version = in.readUnsignedShort();
 		int major_version = in.readUnsignedShort();
 
-		ConstantPool constant_pool = ConstantPool.parseConstantPool(in);
+		ConstantPool constant_pool = ConstantPool.parseConstantPool(in, buffer);
 
 		int access_flags = in.readUnsignedShort();
 
@@ -88,19 +127,19 @@ public class ClassFile extends ElementInfo {
 		int fields_count = in.readUnsignedShort();
 		FieldInfo[] fields = new FieldInfo[fields_count];
 		for (int i = 0; i < fields_count; i++) {
-			fields[i] = FieldInfo.parseFieldInfo(in, constant_pool);
+			fields[i] = FieldInfo.parseFieldInfo(in, constant_pool, attributes);
 		}
 
 		int methods_count = in.readUnsignedShort();
 		MethodInfo[] methods = new MethodInfo[methods_count];
 		for (int i = 0; i < methods_count; i++) {
-			methods[i] = MethodInfo.parseMethodInfo(in, constant_pool);
+			methods[i] = MethodInfo.parseMethodInfo(in, constant_pool, attributes);
 		}
 
-		Attribute[] attributes = parseAttributes(in, constant_pool);
+		Attribute[] class_attributes = parseAttributes(in, constant_pool, attributes);
 
 		ClassFile class_file = new ClassFile(minor_version, major_version, constant_pool, access_flags, this_class,
-			super_class, interfaces, fields, methods, attributes);
+			super_class, interfaces, fields, methods, class_attributes);
 		return class_file;
 	}
 
@@ -114,10 +153,36 @@ public class ClassFile extends ElementInfo {
 		return attributes;
 	}
 
+	static Attribute[] parseAttributes(DataInput in, ConstantPool constant_pool, Set<String> names)
+		throws IOException {
+		if (names == null) {
+			return parseAttributes(in, constant_pool);
+		}
+		int attributes_count = in.readUnsignedShort();
+		List<Attribute> attributes = new ArrayList<>(attributes_count);
+		for (int i = 0; i < attributes_count; i++) {
+			int attribute_name_index = in.readUnsignedShort();
+			int attribute_length = in.readInt();
+			String attribute_name = constant_pool.utf8(attribute_name_index);
+			if (names.contains(attribute_name)) {
+				attributes.add(parseAttribute(in, constant_pool, attribute_name, attribute_length, names));
+			} else {
+				skip(in, attribute_length);
+			}
+		}
+
+		return attributes.toArray(new Attribute[0]);
+	}
+
 	static Attribute parseAttribute(DataInput in, ConstantPool constant_pool) throws IOException {
 		int attribute_name_index = in.readUnsignedShort();
 		int attribute_length = in.readInt();
 		String attribute_name = constant_pool.utf8(attribute_name_index);
+		return parseAttribute(in, constant_pool, attribute_name, attribute_length, null);
+	}
+
+	private static Attribute parseAttribute(DataInput in, ConstantPool constant_pool, String attribute_name,
+		int attribute_length, Set<String> names) throws IOException {
 		switch (attribute_name) {
 			case AnnotationDefaultAttribute.NAME : {
 				return AnnotationDefaultAttribute.parseAnnotationDefaultAttribute(in, constant_pool);
@@ -126,7 +191,7 @@ public class ClassFile extends ElementInfo {
 				return BootstrapMethodsAttribute.parseBootstrapMethodsAttribute(in, constant_pool);
 			}
 			case CodeAttribute.NAME : {
-				return CodeAttribute.parseCodeAttribute(in, constant_pool);
+				return CodeAttribute.parseCodeAttribute(in, constant_pool, names);
 			}
 			case ConstantValueAttribute.NAME : {
 				return ConstantValueAttribute.parseConstantValueAttribute(in, constant_pool);
@@ -214,6 +279,17 @@ public class ClassFile extends ElementInfo {
 		}
 	}
 
+	static void skip(DataInput in, int length) throws IOException {
+		while (length > 0) {
+			int skipped = in.skipBytes(length);
+			if (skipped <= 0) {
+				in.readByte();
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+
 	static ByteBuffer slice(DataInput in, int length) throws IOException {
 		if (in instanceof ByteBufferDataInput) {
 			ByteBufferDataInput bbin = (ByteBufferDataInput) in;
@@ -4,6 +4,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Set;
 
 public class CodeAttribute implements Attribute {
 	public static final String		NAME	= "Code";
@@ -32,7 +33,8 @@ public class CodeAttribute implements Attribute {
 		return NAME + " " + Arrays.toString(attributes);
 	}
 
-	static CodeAttribute parseCodeAttribute(DataInput in, ConstantPool constant_pool) throws IOException {
+	static CodeAttribute parseCodeAttribute(DataInput in, ConstantPool constant_pool, Set<String> attribute_names)
+		throws IOException {
 		int max_stack = in.readUnsignedShort();
 		int max_locals = in.readUnsignedShort();
 		int code_length = in.readInt();
@@ -42,7 +44,7 @@ public class CodeAttribute implements Attribute {
 		for (int i = 0; i < exception_table_length; i++) {
 			exception_table[i] = ExceptionHandler.parseExceptionHandler(in, constant_pool);
 		}
-		Attribute[] attributes = ClassFile.parseAttributes(in, constant_pool);
+		Attribute[] attributes = ClassFile.parseAttributes(in, constant_pool, attribute_names);
 		return new CodeAttribute(max_stack, max_locals, code, exception_table, attributes);
 	}
 
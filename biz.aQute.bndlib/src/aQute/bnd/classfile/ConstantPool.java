@@ -1,9 +1,16 @@
 package aQute.bnd.classfile;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import aQute.lib.exceptions.Exceptions;
+import aQute.lib.io.ByteBufferDataInput;
+
 public class ConstantPool {
 	public static final int	CONSTANT_Utf8				= 1;
 	public static final int	CONSTANT_Integer			= 3;
@@ -24,9 +31,21 @@ public class ConstantPool {
 	public static final int	CONSTANT_Package			= 20;
 
 	final Object[]			pool;
+	/**
+	 * The class file when the UTF-8 entries are decoded on demand, the
+	 * positions of these entries are in {@link #utf8}.
+	 */
+	private final ByteBuffer	buffer;
+	private final int[]			utf8;
 
 	ConstantPool(Object[] pool) {
+		this(pool, null, null);
+	}
+
+	ConstantPool(Object[] pool, ByteBuffer buffer, int[] utf8) {
 		this.pool = pool;
+		this.buffer = buffer;
+		this.utf8 = utf8;
 	}
 
 	public int size() {
@@ -35,7 +54,38 @@ public class ConstantPool {
 
 	@SuppressWarnings("unchecked")
 	public <T> T entry(int index) {
-		return (T) pool[index];
+		Object entry = pool[index];
+		if (entry == null && isUtf8(index)) {
+			entry = pool[index] = decodeUtf8(index);
+		}
+		return (T) entry;
+	}
+
+	private boolean isUtf8(int index) {
+		return (utf8 != null) && (utf8[index] != 0);
+	}
+
+	private String decodeUtf8(int index) {
+		int position = utf8[index];
+		int length = Short.toUnsignedInt(buffer.getShort(position));
+		byte[] bytes = new byte[length];
+		ByteBuffer bb = buffer.duplicate();
+		bb.position(position + 2);
+		bb.get(bytes);
+		for (byte b : bytes) {
+			// Modified UTF-8 encodes all characters except 1 to 127 as
+			// multiple bytes with the high bit set
+			if (b <= 0) {
+				bb.position(position);
+				try {
+					return DataInputStream.readUTF(ByteBufferDataInput.wrap(bb))
+						.intern();
+				} catch (IOException e) {
+					throw Exceptions.duck(e);
+				}
+			}
+		}
+		return new String(bytes, ISO_8859_1).intern();
 	}
 
 	public int tag(int index) {
@@ -52,13 +102,15 @@ public class ConstantPool {
 			return CONSTANT_Float;
 		} else if (entry instanceof Double) {
 			return CONSTANT_Double;
+		} else if (isUtf8(index)) {
+			return CONSTANT_Utf8;
 		} else {
 			return 0;
 		}
 	}
 
 	public String utf8(int utf8_index) {
-		return (String) pool[utf8_index];
+		return entry(utf8_index);
 	}
 
 	public String className(int class_info_index) {
@@ -83,17 +135,37 @@ public class ConstantPool {
 
 	@Override
 	public String toString() {
+		for (int index = 1; index < pool.length; index++) {
+			entry(index);
+		}
 		return Arrays.toString(pool);
 	}
 
 	static ConstantPool parseConstantPool(DataInput in) throws IOException {
+		return parseConstantPool(in, null);
+	}
+
+	/**
+	 * Parse the constant pool. If the input reads from the given buffer, the
+	 * UTF-8 entries are only decoded when they are used.
+	 *
+	 * @param in the input
+	 * @param buffer the buffer that the input reads from or {@code null}
+	 */
+	static ConstantPool parseConstantPool(DataInput in, ByteBuffer buffer) throws IOException {
 		int constant_pool_count = in.readUnsignedShort();
 		Object[] pool = new Object[constant_pool_count];
+		int[] utf8 = (buffer != null) ? new int[constant_pool_count] : null;
 		for (int index = 1; index < constant_pool_count; index++) {
 			int tag = in.readUnsignedByte();
 			switch (tag) {
 				case CONSTANT_Utf8 : {
-					pool[index] = parseUtf8Info(in);
+					if (utf8 != null) {
+						utf8[index] = buffer.position();
+						ClassFile.skip(in, in.readUnsignedShort());
+					} else {
+						pool[index] = parseUtf8Info(in);
+					}
 					break;
 				}
 				case CONSTANT_Integer : {
@@ -174,7 +246,7 @@ public class ConstantPool {
 			}
 		}
 
-		return new ConstantPool(pool);
+		return new ConstantPool(pool, (utf8 != null) ? buffer.duplicate() : null, utf8);
 	}
 
 	static String parseUtf8Info(DataInput in) throws IOException {
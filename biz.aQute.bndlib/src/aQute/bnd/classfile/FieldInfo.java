@@ -3,6 +3,7 @@ package aQute.bnd.classfile;
 import java.io.DataInput;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
+import java.util.Set;
 
 public class FieldInfo extends MemberInfo {
 
@@ -16,6 +17,11 @@ public class FieldInfo extends MemberInfo {
 	}
 
 	static FieldInfo parseFieldInfo(DataInput in, ConstantPool constant_pool) throws IOException {
-		return parseMemberInfo(in, constant_pool, FieldInfo::new);
+		return parseMemberInfo(in, constant_pool, null, FieldInfo::new);
+	}
+
+	static FieldInfo parseFieldInfo(DataInput in, ConstantPool constant_pool, Set<String> attributes)
+		throws IOException {
+		return parseMemberInfo(in, constant_pool, attributes, FieldInfo::new);
 	}
 }
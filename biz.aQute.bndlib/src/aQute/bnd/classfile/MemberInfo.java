@@ -4,6 +4,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Set;
 
 public abstract class MemberInfo extends ElementInfo {
 	public final String	name;
@@ -35,11 +36,11 @@ public abstract class MemberInfo extends ElementInfo {
 	}
 
 	static <M extends MemberInfo> M parseMemberInfo(DataInput in, ConstantPool constant_pool,
-		Constructor<M> constructor) throws IOException {
+		Set<String> attribute_names, Constructor<M> constructor) throws IOException {
 		int access_flags = in.readUnsignedShort();
 		int name_index = in.readUnsignedShort();
 		int descriptor_index = in.readUnsignedShort();
-		Attribute[] attributes = ClassFile.parseAttributes(in, constant_pool);
+		Attribute[] attributes = ClassFile.parseAttributes(in, constant_pool, attribute_names);
 
 		return constructor.apply(access_flags, constant_pool.utf8(name_index), constant_pool.utf8(descriptor_index),
 			attributes);
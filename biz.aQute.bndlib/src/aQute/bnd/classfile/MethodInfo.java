@@ -3,6 +3,7 @@ package aQute.bnd.classfile;
 import java.io.DataInput;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
+import java.util.Set;
 
 public class MethodInfo extends MemberInfo {
 
@@ -17,6 +18,11 @@ public class MethodInfo extends MemberInfo {
 
 
 	static MethodInfo parseMethodInfo(DataInput in, ConstantPool constant_pool) throws IOException {
-		return parseMemberInfo(in, constant_pool, MethodInfo::new);
+		return parseMemberInfo(in, constant_pool, null, MethodInfo::new);
+	}
+
+	static MethodInfo parseMethodInfo(DataInput in, ConstantPool constant_pool, Set<String> attributes)
+		throws IOException {
+		return parseMemberInfo(in, constant_pool, attributes, MethodInfo::new);
 	}
 }
@@ -96,9 +96,23 @@ public class Baseline {
 	 * @throws Exception
 	 */
 	public Set<Info> baseline(Jar newer, Jar older, Instructions packageFilters) throws Exception {
-		Tree n = differ.tree(newer);
+		return baseline(differ.tree(newer), newer, differ.tree(older), older, packageFilters);
+	}
+
+	/**
+	 * Compare a jar to a baseline jar with trees that were already calculated
+	 * for these jars. This avoids analyzing a jar again when its tree is known.
+	 * 
+	 * @param n the tree of the newer jar
+	 * @param newer the newer jar
+	 * @param o the tree of the older jar
+	 * @param older the older jar
+	 * @return null if ok, otherwise a set of suggested versions for all
+	 *         packages (also the ones that were ok).
+	 * @throws Exception
+	 */
+	public Set<Info> baseline(Tree n, Jar newer, Tree o, Jar older, Instructions packageFilters) throws Exception {
 		Parameters nExports = getExports(newer);
-		Tree o = differ.tree(older);
 		Parameters oExports = getExports(older);
 		if (packageFilters == null)
 			packageFilters = new Instructions();
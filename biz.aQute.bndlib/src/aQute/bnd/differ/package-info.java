@@ -1,7 +1,7 @@
 /**
  * This package provides baseline support.
  */
-@Version("1.3.0")
+@Version("1.4.0")
 package aQute.bnd.differ;
 
 import org.osgi.annotation.versioning.Version;
@@ -18,6 +18,10 @@ public interface LauncherInstructions {
 
 		@SyntaxAnnotation(lead = "Strip OSGI-OPT from all jars. Default is to not strip", example = "true")
 		List<String> strip();
+
+		@SyntaxAnnotation(lead = "Do a training run of the executable and add a class data sharing archive that the "
+			+ "start scripts use. The training run requires Java 13 or later", example = "true")
+		boolean cds();
 	}
 
 	@SyntaxAnnotation(lead = "Options for the export of an executable", example = "rejar=STORE")
@@ -11,11 +11,11 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import aQute.bnd.osgi.ClassDataCollector;
 import aQute.bnd.osgi.Clazz;
-import aQute.bnd.osgi.Clazz.MethodDef;
 import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Descriptors;
 import aQute.bnd.osgi.WriteResource;
+import aQute.bnd.osgi.XRefIndex;
 
 /**
  * Create an XML call tree of a set of classes. The structure of the XML is:
@@ -47,7 +47,6 @@ public class CalltreeResource extends WriteResource {
 	 */
 	public CalltreeResource(Collection<Clazz> values) {
 		this.classes = values;
-		System.err.println(values);
 	}
 
 	/**
@@ -82,59 +81,57 @@ public class CalltreeResource extends WriteResource {
 	 * @throws Exception Any errors
 	 */
 	public static void writeCalltree(PrintWriter out, Collection<Clazz> classes) throws Exception {
-
-		final Map<Clazz.MethodDef, Set<Clazz.MethodDef>> using = new TreeMap<>(COMPARATOR);
-		final Map<Clazz.MethodDef, Set<Clazz.MethodDef>> usedby = new TreeMap<>(COMPARATOR);
-
-		ClassDataCollector cd = new ClassDataCollector() {
-			// Clazz.MethodDef source;
-
-			// Before a method is parsed
-			@Override
-			public void method(Clazz.MethodDef source) {
-				// this.source = source;
-				xref(using, source, null);
-				xref(usedby, source, null);
+		XRefIndex index = XRefIndex.of(classes);
+		Comparator<Integer> comparator = comparator(index);
+
+		final Map<Integer, Set<Integer>> using = new TreeMap<>(comparator);
+		final Map<Integer, Set<Integer>> usedby = new TreeMap<>(comparator);
+
+		for (int cls = 0; cls < index.getClasses(); cls++) {
+			for (int source : index.getMembers(cls)) {
+				if (!index.isMethod(source))
+					continue;
+
+				xref(using, source, null, comparator);
+				xref(usedby, source, null, comparator);
+				for (int reference : index.getCalls(source)) {
+					xref(using, source, reference, comparator);
+					xref(usedby, reference, source, comparator);
+				}
 			}
-
-			// For any reference in the previous method.
-			// public void reference(Clazz.MethodDef reference) {
-			// xref(using, source, reference);
-			// xref(usedby, reference, source);
-			// }
-		};
-		for (Clazz clazz : classes) {
-			clazz.parseClassFileWithCollector(cd);
 		}
 
 		out.println("<calltree>");
-		xref(out, "using", using);
-		xref(out, "usedby", usedby);
+		xref(out, "using", using, index);
+		xref(out, "usedby", usedby, index);
 		out.println("</calltree>");
 	}
 
 	/*
-	 * Add a new reference
+	 * Order the methods on their class, name and descriptor
 	 */
-	static Comparator<Clazz.MethodDef> COMPARATOR = new Comparator<Clazz.MethodDef>() {
-
-		@Override
-		public int compare(MethodDef a, MethodDef b) {
-			int r = a.getName()
-				.compareTo(b.getName());
+	static Comparator<Integer> comparator(XRefIndex index) {
+		return (a, b) -> {
+			int r = index.getType(index.getMemberClass(a))
+				.compareTo(index.getType(index.getMemberClass(b)));
+			if (r != 0)
+				return r;
+			r = index.getMemberName(a)
+				.compareTo(index.getMemberName(b));
 			return r != 0 ? r
-				: a.getDescriptor()
-					.toString()
-					.compareTo(b.getDescriptor()
-						.toString());
-		}
-	};
+				: index.getMemberDescriptor(a)
+					.compareTo(index.getMemberDescriptor(b));
+		};
+	}
 
-	static void xref(Map<Clazz.MethodDef, Set<Clazz.MethodDef>> references, Clazz.MethodDef source,
-		Clazz.MethodDef reference) {
-		Set<Clazz.MethodDef> set = references.get(source);
+	/*
+	 * Add a new reference
+	 */
+	static void xref(Map<Integer, Set<Integer>> references, Integer source, Integer reference,
+		Comparator<Integer> comparator) {
+		Set<Integer> set = references.get(source);
 		if (set == null)
-			references.put(source, set = new TreeSet<>(COMPARATOR));
+			references.put(source, set = new TreeSet<>(comparator));
 		if (reference != null)
 			set.add(reference);
 	}
@@ -142,14 +139,15 @@ public class CalltreeResource extends WriteResource {
 	/*
 	 * Print out either using or usedby sets
 	 */
-	private static void xref(PrintWriter out, String group, Map<Clazz.MethodDef, Set<Clazz.MethodDef>> references) {
+	private static void xref(PrintWriter out, String group, Map<Integer, Set<Integer>> references,
+		XRefIndex index) {
 		out.println("  <" + group + ">");
-		for (Map.Entry<Clazz.MethodDef, Set<Clazz.MethodDef>> entry : references.entrySet()) {
-			Clazz.MethodDef source = entry.getKey();
-			Set<Clazz.MethodDef> refs = entry.getValue();
-			method(out, "method", source, ">");
-			for (Clazz.MethodDef ref : refs) {
-				method(out, "ref", ref, "/>");
+		for (Map.Entry<Integer, Set<Integer>> entry : references.entrySet()) {
+			int source = entry.getKey();
+			Set<Integer> refs = entry.getValue();
+			method(out, "method", index, source, ">");
+			for (int ref : refs) {
+				method(out, "ref", index, ref, "/>");
 			}
 			out.println("      </method>");
 		}
@@ -159,11 +157,19 @@ public class CalltreeResource extends WriteResource {
 	/*
 	 * Print out a method.
 	 */
-	private static void method(PrintWriter out, String element, Clazz.MethodDef source, String closeElement) {
-		out.println("      <" + element + " class='" + source.getContainingClass()
-			.getFQN() + "'" + getAccess(source.getAccess())
-			+ (source.isConstructor() ? "" : " name='" + source.getName() + "'") + " descriptor='"
-			+ source.getDescriptor() + "' pretty='" + source.toString() + "'" + closeElement);
+	private static void method(PrintWriter out, String element, XRefIndex index, int method, String closeElement) {
+		String name = index.getMemberName(method);
+		String descriptor = index.getMemberDescriptor(method);
+		boolean constructor = name.equals("<init>") || name.equals("<clinit>");
+		String cls = Descriptors.binaryToFQN(index.getType(index.getMemberClass(method)));
+		out.println("      <" + element + " class='" + cls + "'" + getAccess(index.getMemberAccess(method))
+			+ (constructor ? "" : " name='" + name + "'") + " descriptor='" + descriptor + "' pretty='"
+			+ escape(name + descriptor) + "'" + closeElement);
+	}
+
+	private static String escape(String s) {
+		return s.replace("<", "&lt;")
+			.replace(">", "&gt;");
 	}
 
 	private static String getAccess(int access) {
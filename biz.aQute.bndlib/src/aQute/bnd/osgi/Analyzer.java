@@ -40,6 +40,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -122,6 +123,8 @@ public class Analyzer extends Processor {
 	private final Packages							classpathExports		= new Packages();
 	private final Descriptors						descriptors				= new Descriptors();
 	private final List<Jar>							classpath				= list();
+	private final Set<Jar>							sharedJars				= Collections
+		.newSetFromMap(new IdentityHashMap<>());
 	private final Map<TypeRef, Clazz>				classspace				= map();
 	private final Map<TypeRef, Clazz>				importedClassesCache	= map();
 	private boolean									analyzed				= false;
@@ -130,6 +133,7 @@ public class Analyzer extends Processor {
 	final protected AnalyzerMessages				msgs					= ReporterMessages.base(this,
 		AnalyzerMessages.class);
 	private AnnotationHeaders						annotationHeaders;
+	private XRefIndex								xrefIndex;
 	private Set<PackageRef>							packagesVisited			= new HashSet<>();
 	private Set<Check>								checks;
 
@@ -190,6 +194,7 @@ public class Analyzer extends Processor {
 			classpathExports.clear();
 			contracts.clear();
 			packagesVisited.clear();
+			xrefIndex = null;
 
 			// Parse all the class in the
 			// the jar according to the OSGi bcp
@@ -252,9 +257,31 @@ public class Analyzer extends Processor {
 						OSGiHeader.parseHeader(getProperty(Constants.BUNDLEANNOTATIONS, "*")));
 					cds.add(annotationHeaders = new AnnotationHeaders(this, instructions));
 
+					//
+					// Only build the cross reference index when the stored
+					// index is not up to date
+					//
+
+					XRefIndex.Collector xrefs = null;
+					File xrefFile = getXRefIndexFile();
+					if (xrefFile != null) {
+						String key = XRefIndex.key(classspace.values());
+						if (!key.equals(XRefIndex.readKey(xrefFile)))
+							cds.add(xrefs = new XRefIndex.Collector(key));
+					}
+
 					for (Clazz c : classspace.values()) {
 						cds.parse(c);
 					}
+
+					if (xrefs != null) {
+						xrefIndex = xrefs.build();
+						try {
+							xrefIndex.write(xrefFile);
+						} catch (IOException e) {
+							logger.debug("Cannot store the cross reference index {}", xrefFile, e);
+						}
+					}
 				}
 			}
 
@@ -1591,7 +1618,7 @@ public class Analyzer extends Processor {
 		List<Jar> list = new ArrayList<>();
 		for (int i = 0; i < classpath.length; i++) {
 			if (classpath[i].exists()) {
-				Jar current = new Jar(classpath[i]);
+				Jar current = JarCache.get(classpath[i]);
 				list.add(current);
 			} else {
 				error("Missing file on classpath: %s", IO.absolutePath(classpath[i]));
@@ -1874,14 +1901,22 @@ public class Analyzer extends Processor {
 			Manifest m = jar.getManifest();
 			if (m != null) {
 				Domain domain = Domain.domain(m);
-				Parameters exported = domain.getExportPackage();
+				Parameters exported;
+				Parameters pcs;
+				if (jar instanceof JarCache.Shared) {
+					exported = ((JarCache.Shared) jar).getExportPackage();
+					pcs = ((JarCache.Shared) jar).getProvideCapability();
+				} else {
+					exported = domain.getExportPackage();
+					pcs = domain.getProvideCapability();
+				}
 				String bsn = jar.getBsn();
 				String version = jar.getVersion();
 				String bsn_version = bsn + "-" + version;
 				for (Entry<String, Attrs> e : exported.entrySet()) {
 					PackageRef ref = getPackageRef(e.getKey());
 					if (!classpathExports.containsKey(ref)) {
-						Attrs attrs = e.getValue();
+						Attrs attrs = new Attrs(e.getValue());
 						attrs.put(Constants.INTERNAL_EXPORTED_DIRECTIVE, bsn_version);
 						if (bsn != null) {
 							attrs.put(Constants.INTERNAL_BUNDLESYMBOLICNAME_DIRECTIVE, bsn);
@@ -1902,7 +1937,6 @@ public class Analyzer extends Processor {
 				//
 				// Collect any declared contracts
 				//
-				Parameters pcs = domain.getProvideCapability();
 				contracts.collectContracts(jar.getName(), pcs);
 			}
 		} catch (Exception e) {
@@ -2407,8 +2441,14 @@ public class Analyzer extends Processor {
 
 		if (classpath != null)
 			for (Jar jar : classpath) {
-				jar.close();
+				if (!(jar instanceof JarCache.Shared))
+					jar.close();
 			}
+
+		for (Jar jar : sharedJars) {
+			jar.close();
+		}
+		sharedJars.clear();
 	}
 
 	/**
@@ -2499,7 +2539,17 @@ public class Analyzer extends Processor {
 			.isEmpty())
 			warning("There is an empty jar or directory on the classpath: %s", jar.getName());
 
-		addClose(jar);
+		//
+		// The analyzer holds one reference to a shared JAR and releases it
+		// once when it is closed. The reference of the caller is taken over,
+		// an additional reference to a JAR that is already held is released.
+		//
+
+		if (jar instanceof JarCache.Shared) {
+			if (!sharedJars.add(jar))
+				jar.close();
+		} else
+			addClose(jar);
 		classpath.add(jar);
 		updateModified(jar.lastModified(), jar.toString());
 	}
@@ -2520,7 +2570,7 @@ public class Analyzer extends Processor {
 	public void addClasspath(File cp) throws IOException {
 		if (!cp.exists())
 			warning("File on classpath that does not exist: %s", cp);
-		Jar jar = new Jar(cp);
+		Jar jar = JarCache.get(cp);
 		addClasspath(jar);
 	}
 
@@ -3013,7 +3063,9 @@ public class Analyzer extends Processor {
 	}
 
 	/**
-	 * Find a clazz on the class path. This class has been parsed.
+	 * Find a clazz on the class path. This class has been parsed. A class that
+	 * is not in the JAR is parsed on demand, initially only its header is
+	 * parsed.
 	 */
 	public Clazz findClass(TypeRef typeRef) throws Exception {
 		Clazz c = classspace.get(typeRef);
@@ -3033,7 +3085,7 @@ public class Analyzer extends Processor {
 		}
 		if (r != null) {
 			c = new Clazz(this, typeRef.getPath(), r);
-			c.parseClassFile();
+			c.parseClassFileHeader();
 			importedClassesCache.put(typeRef, c);
 		}
 		return c;
@@ -3466,6 +3518,45 @@ public class Analyzer extends Processor {
 		return result;
 	}
 
+	/**
+	 * Answer the file in which the cross reference index of the analyzed
+	 * classes is stored. The default is to not store the index.
+	 *
+	 * @return the file or null if the index is not stored
+	 */
+	protected File getXRefIndexFile() {
+		return null;
+	}
+
+	/**
+	 * Answer the cross reference index of the classes in the class space. The
+	 * stored index is used when it was built from the same classes.
+	 */
+	public XRefIndex getXRefIndex() throws Exception {
+		if (xrefIndex == null) {
+			File file = getXRefIndexFile();
+			String key = XRefIndex.key(getClassspace().values());
+			if (file != null && key.equals(XRefIndex.readKey(file))) {
+				try {
+					xrefIndex = XRefIndex.read(file);
+				} catch (IOException e) {
+					logger.debug("Cannot read the cross reference index {}", file, e);
+				}
+			}
+			if (xrefIndex == null) {
+				xrefIndex = XRefIndex.build(key, getClassspace().values());
+				if (file != null) {
+					try {
+						xrefIndex.write(file);
+					} catch (IOException e) {
+						logger.debug("Cannot store the cross reference index {}", file, e);
+					}
+				}
+			}
+		}
+		return xrefIndex;
+	}
+
 	/**
 	 * Create a cross reference from package source, to packages in dest
 	 * 
@@ -3486,49 +3577,22 @@ public class Analyzer extends Processor {
 				.getPackageRef())
 				continue;
 
-			clazz.parseClassFileWithCollector(new ClassDataCollector() {
-				Clazz.Def member;
-
-				@Override
-				public void extendsClass(TypeRef zuper) throws Exception {
-					if (dest.contains(zuper.getPackageRef()))
-						xref.add(clazz.getExtends(zuper), zuper);
-				}
-
-				@Override
-				public void implementsInterfaces(TypeRef[] interfaces) throws Exception {
-					for (TypeRef i : interfaces) {
-						if (dest.contains(i.getPackageRef()))
-							xref.add(clazz.getImplements(i), i);
-					}
-				}
-
-				@Override
-				public void referTo(TypeRef to, int modifiers) {
-					if (to.isJava())
-						return;
-
-					if (!dest.contains(to.getPackageRef()))
-						return;
-
-					if (member != null && ((modifiers & sourceModifiers) != 0)) {
-						xref.add(member, to);
-					}
-
-				}
+			//
+			// The references of the members are not known at this level, only
+			// the super class and the interfaces are cross referenced
+			//
 
-				@Override
-				public void method(Clazz.MethodDef defined) {
-					member = defined;
-				}
+			TypeRef zuper = clazz.getSuper();
+			if (zuper != null && dest.contains(zuper.getPackageRef()))
+				xref.add(clazz.getExtends(zuper), zuper);
 
-				@Override
-				public void field(Clazz.FieldDef defined) {
-					member = defined;
+			TypeRef[] interfaces = clazz.getInterfaces();
+			if (interfaces != null) {
+				for (TypeRef i : interfaces) {
+					if (dest.contains(i.getPackageRef()))
+						xref.add(clazz.getImplements(i), i);
 				}
-
-			});
-
+			}
 		}
 		return xref;
 	}
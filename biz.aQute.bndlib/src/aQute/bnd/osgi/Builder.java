@@ -1507,6 +1507,9 @@ public class Builder extends Analyzer {
 		builder.use(this);
 
 		for (Jar file : getClasspath()) {
+			// the sub builder holds its own reference to a shared JAR
+			if (file instanceof JarCache.Shared)
+				JarCache.retain((JarCache.Shared) file);
 			builder.addClasspath(file);
 		}
 
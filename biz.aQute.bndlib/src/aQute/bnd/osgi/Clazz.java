@@ -37,6 +37,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractSpliterator;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -729,6 +730,7 @@ public class Clazz {
 	private Set<PackageRef>					api;
 
 	private ClassFile						classFile						= null;
+	private boolean							header;
 	private ConstantPool					constantPool					= null;
 	TypeRef									superClass;
 	private TypeRef[]						interfaces;
@@ -740,6 +742,31 @@ public class Clazz {
 	final String							path;
 	final Resource							resource;
 
+	/**
+	 * The attributes that are used by the analysis. Other attributes, such as
+	 * the line number and local variable tables, are skipped when parsing.
+	 */
+	final static Set<String>				CLASS_ATTRIBUTES				= Collections
+		.unmodifiableSet(new HashSet<>(Arrays.asList(AnnotationDefaultAttribute.NAME, BootstrapMethodsAttribute.NAME,
+			CodeAttribute.NAME, ConstantValueAttribute.NAME, DeprecatedAttribute.NAME, EnclosingMethodAttribute.NAME,
+			ExceptionsAttribute.NAME, InnerClassesAttribute.NAME, MethodParametersAttribute.NAME,
+			RuntimeVisibleAnnotationsAttribute.NAME, RuntimeInvisibleAnnotationsAttribute.NAME,
+			RuntimeVisibleParameterAnnotationsAttribute.NAME, RuntimeInvisibleParameterAnnotationsAttribute.NAME,
+			RuntimeVisibleTypeAnnotationsAttribute.NAME, RuntimeInvisibleTypeAnnotationsAttribute.NAME,
+			SignatureAttribute.NAME, SourceFileAttribute.NAME, StackMapTableAttribute.NAME)));
+
+	/**
+	 * The attributes that are parsed for a header, see
+	 * {@link #parseClassFileHeader()}. These are the attributes that are used
+	 * for the annotations of a class, its fields, its methods and their code.
+	 */
+	final static Set<String>				HEADER_ATTRIBUTES				= Collections
+		.unmodifiableSet(new HashSet<>(Arrays.asList(RuntimeVisibleAnnotationsAttribute.NAME,
+			RuntimeInvisibleAnnotationsAttribute.NAME, RuntimeVisibleParameterAnnotationsAttribute.NAME,
+			RuntimeInvisibleParameterAnnotationsAttribute.NAME, RuntimeVisibleTypeAnnotationsAttribute.NAME,
+			RuntimeInvisibleTypeAnnotationsAttribute.NAME, AnnotationDefaultAttribute.NAME,
+			DeprecatedAttribute.NAME, CodeAttribute.NAME)));
+
 	public static final int					TYPEUSE_INDEX_NONE				= TypeAnnotationInfo.TYPEUSE_INDEX_NONE;
 	public static final int					TYPEUSE_TARGET_INDEX_EXTENDS	= TypeAnnotationInfo.TYPEUSE_TARGET_INDEX_EXTENDS;
 
@@ -760,34 +787,85 @@ public class Clazz {
 	public Set<TypeRef> parseClassFileWithCollector(ClassDataCollector cd) throws Exception {
 		ByteBuffer bb = resource.buffer();
 		if (bb != null) {
-			return parseClassFileData(ByteBufferDataInput.wrap(bb), cd);
+			return parseClassFileData(() -> ClassFile.parseClassFile(bb, CLASS_ATTRIBUTES), cd);
 		}
 		return parseClassFile(resource.openInputStream(), cd);
 	}
 
 	public Set<TypeRef> parseClassFile(InputStream in, ClassDataCollector cd) throws Exception {
 		try (DataInputStream din = new DataInputStream(in)) {
-			return parseClassFileData(din, cd);
+			return parseClassFileData(() -> ClassFile.parseClassFile(din, CLASS_ATTRIBUTES), cd);
 		}
 	}
 
-	private Set<TypeRef> parseClassFileData(DataInput in, ClassDataCollector cd) throws Exception {
-		Set<TypeRef> xref = parseClassFileData(in);
+	private Set<TypeRef> parseClassFileData(Callable<ClassFile> parser, ClassDataCollector cd) throws Exception {
+		Set<TypeRef> xref = parseClassFileData(parser);
 		visitClassFile(cd);
 		return xref;
 	}
 
-	private synchronized Set<TypeRef> parseClassFileData(DataInput in) throws Exception {
-		if (classFile != null) {
+	private synchronized Set<TypeRef> parseClassFileData(Callable<ClassFile> parser) throws Exception {
+		if (classFile != null && !header) {
 			return xref;
 		}
 
 		logger.debug("parseClassFile(): path={} resource={}", path, resource);
 
-		classFile = ClassFile.parseClassFile(in);
+		processClassFile(parser.call(), false);
+		return xref;
+	}
+
+	/**
+	 * Parse only the header of the class file: the access flags, the super
+	 * class, the interfaces and the annotations. This is sufficient to walk
+	 * the type hierarchy. The class file is parsed completely when any other
+	 * information is needed.
+	 */
+	synchronized void parseClassFileHeader() throws Exception {
+		if (classFile != null) {
+			return;
+		}
+
+		logger.debug("parseClassFileHeader(): path={} resource={}", path, resource);
+
+		ByteBuffer bb = resource.buffer();
+		if (bb != null) {
+			processClassFile(ClassFile.parseClassFile(bb, HEADER_ATTRIBUTES), true);
+		} else {
+			try (DataInputStream din = new DataInputStream(resource.openInputStream())) {
+				processClassFile(ClassFile.parseClassFile(din, HEADER_ATTRIBUTES), true);
+			}
+		}
+	}
+
+	/*
+	 * Upgrade a header to a complete parse
+	 */
+	private void parsed() {
+		if (header) {
+			try {
+				parseClassFile();
+			} catch (Exception e) {
+				throw Exceptions.duck(e);
+			}
+		}
+	}
+
+	private void processClassFile(ClassFile classFile, boolean header) throws Exception {
+		this.classFile = classFile;
+		this.header = header;
 		classDef = new ClassDef(classFile);
 		constantPool = classFile.constant_pool;
 		referred = new HashMap<>(constantPool.size());
+		imports = Create.set();
+		xref = new HashSet<>();
+		annotations = null;
+		api = null;
+		superClass = null;
+		interfaces = null;
+		hasRuntimeAnnotations = false;
+		hasClassAnnotations = false;
+		hasDefaultConstructor = false;
 
 		if (classDef.isPublic()) {
 			api = new HashSet<>();
@@ -817,8 +895,9 @@ public class Clazz {
 		}
 
 		// All name&type and class constant records contain descriptors we
-		// must treat as references, though not API
-		int constant_pool_count = constantPool.size();
+		// must treat as references, though not API. A header only has the
+		// references of the signatures
+		int constant_pool_count = header ? 0 : constantPool.size();
 		for (int i = 1; i < constant_pool_count; i++) {
 			switch (constantPool.tag(i)) {
 				case CONSTANT_Fieldref :
@@ -853,9 +932,11 @@ public class Clazz {
 		 * Class.forName if so, calculate the method ref index so we can do this
 		 * efficiently
 		 */
-		forName = findMethodReference("java/lang/Class", "forName", "(Ljava/lang/String;)Ljava/lang/Class;");
-		class$ = findMethodReference(classDef.getType()
-			.getBinary(), "class$", "(Ljava/lang/String;)Ljava/lang/Class;");
+		if (!header) {
+			forName = findMethodReference("java/lang/Class", "forName", "(Ljava/lang/String;)Ljava/lang/Class;");
+			class$ = findMethodReference(classDef.getType()
+				.getBinary(), "class$", "(Ljava/lang/String;)Ljava/lang/Class;");
+		}
 
 		for (MethodInfo methodInfo : classFile.methods) {
 			referTo(methodInfo.descriptor, methodInfo.access);
@@ -868,8 +949,6 @@ public class Clazz {
 		}
 
 		processAttributes(classFile.attributes, elementType(classFile), classFile.access);
-
-		return xref;
 	}
 
 	private void visitClassFile(ClassDataCollector cd) throws Exception {
@@ -916,11 +995,13 @@ public class Clazz {
 	}
 
 	public Stream<FieldDef> fields() {
+		parsed();
 		return Arrays.stream(classFile.fields)
 			.map(FieldDef::new);
 	}
 
 	public Stream<MethodDef> methods() {
+		parsed();
 		return Arrays.stream(classFile.methods)
 			.map(MethodDef::new);
 	}
@@ -987,7 +1068,12 @@ public class Clazz {
 					processEnclosingMethod((EnclosingMethodAttribute) attribute);
 					break;
 				case CodeAttribute.NAME :
-					processCode((CodeAttribute) attribute, elementType);
+					if (header) {
+						// a header only needs the annotations in the code
+						processAttributes(((CodeAttribute) attribute).attributes, elementType, 0);
+					} else {
+						processCode((CodeAttribute) attribute, elementType);
+					}
 					break;
 				case SignatureAttribute.NAME :
 					processSignature((SignatureAttribute) attribute, elementType, access_flags);
@@ -1640,6 +1726,7 @@ public class Clazz {
 	}
 
 	public Set<PackageRef> getReferred() {
+		parsed();
 		return imports;
 	}
 
@@ -1942,6 +2029,7 @@ public class Clazz {
 	}
 
 	public boolean isInnerClass() {
+		parsed();
 		return classDef.isInnerClass();
 	}
 
@@ -1990,6 +2078,7 @@ public class Clazz {
 	}
 
 	public Set<PackageRef> getAPIUses() {
+		parsed();
 		return (api != null) ? api : emptySet();
 	}
 
@@ -2016,10 +2105,12 @@ public class Clazz {
 	}
 
 	public String getClassSignature() {
+		parsed();
 		return classDef.getSignature();
 	}
 
 	public String getSourceFile() {
+		parsed();
 		return classDef.getSourceFile();
 	}
 
@@ -22,6 +22,7 @@ import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
@@ -54,7 +55,6 @@ import aQute.bnd.version.Version;
 import aQute.lib.base64.Base64;
 import aQute.lib.collections.Iterables;
 import aQute.lib.exceptions.Exceptions;
-import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.io.ByteBufferOutputStream;
 import aQute.lib.io.IO;
 import aQute.lib.io.IOConstants;
@@ -368,12 +368,13 @@ public class Jar implements Closeable {
 			return moduleAttribute = Optional.empty();
 		}
 		ClassFile module_info;
+		Set<String> attributes = Collections.singleton(ModuleAttribute.NAME);
 		ByteBuffer bb = module_info_resource.buffer();
 		if (bb != null) {
-			module_info = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb));
+			module_info = ClassFile.parseClassFile(bb, attributes);
 		} else {
 			try (DataInputStream din = new DataInputStream(module_info_resource.openInputStream())) {
-				module_info = ClassFile.parseClassFile(din);
+				module_info = ClassFile.parseClassFile(din, attributes);
 			}
 		}
 		return moduleAttribute = Arrays.stream(module_info.attributes)
@@ -426,6 +427,7 @@ public class Jar implements Closeable {
 
 	public void write(File file) throws Exception {
 		check();
+		JarCache.evict(file);
 		try (OutputStream out = IO.outputStream(file)) {
 			write(out);
 		} catch (Exception t) {
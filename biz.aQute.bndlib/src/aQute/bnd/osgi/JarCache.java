@@ -0,0 +1,270 @@
+package aQute.bnd.osgi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Manifest;
+
+import aQute.bnd.header.Parameters;
+
+/**
+ * A JVM wide cache of the JARs on the classpath of analyzers. The same library
+ * JARs are on the classpath of many builders in a build. A cached JAR is
+ * opened once and shared read only, so that its directory, its manifest, its
+ * exported packages and its capabilities are only read and parsed once.
+ * <p>
+ * A JAR is keyed on its path, size and last modified time. Every JAR returned
+ * by {@link #get(File)} must be closed exactly once, this releases the
+ * reference instead of closing the file. An {@link Analyzer} takes over the
+ * reference of a JAR added to its classpath and releases it once when it is
+ * closed. JARs that are not referenced are
+ * closed in least recently used order when the cache is full. A JAR is evicted
+ * when it is written with {@link Jar#write(File)}.
+ * <p>
+ * The size of the cache is set with the {@value #SIZE_PROPERTY} system
+ * property, 0 disables the cache. The cache is disabled by default on Windows
+ * since a file that is open cannot be replaced there.
+ */
+public final class JarCache {
+	public final static String			SIZE_PROPERTY	= "bnd.jarcache.size";
+	final static int					SIZE			= Integer.getInteger(SIZE_PROPERTY,
+		File.separatorChar == '\\' ? 0 : 256);
+
+	private final static Map<File, Shared>	cache			= new LinkedHashMap<>(64, 0.75f, true);
+
+	private JarCache() {}
+
+	/**
+	 * Get a shared JAR for a file. If the file is a directory or the cache is
+	 * disabled, a new JAR is returned.
+	 *
+	 * @param file the JAR file
+	 * @return a JAR that must be closed by the caller and must not be modified
+	 */
+	public static Jar get(File file) throws IOException {
+		if (SIZE <= 0 || !file.isFile())
+			return new Jar(file);
+
+		File key = file.getAbsoluteFile();
+		long length = key.length();
+		long lastModified = key.lastModified();
+
+		synchronized (cache) {
+			Shared jar = acquire(key, length, lastModified);
+			if (jar != null)
+				return jar;
+		}
+
+		Shared jar = new Shared(key, length, lastModified);
+
+		//
+		// If the file changed while it was opened we cannot trust the key
+		//
+
+		if (key.length() != length || key.lastModified() != lastModified) {
+			jar.dispose();
+			return new Jar(key);
+		}
+
+		synchronized (cache) {
+			Shared other = acquire(key, length, lastModified);
+			if (other != null) {
+				jar.dispose();
+				return other;
+			}
+			jar.references = 1;
+			cache.put(key, jar);
+			evict();
+			return jar;
+		}
+	}
+
+	/**
+	 * Evict the JAR for a file from the cache, for example because the file is
+	 * going to be overwritten. The JAR is closed when it is no longer
+	 * referenced.
+	 *
+	 * @param file the JAR file
+	 */
+	public static void evict(File file) {
+		if (SIZE <= 0)
+			return;
+		synchronized (cache) {
+			remove(file.getAbsoluteFile());
+		}
+	}
+
+	/**
+	 * Evict all JARs from the cache.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			for (Shared jar : cache.values()) {
+				jar.evicted = true;
+				if (jar.references == 0)
+					jar.dispose();
+			}
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Answer true if JARs are cached.
+	 */
+	public static boolean isEnabled() {
+		return SIZE > 0;
+	}
+
+	/**
+	 * Answer the number of JARs in the cache.
+	 */
+	public static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	private static Shared acquire(File key, long length, long lastModified) {
+		Shared jar = cache.get(key);
+		if (jar == null)
+			return null;
+		if (jar.length != length || jar.lastModified != lastModified) {
+			remove(key);
+			return null;
+		}
+		jar.references++;
+		return jar;
+	}
+
+	private static void remove(File key) {
+		Shared jar = cache.remove(key);
+		if (jar != null) {
+			jar.evicted = true;
+			if (jar.references == 0)
+				jar.dispose();
+		}
+	}
+
+	/*
+	 * Close the least recently used JARs that are not referenced until the
+	 * cache fits
+	 */
+	private static void evict() {
+		for (Iterator<Shared> i = cache.values()
+			.iterator(); i.hasNext() && cache.size() > SIZE;) {
+			Shared jar = i.next();
+			if (jar.references == 0) {
+				i.remove();
+				jar.evicted = true;
+				jar.dispose();
+			}
+		}
+	}
+
+	/*
+	 * Acquire an additional reference to a JAR that is referenced by the
+	 * caller
+	 */
+	static void retain(Shared jar) {
+		synchronized (cache) {
+			jar.references++;
+		}
+	}
+
+	static void release(Shared jar) {
+		synchronized (cache) {
+			if (jar.references > 0 && --jar.references == 0) {
+				if (jar.evicted)
+					jar.dispose();
+				else
+					evict();
+			}
+		}
+	}
+
+	/**
+	 * A JAR that is shared between analyzers. Closing it releases a reference.
+	 * The exported packages and capabilities in its manifest are parsed once,
+	 * callers must not modify them.
+	 */
+	final static class Shared extends Jar {
+		final long			length;
+		final long			lastModified;
+		int					references;
+		boolean				evicted;
+		private boolean		sealed;
+		private Parameters	exports;
+		private Parameters	capabilities;
+
+		Shared(File file, long length, long lastModified) throws IOException {
+			super(file);
+			this.length = length;
+			this.lastModified = lastModified;
+			this.sealed = true;
+		}
+
+		synchronized Parameters getExportPackage() throws Exception {
+			if (exports == null) {
+				Manifest m = getManifest();
+				exports = m == null ? new Parameters() : Domain.domain(m)
+					.getExportPackage();
+			}
+			return exports;
+		}
+
+		synchronized Parameters getProvideCapability() throws Exception {
+			if (capabilities == null) {
+				Manifest m = getManifest();
+				capabilities = m == null ? new Parameters() : Domain.domain(m)
+					.getProvideCapability();
+			}
+			return capabilities;
+		}
+
+		@Override
+		public void close() {
+			release(this);
+		}
+
+		void dispose() {
+			super.close();
+		}
+
+		private void sealed() {
+			if (sealed)
+				throw new UnsupportedOperationException("A shared JAR must not be modified: " + this);
+		}
+
+		@Override
+		public boolean putResource(String path, Resource resource, boolean overwrite) {
+			sealed();
+			return super.putResource(path, resource, overwrite);
+		}
+
+		@Override
+		public Resource remove(String path) {
+			sealed();
+			return super.remove(path);
+		}
+
+		@Override
+		public void removePrefix(String prefixLow) {
+			sealed();
+			super.removePrefix(prefixLow);
+		}
+
+		@Override
+		public void setManifest(Manifest manifest) {
+			sealed();
+			super.setManifest(manifest);
+		}
+
+		@Override
+		public void setName(String name) {
+			sealed();
+			super.setName(name);
+		}
+	}
+}
@@ -1248,6 +1248,27 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 
 	}
 
+	/**
+	 * Answer if the properties file or one of the included files has changed
+	 * since the properties were read. This does not read them again, see
+	 * {@link #refresh()}.
+	 *
+	 * @return true if the properties are based on stale files
+	 */
+	public boolean needsRefresh() {
+		if (propertiesFile == null)
+			return false;
+
+		if (!propertiesFile.isFile() || propertiesFile.lastModified() > lastModified)
+			return true;
+
+		for (File file : getIncluded()) {
+			if (!file.isFile() || file.lastModified() > lastModified)
+				return true;
+		}
+		return false;
+	}
+
 	public boolean refresh() {
 		synchronized (this) {
 			plugins = null; // We always refresh our plugins
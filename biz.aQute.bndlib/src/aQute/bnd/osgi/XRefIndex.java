@@ -0,0 +1,745 @@
+package aQute.bnd.osgi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.osgi.Clazz.FieldDef;
+import aQute.bnd.osgi.Clazz.MethodDef;
+import aQute.bnd.osgi.Descriptors.TypeRef;
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
+
+/**
+ * A cross reference index of a set of classes: the super class, the interfaces
+ * and the referred types of every class, and the methods that every method
+ * calls. The index is a graph in primitive arrays. Types and members are
+ * numbered, the indexed classes are the first types. The references of a class
+ * or a member are a range in a shared array of targets. The reverse references
+ * are calculated when they are first asked for.
+ * <p>
+ * An {@link Analyzer} builds the index with a {@link Collector} during its
+ * class data collector pass and a project builder stores it next to the JAR it
+ * builds, see {@link #getIndexFile(File)}. The key of an index is a digest of
+ * the classes it was built from, a stored index is only used for classes with
+ * the same key.
+ */
+public class XRefIndex {
+	private final static Logger	logger		= LoggerFactory.getLogger(XRefIndex.class);
+
+	final static int			MAGIC		= 0x58524546;
+	final static int			FORMAT		= 1;
+	final static String			EXTENSION	= ".xref";
+	final static int[]			EMPTY		= new int[0];
+
+	final String				key;
+	final String[]				types;
+	final int					classes;
+	final int[]					classAccess;
+	final int[]					superClass;
+	final int[]					interfaces;
+	final int[]					interfaceTargets;
+	final int[]					references;
+	final int[]					referenceTargets;
+	final int[]					members;
+	final int[]					memberClass;
+	final String[]				memberName;
+	final String[]				memberDescriptor;
+	final int[]					memberAccess;
+	final int[]					calls;
+	final int[]					callTargets;
+
+	private Map<String, Integer>	typeIndex;
+	private int[]					referrers;
+	private int[]					referrerSources;
+	private int[]					callers;
+	private int[]					callerSources;
+
+	XRefIndex(String key, String[] types, int classes, int[] classAccess, int[] superClass, int[] interfaces,
+		int[] interfaceTargets, int[] references, int[] referenceTargets, int[] members, int[] memberClass,
+		String[] memberName, String[] memberDescriptor, int[] memberAccess, int[] calls, int[] callTargets) {
+		this.key = key;
+		this.types = types;
+		this.classes = classes;
+		this.classAccess = classAccess;
+		this.superClass = superClass;
+		this.interfaces = interfaces;
+		this.interfaceTargets = interfaceTargets;
+		this.references = references;
+		this.referenceTargets = referenceTargets;
+		this.members = members;
+		this.memberClass = memberClass;
+		this.memberName = memberName;
+		this.memberDescriptor = memberDescriptor;
+		this.memberAccess = memberAccess;
+		this.calls = calls;
+		this.callTargets = callTargets;
+	}
+
+	/**
+	 * Answer the key of this index, the digest of the indexed classes.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Answer the number of indexed classes. The indexed classes are the types
+	 * {@code 0} to {@code getClasses() - 1}.
+	 */
+	public int getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Answer the number of types, the indexed classes and the types they refer
+	 * to.
+	 */
+	public int getTypes() {
+		return types.length;
+	}
+
+	/**
+	 * Answer the binary name of a type.
+	 */
+	public String getType(int type) {
+		return types[type];
+	}
+
+	/**
+	 * Answer the number of a type.
+	 *
+	 * @param binaryName the binary name of the type
+	 * @return the number of the type or -1 if the type is not in the index
+	 */
+	public synchronized int indexOf(String binaryName) {
+		if (typeIndex == null) {
+			typeIndex = new HashMap<>(types.length * 2);
+			for (int i = 0; i < types.length; i++) {
+				typeIndex.put(types[i], i);
+			}
+		}
+		Integer type = typeIndex.get(binaryName);
+		return type == null ? -1 : type.intValue();
+	}
+
+	/**
+	 * Answer the access flags of an indexed class.
+	 */
+	public int getAccess(int cls) {
+		return classAccess[cls];
+	}
+
+	/**
+	 * Answer the super class of an indexed class or -1 if it has none.
+	 */
+	public int getSuperClass(int cls) {
+		return superClass[cls];
+	}
+
+	/**
+	 * Answer the interfaces an indexed class implements.
+	 */
+	public int[] getInterfaces(int cls) {
+		return range(interfaces, interfaceTargets, cls);
+	}
+
+	/**
+	 * Answer the types an indexed class refers to, this includes the class
+	 * itself.
+	 */
+	public int[] getReferences(int cls) {
+		return range(references, referenceTargets, cls);
+	}
+
+	/**
+	 * Answer the indexed classes that refer to a type.
+	 */
+	public synchronized int[] getReferrers(int type) {
+		if (referrers == null) {
+			referrers = new int[types.length + 1];
+			referrerSources = transpose(references, referenceTargets, referrers);
+		}
+		return range(referrers, referrerSources, type);
+	}
+
+	/**
+	 * Answer the fields and methods declared by an indexed class.
+	 */
+	public int[] getMembers(int cls) {
+		int[] result = new int[members[cls + 1] - members[cls]];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = members[cls] + i;
+		}
+		return result;
+	}
+
+	/**
+	 * Answer the number of members, the fields and methods declared by the
+	 * indexed classes and the methods they call.
+	 */
+	public int getMemberCount() {
+		return memberClass.length;
+	}
+
+	/**
+	 * Answer the type that declares a member.
+	 */
+	public int getMemberClass(int member) {
+		return memberClass[member];
+	}
+
+	public String getMemberName(int member) {
+		return memberName[member];
+	}
+
+	public String getMemberDescriptor(int member) {
+		return memberDescriptor[member];
+	}
+
+	/**
+	 * Answer the access flags of a member, these are only known for the
+	 * members of indexed classes.
+	 */
+	public int getMemberAccess(int member) {
+		return memberAccess[member];
+	}
+
+	public boolean isMethod(int member) {
+		return memberDescriptor[member].charAt(0) == '(';
+	}
+
+	/**
+	 * Answer the methods called by a method of an indexed class.
+	 */
+	public int[] getCalls(int member) {
+		if (member >= calls.length - 1)
+			return EMPTY;
+		return range(calls, callTargets, member);
+	}
+
+	/**
+	 * Answer the methods of the indexed classes that call a method.
+	 */
+	public synchronized int[] getCallers(int member) {
+		if (callers == null) {
+			callers = new int[memberClass.length + 1];
+			callerSources = transpose(calls, callTargets, callers);
+		}
+		return range(callers, callerSources, member);
+	}
+
+	private static int[] range(int[] offsets, int[] targets, int n) {
+		return Arrays.copyOfRange(targets, offsets[n], offsets[n + 1]);
+	}
+
+	/*
+	 * Reverse the edges of a graph, fill in the offsets of the reverse graph
+	 * and answer its targets
+	 */
+	private static int[] transpose(int[] offsets, int[] targets, int[] reverse) {
+		for (int target : targets) {
+			reverse[target + 1]++;
+		}
+		for (int i = 1; i < reverse.length; i++) {
+			reverse[i] += reverse[i - 1];
+		}
+		int[] sources = new int[targets.length];
+		int[] next = Arrays.copyOf(reverse, reverse.length - 1);
+		for (int source = 0; source < offsets.length - 1; source++) {
+			for (int i = offsets[source]; i < offsets[source + 1]; i++) {
+				sources[next[targets[i]]++] = source;
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * Build the index of a set of classes.
+	 */
+	public static XRefIndex build(Collection<Clazz> classes) throws Exception {
+		return build(key(classes), classes);
+	}
+
+	static XRefIndex build(String key, Collection<Clazz> classes) throws Exception {
+		Collector collector = new Collector(key);
+		for (Clazz clazz : classes) {
+			clazz.parseClassFileWithCollector(collector);
+		}
+		return collector.build();
+	}
+
+	/**
+	 * Answer the index of a set of classes. If the classes are the class space
+	 * of their analyzer, the index of the analyzer is used, otherwise an index
+	 * of the classes is built.
+	 */
+	public static XRefIndex of(Collection<Clazz> classes) throws Exception {
+		Analyzer analyzer = null;
+		for (Clazz clazz : classes) {
+			if (analyzer == null)
+				analyzer = clazz.analyzer;
+			else if (analyzer != clazz.analyzer) {
+				analyzer = null;
+				break;
+			}
+		}
+		if (analyzer != null) {
+			Collection<Clazz> classspace = analyzer.getClassspace()
+				.values();
+			Set<Clazz> set = Collections.newSetFromMap(new IdentityHashMap<>());
+			set.addAll(classes);
+			if (set.size() == classspace.size() && set.containsAll(classspace))
+				return analyzer.getXRefIndex();
+		}
+		return build(classes);
+	}
+
+	/**
+	 * Answer the index of the classes in a JAR. The index stored next to the
+	 * JAR is used if it was built from the same classes, otherwise an index of
+	 * the classes is built.
+	 */
+	public static XRefIndex of(Analyzer analyzer, Jar jar) throws Exception {
+		Map<String, Resource> resources = new TreeMap<>();
+		for (Map.Entry<String, Resource> e : jar.getResources()
+			.entrySet()) {
+			if (e.getKey()
+				.endsWith(".class"))
+				resources.put(e.getKey(), e.getValue());
+		}
+
+		String key = key(resources);
+		File source = jar.getSource();
+		if (source != null && source.isFile()) {
+			File file = getIndexFile(source);
+			if (key.equals(readKey(file))) {
+				try {
+					return read(file);
+				} catch (IOException e) {
+					logger.debug("Cannot read cross reference index {}", file, e);
+				}
+			}
+		}
+
+		Collector collector = new Collector(key);
+		for (Map.Entry<String, Resource> e : resources.entrySet()) {
+			new Clazz(analyzer, e.getKey(), e.getValue()).parseClassFileWithCollector(collector);
+		}
+		return collector.build();
+	}
+
+	/**
+	 * Answer the file of the index stored next to a JAR.
+	 */
+	public static File getIndexFile(File jar) {
+		String name = jar.getName();
+		if (name.endsWith(".jar"))
+			name = name.substring(0, name.length() - 4);
+		return new File(jar.getParentFile(), name + EXTENSION);
+	}
+
+	/**
+	 * Answer the key of a set of classes, a digest of their paths and their
+	 * content.
+	 */
+	public static String key(Collection<Clazz> classes) throws Exception {
+		Map<String, Resource> resources = new TreeMap<>();
+		for (Clazz clazz : classes) {
+			resources.put(clazz.getAbsolutePath(), clazz.resource);
+		}
+		return key(resources);
+	}
+
+	private static String key(Map<String, Resource> resources) throws Exception {
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (DataOutputStream out = new DataOutputStream(digester)) {
+			out.writeInt(FORMAT);
+			for (Map.Entry<String, Resource> e : resources.entrySet()) {
+				out.writeUTF(e.getKey());
+				Resource resource = e.getValue();
+				ByteBuffer bb = resource.buffer();
+				if (bb != null) {
+					out.writeLong(bb.remaining());
+					if (bb.hasArray()) {
+						out.write(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+					} else {
+						bb = bb.duplicate();
+						byte[] buffer = new byte[Math.min(bb.remaining(), 8192)];
+						while (bb.hasRemaining()) {
+							int size = Math.min(bb.remaining(), buffer.length);
+							bb.get(buffer, 0, size);
+							out.write(buffer, 0, size);
+						}
+					}
+				} else {
+					out.writeLong(resource.size());
+					try (InputStream in = resource.openInputStream()) {
+						IO.copy(in, (OutputStream) out);
+					}
+				}
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	/**
+	 * Answer the key of a stored index.
+	 *
+	 * @return the key or null if the file is not a valid index
+	 */
+	public static String readKey(File file) {
+		if (!file.isFile())
+			return null;
+		try (DataInputStream in = new DataInputStream(IO.stream(file))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT)
+				return null;
+			return in.readUTF();
+		} catch (IOException e) {
+			logger.debug("Cannot read cross reference index {}", file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read a stored index.
+	 */
+	public static XRefIndex read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(IO.stream(file))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT)
+				throw new IOException("Not a cross reference index " + file);
+			String key = in.readUTF();
+			String[] types = readStrings(in);
+			int classes = in.readInt();
+			int[] classAccess = readInts(in);
+			int[] superClass = readInts(in);
+			int[] interfaces = readInts(in);
+			int[] interfaceTargets = readInts(in);
+			int[] references = readInts(in);
+			int[] referenceTargets = readInts(in);
+			int[] members = readInts(in);
+			int[] memberClass = readInts(in);
+			String[] memberName = readStrings(in);
+			String[] memberDescriptor = readStrings(in);
+			int[] memberAccess = readInts(in);
+			int[] calls = readInts(in);
+			int[] callTargets = readInts(in);
+			return new XRefIndex(key, types, classes, classAccess, superClass, interfaces, interfaceTargets,
+				references, referenceTargets, members, memberClass, memberName, memberDescriptor, memberAccess, calls,
+				callTargets);
+		}
+	}
+
+	/**
+	 * Store this index.
+	 */
+	public void write(File file) throws IOException {
+		IO.mkdirs(file.getParentFile());
+		File tmp = IO.createTempFile(file.getParentFile(), file.getName(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(IO.outputStream(tmp))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT);
+				out.writeUTF(key);
+				writeStrings(out, types);
+				out.writeInt(classes);
+				writeInts(out, classAccess);
+				writeInts(out, superClass);
+				writeInts(out, interfaces);
+				writeInts(out, interfaceTargets);
+				writeInts(out, references);
+				writeInts(out, referenceTargets);
+				writeInts(out, members);
+				writeInts(out, memberClass);
+				writeStrings(out, memberName);
+				writeStrings(out, memberDescriptor);
+				writeInts(out, memberAccess);
+				writeInts(out, calls);
+				writeInts(out, callTargets);
+			}
+			IO.rename(tmp, file);
+		} catch (IOException e) {
+			IO.delete(tmp);
+			throw e;
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+		out.writeInt(ints.length);
+		for (int i : ints) {
+			out.writeInt(i);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] ints = new int[in.readInt()];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = in.readInt();
+		}
+		return ints;
+	}
+
+	/*
+	 * Strings are written as a table of the distinct strings followed by the
+	 * number of every string in the table
+	 */
+	private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+		Map<String, Integer> table = new LinkedHashMap<>();
+		for (String s : strings) {
+			table.putIfAbsent(s, table.size());
+		}
+		out.writeInt(table.size());
+		for (String s : table.keySet()) {
+			byte[] bytes = s.getBytes(UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		out.writeInt(strings.length);
+		for (String s : strings) {
+			out.writeInt(table.get(s));
+		}
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		String[] table = new String[in.readInt()];
+		for (int i = 0; i < table.length; i++) {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			table[i] = new String(bytes, UTF_8);
+		}
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = table[in.readInt()];
+		}
+		return strings;
+	}
+
+	/**
+	 * A class data collector that builds the index of the classes it visits.
+	 */
+	public static class Collector extends ClassDataCollector {
+		final String				key;
+		final List<ClassData>		classes	= new ArrayList<>();
+		final Set<String>			names	= new LinkedHashSet<>();
+		private ClassData			current;
+		private MemberData			member;
+
+		static class ClassData {
+			final String					name;
+			final int						access;
+			String							superClass;
+			String[]						interfaces	= new String[0];
+			final Set<String>				references	= new LinkedHashSet<>();
+			final List<MemberData>			members		= new ArrayList<>();
+
+			ClassData(String name, int access) {
+				this.name = name;
+				this.access = access;
+			}
+		}
+
+		static class MemberData {
+			final String		name;
+			final String		descriptor;
+			final int			access;
+			final Set<String>	calls	= new LinkedHashSet<>();
+
+			MemberData(String name, String descriptor, int access) {
+				this.name = name;
+				this.descriptor = descriptor;
+				this.access = access;
+			}
+		}
+
+		/**
+		 * @param key the key of the classes that will be visited
+		 */
+		public Collector(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public boolean classStart(Clazz clazz) {
+			String name = clazz.getClassName()
+				.getBinary();
+			member = null;
+			current = null;
+			if (names.add(name)) {
+				current = new ClassData(name, clazz.getAccess());
+				classes.add(current);
+			}
+			return current != null;
+		}
+
+		@Override
+		public void extendsClass(TypeRef zuper) {
+			current.superClass = zuper.getBinary();
+		}
+
+		@Override
+		public void implementsInterfaces(TypeRef[] interfaces) {
+			current.interfaces = new String[interfaces.length];
+			for (int i = 0; i < interfaces.length; i++) {
+				current.interfaces[i] = interfaces[i].getBinary();
+			}
+		}
+
+		@Override
+		public void referTo(TypeRef typeRef, int modifiers) {
+			current.references.add(typeRef.getBinary());
+		}
+
+		@Override
+		public void field(FieldDef field) {
+			member = null;
+			current.members.add(new MemberData(field.getName(), field.getDescriptor()
+				.toString(), field.getAccess()));
+		}
+
+		@Override
+		public void method(MethodDef method) {
+			member = new MemberData(method.getName(), method.getDescriptor()
+				.toString(), method.getAccess());
+			current.members.add(member);
+		}
+
+		@Override
+		public void referenceMethod(int access, TypeRef className, String method, String descriptor) {
+			if (member != null)
+				member.calls.add(className.getBinary() + "." + method + descriptor);
+		}
+
+		@Override
+		public void memberEnd() {
+			member = null;
+		}
+
+		@Override
+		public void classEnd() {
+			current = null;
+			member = null;
+		}
+
+		/**
+		 * Answer the index of the visited classes.
+		 */
+		public XRefIndex build() {
+			Map<String, Integer> typeIndex = new HashMap<>();
+			List<String> types = new ArrayList<>();
+			for (ClassData c : classes) {
+				type(typeIndex, types, c.name);
+			}
+
+			int n = classes.size();
+			int[] classAccess = new int[n];
+			int[] superClass = new int[n];
+			int[] interfaces = new int[n + 1];
+			int[] references = new int[n + 1];
+			int[] members = new int[n + 1];
+			IntList interfaceTargets = new IntList();
+			IntList referenceTargets = new IntList();
+
+			Map<String, Integer> memberIndex = new HashMap<>();
+			IntList memberClass = new IntList();
+			List<String> memberName = new ArrayList<>();
+			List<String> memberDescriptor = new ArrayList<>();
+			IntList memberAccess = new IntList();
+
+			for (int i = 0; i < n; i++) {
+				ClassData c = classes.get(i);
+				classAccess[i] = c.access;
+				superClass[i] = c.superClass == null ? -1 : type(typeIndex, types, c.superClass);
+				for (String s : c.interfaces) {
+					interfaceTargets.add(type(typeIndex, types, s));
+				}
+				interfaces[i + 1] = interfaceTargets.size;
+				for (String s : c.references) {
+					referenceTargets.add(type(typeIndex, types, s));
+				}
+				references[i + 1] = referenceTargets.size;
+				for (MemberData m : c.members) {
+					memberIndex.putIfAbsent(c.name + "." + m.name + m.descriptor, memberClass.size);
+					memberClass.add(i);
+					memberName.add(m.name);
+					memberDescriptor.add(m.descriptor);
+					memberAccess.add(m.access);
+				}
+				members[i + 1] = memberClass.size;
+			}
+
+			int declared = memberClass.size;
+			int[] calls = new int[declared + 1];
+			IntList callTargets = new IntList();
+			int next = 0;
+			for (ClassData c : classes) {
+				for (MemberData m : c.members) {
+					for (String call : m.calls) {
+						Integer target = memberIndex.get(call);
+						if (target == null) {
+							int descriptor = call.indexOf('(');
+							int name = call.lastIndexOf('.', descriptor);
+							target = memberClass.size;
+							memberIndex.put(call, target);
+							memberClass.add(type(typeIndex, types, call.substring(0, name)));
+							memberName.add(call.substring(name + 1, descriptor));
+							memberDescriptor.add(call.substring(descriptor));
+							memberAccess.add(0);
+						}
+						callTargets.add(target);
+					}
+					calls[++next] = callTargets.size;
+				}
+			}
+
+			return new XRefIndex(key, types.toArray(new String[0]), n, classAccess, superClass, interfaces,
+				interfaceTargets.toArray(), references, referenceTargets.toArray(), members, memberClass.toArray(),
+				memberName.toArray(new String[0]), memberDescriptor.toArray(new String[0]), memberAccess.toArray(),
+				calls, callTargets.toArray());
+		}
+
+		private static int type(Map<String, Integer> typeIndex, List<String> types, String name) {
+			return typeIndex.computeIfAbsent(name, k -> {
+				types.add(k);
+				return types.size() - 1;
+			});
+		}
+	}
+
+	static class IntList {
+		int[]	ints	= new int[16];
+		int		size;
+
+		void add(int i) {
+			if (size == ints.length)
+				ints = Arrays.copyOf(ints, size * 2);
+			ints[size++] = i;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(ints, size);
+		}
+	}
+}
@@ -33,7 +33,6 @@ import aQute.bnd.service.specifications.BuilderSpecification;
 import aQute.bnd.service.specifications.RunSpecification;
 import aQute.bnd.version.Version;
 import aQute.bnd.version.VersionRange;
-import aQute.lib.aspects.Aspects;
 import aQute.lib.exceptions.Exceptions;
 import aQute.lib.io.IO;
 import aQute.lib.link.Link;
@@ -66,19 +65,9 @@ public class RemoteWorkspaceServer implements Closeable {
 		this.workspace = workspace;
 		ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
 
-		RemoteWorkspace workspaceLocker = Aspects.intercept(RemoteWorkspace.class, new Instance())
-			.around((inv, c) -> {
-				return workspace.readLocked(() -> {
-					try {
-						return c.call();
-					} catch (Throwable e) {
-						throw Exceptions.duck(e);
-					}
-				});
-			})
-			.build();
+		RemoteWorkspace instance = new Instance();
 
-		this.server = Link.server("remotews", RemoteWorkspaceClient.class, server, (l) -> workspaceLocker, true,
+		this.server = Link.server("remotews", RemoteWorkspaceClient.class, server, (l) -> instance, true,
 			Processor.getExecutor());
 
 		File remotews = RemoteWorkspaceClientFactory.getPortDirectory(workspace.getBase(), workspace.getBase());
@@ -106,7 +95,10 @@ public class RemoteWorkspaceServer implements Closeable {
 	}
 
 	/**
-	 * Holds the implementations of the {@link RemoteWorkspace}
+	 * Holds the implementations of the {@link RemoteWorkspace}. A call that is
+	 * about a single project takes the workspace lock to find the project and
+	 * then only locks that project so calls for different projects do not
+	 * wait for each other.
 	 */
 	class Instance implements RemoteWorkspace {
 		@Override
@@ -120,17 +112,19 @@ public class RemoteWorkspaceServer implements Closeable {
 				File file = new File(pathToBndOrBndrun);
 
 				if (file.isDirectory()) {
-					Project project = workspace.getProjectFromFile(file);
+					Project project = workspace.readLocked(() -> workspace.getProjectFromFile(file));
 					if (project == null)
 						throw new IllegalArgumentException(
 							"No such project " + pathToBndOrBndrun + " in workspace " + workspace);
 
-					return project.getSpecification();
+					return project.readLocked(project::getSpecification);
 
 				} else {
-					try (Run run = new Run(workspace, file)) {
-						return run.getSpecification();
-					}
+					return workspace.readLocked(() -> {
+						try (Run run = new Run(workspace, file)) {
+							return run.getSpecification();
+						}
+					});
 				}
 			} catch (Exception e) {
 				throw Exceptions.duck(e);
@@ -141,7 +135,8 @@ public class RemoteWorkspaceServer implements Closeable {
 		public List<String> getLatestBundles(String projectDir, String specification) {
 			try {
 				Project project = getProject(projectDir);
-				return Container.toPaths(null, project.getBundles(Strategy.HIGHEST, specification, "remote"));
+				return project.readLocked(
+					() -> Container.toPaths(null, project.getBundles(Strategy.HIGHEST, specification, "remote")));
 			} catch (Exception e) {
 				throw Exceptions.duck(e);
 			}
@@ -151,41 +146,45 @@ public class RemoteWorkspaceServer implements Closeable {
 		public RunSpecification analyzeTestSetup(String projectDir) {
 			try {
 				Project project = getProject(projectDir);
-				RunSpecification r = project.getSpecification();
+				return project.readLocked(() -> analyzeTestSetup(project));
+			} catch (Throwable e) {
+				throw Exceptions.duck(e);
+			}
+		}
 
-				try (Builder a = new Builder()) {
-					a.setJar(project.getTestOutput());
-					a.setConditionalPackage("!java.*,*");
-					a.set(Constants.EXPORT_CONTENTS, "*");
+		private RunSpecification analyzeTestSetup(Project project) throws Exception {
+			RunSpecification r = project.getSpecification();
 
-					a.addClasspath(project.getOutput());
+			try (Builder a = new Builder()) {
+				a.setJar(project.getTestOutput());
+				a.setConditionalPackage("!java.*,*");
+				a.set(Constants.EXPORT_CONTENTS, "*");
 
-					for (Container c : project.getTestpath()) {
-						if (c.getError() != null)
-							r.errors.add("Not a valid testpath entry " + c + " " + c.getError());
-						else
-							a.addClasspath(c.getFile());
-					}
+				a.addClasspath(project.getOutput());
 
-					for (Container c : project.getBuildpath()) {
-						if (c.getError() != null)
-							r.errors.add("Not a valid buildpath entry " + c + " " + c.getError());
-						else
-							a.addClasspath(c.getFile());
-					}
+				for (Container c : project.getTestpath()) {
+					if (c.getError() != null)
+						r.errors.add("Not a valid testpath entry " + c + " " + c.getError());
+					else
+						a.addClasspath(c.getFile());
+				}
 
-					a.build();
-					r.errors.addAll(a.getErrors());
+				for (Container c : project.getBuildpath()) {
+					if (c.getError() != null)
+						r.errors.add("Not a valid buildpath entry " + c + " " + c.getError());
+					else
+						a.addClasspath(c.getFile());
+				}
 
-					String clauses = Processor.printClauses(a.getExports());
+				a.build();
+				r.errors.addAll(a.getErrors());
 
-					Parameters extraPackages = new Parameters(clauses);
+				String clauses = Processor.printClauses(a.getExports());
 
-					r.extraSystemPackages.putAll(extraPackages.toBasic());
-					return r;
-				}
-			} catch (Throwable e) {
-				throw Exceptions.duck(e);
+				Parameters extraPackages = new Parameters(clauses);
+
+				r.extraSystemPackages.putAll(extraPackages.toBasic());
+				return r;
 			}
 		}
 
@@ -193,25 +192,27 @@ public class RemoteWorkspaceServer implements Closeable {
 		public byte[] build(String projectPath, BuilderSpecification spec) {
 			try {
 				File projectDir = new File(projectPath);
-				Project project = workspace.getProjectFromFile(projectDir);
+				Project project = workspace.readLocked(() -> workspace.getProjectFromFile(projectDir));
 				if (project == null)
 					throw new IllegalArgumentException("No such project " + projectPath);
 
-				try (Builder builder = spec.inherit ? project.getBuilder(null) : new Builder()) {
+				return project.readLocked(() -> {
+					try (Builder builder = spec.inherit ? project.getBuilder(null) : new Builder()) {
 
-					Jar build = builder.from(spec)
-						.build();
+						Jar build = builder.from(spec)
+							.build();
 
-					if (!builder.isOk()) {
-						throw new IllegalStateException(builder.getErrors()
-							.stream()
-							.collect(Collectors.joining("\n")));
-					}
+						if (!builder.isOk()) {
+							throw new IllegalStateException(builder.getErrors()
+								.stream()
+								.collect(Collectors.joining("\n")));
+						}
 
-					ByteArrayOutputStream bout = new ByteArrayOutputStream();
-					build.write(bout);
-					return bout.toByteArray();
-				}
+						ByteArrayOutputStream bout = new ByteArrayOutputStream();
+						build.write(bout);
+						return bout.toByteArray();
+					}
+				});
 			} catch (Exception e) {
 				throw Exceptions.duck(e);
 			}
@@ -231,12 +232,12 @@ public class RemoteWorkspaceServer implements Closeable {
 			extraPackages.put(p.getFQN(), attrs);
 		}
 
-		Project getProject(String projectDir) {
+		Project getProject(String projectDir) throws Exception {
 			File dir = new File(projectDir);
 			if (!dir.isDirectory())
 				throw new IllegalArgumentException("Not a directory " + projectDir);
 
-			Project project = workspace.getProjectFromFile(dir);
+			Project project = workspace.readLocked(() -> workspace.getProjectFromFile(dir));
 			if (project == null || !project.isValid())
 				throw new IllegalArgumentException("Not a valid project directory " + projectDir);
 			return project;
@@ -245,10 +246,10 @@ public class RemoteWorkspaceServer implements Closeable {
 		@Override
 		public List<String> getProjects() {
 			try {
-				return workspace.getAllProjects()
+				return workspace.readLocked(() -> workspace.getAllProjects()
 					.stream()
 					.map(p -> p.toString())
-					.collect(Collectors.toList());
+					.collect(Collectors.toList()));
 			} catch (Exception e) {
 				throw Exceptions.duck(e);
 			}
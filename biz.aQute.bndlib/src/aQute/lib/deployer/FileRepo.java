@@ -9,16 +9,16 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.jar.Manifest;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -90,6 +90,8 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 		boolean index();
 
+		boolean watch();
+
 		String cmd_path();
 
 		String cmd_shell();
@@ -113,6 +115,16 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 		String cmd_close();
 	}
 
+	/**
+	 * A descriptor in the index of this repository. The stamp is the size and
+	 * modification time of the artifact the descriptor was built from, it is
+	 * stored with the descriptor so a changed artifact is found after a
+	 * restart.
+	 */
+	public static class IndexedDescriptor extends ResourceDescriptor {
+		public String stamp;
+	}
+
 	/**
 	 * If set, will trace to stdout. Works only if no reporter is set.
 	 */
@@ -149,6 +161,13 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	 */
 	public final static String				INDEX				= "index";
 
+	/**
+	 * Should changes in the directories of this file repo be watched with a
+	 * watch service? Either true (default) or false, in which case the
+	 * modification times of the directories are polled.
+	 */
+	public final static String				WATCH				= "watch";
+
 	/**
 	 * Path property for commands. A comma separated path for directories to be
 	 * searched for command. May contain $ @} which will be replaced by the
@@ -226,7 +245,6 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 	private static final String				LATEST_POSTFIX		= "-" + Constants.VERSION_ATTR_LATEST + ".jar";
 	public static final Version				LATEST_VERSION		= new Version(MAX_MAJOR, 0, 0);
-	private static final SortedSet<Version>	LATEST_SET			= new TreeSet<>(Collections.singleton(LATEST_VERSION));
 
 	final static JSONCodec					codec				= new JSONCodec();
 	String									shell;
@@ -253,7 +271,11 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	String									name;
 	boolean									inited;
 	boolean									trace;
-	PersistentMap<ResourceDescriptor>		index;
+	PersistentMap<IndexedDescriptor>		index;
+	final static String						SHA_INDEX			= "sha";
+	final static String						BSN_INDEX			= "bsn";
+	FileRepoIndex							files;
+	boolean									watch				= true;
 
 	private boolean							hasIndex;
 
@@ -268,12 +290,13 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 	/**
 	 * Initialize the repository Subclasses should first call this method and
-	 * then if it returns true, do their own initialization
+	 * then if it returns true, do their own initialization. The repository is
+	 * initialized once, concurrent callers wait until it is initialized.
 	 * 
 	 * @return true if initialized, false if already had been initialized.
 	 * @throws Exception
 	 */
-	protected boolean init() throws Exception {
+	protected synchronized boolean init() throws Exception {
 		if (inited)
 			return false;
 
@@ -294,8 +317,12 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			exec(init, IO.absolutePath(root));
 		}
 
-		if (hasIndex)
-			index = new PersistentMap<>(new File(root, ".index"), ResourceDescriptor.class);
+		files = new FileRepoIndex(root, REPO_FILE, watch);
+		if (hasIndex) {
+			index = new PersistentMap<>(new File(root, ".index"), IndexedDescriptor.class);
+			index.addIndex(SHA_INDEX, rd -> rd.id == null ? null : Hex.toHexString(rd.id));
+			index.addIndex(BSN_INDEX, rd -> rd.bsn);
+		}
 
 		open();
 		return true;
@@ -323,6 +350,9 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				.booleanValue();
 
 		hasIndex = Processor.isTrue(map.get(INDEX));
+		String watch = map.get(WATCH);
+		if (watch != null)
+			this.watch = Processor.isTrue(watch);
 		name = map.get(NAME);
 		path = map.get(CMD_PATH);
 		shell = map.get(CMD_SHELL);
@@ -410,19 +440,23 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 			logger.debug("updating {}", file.getAbsolutePath());
 
+			String key = bsn + "-" + version.toStringWithoutQualifier();
+			IndexedDescriptor descriptor = null;
 			if (hasIndex)
-				index.put(bsn + "-" + version.toStringWithoutQualifier(),
-					buildDescriptor(tmpFile, tmpJar, digest, bsn, version));
+				descriptor = buildDescriptor(tmpFile, tmpJar, digest, bsn, version);
 
 			// An open jar on file will fail rename on windows
 			tmpJar.close();
 
-			dirty = true;
 			if (file.isFile() && !file.canWrite()) {
 				// older versions of this class made file readonly
 				file.setWritable(true);
 			}
 			IO.rename(tmpFile, file);
+			if (hasIndex) {
+				descriptor.stamp = FileRepoIndex.stamp(file);
+				index.put(key, descriptor);
+			}
 
 			fireBundleAdded(file);
 			afterPut(file, bsn, version, Hex.toHexString(digest));
@@ -431,6 +465,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				File latest = new File(dir, bsn + LATEST_POSTFIX);
 				IO.copy(file, latest);
 			}
+			files.update(bsn);
 
 			logger.debug("updated {}", file.getAbsolutePath());
 
@@ -511,14 +546,9 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			if (reporter != null)
 				reporter.error("FileRepo root directory is not set.");
 		} else {
-			File[] list = root.listFiles();
+			List<String> list = files.list();
 			if (list != null) {
-				for (File f : list) {
-					if (!f.isDirectory())
-						continue; // ignore non-directories
-					String fileName = f.getName();
-					if (fileName.charAt(0) == '.')
-						continue; // ignore hidden files
+				for (String fileName : list) {
 					if (pattern == null || pattern.matches(fileName))
 						result.add(fileName);
 				}
@@ -532,27 +562,10 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	@Override
 	public SortedSet<Version> versions(String bsn) throws Exception {
 		init();
-		File dir = new File(root, bsn);
-		boolean latest = false;
-		if (dir.isDirectory()) {
-			String versions[] = dir.list();
-			List<Version> list = new ArrayList<>();
-			for (String v : versions) {
-				Matcher m = REPO_FILE.matcher(v);
-				if (m.matches()) {
-					String version = m.group(2);
-					if (!version.equals(Constants.VERSION_ATTR_LATEST))
-						list.add(new Version(version));
-					else
-						latest = true;
-				}
-			}
-			if (list.isEmpty() && latest)
-				return LATEST_SET;
-			else
-				return new SortedList<>(list);
-		}
-		return SortedList.empty();
+		SortedSet<Version> versions = files.versions(bsn);
+		if (versions == null)
+			return SortedList.empty();
+		return versions;
 	}
 
 	@Override
@@ -569,7 +582,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public boolean refresh() throws Exception {
 		init();
 		exec(refresh, root);
-		rebuildIndex();
+		rebuildIndex(true);
 		return true;
 	}
 
@@ -649,6 +662,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 					if (f.getParentFile()
 						.list().length == 0)
 						IO.delete(f.getParentFile());
+					files.update(bsn);
 					afterAction(f, "delete");
 				};
 			});
@@ -722,30 +736,28 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 	protected File getLocal(String bsn, Version version, Map<String, String> properties) {
 		File dir = new File(root, bsn);
-
-		if (LATEST_VERSION.equals(version)) {
-			File fjar = new File(dir, bsn + LATEST_POSTFIX);
-			if (fjar.isFile())
-				return fjar.getAbsoluteFile();
+		String v = version.toStringWithoutQualifier();
+
+		List<String> names = new ArrayList<>(5);
+		if (LATEST_VERSION.equals(version))
+			names.add(bsn + LATEST_POSTFIX);
+		names.add(bsn + "-" + v + ".jar");
+		names.add(v + ".jar");
+		names.add(bsn + "-" + v + ".lib");
+		names.add(v + ".lib");
+
+		if (files != null) {
+			File file = files.find(bsn, names);
+			if (file != null)
+				return file;
+		} else {
+			for (String name : names) {
+				File file = new File(dir, name);
+				if (file.isFile())
+					return file.getAbsoluteFile();
+			}
 		}
-
-		File fjar = new File(dir, bsn + "-" + version.toStringWithoutQualifier() + ".jar");
-		if (fjar.isFile())
-			return fjar.getAbsoluteFile();
-
-		File sfjar = new File(dir, version.toStringWithoutQualifier() + ".jar");
-		if (sfjar.isFile())
-			return sfjar.getAbsoluteFile();
-
-		File flib = new File(dir, bsn + "-" + version.toStringWithoutQualifier() + ".lib");
-		if (flib.isFile())
-			return flib.getAbsoluteFile();
-
-		File sflib = new File(dir, version.toStringWithoutQualifier() + ".lib");
-		if (sflib.isFile())
-			return sflib.getAbsoluteFile();
-
-		return fjar.getAbsoluteFile();
+		return new File(dir, bsn + "-" + v + ".jar").getAbsoluteFile();
 	}
 
 	protected String status(String bsn, Version version) {
@@ -804,6 +816,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public void close() throws IOException {
 		if (inited) {
 			exec(close, IO.absolutePath(getRoot()));
+			files.close();
 			if (hasIndex)
 				index.close();
 		}
@@ -946,21 +959,26 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			versions = new SortedList<Version>(version);
 
 		for (Version v : versions) {
-			File f = getLocal(bsn, version, null);
+			File f = getLocal(bsn, v, null);
 			if (!f.isFile())
-				reporter.error("No artifact found for %s:%s", bsn, version);
+				reporter.error("No artifact found for %s:%s", bsn, v);
 			else
 				IO.delete(f);
+			if (hasIndex) {
+				index.remove(bsn + "-" + v);
+			}
 		}
-		if (versions(bsn).isEmpty())
+		files.update(bsn);
+		if (versions(bsn).isEmpty()) {
 			IO.delete(new File(root, bsn));
-
-		index.remove(bsn + "-" + version);
+			files.update(bsn);
+		}
 	}
 
 	public ResourceDescriptor getDescriptor(String bsn, Version version) throws Exception {
 		init();
 		if (hasIndex) {
+			updateIndex();
 			ResourceDescriptor resourceDescriptor = index.get(bsn + "-" + version);
 			if (resourceDescriptor == null)
 				System.out.println("Keys " + index.keySet());
@@ -972,6 +990,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public SortedSet<ResourceDescriptor> getResources() throws Exception {
 		init();
 		if (hasIndex) {
+			updateIndex();
 			TreeSet<ResourceDescriptor> resources = new TreeSet<>(new Comparator<ResourceDescriptor>() {
 
 				@Override
@@ -1018,30 +1037,88 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public ResourceDescriptor getResource(byte[] sha) throws Exception {
 		init();
 		if (hasIndex) {
-			for (ResourceDescriptor rd : index.values()) {
-				if (Arrays.equals(rd.id, sha))
+			updateIndex();
+			for (String key : index.findKeys(SHA_INDEX, Hex.toHexString(sha))) {
+				ResourceDescriptor rd = index.get(key);
+				if (rd != null && Arrays.equals(rd.id, sha))
 					return rd;
 			}
 		}
 		return null;
 	}
 
-	void rebuildIndex() throws Exception {
+	/*
+	 * Once the index was rebuilt, keep it up to date with the changes in the
+	 * bsn directories
+	 */
+	private void updateIndex() throws Exception {
+		if (!dirty)
+			rebuildIndex(false);
+	}
+
+	/*
+	 * Bring the index up to date with the bsn directories. The first time, or
+	 * when all is set, every bsn is checked, otherwise only the bsns that
+	 * changed since the last time. A descriptor is only built again when the
+	 * size or modification time of its artifact differs from the stamp in the
+	 * descriptor.
+	 */
+	void rebuildIndex(boolean all) throws Exception {
 		init();
-		if (!hasIndex || !dirty)
+		if (!hasIndex)
 			return;
 
-		index.clear();
-		for (String bsn : list(null)) {
-			for (Version version : versions(bsn)) {
-				File f = get(bsn, version, null);
-				index.put(bsn + "-" + version, buildDescriptor(f, null, null, bsn, version));
+		boolean full = all || dirty;
+		Set<String> changed = files.changed(full);
+		if (full) {
+			Set<String> keys = new HashSet<>();
+			for (String bsn : list(null)) {
+				keys.addAll(rebuildIndex(bsn));
+			}
+			for (String key : new ArrayList<>(index.keySet())) {
+				if (!keys.contains(key)) {
+					index.remove(key);
+				}
+			}
+		} else {
+			for (String bsn : changed) {
+				rebuildIndex(bsn);
 			}
 		}
 		dirty = false;
 	}
 
-	private ResourceDescriptor buildDescriptor(File f, Jar jar, byte[] digest, String bsn, Version version)
+	/*
+	 * Bring the descriptors of a bsn up to date, answer their keys
+	 */
+	private Set<String> rebuildIndex(String bsn) throws Exception {
+		SortedSet<Version> versions = versions(bsn);
+		Set<String> keys = new HashSet<>();
+		for (Version version : versions) {
+			File f = getLocal(bsn, version, null);
+			if (!f.isFile())
+				continue;
+
+			String key = bsn + "-" + version;
+			keys.add(key);
+			String stamp = FileRepoIndex.stamp(f);
+			IndexedDescriptor descriptor = index.get(key);
+			if (descriptor != null && stamp != null && stamp.equals(descriptor.stamp))
+				continue;
+
+			descriptor = buildDescriptor(f, null, null, bsn, version);
+			descriptor.stamp = stamp;
+			index.put(key, descriptor);
+		}
+		for (String key : index.findKeys(BSN_INDEX, bsn)) {
+			if (!keys.contains(key)) {
+				index.remove(key);
+			}
+		}
+		return keys;
+	}
+
+	private IndexedDescriptor buildDescriptor(File f, Jar jar, byte[] digest, String bsn, Version version)
 		throws NoSuchAlgorithmException, Exception {
 		init();
 		Jar tmpjar = jar;
@@ -1049,7 +1126,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			tmpjar = new Jar(f);
 		try {
 			Manifest m = tmpjar.getManifest();
-			ResourceDescriptor rd = new ResourceDescriptor();
+			IndexedDescriptor rd = new IndexedDescriptor();
 			rd.bsn = bsn;
 			rd.version = version;
 			rd.description = m.getMainAttributes()
@@ -0,0 +1,444 @@
+package aQute.lib.deployer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.version.Version;
+import aQute.lib.collections.SortedList;
+import aQute.lib.io.IO;
+
+/**
+ * An in-memory index of the artifacts in the directories of a
+ * {@link FileRepo}. For every bsn directory it holds the names of the files and
+ * the versions found in these names.
+ * <p>
+ * A look up of a bsn checks the modification time of the root and of the bsn
+ * directory, a directory is only listed again when it changed. Changes in the
+ * repository as a whole, see {@link #changed(boolean)}, are reported by a
+ * {@link WatchService} on the root and the bsn directories. When the file
+ * system cannot be watched efficiently, or runs out of watches, the
+ * modification times of the directories are polled instead.
+ */
+class FileRepoIndex implements Closeable {
+	private final static Logger	logger	= LoggerFactory.getLogger(FileRepoIndex.class);
+
+	/*
+	 * A directory modified this close to the time it was listed may change
+	 * again without a change of its modification time
+	 */
+	final static long			RACY	= 2000L;
+
+	/*
+	 * Minimum time between two polls of all directories
+	 */
+	final static long			POLL	= 1000L;
+
+	final File					root;
+	final Pattern				repoFile;
+	final boolean				watch;
+	final Map<String, Dir>		dirs	= new TreeMap<>();
+	final Map<WatchKey, Dir>	keys	= new HashMap<>();
+	final Set<String>			changed	= new LinkedHashSet<>();
+	final Stamp					stamp	= new Stamp();
+	boolean						listed;
+	boolean						polling;
+	WatchService				watcher;
+	WatchKey					rootKey;
+	long						polled;
+
+	/*
+	 * The modification time of a directory when it was listed
+	 */
+	static class Stamp {
+		FileTime	modified;
+		long		listed;
+
+		boolean isStale(File dir) {
+			FileTime current = modified(dir);
+			return current == null || !current.equals(modified) || current.toMillis() + RACY > listed;
+		}
+
+		void update(FileTime modified, long listed) {
+			this.modified = modified;
+			this.listed = listed;
+		}
+	}
+
+	static class Dir {
+		final File			dir;
+		final Stamp			stamp	= new Stamp();
+		Set<String>			names;
+		SortedSet<Version>	versions;
+		WatchKey			key;
+		boolean				stale;
+
+		Dir(File dir) {
+			this.dir = dir;
+		}
+	}
+
+	FileRepoIndex(File root, Pattern repoFile, boolean watch) {
+		this.root = root;
+		this.repoFile = repoFile;
+		this.watch = watch;
+	}
+
+	/**
+	 * Answer the names of the bsn directories
+	 *
+	 * @return the names or null if the root cannot be listed
+	 */
+	synchronized List<String> list() {
+		if (!sync())
+			return null;
+		return new ArrayList<>(dirs.keySet());
+	}
+
+	/**
+	 * Answer the versions of a bsn. If the bsn only has a latest version, the
+	 * answer only contains the {@link FileRepo#LATEST_VERSION}.
+	 *
+	 * @return the versions or null if there is no directory for the bsn
+	 */
+	synchronized SortedSet<Version> versions(String bsn) {
+		Dir d = dir(bsn);
+		return d == null ? null : d.versions;
+	}
+
+	/**
+	 * Answer the first of the given file names that is a file in the directory
+	 * of the bsn.
+	 *
+	 * @return the file or null if none of the files exists
+	 */
+	synchronized File find(String bsn, List<String> names) {
+		Dir d = dir(bsn);
+		if (d != null) {
+			for (String name : names) {
+				if (d.names.contains(name))
+					return new File(d.dir, name).getAbsoluteFile();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * List the directory of a bsn again, the repository has changed it.
+	 */
+	synchronized void update(String bsn) {
+		sync();
+		Dir d = dirs.get(bsn);
+		if (d == null) {
+			File dir = new File(root, bsn);
+			if (!dir.isDirectory())
+				return;
+			d = add(bsn, dir);
+		}
+		if (!list(d))
+			remove(bsn);
+	}
+
+	/**
+	 * Answer the bsns that changed since the last call. Every bsn directory
+	 * that was added, removed, or in which a file was added, removed or
+	 * modified, is reported. A watch service reports the changes as they
+	 * happen, without a watch service the directories are polled.
+	 *
+	 * @param all if true, poll all directories that are not watched
+	 * @return the changed bsns
+	 */
+	synchronized Set<String> changed(boolean all) {
+		if (!sync())
+			return Collections.emptySet();
+
+		startWatching();
+		boolean overflow = drain();
+
+		long now = System.currentTimeMillis();
+		boolean poll = all || now - polled >= POLL;
+		if (poll)
+			polled = now;
+
+		for (Iterator<Map.Entry<String, Dir>> i = dirs.entrySet()
+			.iterator(); i.hasNext();) {
+			Map.Entry<String, Dir> e = i.next();
+			Dir d = e.getValue();
+			if (overflow || d.stale || (poll && d.key == null && (d.names == null || d.stamp.isStale(d.dir)))) {
+				changed.add(e.getKey());
+				if (!list(d)) {
+					cancel(d);
+					i.remove();
+				}
+			}
+		}
+
+		Set<String> result = new LinkedHashSet<>(changed);
+		changed.clear();
+		return result;
+	}
+
+	@Override
+	public synchronized void close() {
+		polling = true;
+		IO.close(watcher);
+		watcher = null;
+		rootKey = null;
+		keys.clear();
+		for (Dir d : dirs.values()) {
+			d.key = null;
+		}
+	}
+
+	/*
+	 * Answer the up to date directory of a bsn
+	 */
+	private Dir dir(String bsn) {
+		if (!sync())
+			return null;
+		Dir d = dirs.get(bsn);
+		if (d == null)
+			return null;
+		if (d.names == null || d.stale || d.stamp.isStale(d.dir)) {
+			if (d.names != null)
+				changed.add(bsn);
+			if (!list(d)) {
+				remove(bsn);
+				return null;
+			}
+		}
+		return d;
+	}
+
+	/*
+	 * List the root again when it was modified
+	 */
+	private boolean sync() {
+		if (listed && !stamp.isStale(root))
+			return true;
+
+		long now = System.currentTimeMillis();
+		FileTime modified = modified(root);
+		Set<String> names = new HashSet<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.toPath())) {
+			for (Path path : stream) {
+				String name = path.getFileName()
+					.toString();
+				if (name.charAt(0) != '.' && Files.isDirectory(path))
+					names.add(name);
+			}
+		} catch (IOException e) {
+			logger.debug("Cannot list {}", root, e);
+			return false;
+		}
+		stamp.update(modified, now);
+
+		for (Iterator<Map.Entry<String, Dir>> i = dirs.entrySet()
+			.iterator(); i.hasNext();) {
+			Map.Entry<String, Dir> e = i.next();
+			if (!names.remove(e.getKey())) {
+				changed.add(e.getKey());
+				cancel(e.getValue());
+				i.remove();
+			}
+		}
+		for (String name : names) {
+			if (listed)
+				changed.add(name);
+			add(name, new File(root, name));
+		}
+		listed = true;
+		return true;
+	}
+
+	/*
+	 * List the files in a bsn directory, answer false if it is gone
+	 */
+	private boolean list(Dir d) {
+		long now = System.currentTimeMillis();
+		FileTime modified = modified(d.dir);
+		Set<String> names = new HashSet<>();
+		List<Version> versions = new ArrayList<>();
+		boolean latest = false;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(d.dir.toPath())) {
+			for (Path path : stream) {
+				if (!Files.isRegularFile(path))
+					continue;
+
+				String name = path.getFileName()
+					.toString();
+				names.add(name);
+				Matcher m = repoFile.matcher(name);
+				if (m.matches()) {
+					String version = m.group(2);
+					if (version.equals(Constants.VERSION_ATTR_LATEST))
+						latest = true;
+					else
+						versions.add(new Version(version));
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Cannot list {}", d.dir, e);
+			return false;
+		}
+		d.stamp.update(modified, now);
+		d.stale = false;
+		d.names = names;
+		if (versions.isEmpty() && latest)
+			d.versions = new SortedList<>(FileRepo.LATEST_VERSION);
+		else
+			d.versions = new SortedList<>(versions);
+		return true;
+	}
+
+	private Dir add(String bsn, File dir) {
+		Dir d = new Dir(dir);
+		dirs.put(bsn, d);
+		if (watcher != null)
+			register(d);
+		return d;
+	}
+
+	private void remove(String bsn) {
+		Dir d = dirs.remove(bsn);
+		if (d != null) {
+			changed.add(bsn);
+			cancel(d);
+		}
+	}
+
+	/*
+	 * Start the watch service on the first request for changes. A watch
+	 * service that polls itself is not used, polling the modification times of
+	 * the directories is cheaper.
+	 */
+	private void startWatching() {
+		if (!watch || polling || watcher != null)
+			return;
+
+		try {
+			WatchService service = root.toPath()
+				.getFileSystem()
+				.newWatchService();
+			if (service.getClass()
+				.getName()
+				.contains("Polling")) {
+				IO.close(service);
+				polling = true;
+				return;
+			}
+			rootKey = root.toPath()
+				.register(service, ENTRY_CREATE, ENTRY_DELETE);
+			watcher = service;
+			for (Dir d : dirs.values()) {
+				register(d);
+			}
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.debug("Cannot watch {}, polling instead", root, e);
+			polling = true;
+		}
+	}
+
+	private void register(Dir d) {
+		try {
+			d.key = d.dir.toPath()
+				.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			keys.put(d.key, d);
+			// changes before the registration are not reported
+			d.stale = true;
+		} catch (IOException e) {
+			logger.debug("Cannot watch {}, polling instead", d.dir, e);
+		}
+	}
+
+	private void cancel(Dir d) {
+		if (d.key != null) {
+			keys.remove(d.key);
+			d.key.cancel();
+			d.key = null;
+		}
+	}
+
+	/*
+	 * Mark the directories with pending events stale, answer true if events
+	 * were lost
+	 */
+	private boolean drain() {
+		if (watcher == null)
+			return false;
+
+		boolean overflow = false;
+		for (WatchKey key; (key = watcher.poll()) != null;) {
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW)
+					overflow = true;
+			}
+			if (key == rootKey) {
+				listed = false;
+			} else {
+				Dir d = keys.get(key);
+				if (d != null)
+					d.stale = true;
+			}
+			if (!key.reset() && key != rootKey) {
+				Dir d = keys.remove(key);
+				if (d != null)
+					d.key = null;
+			}
+		}
+		if (!listed)
+			sync();
+		return overflow;
+	}
+
+	static FileTime modified(File file) {
+		try {
+			return Files.getLastModifiedTime(file.toPath());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Answer a stamp of the size and modification time of a file
+	 */
+	static String stamp(File file) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			return attributes.size() + "/" + attributes.lastModifiedTime()
+				.toMillis();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
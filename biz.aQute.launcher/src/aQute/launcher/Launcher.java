@@ -29,8 +29,13 @@ import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
 import java.security.AllPermission;
 import java.security.CodeSource;
+import java.security.MessageDigest;
 import java.security.Permission;
 import java.security.PermissionCollection;
 import java.security.Policy;
@@ -77,6 +82,7 @@ import aQute.launcher.agent.LauncherAgent;
 import aQute.launcher.constants.LauncherConstants;
 import aQute.launcher.minifw.MiniFramework;
 import aQute.launcher.pre.EmbeddedLauncher;
+import aQute.lib.hex.Hex;
 import aQute.lib.io.ByteBufferOutputStream;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
@@ -111,6 +117,7 @@ public class Launcher implements ServiceListener {
 
 	private AtomicReference<DatagramSocket>	commsSocket							= new AtomicReference<>();
 	private PackageAdmin					padmin;
+	private FileChannel						storageLock;
 
 	public static void main(String[] args) {
 		try {
@@ -339,6 +346,11 @@ public class Launcher implements ServiceListener {
 				trace("registered launcher with arguments for syncing");
 			}
 
+			if (Boolean.getBoolean(LauncherConstants.LAUNCHER_TRAINING)) {
+				trace("stopping after the training run");
+				return LauncherConstants.OK;
+			}
+
 			// Wait until a Runnable is registered with main.thread=true.
 			// not that this will never happen when we're running on the mini fw
 			// but the test case normally exits.
@@ -942,12 +954,67 @@ public class Launcher implements ServiceListener {
 				}
 			}
 		}
+		if (storageLock != null) {
+			IO.close(storageLock);
+			storageLock = null;
+		}
 	}
 
 	public void addSystemPackage(String packageName) {
 		parms.systemPackages = concat(parms.systemPackages, packageName);
 	}
 
+	/*
+	 * An executable started with a cache keeps its framework storage in the
+	 * cache, in a directory keyed on the digests of the launcher properties,
+	 * the runpath and the runbundles. Unchanged bundles are then not installed
+	 * again on the next start. The storage is locked so that concurrent starts
+	 * of the same executable use a temporary storage instead.
+	 */
+	private File getCachedStorage() throws Exception {
+		String cache = System.getProperty(LauncherConstants.LAUNCHER_CACHE);
+		Manifest m = EmbeddedLauncher.MANIFEST;
+		if (!parms.embedded || cache == null || cache.isEmpty() || m == null)
+			return null;
+
+		List<String> paths = new ArrayList<>();
+		paths.add(DEFAULT_LAUNCHER_PROPERTIES);
+		paths.addAll(split(m.getMainAttributes()
+			.getValue(EmbeddedLauncher.EMBEDDED_RUNPATH), ","));
+		paths.addAll(parms.runbundles);
+
+		MessageDigest md = MessageDigest.getInstance("SHA-1");
+		for (String path : paths) {
+			String digest = getDigest(path);
+			if (digest == null) {
+				trace("not caching the framework storage, no digest for %s", path);
+				return null;
+			}
+			md.update(path.getBytes(UTF_8));
+			md.update((byte) 0);
+			md.update(digest.getBytes(UTF_8));
+			md.update((byte) 0);
+		}
+
+		File storage = new File(new File(cache, "storage"), Hex.toHexString(md.digest()));
+		IO.mkdirs(storage.getParentFile());
+		FileChannel channel = FileChannel.open(new File(storage.getPath() + ".lock").toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock lock;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		}
+		if (lock == null) {
+			trace("cached framework storage %s is in use", storage);
+			channel.close();
+			return null;
+		}
+		storageLock = channel;
+		return storage;
+	}
+
 	private String concat(String a, String b) {
 		if (a == null)
 			return b;
@@ -961,10 +1028,13 @@ public class Launcher implements ServiceListener {
 		Properties p = new Properties();
 		p.putAll(properties);
 		File workingdir = null;
+		boolean keep = parms.keep;
 		if (parms.storageDir != null)
 			workingdir = parms.storageDir;
 		else if (parms.keep && parms.name != null) {
 			workingdir = new File(bnd, parms.name);
+		} else if ((workingdir = getCachedStorage()) != null) {
+			keep = true;
 		}
 
 		if (workingdir == null) {
@@ -979,9 +1049,9 @@ public class Launcher implements ServiceListener {
 				});
 		}
 
-		trace("using working dir: %s with keeping=%s", workingdir, parms.keep);
+		trace("using working dir: %s with keeping=%s", workingdir, keep);
 
-		if (!parms.keep && workingdir.exists()) {
+		if (!keep && workingdir.exists()) {
 			trace("deleting working dir %s because not kept", workingdir);
 			delete(workingdir);
 			p.setProperty(Constants.FRAMEWORK_STORAGE_CLEAN, "true");
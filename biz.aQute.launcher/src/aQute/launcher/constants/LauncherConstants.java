@@ -15,6 +15,17 @@ public class LauncherConstants {
 	public final static String		DEFAULT_LAUNCHER_PROPERTIES	= "launcher.properties";
 	public final static String		LAUNCHER_ARGUMENTS			= "launcher.arguments";
 	public final static String		LAUNCHER_READY				= "launcher.ready";
+	/**
+	 * System property with a directory where an executable JAR extracts its
+	 * runpath and keeps its framework storage between starts.
+	 */
+	public final static String		LAUNCHER_CACHE				= "launcher.cache";
+	/**
+	 * System property that stops the launcher once the framework and all
+	 * bundles are started, for example to record the classes that are loaded
+	 * at startup.
+	 */
+	public final static String		LAUNCHER_TRAINING			= "launcher.training";
 
 	// MUST BE ALIGNED WITH ProjectLauncher! Do not want to create coupling
 	// so cannot refer.
@@ -1,19 +1,24 @@
 package aQute.launcher.plugin;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.DataInput;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -21,9 +26,13 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
+import org.osgi.util.promise.Promise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,23 +48,29 @@ import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Jar.Compression;
-import aQute.bnd.osgi.JarResource;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.Resource;
 import aQute.launcher.constants.LauncherConstants;
 import aQute.launcher.pre.EmbeddedLauncher;
+import aQute.lib.collections.Iterables;
 import aQute.lib.collections.MultiMap;
+import aQute.lib.exceptions.Exceptions;
 import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.io.ByteBufferOutputStream;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.lib.utf8properties.UTF8Properties;
+import aQute.libg.command.Command;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.glob.Glob;
 
 public class ProjectLauncherImpl extends ProjectLauncher {
 	private final static Logger		logger					= LoggerFactory.getLogger(ProjectLauncherImpl.class);
 	private static final String		EMBEDDED_LAUNCHER_FQN	= "aQute.launcher.pre.EmbeddedLauncher";
 	private static final String		EMBEDDED_LAUNCHER		= "aQute/launcher/pre/EmbeddedLauncher.class";
+	static final String				CDS_ARCHIVE				= "launcher.jsa";
+	static final long				REJAR_CACHE_AGE			= TimeUnit.DAYS.toMillis(30);
 	private BuilderInstructions		builderInstrs;
 	private LauncherInstructions	launcherInstrs;
 
@@ -240,6 +255,9 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		Map<Glob, List<Glob>> strip = extractStripMapping(launcherInstrs.executable()
 			.strip());
 		logger.debug("strip {}", strip);
+		boolean cds = launcherInstrs.executable()
+			.cds();
+		logger.debug("cds {}", cds);
 
 		Jar jar = new Jar(getProject().getName());
 
@@ -270,12 +288,27 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		Set<String> runbundleShas = new LinkedHashSet<>();
 		List<String> classpath = new ArrayList<>();
 
+		//
+		// Rejarring is done in parallel, the files are placeholders until then
+		//
+
+		boolean rejarring = !strip.isEmpty() || rejar.isPresent();
+		File rejarCache = rejarring ? getProject().getWorkspace()
+			.getCache("rejar") : null;
+		String rejarKey = "rejar=" + rejar.map(Compression::name)
+			.orElse("") + ";strip=" + Strings.join(launcherInstrs.executable()
+				.strip());
+		Map<String, Promise<Resource>> rejarred = new LinkedHashMap<>();
+
 		for (String path : runpath) {
 			logger.debug("embedding runpath {}", path);
 			File file = new File(path);
 			if (file.isFile()) {
 				String newPath = nonCollidingPath(file, jar);
-				jar.putResource(newPath, getJarFileResource(file, rejar, strip));
+				jar.putResource(newPath, new FileResource(file));
+				if (rejarring)
+					rejarred.put(newPath, getPromiseFactory()
+						.submit(() -> getJarFileResource(file, rejar, strip, rejarCache, rejarKey)));
 				classpath.add(newPath);
 			}
 		}
@@ -292,11 +325,25 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 				getProject().error("Invalid entry in -runbundles %s", file);
 			else {
 				String newPath = nonCollidingPath(file, jar);
-				jar.putResource(newPath, getJarFileResource(file, rejar, strip));
+				jar.putResource(newPath, new FileResource(file));
+				if (rejarring)
+					rejarred.put(newPath, getPromiseFactory()
+						.submit(() -> getJarFileResource(file, rejar, strip, rejarCache, rejarKey)));
 				actualPaths.add(newPath);
 			}
 		}
 
+		for (Map.Entry<String, Promise<Resource>> e : rejarred.entrySet()) {
+			try {
+				jar.putResource(e.getKey(), e.getValue()
+					.getValue(), true);
+			} catch (InvocationTargetException ite) {
+				throw Exceptions.duck(ite.getCause());
+			}
+		}
+		if (rejarring)
+			pruneRejarCache(rejarCache);
+
 		LauncherConstants lc = getConstants(actualPaths, true);
 		lc.embedded = true;
 
@@ -330,7 +377,10 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		Resource embeddedLauncher = Resource.fromURL(this.getClass()
 			.getResource("/" + EMBEDDED_LAUNCHER));
 		jar.putResource(EMBEDDED_LAUNCHER, embeddedLauncher);
-		doStart(jar, EMBEDDED_LAUNCHER_FQN);
+		if (cds)
+			doStart(jar, EMBEDDED_LAUNCHER_FQN, classpath);
+		else
+			doStart(jar, EMBEDDED_LAUNCHER_FQN);
 		if (getProject().getProperty(Constants.DIGESTS) != null)
 			jar.setDigestAlgorithms(getProject().getProperty(Constants.DIGESTS)
 				.trim()
@@ -340,10 +390,65 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 				"SHA-1", "MD-5"
 			});
 		jar.setManifest(m);
+		if (cds)
+			train(jar, classpath);
 		cleanup();
 		return jar;
 	}
 
+	/*
+	 * Do a training run of the expanded executable that dumps the classes
+	 * loaded at startup into a class data sharing archive, and add the archive
+	 * to the executable. The archive records the size and modification time of
+	 * the runpath JARs, so the executable is expanded like unzip does it.
+	 */
+	private void train(Jar jar, List<String> runpath) throws Exception {
+		File dir = Files.createTempDirectory(getProject().getTarget()
+			.toPath(), "cds")
+			.toFile();
+		try {
+			File executable = new File(dir, "executable.jar");
+			jar.write(executable);
+
+			File expanded = new File(dir, "expanded");
+			try (JarFile jf = new JarFile(executable)) {
+				for (JarEntry entry : Iterables.iterable(jf.entries())) {
+					if (entry.isDirectory())
+						continue;
+					File file = IO.getBasedFile(expanded, entry.getName());
+					IO.mkdirs(file.getParentFile());
+					IO.copy(jf.getInputStream(entry), file);
+					file.setLastModified(entry.getTime());
+				}
+			}
+
+			Command java = new Command();
+			java.add(getProject().getProperty("java", getJavaExecutable()));
+			java.add("-XX:ArchiveClassesAtExit=" + CDS_ARCHIVE);
+			java.add("-D" + LauncherConstants.LAUNCHER_TRAINING + "=true");
+			java.add("-cp");
+			java.add(Strings.join(File.pathSeparator, runpath) + File.pathSeparator + ".");
+			java.add(EMBEDDED_LAUNCHER_FQN);
+			java.setCwd(expanded);
+			if (getTimeout() != 0)
+				java.setTimeout(getTimeout() + 1000, TimeUnit.MILLISECONDS);
+
+			logger.debug("cds training {}", java);
+			StringBuilder out = new StringBuilder();
+			int result = java.execute(out, out);
+			File archive = new File(expanded, CDS_ARCHIVE);
+			if (result != 0 || !archive.isFile()) {
+				getProject().warning(
+					"The training run for the class data sharing archive failed, the executable has no archive: %s",
+					out);
+				return;
+			}
+			jar.putResource(CDS_ARCHIVE, new EmbeddedResource(IO.read(archive), 0L));
+		} finally {
+			IO.delete(dir);
+		}
+	}
+
 	private Map<Glob, List<Glob>> extractStripMapping(List<String> strip) {
 		MultiMap<Glob, Glob> map = new MultiMap<>();
 
@@ -359,22 +464,71 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		return map;
 	}
 
-	private Resource getJarFileResource(File file, Optional<Compression> compression, Map<Glob, List<Glob>> strip)
-		throws IOException {
-		if (strip.isEmpty() && !compression.isPresent()) {
-			return new FileResource(file);
+	/*
+	 * Rejar and strip a JAR. The result is kept in the cache, keyed on the
+	 * digest of the JAR and the rejar and strip settings, so that an unchanged
+	 * JAR is not processed again by the next export. A cached JAR is touched
+	 * when it is used so the cache can be pruned on the time of last use, the
+	 * resource has the time of the JAR so that the export does not depend on
+	 * the cache.
+	 */
+	private Resource getJarFileResource(File file, Optional<Compression> compression, Map<Glob, List<Glob>> strip,
+		File cache, String settings) throws Exception {
+		Digester<SHA1> digester = SHA1.getDigester();
+		IO.copy(file, digester);
+		digester.write(settings.getBytes(UTF_8));
+		File cached = new File(cache, digester.digest()
+			.asHex() + ".jar");
+		if (cached.isFile()) {
+			logger.debug("rejarred {} is cached in {}", file, cached);
+			cached.setLastModified(System.currentTimeMillis());
+			return cachedResource(cached, file.lastModified());
 		}
 
-		Jar jar = new Jar(file);
-		jar.setDoNotTouchManifest();
+		try (Jar jar = new Jar(file)) {
+			jar.setDoNotTouchManifest();
 
-		compression.ifPresent(jar::setCompression);
-		logger.debug("compression {}", compression);
+			compression.ifPresent(jar::setCompression);
+			logger.debug("compression {}", compression);
 
-		stripContent(strip, jar);
+			stripContent(strip, jar);
 
-		JarResource resource = new JarResource(jar, true);
-		return resource;
+			IO.mkdirs(cache);
+			File tmp = IO.createTempFile(cache, "rejar", ".tmp");
+			try {
+				jar.write(tmp);
+				IO.rename(tmp, cached);
+			} catch (Exception e) {
+				IO.delete(tmp);
+				throw e;
+			}
+		}
+		return cachedResource(cached, file.lastModified());
+	}
+
+	private static Resource cachedResource(File cached, long lastModified) throws IOException {
+		return new FileResource(cached) {
+			@Override
+			public long lastModified() {
+				return lastModified;
+			}
+		};
+	}
+
+	/*
+	 * Remove the rejarred JARs that were not used for some time
+	 */
+	private void pruneRejarCache(File cache) {
+		long expired = System.currentTimeMillis() - REJAR_CACHE_AGE;
+		File[] files = cache.listFiles();
+		if (files == null)
+			return;
+		for (File f : files) {
+			if (f.isFile() && f.lastModified() < expired) {
+				logger.debug("pruning rejarred {}", f);
+				IO.delete(f);
+			}
+		}
 	}
 
 	private void stripContent(Map<Glob, List<Glob>> strip, Jar jar) {
@@ -429,4 +583,18 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		jar.putResource("start.bat", new EmbeddedResource(pc, 0L));
 	}
 
+	/*
+	 * Start scripts that use the class data sharing archive. Classes only come
+	 * from the archive when they are loaded from the class path of the JVM, so
+	 * the runpath goes before the directory. A JVM that cannot use the archive
+	 * ignores it.
+	 */
+	void doStart(Jar jar, String fqn, List<String> runpath) throws UnsupportedEncodingException {
+		String java = "java -XX:+UnlockDiagnosticVMOptions -XX:SharedArchiveFile=" + CDS_ARCHIVE + " -Xshare:auto -cp ";
+		String nix = "#!/bin/sh\n" + java + "\"" + Strings.join(":", runpath) + ":.\" " + fqn + "\n";
+		String pc = java + "\"" + Strings.join(";", runpath) + ";.\" " + fqn + "\r\n";
+		jar.putResource("start", new EmbeddedResource(nix, 0L));
+		jar.putResource("start.bat", new EmbeddedResource(pc, 0L));
+	}
+
 }
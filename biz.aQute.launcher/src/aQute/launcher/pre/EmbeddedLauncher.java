@@ -15,13 +15,19 @@ import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
+import aQute.launcher.constants.LauncherConstants;
 import aQute.lib.io.IOConstants;
 
 public class EmbeddedLauncher {
@@ -53,7 +59,7 @@ public class EmbeddedLauncher {
 				List<URL> classpath = new ArrayList<>();
 
 				for (String path : runpath.split("\\s*,\\s*")) {
-					URL url = toFileURL(cl.getResource(path));
+					URL url = toFileURL(path, cl.getResource(path));
 					classpath.add(url);
 				}
 
@@ -149,7 +155,13 @@ public class EmbeddedLauncher {
 		}
 	}
 
-	private static URL toFileURL(URL resource) throws IOException {
+	/*
+	 * Answer a file URL for an entry on the runpath. If the launcher.cache
+	 * system property is set, the entry is extracted once to a file named after
+	 * its digest in the manifest. Later starts of the same executable reuse
+	 * that file. Otherwise the entry is copied to a temporary file.
+	 */
+	private static URL toFileURL(String path, URL resource) throws IOException {
 		//
 		// Don't bother copying file urls
 		//
@@ -157,6 +169,43 @@ public class EmbeddedLauncher {
 			.equalsIgnoreCase("file"))
 			return resource;
 
+		File cached = getCacheFile(path);
+		if (cached != null) {
+			if (cached.isFile())
+				return cached.toURI()
+					.toURL();
+
+			try {
+				Files.createDirectories(cached.getParentFile()
+					.toPath());
+				File tmp = File.createTempFile("resource", ".tmp", cached.getParentFile());
+				try {
+					//
+					// Only a verified copy may be found under its digest
+					//
+					String algorithm = cached.getParentFile()
+						.getName();
+					byte[] digest = copy(resource, tmp, MessageDigest.getInstance(algorithm));
+					if (cached.getName()
+						.equals(hex(digest) + ".jar")) {
+						try {
+							Files.move(tmp.toPath(), cached.toPath(), StandardCopyOption.ATOMIC_MOVE);
+						} catch (IOException e) {
+							// Another process could have extracted it
+							if (!cached.isFile())
+								throw e;
+						}
+						return cached.toURI()
+							.toURL();
+					}
+				} finally {
+					Files.deleteIfExists(tmp.toPath());
+				}
+			} catch (IOException | NoSuchAlgorithmException e) {
+				// Fall back to a temporary copy
+			}
+		}
+
 		//
 		// Need to make a copy to a temp file
 		//
@@ -164,15 +213,71 @@ public class EmbeddedLauncher {
 		File f = File.createTempFile("resource", ".jar");
 		Files.createDirectories(f.getParentFile()
 			.toPath());
+		copy(resource, f, null);
+		f.deleteOnExit();
+		return f.toURI()
+			.toURL();
+	}
+
+	/*
+	 * Answer the file in the cache for an entry of the executable, named after
+	 * the longest digest in its manifest section with an available algorithm.
+	 * Answer null if there is no cache or no digest.
+	 */
+	static File getCacheFile(String path) {
+		String cache = System.getProperty(LauncherConstants.LAUNCHER_CACHE);
+		if (cache == null || cache.isEmpty() || MANIFEST == null)
+			return null;
+
+		Attributes attributes = MANIFEST.getAttributes(path);
+		if (attributes == null)
+			return null;
+
+		File file = null;
+		int length = 0;
+		for (Map.Entry<Object, Object> e : attributes.entrySet()) {
+			String name = e.getKey()
+				.toString();
+			if (!name.endsWith("-Digest"))
+				continue;
+
+			String algorithm = name.substring(0, name.length() - "-Digest".length());
+			try {
+				MessageDigest.getInstance(algorithm);
+				byte[] digest = Base64.getDecoder()
+					.decode(e.getValue()
+						.toString()
+						.trim());
+				if (digest.length > length) {
+					file = new File(new File(cache, algorithm), hex(digest) + ".jar");
+					length = digest.length;
+				}
+			} catch (NoSuchAlgorithmException | IllegalArgumentException ee) {
+				// try the next digest
+			}
+		}
+		return file;
+	}
+
+	private static byte[] copy(URL resource, File f, MessageDigest md) throws IOException {
 		try (InputStream in = resource.openStream(); OutputStream out = Files.newOutputStream(f.toPath())) {
 			byte[] buffer = new byte[BUFFER_SIZE];
 			for (int size; (size = in.read(buffer, 0, buffer.length)) > 0;) {
 				out.write(buffer, 0, size);
+				if (md != null)
+					md.update(buffer, 0, size);
 			}
 		}
-		f.deleteOnExit();
-		return f.toURI()
-			.toURL();
+		return md == null ? null : md.digest();
+	}
+
+	private static String hex(byte[] data) {
+		char[] chars = new char[data.length * 2];
+		for (int i = 0; i < data.length; i++) {
+			chars[i * 2] = Character.forDigit((data[i] >> 4) & 0x0F, 16);
+			chars[i * 2 + 1] = Character.forDigit(data[i] & 0x0F, 16);
+		}
+		return new String(chars);
 	}
 
 }
@@ -41,12 +41,14 @@ import org.osgi.resource.dto.RequirementDTO;
 
 import aQute.lib.converter.Converter;
 import aQute.lib.converter.TypeReference;
+import aQute.lib.io.IO;
 import aQute.libg.shacache.ShaCache;
 import aQute.libg.shacache.ShaSource;
 import aQute.remote.api.Agent;
 import aQute.remote.api.Event;
 import aQute.remote.api.Event.Type;
 import aQute.remote.api.Supervisor;
+import aQute.remote.util.JarDelta;
 import aQute.remote.util.Link;
 
 /**
@@ -121,7 +123,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	@Override
 	public BundleDTO install(String location, String sha) throws Exception {
-		InputStream in = cache.getStream(sha, source);
+		InputStream in = getStream(location, sha);
 		if (in == null)
 			return null;
 
@@ -275,7 +277,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 			String sha = e.getValue();
 
 			try {
-				InputStream in = cache.getStream(sha, source);
+				InputStream in = getStream(location, sha);
 				if (in == null) {
 					out.format("Cannot find file for sha %s to update %s", sha, location);
 					continue;
@@ -319,7 +321,8 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	@Override
 	public String update(long id, String sha) throws Exception {
-		InputStream in = cache.getStream(sha, source);
+		Bundle b = context.getBundle(id);
+		InputStream in = getStream(b == null ? null : b.getLocation(), sha);
 		if (in == null)
 			return null;
 
@@ -550,6 +553,38 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 		}
 	}
 
+	/*
+	 * Get the content for a sha. If it is not cached but the bundle at the
+	 * location was installed from a cached file, only the changed entries are
+	 * fetched from the supervisor and the JAR is rebuilt in the cache. A
+	 * rebuilt JAR that does not have the requested SHA is discarded.
+	 */
+	private InputStream getStream(String location, String sha) throws Exception {
+		Link<Agent, Supervisor> l = link;
+		String base = location == null ? null : installed.get(location);
+		if (l != null && l.isBinary() && base != null && !base.equals(sha) && cache.getFile(sha) == null) {
+			File baseFile = cache.getFile(base);
+			if (baseFile != null) {
+				File tmp = IO.createTempFile(cache.getRoot(), sha.toLowerCase(), ".delta");
+				try {
+					byte[] delta = remote.getDelta(sha, JarDelta.digests(baseFile));
+					//
+					// The rebuilt JAR is only cached under the SHA when it is
+					// identical, otherwise the whole file is fetched
+					//
+
+					if (delta != null && JarDelta.rebuild(baseFile, IO.stream(delta), tmp, sha))
+						IO.rename(tmp, new File(cache.getRoot(), sha));
+				} catch (Exception e) {
+					printStack(e);
+				} finally {
+					IO.delete(tmp);
+				}
+			}
+		}
+		return cache.getStream(sha, source);
+	}
+
 	public void setRemote(Supervisor supervisor) {
 		this.remote = supervisor;
 		this.source = new ShaSource() {
@@ -561,6 +596,10 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 			@Override
 			public InputStream get(String sha) throws Exception {
+				Link<Agent, Supervisor> l = link;
+				if (l != null && l.isBinary())
+					return remote.getFileStream(sha);
+
 				byte[] data = remote.getFile(sha);
 				if (data == null)
 					return null;
@@ -1,5 +1,9 @@
 package aQute.remote.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
 /**
  * A Supervisor handles the initiating side of a session with a remote agent.
  * The methods defined in this interface are intended to be called by the remote
@@ -41,4 +45,37 @@ public interface Supervisor {
 	 * @return the contents of that file or null if no such file exists.
 	 */
 	byte[] getFile(String sha) throws Exception;
+
+	/**
+	 * Return the contents of the file that has the given SHA-1 as a stream.
+	 * This is only called when the link uses the binary protocol, the contents
+	 * are then sent in chunks and need not be buffered completely.
+	 * 
+	 * @param sha the SHA-1
+	 * @return the contents of that file or null if no such file exists.
+	 */
+	default InputStream getFileStream(String sha) throws Exception {
+		byte[] data = getFile(sha);
+		if (data == null)
+			return null;
+
+		return new ByteArrayInputStream(data);
+	}
+
+	/**
+	 * Return the difference between the JAR file with the given SHA-1 and a JAR
+	 * that the agent already has. The agent passes the SHA-1 of the content of
+	 * each entry in its JAR. The result contains the names and digests of all
+	 * entries of the requested JAR and the content of the entries that differ.
+	 * Like {@link #getFileStream(String)}, this is only called when the link
+	 * uses the binary protocol.
+	 * 
+	 * @param sha the SHA-1 of the requested JAR
+	 * @param digests the entry names and content SHA-1s of the agent's JAR
+	 * @return the delta or null if no delta can be provided, the agent must
+	 *         then get the whole file
+	 */
+	default byte[] getDelta(String sha, Map<String, String> digests) throws Exception {
+		return null;
+	}
 }
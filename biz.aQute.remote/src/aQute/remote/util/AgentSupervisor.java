@@ -2,6 +2,7 @@ package aQute.remote.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
@@ -75,22 +76,46 @@ public class AgentSupervisor<Supervisor, Agent> {
 	}
 
 	public byte[] getFile(String sha) throws Exception {
+		File f = findFile(sha);
+		if (f == null)
+			return EMPTY;
+
+		byte[] data = IO.read(f);
+		return data;
+	}
+
+	public InputStream getFileStream(String sha) throws Exception {
+		File f = findFile(sha);
+		if (f == null)
+			return IO.stream(EMPTY);
+
+		return IO.stream(f);
+	}
+
+	public byte[] getDelta(String sha, Map<String, String> digests) throws Exception {
+		File f = findFile(sha);
+		if (f == null)
+			return null;
+
+		return JarDelta.delta(f, digests);
+	}
+
+	private File findFile(String sha) {
 		List<String> copy;
 		synchronized (shaInfo) {
 			List<String> list = shaInfo.get(sha);
 			if (list == null)
-				return EMPTY;
+				return null;
 
 			copy = new ArrayList<>(list);
 		}
 		for (String path : copy) {
 			File f = new File(path);
 			if (f.isFile()) {
-				byte[] data = IO.read(f);
-				return data;
+				return f;
 			}
 		}
-		return EMPTY;
+		return null;
 	}
 
 	public void setAgent(Link<Supervisor, Agent> link) {
@@ -0,0 +1,196 @@
+package aQute.remote.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
+
+/**
+ * Calculates and applies the difference between two JARs on the level of
+ * their entries. The side that has an old version of a JAR sends the SHA-1
+ * digests of its entries, the side with the new version answers with a delta.
+ * A delta is a ZIP file. Its first entry lists the digest and name of every
+ * entry in the new JAR, in order. The remaining entries are the entries whose
+ * content is not in the old JAR, in the same order.
+ * <p>
+ * A rebuilt JAR has the same entries, with the same content, times and extra
+ * fields, as the new JAR. Since the entries are compressed again it is only
+ * byte for byte identical when the new JAR was written with the default
+ * compression of a {@link ZipOutputStream}, as bnd does. Use
+ * {@link #rebuild(File, InputStream, File, String)} when the rebuilt JAR must
+ * have the SHA-1 of the new JAR, for example to store it in a SHA cache.
+ */
+public class JarDelta {
+	final static String	DIGESTS		= ".delta";
+	final static int	BUFFER_SIZE	= 64 * 1024;
+
+	/**
+	 * Calculate the digests of the entries in a JAR.
+	 *
+	 * @param jar the JAR file
+	 * @return a map of entry name to the SHA-1 of its content, in JAR order
+	 */
+	public static Map<String, String> digests(File jar) throws Exception {
+		Map<String, String> digests = new LinkedHashMap<>();
+		try (ZipFile zip = new ZipFile(jar)) {
+			for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+				ZipEntry entry = e.nextElement();
+				try (InputStream in = zip.getInputStream(entry)) {
+					digests.put(entry.getName(), digest(in, null));
+				}
+			}
+		}
+		return digests;
+	}
+
+	/**
+	 * Create a delta of a JAR against the digests of an older JAR.
+	 *
+	 * @param jar the new JAR
+	 * @param base the digests of the entries of the old JAR
+	 * @return the delta
+	 */
+	public static byte[] delta(File jar, Map<String, String> base) throws Exception {
+		Map<String, String> digests = digests(jar);
+
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (ZipOutputStream zout = new ZipOutputStream(bout); ZipFile zip = new ZipFile(jar)) {
+			zout.putNextEntry(new ZipEntry(DIGESTS));
+			StringBuilder sb = new StringBuilder();
+			for (Entry<String, String> e : digests.entrySet()) {
+				sb.append(e.getValue())
+					.append(' ')
+					.append(e.getKey())
+					.append('\n');
+			}
+			zout.write(sb.toString()
+				.getBytes(UTF_8));
+			zout.closeEntry();
+
+			for (Entry<String, String> e : digests.entrySet()) {
+				if (e.getValue()
+					.equals(base.get(e.getKey())))
+					continue;
+
+				ZipEntry entry = zip.getEntry(e.getKey());
+				ZipEntry copy = new ZipEntry(entry.getName());
+				copy.setTime(entry.getTime());
+				copy.setExtra(entry.getExtra());
+				zout.putNextEntry(copy);
+				try (InputStream in = zip.getInputStream(entry)) {
+					IO.copy(in, zout);
+				}
+				zout.closeEntry();
+			}
+		}
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Rebuild a new JAR from an old JAR and a delta. The content of every
+	 * entry is verified against the digest in the delta.
+	 *
+	 * @param base the old JAR
+	 * @param delta the delta
+	 * @param out the rebuilt JAR
+	 * @return true if the JAR was rebuilt, false if the delta did not match
+	 *         the old JAR
+	 */
+	public static boolean apply(File base, InputStream delta, File out) throws Exception {
+		try (ZipFile zip = new ZipFile(base); ZipInputStream zin = new ZipInputStream(delta);
+			ZipOutputStream zout = new ZipOutputStream(IO.outputStream(out))) {
+
+			ZipEntry listing = zin.getNextEntry();
+			if (listing == null || !DIGESTS.equals(listing.getName()))
+				return false;
+
+			//
+			// The reader is not closed since that would close the delta
+			//
+
+			Map<String, String> target = new LinkedHashMap<>();
+			BufferedReader reader = IO.reader(zin, UTF_8);
+			for (String line; (line = reader.readLine()) != null;) {
+				int n = line.indexOf(' ');
+				if (n < 0)
+					return false;
+				target.put(line.substring(n + 1), line.substring(0, n));
+			}
+			Map<String, String> digests = digests(base);
+
+			for (Entry<String, String> e : target.entrySet()) {
+				String name = e.getKey();
+				String digest = e.getValue();
+				ZipEntry entry = new ZipEntry(name);
+
+				if (digest.equals(digests.get(name))) {
+					ZipEntry original = zip.getEntry(name);
+					entry.setTime(original.getTime());
+					entry.setExtra(original.getExtra());
+					zout.putNextEntry(entry);
+					try (InputStream in = zip.getInputStream(original)) {
+						if (!digest.equals(digest(in, zout)))
+							return false;
+					}
+				} else {
+					ZipEntry changed = zin.getNextEntry();
+					if (changed == null || !name.equals(changed.getName()))
+						return false;
+					entry.setTime(changed.getTime());
+					entry.setExtra(changed.getExtra());
+					zout.putNextEntry(entry);
+					if (!digest.equals(digest(zin, zout)))
+						return false;
+				}
+				zout.closeEntry();
+			}
+			return zin.getNextEntry() == null;
+		}
+	}
+
+	/**
+	 * Rebuild a new JAR from an old JAR and a delta and verify that the
+	 * rebuilt JAR has the SHA-1 of the new JAR. If the delta does not match or
+	 * the rebuilt JAR is not identical to the new JAR, the output file is
+	 * deleted.
+	 *
+	 * @param base the old JAR
+	 * @param delta the delta
+	 * @param out the rebuilt JAR
+	 * @param sha the SHA-1 of the new JAR
+	 * @return true if the rebuilt JAR has the given SHA-1
+	 */
+	public static boolean rebuild(File base, InputStream delta, File out, String sha) throws Exception {
+		if (apply(base, delta, out) && SHA1.digest(out)
+			.asHex()
+			.equalsIgnoreCase(sha))
+			return true;
+		IO.delete(out);
+		return false;
+	}
+
+	private static String digest(InputStream in, OutputStream out) throws Exception {
+		Digester<SHA1> digester = out == null ? SHA1.getDigester() : SHA1.getDigester(out);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for (int size; (size = in.read(buffer, 0, buffer.length)) > 0;) {
+			digester.write(buffer, 0, size);
+		}
+		return digester.digest()
+			.asHex();
+	}
+}
@@ -1,11 +1,15 @@
 package aQute.remote.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
@@ -16,13 +20,18 @@ import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import aQute.lib.io.IO;
 import aQute.lib.json.JSONCodec;
 
 /**
@@ -30,6 +39,19 @@ import aQute.lib.json.JSONCodec;
  * implemented on the remote side. The methods on this subclass are then
  * available remotely. I.e. this is a two way street. Void messages are
  * asynchronous, other messages block to a reply.
+ * <p>
+ * Each side announces at start up that it understands the binary framed
+ * protocol with a message that older links ignore. Once the peer's announcement
+ * is received, all outgoing messages are sent as frames. In this mode
+ * {@code byte[]} and {@link InputStream} results are streamed in chunks so that
+ * large files are never encoded in a single message and other calls can be
+ * interleaved with a transfer. The sender of a stream only has a window of
+ * chunks outstanding, the receiver grants a new chunk for every chunk that is
+ * read. Incoming messages are always accepted in both formats.
+ * <p>
+ * When the link is transferred, the peer is told to fall back to the old
+ * format since the new link on the same connection has to announce itself
+ * again.
  * 
  * @param <R>
  */
@@ -37,13 +59,39 @@ public class Link<L, R> extends Thread implements Closeable {
 	private static final String[]			EMPTY		= new String[] {};
 	static JSONCodec						codec		= new JSONCodec();
 
+	/*
+	 * The hello command is not a valid Java identifier, an old link will not
+	 * find a method for it and ignore it.
+	 */
+	static final String						HELLO		= "link:binary";
+	static final int						HELLO_ACK	= 1;
+	static final String						RESET		= "link:reset";
+
+	/*
+	 * A frame starts with this byte. In the old format a message starts with
+	 * the high byte of the command name length, which is never this large.
+	 */
+	static final int						FRAME		= 0xFB;
+	static final int						CALL		= 1;
+	static final int						RESULT		= 2;
+	static final int						EXCEPTION	= 3;
+	static final int						STREAM		= 4;
+	static final int						CHUNK		= 5;
+	static final int						END			= 6;
+	static final int						CREDIT		= 7;
+	static final int						CHUNK_SIZE	= 64 * 1024;
+	static final int						WINDOW		= 16;
+
 	final DataInputStream					in;
 	final DataOutputStream					out;
 	final Class<R>							remoteClass;
 	final AtomicInteger						id			= new AtomicInteger(10000);
 	final ConcurrentMap<Integer, Result>	promises	= new ConcurrentHashMap<>();
+	final ConcurrentMap<Integer, ChunkedInputStream>	streams		= new ConcurrentHashMap<>();
+	final ConcurrentMap<Integer, Window>	windows		= new ConcurrentHashMap<>();
 	final AtomicBoolean						quit		= new AtomicBoolean(false);
 	volatile boolean						transfer	= false;
+	volatile boolean						binary		= false;
 	private ThreadLocal<Integer>			msgid		= new ThreadLocal<>();
 
 	R										remote;
@@ -53,9 +101,116 @@ public class Link<L, R> extends Thread implements Closeable {
 	static class Result {
 		boolean			resolved;
 		byte[]			value;
+		InputStream		stream;
 		public boolean	exception;
 	}
 
+	/*
+	 * The chunks a sender may still send before it has to wait for the
+	 * receiver
+	 */
+	static class Window {
+		final Semaphore		credits	= new Semaphore(WINDOW);
+		volatile boolean	cancelled;
+
+		void cancel() {
+			cancelled = true;
+			credits.release();
+		}
+	}
+
+	/*
+	 * Receives the chunks of a streamed result from the link thread. The
+	 * queue holds at most a window of chunks and the end or abort marker.
+	 */
+	static class ChunkedInputStream extends InputStream {
+		static final byte[]				EOF		= new byte[0];
+		static final byte[]				ABORT	= new byte[0];
+		final BlockingQueue<byte[]>		chunks	= new LinkedBlockingQueue<>(WINDOW + 2);
+		final Link<?, ?>				link;
+		final int						id;
+		byte[]							current	= EOF;
+		int								position;
+		boolean							eof;
+
+		ChunkedInputStream(Link<?, ?> link, int id) {
+			this.link = link;
+			this.id = id;
+		}
+
+		boolean add(byte[] chunk) {
+			return chunks.offer(chunk);
+		}
+
+		void end() {
+			chunks.add(EOF);
+		}
+
+		void abort() {
+			chunks.add(ABORT);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+			return current[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int n = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return current.length - position;
+		}
+
+		private boolean fill() throws IOException {
+			while (position >= current.length) {
+				if (eof)
+					return false;
+				byte[] next;
+				try {
+					next = chunks.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread()
+						.interrupt();
+					throw new InterruptedIOException("Interrupted while streaming");
+				}
+				if (next == EOF) {
+					eof = true;
+					return false;
+				}
+				if (next == ABORT)
+					throw new IOException("Link closed while streaming");
+				current = next;
+				position = 0;
+				link.credit(id, 1);
+			}
+			return true;
+		}
+
+		@Override
+		public void close() {
+			if (eof)
+				return;
+			eof = true;
+			current = EOF;
+			chunks.clear();
+			if (link.streams.remove(id, this))
+				link.credit(id, -1);
+		}
+	}
+
 	public Link(Class<R> remoteType, L local, InputStream in, OutputStream out) {
 		this(remoteType, local, new DataInputStream(in), new DataOutputStream(out));
 	}
@@ -66,8 +221,8 @@ public class Link<L, R> extends Thread implements Closeable {
 		setDaemon(true);
 		this.remoteClass = remoteType;
 		this.local = local == null ? (L) this : local;
-		this.in = new DataInputStream(in);
-		this.out = new DataOutputStream(out);
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
 	}
 
 	public Link(Class<R> type, L local, Socket socket) throws IOException {
@@ -102,9 +257,22 @@ public class Link<L, R> extends Thread implements Closeable {
 					out.close();
 				} catch (Exception e) {}
 		}
+		reset();
 		executor.shutdownNow();
 	}
 
+	/*
+	 * Abort the streams that are received and stop the streams that are sent
+	 */
+	private void reset() {
+		streams.values()
+			.forEach(ChunkedInputStream::abort);
+		streams.clear();
+		windows.values()
+			.forEach(Window::cancel);
+		windows.clear();
+	}
+
 	@SuppressWarnings("unchecked")
 	public synchronized R getRemote() {
 		if (quit.get())
@@ -152,37 +320,53 @@ public class Link<L, R> extends Thread implements Closeable {
 		return remote;
 	}
 
+	/**
+	 * Answer if the peer understands the binary framed protocol. This is only
+	 * known after the peer has announced itself, shortly after the link is
+	 * opened.
+	 * 
+	 * @return true if messages are sent as frames
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+
 	@Override
 	public void run() {
+		try {
+			announce(HELLO, 0);
+		} catch (Exception e) {
+			terminate(e);
+			return;
+		}
+
 		while (!isInterrupted() && !transfer && !quit.get())
 			try {
-				final String cmd = in.readUTF();
+				int first = in.readUnsignedByte();
+				if (first == FRAME) {
+					receiveFrame();
+					continue;
+				}
+
+				final String cmd = readUTF(first, in);
 				trace("rx " + cmd);
 				final int id = in.readInt();
 
 				int count = in.readShort();
-				final List<byte[]> args = new ArrayList<>(count);
-				for (int i = 0; i < count; i++) {
-					int length = in.readInt();
-					byte[] data = new byte[length];
-					in.readFully(data);
-					args.add(data);
-				}
-
-				Runnable r = new Runnable() {
-					@Override
-					public void run() {
-						try {
-							msgid.set(id);
-							executeCommand(cmd, id, args);
-						} catch (Exception e) {
-							// e.printStackTrace();
-						}
-						msgid.set(-1);
-					}
+				final List<byte[]> args = readArgs(count);
 
-				};
-				executor.execute(r);
+				if (cmd.equals(HELLO)) {
+					binary = true;
+					if (id != HELLO_ACK)
+						announce(HELLO, HELLO_ACK);
+					continue;
+				}
+				if (cmd.equals(RESET)) {
+					binary = false;
+					reset();
+					continue;
+				}
+				dispatch(cmd, id, args);
 			} catch (SocketTimeoutException ee) {
 				// Ignore, just to allow polling the actors again
 			} catch (Exception ee) {
@@ -192,6 +376,127 @@ public class Link<L, R> extends Thread implements Closeable {
 			}
 	}
 
+	private void dispatch(final String cmd, final int id, final List<byte[]> args) {
+		Runnable r = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					msgid.set(id);
+					executeCommand(cmd, id, args);
+				} catch (Exception e) {
+					// e.printStackTrace();
+				}
+				msgid.set(-1);
+			}
+
+		};
+		executor.execute(r);
+	}
+
+	/*
+	 * Responses and chunks are handled on the link thread since the chunks of
+	 * a stream must be kept in order.
+	 */
+	private void receiveFrame() throws IOException {
+		int type = in.readUnsignedByte();
+		int id = in.readInt();
+		trace("rx frame " + type);
+		switch (type) {
+			case CALL :
+				String cmd = in.readUTF();
+				int count = in.readShort();
+				dispatch(cmd, id, readArgs(count));
+				break;
+
+			case RESULT :
+				response(id, readData(), null);
+				break;
+
+			case EXCEPTION :
+				response(-id, readData(), null);
+				break;
+
+			case STREAM :
+				ChunkedInputStream stream = new ChunkedInputStream(this, id);
+				streams.put(id, stream);
+				response(id, null, stream);
+				break;
+
+			case CHUNK :
+				byte[] data = readData();
+				ChunkedInputStream s = streams.get(id);
+				if (s != null && data != null && !s.add(data))
+					throw new IOException("Stream " + id + " exceeds the window of " + WINDOW + " chunks");
+				break;
+
+			case END :
+				ChunkedInputStream e = streams.remove(id);
+				if (e != null)
+					e.end();
+				break;
+
+			case CREDIT :
+				int credit = in.readInt();
+				Window w = windows.get(id);
+				if (w != null) {
+					if (credit < 0)
+						w.cancel();
+					else
+						w.credits.release(credit);
+				}
+				break;
+
+			default :
+				throw new IOException("Unknown frame type " + type);
+		}
+	}
+
+	private List<byte[]> readArgs(int count) throws IOException {
+		List<byte[]> args = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int length = in.readInt();
+			byte[] data = new byte[length];
+			in.readFully(data);
+			args.add(data);
+		}
+		return args;
+	}
+
+	private byte[] readData() throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] data = new byte[length];
+		in.readFully(data);
+		return data;
+	}
+
+	/*
+	 * Read the rest of a modified UTF-8 string of which the first byte was
+	 * already read
+	 */
+	static String readUTF(int first, DataInputStream in) throws IOException {
+		int second = in.readUnsignedByte();
+		int length = (first << 8) | second;
+		byte[] data = new byte[length + 2];
+		data[0] = (byte) first;
+		data[1] = (byte) second;
+		in.readFully(data, 2, length);
+		return new DataInputStream(new ByteArrayInputStream(data)).readUTF();
+	}
+
+	/*
+	 * Announce a change of the protocol in the old format
+	 */
+	private void announce(String cmd, int id) throws IOException {
+		synchronized (out) {
+			out.writeUTF(cmd);
+			out.writeInt(id);
+			out.writeShort(0);
+			out.flush();
+		}
+	}
+
 	/*
 	 * Signalling function /
 	 */
@@ -220,30 +525,36 @@ public class Link<L, R> extends Thread implements Closeable {
 	int send(int msgId, Method m, Object args[]) throws Exception {
 		if (m != null)
 			promises.put(msgId, new Result());
+		if (args == null)
+			args = EMPTY;
+
 		trace("send");
+		if (binary) {
+			if (m != null)
+				call(msgId, m.getName(), args);
+			else if (msgId < 0)
+				frame(EXCEPTION, -msgId, encode(args[0]));
+			else if (args[0] == null)
+				frame(RESULT, msgId, null);
+			else if (args[0] instanceof InputStream)
+				stream(msgId, (InputStream) args[0]);
+			else if (args[0] instanceof byte[] && ((byte[]) args[0]).length > CHUNK_SIZE)
+				stream(msgId, new ByteArrayInputStream((byte[]) args[0]));
+			else
+				frame(RESULT, msgId, encode(args[0]));
+			trace("sent");
+			return msgId;
+		}
+
 		synchronized (out) {
 			out.writeUTF(m != null ? m.getName() : "");
 			out.writeInt(msgId);
-			if (args == null)
-				args = EMPTY;
 
 			out.writeShort(args.length);
 			for (int i = 0; i < args.length; i++) {
-				Object arg = args[i];
-
-				if (arg instanceof byte[]) {
-					byte[] data = (byte[]) arg;
-					out.writeInt(data.length);
-					out.write(data);
-				} else {
-					ByteArrayOutputStream bout = new ByteArrayOutputStream();
-					codec.enc()
-						.to(bout)
-						.put(arg);
-					byte[] data = bout.toByteArray();
-					out.writeInt(data.length);
-					out.write(data);
-				}
+				byte[] data = encode(args[i]);
+				out.writeInt(data.length);
+				out.write(data);
 			}
 			out.flush();
 			trace("sent");
@@ -251,7 +562,119 @@ public class Link<L, R> extends Thread implements Closeable {
 		return msgId;
 	}
 
-	void response(int msgId, byte[] data) {
+	private void call(int msgId, String name, Object[] args) throws Exception {
+		byte[][] data = new byte[args.length][];
+		for (int i = 0; i < args.length; i++)
+			data[i] = encode(args[i]);
+
+		synchronized (out) {
+			out.writeByte(FRAME);
+			out.writeByte(CALL);
+			out.writeInt(msgId);
+			out.writeUTF(name);
+			out.writeShort(data.length);
+			for (byte[] d : data) {
+				out.writeInt(d.length);
+				out.write(d);
+			}
+			out.flush();
+		}
+	}
+
+	/*
+	 * Send the content in chunks. Every chunk is a separate frame so other
+	 * messages can be sent in between. A chunk is only sent when the receiver
+	 * has granted a credit for it.
+	 */
+	private void stream(int msgId, InputStream content) throws IOException {
+		Window window = new Window();
+		windows.put(msgId, window);
+		try (InputStream in = content) {
+			frame(STREAM, msgId, null);
+			byte[] buffer = new byte[CHUNK_SIZE];
+			for (int n; (n = in.read(buffer)) != -1;) {
+				if (n > 0) {
+					if (!acquire(window))
+						break;
+					frame(CHUNK, msgId, buffer, n);
+				}
+			}
+			frame(END, msgId, null);
+		} finally {
+			windows.remove(msgId, window);
+		}
+	}
+
+	/*
+	 * Wait for a credit, answer false if the receiver cancelled the stream
+	 */
+	private boolean acquire(Window window) throws IOException {
+		try {
+			while (!window.credits.tryAcquire(500, TimeUnit.MILLISECONDS)) {
+				if (quit.get())
+					throw new IOException("Link closed while streaming");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			throw new InterruptedIOException("Interrupted while streaming");
+		}
+		return !window.cancelled;
+	}
+
+	/*
+	 * Grant the sender of a stream more chunks, a negative credit cancels the
+	 * stream
+	 */
+	void credit(int msgId, int credit) {
+		if (!binary || quit.get())
+			return;
+		try {
+			synchronized (out) {
+				out.writeByte(FRAME);
+				out.writeByte(CREDIT);
+				out.writeInt(msgId);
+				out.writeInt(credit);
+				out.flush();
+			}
+		} catch (IOException e) {
+			terminate(e);
+		}
+	}
+
+	private void frame(int type, int msgId, byte[] data) throws IOException {
+		frame(type, msgId, data, data == null ? -1 : data.length);
+	}
+
+	private void frame(int type, int msgId, byte[] data, int length) throws IOException {
+		synchronized (out) {
+			out.writeByte(FRAME);
+			out.writeByte(type);
+			out.writeInt(msgId);
+			if (type != STREAM && type != END) {
+				out.writeInt(length);
+				if (length > 0)
+					out.write(data, 0, length);
+			}
+			out.flush();
+		}
+	}
+
+	private byte[] encode(Object arg) throws Exception {
+		if (arg instanceof byte[])
+			return (byte[]) arg;
+
+		if (arg instanceof InputStream)
+			return IO.read((InputStream) arg);
+
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		codec.enc()
+			.to(bout)
+			.put(arg);
+		return bout.toByteArray();
+	}
+
+	void response(int msgId, byte[] data, InputStream stream) {
 		boolean exception = false;
 		if (msgId < 0) {
 			msgId = -msgId;
@@ -263,6 +686,7 @@ public class Link<L, R> extends Thread implements Closeable {
 			synchronized (o) {
 				trace("resolved");
 				o.value = data;
+				o.stream = stream;
 				o.exception = exception;
 				o.resolved = true;
 				o.notifyAll();
@@ -280,6 +704,19 @@ public class Link<L, R> extends Thread implements Closeable {
 				synchronized (result) {
 					if (result.resolved) {
 
+						if (result.stream != null) {
+							if (type == InputStream.class)
+								return (T) result.stream;
+
+							byte[] data = IO.read(result.stream);
+							if (type == byte[].class)
+								return (T) data;
+
+							return (T) codec.dec()
+								.from(data)
+								.get(type);
+						}
+
 						if (result.value == null)
 							return null;
 
@@ -294,6 +731,9 @@ public class Link<L, R> extends Thread implements Closeable {
 						if (type == byte[].class)
 							return (T) result.value;
 
+						if (type == InputStream.class)
+							return (T) new ByteArrayInputStream(result.value);
+
 						T value = (T) codec.dec()
 							.from(result.value)
 							.get(type);
@@ -325,7 +765,7 @@ public class Link<L, R> extends Thread implements Closeable {
 
 	void executeCommand(final String cmd, final int id, final List<byte[]> args) throws Exception {
 		if (cmd.isEmpty())
-			response(id, args.get(0));
+			response(id, args.get(0), null);
 		else {
 
 			Method m = getMethod(cmd, args.size());
@@ -400,6 +840,15 @@ public class Link<L, R> extends Thread implements Closeable {
 		quit.set(true);
 		interrupt();
 		join();
+		//
+		// The peer must not send frames before the link that takes over this
+		// connection has announced itself. The reset is sent before the
+		// result so the peer has switched before it can send again.
+		//
+		if (binary) {
+			binary = false;
+			announce(RESET, 0);
+		}
 		if (result != null)
 			send(msgid.get(), null, new Object[] {
 				result
@@ -0,0 +1,97 @@
+package biz.aQute.remote;
+
+import java.io.File;
+import java.util.Map;
+
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Jar;
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA1;
+import aQute.remote.util.JarDelta;
+import junit.framework.TestCase;
+
+public class JarDeltaTest extends TestCase {
+	private File tmp;
+
+	@Override
+	protected void setUp() throws Exception {
+		tmp = IO.getFile("generated/tmp/" + getName());
+		IO.delete(tmp);
+		IO.mkdirs(tmp);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		IO.delete(tmp);
+	}
+
+	public void testDelta() throws Exception {
+		File base = new File(tmp, "base.jar");
+		File target = new File(tmp, "target.jar");
+		File rebuilt = new File(tmp, "rebuilt.jar");
+
+		try (Jar jar = new Jar("base")) {
+			jar.putResource("a/same.txt", new EmbeddedResource("same", 0L));
+			jar.putResource("a/changed.txt", new EmbeddedResource("old", 0L));
+			jar.putResource("a/removed.txt", new EmbeddedResource("removed", 0L));
+			jar.write(base);
+		}
+		try (Jar jar = new Jar("target")) {
+			jar.putResource("a/same.txt", new EmbeddedResource("same", 0L));
+			jar.putResource("a/changed.txt", new EmbeddedResource("new", 0L));
+			jar.putResource("b/added.txt", new EmbeddedResource("added", 0L));
+			jar.write(target);
+		}
+
+		byte[] delta = JarDelta.delta(target, JarDelta.digests(base));
+		assertTrue(JarDelta.apply(base, IO.stream(delta), rebuilt));
+
+		Map<String, String> expected = JarDelta.digests(target);
+		assertEquals(expected, JarDelta.digests(rebuilt));
+		try (Jar jar = new Jar(rebuilt)) {
+			assertNull(jar.getResource("a/removed.txt"));
+			assertEquals("new", IO.collect(jar.getResource("a/changed.txt")
+				.openInputStream()));
+		}
+
+		//
+		// A delta against other digests does not match the base
+		//
+
+		delta = JarDelta.delta(target, JarDelta.digests(target));
+		assertFalse(JarDelta.apply(base, IO.stream(delta), rebuilt));
+	}
+
+	public void testRebuildVerifiesDigest() throws Exception {
+		File base = new File(tmp, "base.jar");
+		File target = new File(tmp, "target.jar");
+		File rebuilt = new File(tmp, "rebuilt.jar");
+
+		try (Jar jar = new Jar("base")) {
+			jar.putResource("a/same.txt", new EmbeddedResource("same", 0L));
+			jar.putResource("a/changed.txt", new EmbeddedResource("old", 0L));
+			jar.write(base);
+		}
+		try (Jar jar = new Jar("target")) {
+			jar.putResource("a/same.txt", new EmbeddedResource("same", 0L));
+			jar.putResource("a/changed.txt", new EmbeddedResource("new", 0L));
+			jar.write(target);
+		}
+		byte[] delta = JarDelta.delta(target, JarDelta.digests(base));
+
+		//
+		// A rebuilt JAR with the same entries but another SHA-1 is rejected
+		//
+
+		String other = SHA1.digest(base)
+			.asHex();
+		assertFalse(JarDelta.rebuild(base, IO.stream(delta), rebuilt, other));
+		assertFalse(rebuilt.exists());
+
+		String sha = SHA1.digest(target)
+			.asHex();
+		assertTrue(JarDelta.rebuild(base, IO.stream(delta), rebuilt, sha));
+		assertEquals(sha, SHA1.digest(rebuilt)
+			.asHex());
+	}
+}
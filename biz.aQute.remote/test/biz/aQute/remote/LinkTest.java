@@ -1,5 +1,6 @@
 package biz.aQute.remote;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -7,8 +8,10 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import aQute.lib.io.IO;
 import aQute.remote.util.Link;
 import junit.framework.TestCase;
 
@@ -43,6 +46,10 @@ public class LinkTest extends TestCase {
 		int foo();
 
 		void abort() throws IOException;
+
+		byte[] bytes(int size);
+
+		InputStream stream(int size);
 	}
 
 	interface Local {
@@ -101,6 +108,83 @@ public class LinkTest extends TestCase {
 			link.getRemote()
 				.aborted();
 		}
+
+		@Override
+		public byte[] bytes(int size) {
+			return data(size);
+		}
+
+		@Override
+		public InputStream stream(int size) {
+			return new ByteArrayInputStream(data(size));
+		}
+	}
+
+	static byte[] data(int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) (i * 31);
+		return data;
+	}
+
+	/**
+	 * Test that both sides switch to the binary protocol and that large
+	 * results are streamed in chunks
+	 * 
+	 * @throws Exception
+	 */
+
+	public void testBinary() throws Exception {
+		localImpl.link.open();
+		remoteImpl.link.open();
+
+		for (int i = 0; i < 100 && !(localImpl.link.isBinary() && remoteImpl.link.isBinary()); i++)
+			Thread.sleep(10);
+		assertTrue(localImpl.link.isBinary());
+		assertTrue(remoteImpl.link.isBinary());
+
+		Remote remote = localImpl.link.getRemote();
+		assertEquals(-42, remote.foo());
+		assertTrue(Arrays.equals(data(10), remote.bytes(10)));
+		assertTrue(Arrays.equals(data(300_000), remote.bytes(300_000)));
+		try (InputStream in = remote.stream(1_000_000)) {
+			assertTrue(Arrays.equals(data(1_000_000), IO.read(in)));
+		}
+		try (InputStream in = remote.stream(0)) {
+			assertEquals(-1, in.read());
+		}
+		assertEquals(42, remoteImpl.link.getRemote()
+			.bar());
+	}
+
+	/**
+	 * Test that a stream that is read slowly or closed early does not block
+	 * the link
+	 * 
+	 * @throws Exception
+	 */
+
+	public void testStreamWindow() throws Exception {
+		localImpl.link.open();
+		remoteImpl.link.open();
+		waitForBinary(localImpl.link, true);
+		waitForBinary(remoteImpl.link, true);
+
+		Remote remote = localImpl.link.getRemote();
+		try (InputStream in = remote.stream(5_000_000)) {
+			Thread.sleep(200);
+			assertEquals(-42, remote.foo());
+			assertTrue(Arrays.equals(data(5_000_000), IO.read(in)));
+		}
+
+		InputStream in = remote.stream(5_000_000);
+		assertEquals(0, in.read());
+		in.close();
+		assertEquals(-1, in.read());
+		assertEquals(-42, remote.foo());
+		try (InputStream again = remote.stream(1_000_000)) {
+			assertTrue(Arrays.equals(data(1_000_000), IO.read(again)));
+		}
 	}
 
 	/**
@@ -115,12 +199,20 @@ public class LinkTest extends TestCase {
 
 		assertEquals(-42, localImpl.link.getRemote()
 			.foo());
+		waitForBinary(remoteImpl.link, true);
 		localImpl.link.transfer(null);
+		waitForBinary(remoteImpl.link, false);
 
 		LocalImpl newer = new LocalImpl(Remote.class, localImpl.link.getInput(), localImpl.link.getOutput());
 		newer.link.open();
 		assertEquals(-42, newer.link.getRemote()
 			.foo());
+		waitForBinary(newer.link, true);
+		waitForBinary(remoteImpl.link, true);
+		try (InputStream in = newer.link.getRemote()
+			.stream(1_000_000)) {
+			assertTrue(Arrays.equals(data(1_000_000), IO.read(in)));
+		}
 		newer.link.close();
 
 		Thread.sleep(100);
@@ -130,6 +222,12 @@ public class LinkTest extends TestCase {
 		newer.close();
 	}
 
+	private static void waitForBinary(Link<?, ?> link, boolean binary) throws InterruptedException {
+		for (int i = 0; i < 100 && link.isBinary() != binary; i++)
+			Thread.sleep(10);
+		assertEquals(binary, link.isBinary());
+	}
+
 	/**
 	 * Test simple
 	 * 
@@ -55,6 +55,7 @@ import aQute.service.reporter.Reporter;
 public class BndPomRepository extends BaseRepository
 	implements Plugin, RegistryPlugin, RepositoryPlugin, Refreshable, Actionable, Closeable {
 	private static final String	MAVEN_REPO_LOCAL	= System.getProperty("maven.repo.local", "~/.m2/repository");
+	private static final String	POM_MODEL_CACHE		= "pom-model";
 	private static final int	DEFAULT_POLL_TIME	= 300;
 
 	private boolean				inited;
@@ -89,6 +90,7 @@ public class BndPomRepository extends BaseRepository
 
 			MavenRepository repository = new MavenRepository(localRepo, name, release, snapshot, client.promiseFactory()
 				.executor(), reporter);
+			repository.setModelCache(workspace.getCache(POM_MODEL_CACHE));
 
 			boolean transitive = configuration.transitive(true);
 
@@ -80,6 +80,7 @@ public class MavenBndRepository extends BaseRepository implements RepositoryPlug
 
 	private static final String	NONE				= "NONE";
 	private static final String	MAVEN_REPO_LOCAL	= System.getProperty("maven.repo.local", "~/.m2/repository");
+	private static final String	POM_MODEL_CACHE		= "pom-model";
 	private Configuration		configuration;
 	private Registry			registry;
 	private File				localRepo;
@@ -502,14 +503,19 @@ public class MavenBndRepository extends BaseRepository implements RepositoryPlug
 				localRepo, client);
 			List<MavenBackingRepository> snapshot = MavenBackingRepository.create(configuration.snapshotUrl(), reporter,
 				localRepo, client);
-			storage = new MavenRepository(localRepo, getName(), release, snapshot, client.promiseFactory()
-				.executor(), reporter);
+			MavenRepository repository = new MavenRepository(localRepo, getName(), release, snapshot,
+				client.promiseFactory()
+					.executor(),
+				reporter);
+			storage = repository;
 
 			File base = IO.work;
 			if (registry != null) {
 				Workspace ws = registry.getPlugin(Workspace.class);
-				if (ws != null)
+				if (ws != null) {
 					base = ws.getBuildDir();
+					repository.setModelCache(ws.getCache(POM_MODEL_CACHE));
+				}
 			}
 
 			File indexFile = IO.getFile(base, configuration.index(name.toLowerCase() + ".mvn"));
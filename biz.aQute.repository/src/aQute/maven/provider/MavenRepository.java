@@ -8,11 +8,11 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
-import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -43,7 +43,20 @@ public class MavenRepository implements IMavenRepo, Closeable {
 	private final List<MavenBackingRepository>	snapshot	= new ArrayList<>();
 	private final PromiseFactory				promiseFactory;
 	private final boolean						localOnly;
-	private final Map<Revision, Promise<POM>>	poms		= new WeakHashMap<>();
+	private volatile File						modelCache;
+	private final static int					MAX_POMS	= 4096;
+	/*
+	 * The POMs are kept while they are used, parents and BOMs are shared by
+	 * many POMs and are traversed over and over again
+	 */
+	@SuppressWarnings("serial")
+	private final Map<Revision, Promise<POM>>	poms		= new LinkedHashMap<Revision, Promise<POM>>(64, 0.75f,
+		true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Revision, Promise<POM>> eldest) {
+			return size() > MAX_POMS;
+		}
+	};
 
 	public MavenRepository(File base, String id, List<MavenBackingRepository> release,
 		List<MavenBackingRepository> snapshot, Executor executor, Reporter reporter) throws Exception {
@@ -304,8 +317,25 @@ public class MavenRepository implements IMavenRepo, Closeable {
 		return new POM(this, pomFile, true);
 	}
 
-	private POM getPom(File pomFile) throws Exception {
-		return new POM(this, pomFile, true);
+	/**
+	 * Cache the parsed content of release POMs in the given directory. The
+	 * cache is kept out of the local repository since it is not Maven content.
+	 *
+	 * @param modelCache the directory for the cache or {@code null} to parse
+	 *            the POMs every time
+	 */
+	public void setModelCache(File modelCache) {
+		this.modelCache = modelCache;
+	}
+
+	/*
+	 * The parsed content of a release POM can be cached since a release never
+	 * changes
+	 */
+	private POM getPom(Revision revision, File pomFile) throws Exception {
+		File cache = (modelCache == null || revision.isSnapshot()) ? null
+			: IO.getFile(modelCache, revision.pomArchive().localPath + ".model");
+		return new POM(this, pomFile, true, cache);
 	}
 
 	@Override
@@ -332,13 +362,30 @@ public class MavenRepository implements IMavenRepo, Closeable {
 				return null;
 			}
 			try {
-				return getPom(pomFile);
+				return getPom(revision, pomFile);
 			} catch (Exception e) {
 				logger.error("Failed to parse pom {} from file {}", revision, pomFile, e);
 				return null;
 			}
 		}));
-		return deferred.getPromise();
+		Promise<POM> promise = deferred.getPromise();
+
+		//
+		// A missing POM might show up later so we do not remember it
+		//
+
+		promise.onSuccess(pom -> {
+			if (pom == null)
+				forget(revision, promise);
+		})
+			.onFailure(failure -> forget(revision, promise));
+		return promise;
+	}
+
+	private void forget(Revision revision, Promise<POM> promise) {
+		synchronized (poms) {
+			poms.remove(revision, promise);
+		}
 	}
 
 	@Override
@@ -17,20 +17,9 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import aQute.bnd.version.MavenVersion;
 import aQute.lib.io.ByteBufferInputStream;
@@ -49,15 +38,12 @@ import aQute.maven.api.Revision;
 public class POM implements IPom {
 	static Logger						l						= LoggerFactory.getLogger(POM.class);
 
-	static DocumentBuilderFactory		dbf						= DocumentBuilderFactory.newInstance();
-	static XPathFactory					xpf						= XPathFactory.newInstance();
 	private Revision					revision;
 	private String						packaging;
 	private final Properties			properties;
 	private final POM					parent;
 	private Map<Program, Dependency>	dependencies			= new LinkedHashMap<>();
 	private Map<Program, Dependency>	dependencyManagement	= new LinkedHashMap<>();
-	private XPath						xp;
 	private String[]					JAR_PACKAGING			= {
 		"bundle", "eclipse-plugin", "eclipse-test-plugin", "pom"
 	};
@@ -85,15 +71,10 @@ public class POM implements IPom {
 	}
 
 	public POM(MavenRepository repo, InputStream in, boolean ignoreParentIfAbsent) throws Exception {
-		this(repo, IO.work, getDocBuilder().parse(processEntities(in)), ignoreParentIfAbsent);
-	}
-
-	private static DocumentBuilder getDocBuilder() throws ParserConfigurationException {
-		DocumentBuilder db = dbf.newDocumentBuilder();
-		return db;
+		this(repo, IO.work, PomModel.parse(processEntities(in)), ignoreParentIfAbsent);
 	}
 
-	private static InputStream processEntities(InputStream in) throws IOException {
+	static InputStream processEntities(InputStream in) throws IOException {
 		ByteBuffer bb = IO.copy(in, new ByteBufferOutputStream(in.available() + 1))
 			.toByteBuffer();
 		return processEntities(bb);
@@ -139,10 +120,20 @@ public class POM implements IPom {
 	}
 
 	public POM(MavenRepository repo, File file, boolean ignoreIfParentAbsent) throws Exception {
-		this(repo, file.getParentFile(), getDocBuilder().parse(processEntities(file)), ignoreIfParentAbsent);
+		this(repo, file, ignoreIfParentAbsent, null);
+	}
+
+	/**
+	 * Parse a POM file and optionally cache the parsed content.
+	 *
+	 * @param cache the file to cache the parsed content of the POM in, or
+	 *            {@code null}. Only use a cache for POMs that never change.
+	 */
+	POM(MavenRepository repo, File file, boolean ignoreIfParentAbsent, File cache) throws Exception {
+		this(repo, file.getParentFile(), PomModel.read(file, cache), ignoreIfParentAbsent);
 	}
 
-	private static InputStream processEntities(File file) throws IOException {
+	static InputStream processEntities(File file) throws IOException {
 		try (FileChannel in = IO.readChannel(file.toPath())) {
 			ByteBuffer bb = ByteBuffer.allocate((int) in.size());
 			while (in.read(bb) > 0) {}
@@ -156,18 +147,17 @@ public class POM implements IPom {
 	}
 
 	public POM(MavenRepository repo, Document doc, boolean ignoreIfParentAbsent) throws Exception {
-		this(repo, IO.work, doc, ignoreIfParentAbsent);
+		this(repo, IO.work, PomModel.from(doc), ignoreIfParentAbsent);
 	}
 
-	private POM(MavenRepository repo, File base, Document doc, boolean ignoreIfParentAbsent) throws Exception {
+	private POM(MavenRepository repo, File base, PomModel model, boolean ignoreIfParentAbsent) throws Exception {
 		this.repo = repo;
 		this.ignoreParentIfAbsent = ignoreIfParentAbsent;
-		xp = xpf.newXPath();
 
-		String parentGroup = Strings.trim(xp.evaluate("project/parent/groupId", doc));
-		String parentArtifact = Strings.trim(xp.evaluate("project/parent/artifactId", doc));
-		String parentVersion = Strings.trim(xp.evaluate("project/parent/version", doc));
-		String relativePath = Strings.trim(xp.evaluate("project/parent/relativePath", doc));
+		String parentGroup = model.parent("groupId");
+		String parentArtifact = model.parent("artifactId");
+		String parentVersion = model.parent("version");
+		String relativePath = model.parent("relativePath");
 		if (!parentGroup.isEmpty() && !parentArtifact.isEmpty() && !parentVersion.isEmpty()) {
 
 			Program program = Program.valueOf(parentGroup, parentArtifact);
@@ -206,12 +196,8 @@ public class POM implements IPom {
 
 		this.properties = new Properties(this.parent.properties);
 
-		Element project = doc.getDocumentElement();
-		index(project, "project.", "modelVersion", "groupId", "artifactId", "version", "packaging");
-
-		NodeList props = (NodeList) xp.evaluate("properties", project, XPathConstants.NODESET);
-		for (int i = 0; i < props.getLength(); i++)
-			index((Element) props.item(i), "");
+		index(model.project, "project.");
+		index(model.properties, "");
 
 		String group = get("project.groupId", parentGroup);
 		String artifact = getNoInheritance("project.artifactId", null);
@@ -240,28 +226,22 @@ public class POM implements IPom {
 		properties.put("pom.currentVersion", version);
 		properties.put("pom.packaging", this.packaging);
 
-		NodeList dependencies = (NodeList) xp.evaluate("project/dependencies/dependency", doc, XPathConstants.NODESET);
-		for (int i = 0; i < dependencies.getLength(); i++) {
-			Element dependency = (Element) dependencies.item(i);
+		for (Map<String, String> dependency : model.dependencies) {
 			Dependency d = dependency(dependency);
 			this.dependencies.put(d.program, d);
 		}
 
-		NodeList dependencyManagement = (NodeList) xp.evaluate("project/dependencyManagement/dependencies/dependency",
-			doc, XPathConstants.NODESET);
-		for (int i = 0; i < dependencyManagement.getLength(); i++) {
-			Element dependency = (Element) dependencyManagement.item(i);
+		for (Map<String, String> dependency : model.dependencyManagement) {
 			Dependency d = dependency(dependency);
 			this.dependencyManagement.put(d.program, d);
 		}
-		xp = null;
 	}
 
 	private MavenVersion getVersion() {
 		return revision.version;
 	}
 
-	private Dependency dependency(Element dependency) throws Exception {
+	private Dependency dependency(Map<String, String> dependency) throws Exception {
 		String groupId = get(dependency, "groupId", "<no group>");
 		String artifactId = get(dependency, "artifactId", "<no artifact>");
 		Dependency d = new Dependency();
@@ -307,8 +287,8 @@ public class POM implements IPom {
 		return "true".equalsIgnoreCase(other);
 	}
 
-	private String get(Element dependency, String name, String deflt) throws XPathExpressionException {
-		String value = xp.evaluate(name, dependency);
+	private String get(Map<String, String> dependency, String name, String deflt) {
+		String value = dependency.get(name);
 		if (value == null || value.isEmpty())
 			return Strings.trim(deflt);
 
@@ -360,29 +340,10 @@ public class POM implements IPom {
 		return sb.toString();
 	}
 
-	private void index(Element node, String prefix, String... names) throws XPathExpressionException {
-		String expr = "./*";
-		if (names.length > 0) {
-			StringBuilder sb = new StringBuilder("./*[");
-			String del = "name()=";
-			for (String name : names) {
-				sb.append(del)
-					.append('"')
-					.append(name)
-					.append('"');
-				del = " or name()=";
-			}
-			sb.append("]");
-			expr = sb.toString();
-		}
-
-		NodeList childNodes = (NodeList) xp.evaluate(expr, node, XPathConstants.NODESET);
-		for (int i = 0; i < childNodes.getLength(); i++) {
-			Node child = childNodes.item(i);
-			String key = child.getNodeName();
-			String value = child.getTextContent()
-				.trim();
-			properties.put(prefix + key, value);
+	private void index(Map<String, String> values, String prefix) {
+		for (Map.Entry<String, String> e : values.entrySet()) {
+			properties.put(prefix + e.getKey(), e.getValue()
+				.trim());
 		}
 	}
 
@@ -0,0 +1,310 @@
+package aQute.maven.provider;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import aQute.lib.io.IO;
+import aQute.lib.xml.XMLFactories;
+
+/**
+ * The raw content of a POM that is used by {@link POM}: the parent
+ * coordinates, the project coordinates, the properties and the (managed)
+ * dependencies. Values are the unprocessed text content of the elements, macros
+ * are replaced by the POM.
+ * <p>
+ * A model is read with a streaming parser since only a small part of a POM is
+ * needed. Since the POM of a release never changes, its model can be stored in
+ * a compact binary form in a cache so that later sessions do not have to parse
+ * the XML again.
+ */
+class PomModel {
+	final static XMLInputFactory			inputFactory			= XMLFactories.newInputFactory();
+	final static Set<String>				PROJECT					= new HashSet<>(
+		Arrays.asList("modelVersion", "groupId", "artifactId", "version", "packaging"));
+	final static int						MAGIC					= 0x504F4D01;
+
+	static {
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	final Map<String, String>				parent					= new LinkedHashMap<>();
+	final Map<String, String>				project					= new LinkedHashMap<>();
+	final Map<String, String>				properties				= new LinkedHashMap<>();
+	final List<Map<String, String>>			dependencies			= new ArrayList<>();
+	final List<Map<String, String>>			dependencyManagement	= new ArrayList<>();
+
+	String parent(String name) {
+		String value = parent.get(name);
+		return value == null ? "" : value.trim();
+	}
+
+	/**
+	 * Parse a POM with a streaming parser.
+	 */
+	static PomModel parse(InputStream in) throws XMLStreamException {
+		PomModel model = new PomModel();
+		XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+		try {
+			List<String> path = new ArrayList<>();
+			Map<String, String> dependency = null;
+			Map<String, String> target = null;
+			boolean first = false;
+			StringBuilder text = null;
+			int depth = 0;
+
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT :
+						path.add(reader.getLocalName());
+						if (text != null)
+							break;
+
+						target = null;
+						first = true;
+						switch (path.size()) {
+							case 2 :
+								if (PROJECT.contains(path.get(1))) {
+									target = model.project;
+									first = false;
+								}
+								break;
+
+							case 3 :
+								if (matches(path, "parent", null)) {
+									target = model.parent;
+								} else if (matches(path, "properties", null)) {
+									target = model.properties;
+									first = false;
+								} else if (matches(path, "dependencies", "dependency")) {
+									dependency = new LinkedHashMap<>();
+									model.dependencies.add(dependency);
+								}
+								break;
+
+							case 4 :
+								if (matches(path, "dependencies", "dependency", null)) {
+									target = dependency;
+								} else if (matches(path, "dependencyManagement", "dependencies", "dependency")) {
+									dependency = new LinkedHashMap<>();
+									model.dependencyManagement.add(dependency);
+								}
+								break;
+
+							case 5 :
+								if (matches(path, "dependencyManagement", "dependencies", "dependency", null))
+									target = dependency;
+								break;
+						}
+						if (target != null) {
+							text = new StringBuilder();
+							depth = path.size();
+						}
+						break;
+
+					case XMLStreamConstants.CHARACTERS :
+					case XMLStreamConstants.CDATA :
+					case XMLStreamConstants.SPACE :
+						if (text != null)
+							text.append(reader.getText());
+						break;
+
+					case XMLStreamConstants.END_ELEMENT :
+						if (text != null && path.size() == depth) {
+							String name = path.get(depth - 1);
+							if (first)
+								target.putIfAbsent(name, text.toString());
+							else
+								target.put(name, text.toString());
+							text = null;
+						}
+						path.remove(path.size() - 1);
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return model;
+	}
+
+	/*
+	 * Match the path below the root element, a null name matches any element
+	 */
+	private static boolean matches(List<String> path, String... names) {
+		if (path.size() != names.length + 1)
+			return false;
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] != null && !names[i].equals(path.get(i + 1)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Extract the model from a parsed POM.
+	 */
+	static PomModel from(Document doc) {
+		PomModel model = new PomModel();
+		for (Element child : children(doc.getDocumentElement())) {
+			String name = child.getNodeName();
+			switch (name) {
+				case "parent" :
+					fields(child, model.parent);
+					break;
+
+				case "properties" :
+					for (Element property : children(child))
+						model.properties.put(property.getNodeName(), property.getTextContent());
+					break;
+
+				case "dependencies" :
+					dependencies(child, model.dependencies);
+					break;
+
+				case "dependencyManagement" :
+					for (Element dependencies : children(child)) {
+						if (dependencies.getNodeName()
+							.equals("dependencies"))
+							dependencies(dependencies, model.dependencyManagement);
+					}
+					break;
+
+				default :
+					if (PROJECT.contains(name))
+						model.project.put(name, child.getTextContent());
+					break;
+			}
+		}
+		return model;
+	}
+
+	private static void dependencies(Element dependencies, List<Map<String, String>> list) {
+		for (Element dependency : children(dependencies)) {
+			if (dependency.getNodeName()
+				.equals("dependency")) {
+				Map<String, String> fields = new LinkedHashMap<>();
+				fields(dependency, fields);
+				list.add(fields);
+			}
+		}
+	}
+
+	private static void fields(Element element, Map<String, String> fields) {
+		for (Element child : children(element))
+			fields.putIfAbsent(child.getNodeName(), child.getTextContent());
+	}
+
+	private static List<Element> children(Element element) {
+		List<Element> children = new ArrayList<>();
+		for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (node.getNodeType() == Node.ELEMENT_NODE)
+				children.add((Element) node);
+		}
+		return children;
+	}
+
+	/**
+	 * Read the model from the cache file if it is at least as new as the POM,
+	 * otherwise parse the POM and store the model in the cache file.
+	 *
+	 * @param pom the POM file
+	 * @param cache the cache file or {@code null} if no cache must be used
+	 */
+	static PomModel read(File pom, File cache) throws Exception {
+		if (cache != null && cache.isFile() && cache.lastModified() >= pom.lastModified()) {
+			try (DataInputStream in = new DataInputStream(IO.stream(cache))) {
+				PomModel model = read(in);
+				if (model != null)
+					return model;
+			} catch (IOException e) {
+				POM.l.debug("Ignoring invalid POM cache {}", cache, e);
+			}
+		}
+
+		PomModel model = parse(POM.processEntities(pom));
+
+		if (cache != null) {
+			IO.mkdirs(cache.getParentFile());
+			File tmp = IO.createTempFile(cache.getParentFile(), "pom", ".model");
+			try {
+				try (DataOutputStream out = new DataOutputStream(IO.outputStream(tmp))) {
+					model.write(out);
+				}
+				IO.rename(tmp, cache);
+			} catch (IOException e) {
+				POM.l.debug("Failed to cache POM model {}", cache, e);
+				IO.delete(tmp);
+			}
+		}
+		return model;
+	}
+
+	private static PomModel read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC)
+			return null;
+
+		PomModel model = new PomModel();
+		read(in, model.parent);
+		read(in, model.project);
+		read(in, model.properties);
+		read(in, model.dependencies);
+		read(in, model.dependencyManagement);
+		return model;
+	}
+
+	private static void read(DataInputStream in, List<Map<String, String>> list) throws IOException {
+		for (int n = in.readInt(); n > 0; n--) {
+			Map<String, String> map = new LinkedHashMap<>();
+			read(in, map);
+			list.add(map);
+		}
+	}
+
+	private static void read(DataInputStream in, Map<String, String> map) throws IOException {
+		for (int n = in.readInt(); n > 0; n--) {
+			map.put(in.readUTF(), in.readUTF());
+		}
+	}
+
+	private void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		write(out, parent);
+		write(out, project);
+		write(out, properties);
+		write(out, dependencies);
+		write(out, dependencyManagement);
+	}
+
+	private static void write(DataOutputStream out, List<Map<String, String>> list) throws IOException {
+		out.writeInt(list.size());
+		for (Map<String, String> map : list)
+			write(out, map);
+	}
+
+	private static void write(DataOutputStream out, Map<String, String> map) throws IOException {
+		out.writeInt(map.size());
+		for (Map.Entry<String, String> e : map.entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeUTF(e.getValue());
+		}
+	}
+}
@@ -1,19 +1,29 @@
 package aQute.p2.provider;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.InputStream;
+import java.io.PrintWriter;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
 import org.osgi.framework.Version;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import aQute.bnd.osgi.Processor;
 import aQute.lib.converter.Converter;
 import aQute.lib.converter.TypeReference;
 import aQute.lib.filter.Filter;
+import aQute.lib.io.IO;
+import aQute.lib.xml.XMLFactories;
 import aQute.p2.api.Artifact;
 import aQute.p2.api.Classifier;
 
@@ -43,9 +53,13 @@ import aQute.p2.api.Classifier;
  *   </artifacts>
  * </pre>
  * @formatter:on
+ * The file is parsed with a streaming parser since the artifacts of large
+ * repositories can be hundreds of megabytes. Only the repository properties,
+ * the rules, and the attributes and md5 of the artifacts are kept.
  */
 
-class ArtifactRepository extends XML {
+class ArtifactRepository {
+	final static XMLInputFactory inputFactory = XMLFactories.newInputFactory();
 
 	static class Rule {
 		final Filter	filter;
@@ -69,37 +83,73 @@ class ArtifactRepository extends XML {
 		public String	format;
 	}
 
-	List<Rule>		rules;
+	List<Rule>		rules		= new ArrayList<>();
 	List<Artifact>	artifacts	= new ArrayList<>();
 	private URI		base;
 
 	ArtifactRepository(InputStream in, URI base) throws Exception {
-		super(getDocument(in));
 		this.base = base;
-		parse();
+		parse(in);
 	}
 
-	private Rule createRule(Node ruleNode) {
-		String filter = getAttribute(ruleNode, "filter");
-		String output = getAttribute(ruleNode, "output");
-		return new Rule(filter, output);
-	}
+	void parse(InputStream in) throws Exception {
+		Map<String, String> properties = new HashMap<>();
+		List<XMLArtifact> xmlArtifacts = new ArrayList<>();
+		List<String> md5s = new ArrayList<>();
+
+		XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+		try {
+			List<String> path = new ArrayList<>();
+			XMLArtifact xmlArtifact = null;
+			String md5 = null;
+
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT :
+						path.add(reader.getLocalName());
+						if (XML.matches(path, "repository", "properties", "property")) {
+							properties.put(reader.getAttributeValue(null, "name"),
+								reader.getAttributeValue(null, "value"));
+						} else if (XML.matches(path, "repository", "mappings", "rule")) {
+							rules.add(new Rule(reader.getAttributeValue(null, "filter"),
+								reader.getAttributeValue(null, "output")));
+						} else if (XML.matches(path, "repository", "artifacts", "artifact")) {
+							xmlArtifact = new XMLArtifact();
+							xmlArtifact.classifier = reader.getAttributeValue(null, "classifier");
+							xmlArtifact.id = reader.getAttributeValue(null, "id");
+							xmlArtifact.version = reader.getAttributeValue(null, "version");
+							xmlArtifact.format = reader.getAttributeValue(null, "format");
+							md5 = null;
+						} else if (XML.matches(path, "repository", "artifacts", "artifact", "properties", "property")) {
+							if ("download.md5".equals(reader.getAttributeValue(null, "name")))
+								md5 = reader.getAttributeValue(null, "value");
+						}
+						break;
+
+					case XMLStreamConstants.END_ELEMENT :
+						if (xmlArtifact != null && XML.matches(path, "repository", "artifacts", "artifact")) {
+							xmlArtifacts.add(xmlArtifact);
+							md5s.add(md5);
+							xmlArtifact = null;
+						}
+						path.remove(path.size() - 1);
+						break;
 
-	void parse() throws Exception {
+					default :
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
 
-		final Map<String, String> properties = getProperties("repository/properties/property");
 		properties.put("repoUrl", base.resolve("")
 			.toString());
 		try (Processor parent = new Processor()) {
 			parent.addProperties(properties);
 
-			rules = getRules();
-
-			NodeList artifactNodes = getNodes("repository/artifacts/artifact");
-			for (int i = 0; i < artifactNodes.getLength(); i++) {
-				final Node artifactNode = artifactNodes.item(i)
-					.cloneNode(true);
-				final XMLArtifact xmlArtifact = getFromType(artifactNode, XMLArtifact.class);
+			for (int i = 0; i < xmlArtifacts.size(); i++) {
+				final XMLArtifact xmlArtifact = xmlArtifacts.get(i);
 
 				Classifier classifier;
 				if (Classifier.BUNDLE.name.equals(xmlArtifact.classifier)) {
@@ -126,7 +176,7 @@ class ArtifactRepository extends XML {
 							artifact.uri = uri;
 							artifact.id = xmlArtifact.id;
 							artifact.version = new Version(xmlArtifact.version);
-							artifact.md5 = getProperties(artifactNode, "properties/property").get("download.md5");
+							artifact.md5 = md5s.get(i);
 							artifacts.add(artifact);
 							break;
 						}
@@ -136,30 +186,71 @@ class ArtifactRepository extends XML {
 		}
 	}
 
+	public List<Artifact> getArtifacts() {
+		return artifacts;
+	}
+
 	/**
-	 * * <artifact classifier='osgi.bundle' id=
-	 * 'org.bndtools.versioncontrol.ignores.plugin.git' version=
-	 * '3.3.0.201605202157'>
+	 * Read artifacts that were stored with
+	 * {@link #write(File, String, List)}.
 	 * 
-	 * @param item
-	 * @return
-	 * @throws Exception
-	 * @throws IllegalAccessException
-	 * @throws IllegalArgumentException
+	 * @param file the file with the artifacts
+	 * @param key identifies the content the artifacts were parsed from
+	 * @return the artifacts or null if the file does not exist or was stored
+	 *         for a different key
 	 */
-	List<Rule> getRules() throws Exception {
-		List<Rule> rules = new ArrayList<>();
-		NodeList ruleNodes = getNodes("repository/mappings/rule");
-		for (int i = 0; i < ruleNodes.getLength(); i++) {
-			Node ruleNode = ruleNodes.item(i);
-			Rule rule = createRule(ruleNode);
-			rules.add(rule);
+	static List<Artifact> read(File file, String key) throws Exception {
+		if (!file.isFile())
+			return null;
+
+		try (BufferedReader reader = IO.reader(file, UTF_8)) {
+			if (!key.equals(reader.readLine()))
+				return null;
+
+			List<Artifact> artifacts = new ArrayList<>();
+			for (String line; (line = reader.readLine()) != null;) {
+				String[] parts = line.split("\t", -1);
+				if (parts.length != 5)
+					return null;
+
+				Artifact artifact = new Artifact();
+				artifact.classifier = Classifier.valueOf(parts[0]);
+				artifact.id = parts[1];
+				artifact.version = new Version(parts[2]);
+				artifact.md5 = parts[3].isEmpty() ? null : parts[3];
+				artifact.uri = new URI(parts[4]);
+				artifacts.add(artifact);
+			}
+			return artifacts;
 		}
-		return rules;
 	}
 
-	public List<Artifact> getArtifacts() {
-		return artifacts;
+	/**
+	 * Store the artifacts in a compact form, one line per artifact.
+	 * 
+	 * @param file the file to store the artifacts in
+	 * @param key identifies the content the artifacts were parsed from
+	 * @param artifacts the artifacts
+	 */
+	static void write(File file, String key, List<Artifact> artifacts) throws Exception {
+		IO.mkdirs(file.getParentFile());
+		File tmp = IO.createTempFile(file.getParentFile(), file.getName(), ".tmp");
+		try (PrintWriter pw = IO.writer(tmp, UTF_8)) {
+			pw.print(key);
+			pw.print('\n');
+			for (Artifact artifact : artifacts) {
+				pw.print(artifact.classifier.name());
+				pw.print('\t');
+				pw.print(artifact.id);
+				pw.print('\t');
+				pw.print(artifact.version);
+				pw.print('\t');
+				pw.print(artifact.md5 == null ? "" : artifact.md5);
+				pw.print('\t');
+				pw.print(artifact.uri);
+				pw.print('\n');
+			}
+		}
+		IO.rename(tmp, file);
 	}
-
 }
@@ -5,10 +5,12 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import aQute.lib.strings.Strings;
+import aQute.lib.xml.XMLFactories;
 
 /**
  * <pre>
@@ -30,23 +32,42 @@ import aQute.lib.strings.Strings;
  * </pre>
  */
 
-class CompositeArtifacts extends XML {
-	final List<URI> uris = new ArrayList<>();
-	final URI		base;
+class CompositeArtifacts {
+	final static XMLInputFactory	inputFactory	= XMLFactories.newInputFactory();
+	final List<URI>					uris			= new ArrayList<>();
+	final URI						base;
+	final InputStream				in;
 
 	CompositeArtifacts(InputStream in, URI base) throws Exception {
-		super(getDocument(in));
+		this.in = in;
 		this.base = base;
 	}
 
-
 	void parse() throws Exception {
-		NodeList nodes = getNodes("repository/children/child");
-		for (int i = 0; i < nodes.getLength(); i++) {
-			Node child = nodes.item(i);
-			String textContent = Strings.trim(getAttribute(child, "location"));
-			URI uri = base.resolve(textContent);
-			uris.add(uri);
+		XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+		try {
+			List<String> path = new ArrayList<>();
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT :
+						path.add(reader.getLocalName());
+						if (XML.matches(path, "repository", "children", "child")) {
+							String textContent = Strings.trim(reader.getAttributeValue(null, "location"));
+							URI uri = base.resolve(textContent);
+							uris.add(uri);
+						}
+						break;
+
+					case XMLStreamConstants.END_ELEMENT :
+						path.remove(path.size() - 1);
+						break;
+
+					default :
+						break;
+				}
+			}
+		} finally {
+			reader.close();
 		}
 	}
 
@@ -30,6 +30,7 @@ import org.tukaani.xz.XZInputStream;
 
 import aQute.bnd.header.Parameters;
 import aQute.bnd.http.HttpClient;
+import aQute.bnd.http.URLCache.Info;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.p2.api.Artifact;
@@ -83,9 +84,9 @@ public class P2Impl implements ArtifactProvider {
 			if (type.endsWith("/compositeArtifacts.xml")) {
 				return parseCompositeArtifacts(cycles, hideAndSeek(uri), uri);
 			} else if (type.endsWith("/artifacts.xml.xz")) {
-				return parseArtifacts(hideAndSeek(uri), uri);
+				return parseArtifacts(uri);
 			} else if (type.endsWith("/artifacts.xml")) {
-				return parseArtifacts(hideAndSeek(uri), uri);
+				return parseArtifacts(uri);
 			} else if (type.endsWith("/p2.index")) {
 				return parseIndexArtifacts(cycles, uri);
 			}
@@ -98,22 +99,60 @@ public class P2Impl implements ArtifactProvider {
 		}
 	}
 
-	private Promise<List<Artifact>> parseArtifacts(InputStream in, URI uri) throws Exception {
-		if (in == null) {
+	/*
+	 * The parsed artifacts are kept next to the cached metadata file so that
+	 * the file is only parsed again when its content has changed.
+	 */
+	private Promise<List<Artifact>> parseArtifacts(URI uri) throws Exception {
+		Source source = seek(uri);
+		if (source == null) {
 			logger.info("No content for {}", uri);
 			return promiseFactory.resolved(Collections.emptyList());
 		}
 
 		return promiseFactory.submit(() -> {
+			File parsed = new File(client.getCacheFileFor(source.uri)
+				.getPath() + ".artifacts");
+			String key = uri + " " + getTag(source);
 			try {
+				List<Artifact> artifacts = ArtifactRepository.read(parsed, key);
+				if (artifacts != null)
+					return artifacts;
+			} catch (Exception e) {
+				logger.debug("Cannot read parsed artifacts {}", parsed, e);
+			}
+
+			List<Artifact> artifacts;
+			try (InputStream in = source.open()) {
 				ArtifactRepository ar = new ArtifactRepository(in, uri);
-				return ar.getArtifacts();
-			} finally {
-				IO.close(in);
+				artifacts = ar.getArtifacts();
+			}
+
+			try {
+				ArtifactRepository.write(parsed, key, artifacts);
+			} catch (Exception e) {
+				logger.debug("Cannot save parsed artifacts {}", parsed, e);
 			}
+			return artifacts;
 		});
 	}
 
+	/*
+	 * The ETag of the cached file or, if there is none, its modification time
+	 * and length
+	 */
+	private String getTag(Source source) throws Exception {
+		if (source.file.equals(client.getCacheFileFor(source.uri))) {
+			try (Info info = client.cache()
+				.get(source.file, source.uri)) {
+				String etag = info.getETag();
+				if (etag != null)
+					return etag;
+			}
+		}
+		return source.file.lastModified() + "/" + source.file.length();
+	}
+
 	/**
 	 * @param artifacts
 	 * @param cycles
@@ -130,7 +169,11 @@ public class P2Impl implements ArtifactProvider {
 		}
 
 		CompositeArtifacts ca = new CompositeArtifacts(in, base);
-		ca.parse();
+		try {
+			ca.parse();
+		} finally {
+			IO.close(in);
+		}
 
 		return getArtifacts(cycles, ca.uris);
 	}
@@ -158,12 +201,43 @@ public class P2Impl implements ArtifactProvider {
 		return deferred.getPromise();
 	}
 
+	/*
+	 * A metadata file as it was found, compressed with xz, in a jar, or plain
+	 */
+	private class Source {
+		final URI		uri;
+		final File		file;
+		final String	entry;
+
+		Source(URI uri, File file, String entry) {
+			this.uri = uri;
+			this.file = file;
+			this.entry = entry;
+		}
+
+		InputStream open() throws Exception {
+			if (uri.getPath()
+				.endsWith(".xz"))
+				return tzStream(file);
+			if (entry != null)
+				return jarStream(file, entry);
+			return IO.stream(file);
+		}
+	}
+
 	private InputStream hideAndSeek(URI uri) throws Exception {
+		Source source = seek(uri);
+		if (source == null)
+			return null;
+		return source.open();
+	}
+
+	private Source seek(URI uri) throws Exception {
 		if (uri.getPath()
 			.endsWith(".xz")) {
 			File f = getFile(uri);
 			if (f != null)
-				return tzStream(f);
+				return new Source(uri, f, null);
 			else
 				return null;
 		}
@@ -171,15 +245,16 @@ public class P2Impl implements ArtifactProvider {
 		URI xzname = replace(uri, "$", ".xz");
 		File f = getFile(xzname);
 		if (f != null)
-			return tzStream(f);
+			return new Source(xzname, f, null);
 
-		f = getFile(replace(uri, ".xml$", ".jar"));
+		URI jarname = replace(uri, ".xml$", ".jar");
+		f = getFile(jarname);
 		if (f != null)
-			return jarStream(f, Strings.getLastSegment(uri.getPath(), '/'));
+			return new Source(jarname, f, Strings.getLastSegment(uri.getPath(), '/'));
 
 		f = getFile(uri);
 		if (f != null)
-			return IO.stream(f);
+			return new Source(uri, f, null);
 
 		if (!defaults.contains(uri))
 			logger.error("Invalid uri {}", uri);
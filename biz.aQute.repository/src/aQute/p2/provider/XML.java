@@ -11,6 +11,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -47,6 +48,20 @@ public class XML {
 		return namedItem.getNodeValue();
 	}
 
+	/*
+	 * Answer if the path of element names of a streaming parser is exactly the
+	 * given path
+	 */
+	static boolean matches(List<String> path, String... names) {
+		if (path.size() != names.length)
+			return false;
+		for (int i = names.length - 1; i >= 0; i--) {
+			if (!names[i].equals(path.get(i)))
+				return false;
+		}
+		return true;
+	}
+
 	static Document getDocument(InputStream in) throws ParserConfigurationException, SAXException, IOException {
 		DocumentBuilder db = dbf.newDocumentBuilder();
 		return db.parse(in);
@@ -3,14 +3,21 @@ package aQute.maven.provider;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
 import aQute.bnd.http.HttpClient;
 import aQute.bnd.version.MavenVersion;
 import aQute.http.testservers.HttpTestServer.Config;
 import aQute.lib.io.IO;
 import aQute.libg.reporter.ReporterAdapter;
 import aQute.maven.api.Archive;
+import aQute.maven.api.IPom.Dependency;
+import aQute.maven.api.MavenScope;
 import aQute.maven.api.Program;
 import aQute.maven.api.Release;
 import aQute.maven.api.Revision;
@@ -152,4 +159,59 @@ public class MavenRepoTest extends TestCase {
 		assertTrue(rpom.isFile());
 
 	}
+
+	public void testPomModelCache() throws Exception {
+		File cache = IO.getFile(tmpName + "/cache");
+		IO.delete(cache);
+		storage.setModelCache(cache);
+		File fpom = IO.getFile(local, "commons-cli/commons-cli/1.2/commons-cli-1.2.pom");
+		File fmodel = IO.getFile(cache, "commons-cli/commons-cli/1.2/commons-cli-1.2.pom.model");
+		Revision revision = Program.valueOf("commons-cli", "commons-cli")
+			.version("1.2");
+
+		POM pom = storage.getPom(revision);
+		assertNotNull(pom);
+		assertTrue(fmodel.isFile());
+
+		// The local repository only has Maven content
+		assertFalse(IO.getFile(local, "commons-cli/commons-cli/1.2/commons-cli-1.2.pom.model")
+			.exists());
+		assertSame(pom, storage.getPom(revision));
+		Map<Program, Dependency> dependencies = pom.getDependencies(MavenScope.test, false);
+		assertEquals(1, dependencies.size());
+
+		//
+		// Read back from the cached model
+		//
+
+		storage.clear(revision);
+		POM cached = storage.getPom(revision);
+		assertNotSame(pom, cached);
+		assertEquals(pom.getRevision(), cached.getRevision());
+		assertEquals(pom.getPackaging(), cached.getPackaging());
+		assertEquals(dependencies.toString(), cached.getDependencies(MavenScope.test, false)
+			.toString());
+
+		//
+		// The streaming parser must see the same as a parsed document
+		//
+
+		Document doc = DocumentBuilderFactory.newInstance()
+			.newDocumentBuilder()
+			.parse(fpom);
+		POM dom = new POM(storage, doc, true);
+		assertEquals(pom.getRevision(), dom.getRevision());
+		assertEquals(dependencies.toString(), dom.getDependencies(MavenScope.test, false)
+			.toString());
+
+		//
+		// Snapshots are not cached
+		//
+
+		Revision snapshot = Program.valueOf("commons-cli", "commons-cli")
+			.version("1.4-SNAPSHOT");
+		assertNotNull(storage.getPom(snapshot));
+		assertFalse(IO.getFile(cache, "commons-cli/commons-cli/1.4-SNAPSHOT/commons-cli-1.4-SNAPSHOT.pom.model")
+			.exists());
+	}
 }
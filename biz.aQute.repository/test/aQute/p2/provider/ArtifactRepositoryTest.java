@@ -0,0 +1,72 @@
+package aQute.p2.provider;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+import org.junit.Test;
+
+import aQute.lib.io.IO;
+import aQute.p2.api.Artifact;
+import aQute.p2.api.Classifier;
+
+public class ArtifactRepositoryTest {
+	static final String ARTIFACTS = "<?xml version='1.0' encoding='UTF-8'?>\n"
+		+ "<?artifactRepository version='1.1.0'?>\n"
+		+ "<repository name='Test' type='org.eclipse.equinox.p2.artifact.repository.simpleRepository' version='1'>\n"
+		+ "  <properties size='1'>\n" + "    <property name='p2.timestamp' value='1463781466748'/>\n"
+		+ "  </properties>\n" + "  <mappings size='2'>\n"
+		+ "    <rule filter='(&amp; (classifier=osgi.bundle))' output='${repoUrl}/plugins/${id}_${version}.jar'/>\n"
+		+ "    <rule filter='(&amp; (classifier=org.eclipse.update.feature))' output='${repoUrl}/features/${id}_${version}.jar'/>\n"
+		+ "  </mappings>\n" + "  <artifacts size='3'>\n"
+		+ "    <artifact classifier='osgi.bundle' id='a.b' version='1.2.3.qualifier'>\n"
+		+ "      <properties size='2'>\n" + "        <property name='artifact.size' value='9356'/>\n"
+		+ "        <property name='download.md5' value='745f389a49189112a785848ad466097b'/>\n"
+		+ "      </properties>\n" + "    </artifact>\n"
+		+ "    <artifact classifier='binary' id='c' version='1.0.0'/>\n"
+		+ "    <artifact classifier='org.eclipse.update.feature' id='f' version='2.0.0'/>\n" + "  </artifacts>\n"
+		+ "</repository>\n";
+
+	@Test
+	public void testParse() throws Exception {
+		ArtifactRepository ar = new ArtifactRepository(IO.stream(ARTIFACTS, UTF_8),
+			new URI("http://example.com/site/artifacts.xml"));
+		List<Artifact> artifacts = ar.getArtifacts();
+		assertEquals(2, artifacts.size());
+
+		Artifact a = artifacts.get(0);
+		assertEquals(Classifier.BUNDLE, a.classifier);
+		assertEquals("a.b", a.id);
+		assertEquals("1.2.3.qualifier", a.version.toString());
+		assertEquals("745f389a49189112a785848ad466097b", a.md5);
+		assertEquals(new URI("http://example.com/site/plugins/a.b_1.2.3.qualifier.jar"), a.uri);
+
+		Artifact f = artifacts.get(1);
+		assertEquals(Classifier.FEATURE, f.classifier);
+		assertNull(f.md5);
+		assertEquals(new URI("http://example.com/site/features/f_2.0.0.jar"), f.uri);
+	}
+
+	@Test
+	public void testCompactForm() throws Exception {
+		File tmp = IO.getFile("generated/tmp/ArtifactRepositoryTest");
+		IO.delete(tmp);
+		try {
+			File file = new File(tmp, "artifacts");
+			List<Artifact> artifacts = new ArtifactRepository(IO.stream(ARTIFACTS, UTF_8),
+				new URI("http://example.com/site/artifacts.xml")).getArtifacts();
+
+			ArtifactRepository.write(file, "etag", artifacts);
+			assertNull(ArtifactRepository.read(file, "other"));
+
+			List<Artifact> read = ArtifactRepository.read(file, "etag");
+			assertEquals(artifacts.toString(), read.toString());
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+}
@@ -33,6 +33,12 @@ public class Bndrun extends Run {
 	private static final Logger													logger						= LoggerFactory
 		.getLogger(Bndrun.class);
 
+	/**
+	 * Set to false to always run the resolver, even when the resolve
+	 * instructions and the repositories did not change since the last resolve.
+	 */
+	public static final String													RESOLVE_CACHE_INSTRUCTION	= "-resolve.cache";
+
 	private static final Converter<String, Collection<? extends HeaderClause>>	runbundlesListFormatter		= new CollectionFormatter<>(
 		",", new HeaderClauseFormatter(), null, "", "");
 	private static final Converter<String, Collection<? extends HeaderClause>>	runbundlesWrappedFormatter	= new CollectionFormatter<>(
@@ -90,11 +96,69 @@ public class Bndrun extends Run {
 
 	public <T> T resolve(boolean failOnChanges, boolean writeOnChanges,
 		Converter<T, Collection<? extends HeaderClause>> runbundlesFormatter) throws Exception {
+		List<VersionedClause> runBundles = resolveRunBundles();
+		if (runBundles == null) {
+			return runbundlesFormatter.convert(Collections.<VersionedClause> emptyList());
+		}
+
+		File runFile = getPropertiesFile();
+		BndEditModel bem = new BndEditModel(getWorkspace());
+		Document doc = new Document(IO.collect(runFile));
+		bem.loadFrom(doc);
+
+		List<VersionedClause> bemRunBundles = bem.getRunBundles();
+		if (bemRunBundles == null)
+			bemRunBundles = new ArrayList<>();
+
+		String originalRunbundlesString = runbundlesWrappedFormatter.convert(bemRunBundles);
+		logger.debug("Original -runbundles was:\n\t {}", originalRunbundlesString);
+		String runbundlesString = runbundlesWrappedFormatter.convert(runBundles);
+		logger.debug("Resolved -runbundles is:\n\t {}", runbundlesString);
+
+		List<VersionedClause> deltaAdd = new ArrayList<>(runBundles);
+		deltaAdd.removeAll(bemRunBundles);
+		List<VersionedClause> deltaRemove = new ArrayList<>(bemRunBundles);
+		deltaRemove.removeAll(runBundles);
+		boolean added = bemRunBundles.addAll(deltaAdd);
+		boolean removed = bemRunBundles.removeAll(deltaRemove);
+		if (added || removed) {
+			if (failOnChanges && !bemRunBundles.isEmpty()) {
+				error("The runbundles have changed. Failing the build!\nWas: %s\nIs: %s", originalRunbundlesString,
+					runbundlesString);
+				return runbundlesFormatter.convert(Collections.<VersionedClause> emptyList());
+			}
+			if (writeOnChanges) {
+				bem.setRunBundles(bemRunBundles);
+				String runBundlesProperty = bem.getDocumentChanges()
+					.get(Constants.RUNBUNDLES);
+				logger.debug("Writing changes to {}", runFile.getAbsolutePath());
+				logger.debug("{}:{}", Constants.RUNBUNDLES, runBundlesProperty);
+				bem.saveChangesTo(doc);
+				IO.store(doc.get(), runFile);
+			}
+		}
+		return runbundlesFormatter.convert(bemRunBundles);
+	}
+
+	/*
+	 * Calculate the sorted -runbundles, or take them from the resolution cache
+	 * when none of the inputs of the resolver changed. Answer null when the
+	 * resolve failed.
+	 */
+	private List<VersionedClause> resolveRunBundles() throws Exception {
+		ResolutionCache cache = isTrue(getProperty(RESOLVE_CACHE_INSTRUCTION, "true")) ? new ResolutionCache(this)
+			: null;
+		if (cache != null) {
+			List<VersionedClause> runBundles = cache.get();
+			if (runBundles != null)
+				return runBundles;
+		}
+
 		try (ProjectResolver projectResolver = new ProjectResolver(this)) {
 			try {
 				Map<Resource, List<Wire>> resolution = projectResolver.resolve();
 				if (!projectResolver.isOk()) {
-					return runbundlesFormatter.convert(Collections.<VersionedClause> emptyList());
+					return null;
 				}
 				Set<Resource> resources = resolution.keySet();
 				List<VersionedClause> runBundles = new ArrayList<>();
@@ -114,44 +178,10 @@ public class Bndrun extends Run {
 								.compareTo(b.getVersionRange());
 					}
 				});
-
-				File runFile = getPropertiesFile();
-				BndEditModel bem = new BndEditModel(getWorkspace());
-				Document doc = new Document(IO.collect(runFile));
-				bem.loadFrom(doc);
-
-				List<VersionedClause> bemRunBundles = bem.getRunBundles();
-				if (bemRunBundles == null)
-					bemRunBundles = new ArrayList<>();
-
-				String originalRunbundlesString = runbundlesWrappedFormatter.convert(bemRunBundles);
-				logger.debug("Original -runbundles was:\n\t {}", originalRunbundlesString);
-				String runbundlesString = runbundlesWrappedFormatter.convert(runBundles);
-				logger.debug("Resolved -runbundles is:\n\t {}", runbundlesString);
-
-				List<VersionedClause> deltaAdd = new ArrayList<>(runBundles);
-				deltaAdd.removeAll(bemRunBundles);
-				List<VersionedClause> deltaRemove = new ArrayList<>(bemRunBundles);
-				deltaRemove.removeAll(runBundles);
-				boolean added = bemRunBundles.addAll(deltaAdd);
-				boolean removed = bemRunBundles.removeAll(deltaRemove);
-				if (added || removed) {
-					if (failOnChanges && !bemRunBundles.isEmpty()) {
-						error("The runbundles have changed. Failing the build!\nWas: %s\nIs: %s",
-							originalRunbundlesString, runbundlesString);
-						return runbundlesFormatter.convert(Collections.<VersionedClause> emptyList());
-					}
-					if (writeOnChanges) {
-						bem.setRunBundles(bemRunBundles);
-						String runBundlesProperty = bem.getDocumentChanges()
-							.get(Constants.RUNBUNDLES);
-						logger.debug("Writing changes to {}", runFile.getAbsolutePath());
-						logger.debug("{}:{}", Constants.RUNBUNDLES, runBundlesProperty);
-						bem.saveChangesTo(doc);
-						IO.store(doc.get(), runFile);
-					}
+				if (cache != null) {
+					cache.put(runBundles);
 				}
-				return runbundlesFormatter.convert(bemRunBundles);
+				return runBundles;
 			} finally {
 				getInfo(projectResolver);
 			}
@@ -0,0 +1,251 @@
+package biz.aQute.resolve;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.service.repository.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.build.model.clauses.VersionedClause;
+import aQute.bnd.header.Attrs;
+import aQute.bnd.header.Parameters;
+import aQute.bnd.osgi.About;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.resource.RequirementBuilder;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
+import aQute.bnd.osgi.resource.ResourceUtils.IdentityCapability;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.bnd.service.repository.RepositoryDigest;
+import aQute.bnd.service.resolve.hook.ResolverHook;
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
+
+/**
+ * A persistent cache of the <code>-runbundles</code> that a bndrun resolved
+ * to. The cache is kept in the workspace cache directory, one file per bndrun.
+ * <p>
+ * The result is keyed on a digest of everything the resolver looks at: the
+ * instructions of the bndrun, the resolver hooks, the plain files on the
+ * <code>-runpath</code> or <code>-distro</code> and the content of every
+ * repository. A repository that implements {@link RepositoryDigest} provides
+ * its own digest, for other repositories the identities and content hashes of
+ * all their resources are digested. If anything changes the key changes and
+ * the bndrun is resolved again.
+ */
+class ResolutionCache {
+	private final static Logger	logger	= LoggerFactory.getLogger(ResolutionCache.class);
+
+	final static String[]		INPUTS	= {
+		Constants.RUNREQUIRES, Constants.RUNEE, Constants.RUNFW, Constants.RUNBLACKLIST, Constants.RUNREPOS,
+		Constants.AUGMENT, Constants.RUNSYSTEMPACKAGES, Constants.RUNSYSTEMCAPABILITIES,
+		Constants.RUNPROVIDEDCAPABILITIES, Constants.RUNPATH, Constants.DISTRO,
+		BndrunResolveContext.RUN_EFFECTIVE_INSTRUCTION, BndrunResolveContext.PROP_RESOLVE_PREFERENCES
+	};
+
+	private final Bndrun		run;
+	private final File			file;
+	private String				key;
+
+	ResolutionCache(Bndrun run) throws Exception {
+		this.run = run;
+		String name = SHA1.digest(run.getPropertiesFile()
+			.getAbsolutePath()
+			.getBytes(UTF_8))
+			.asHex();
+		this.file = new File(run.getWorkspace()
+			.getCache("resolve"), name);
+	}
+
+	/**
+	 * Answer the cached <code>-runbundles</code> if the inputs of the
+	 * resolution did not change.
+	 *
+	 * @return the cached <code>-runbundles</code> or {@code null} if the
+	 *         bndrun must be resolved
+	 */
+	List<VersionedClause> get() {
+		try {
+			key = key();
+			if (!file.isFile())
+				return null;
+
+			String content = IO.collect(file);
+			int n = content.indexOf('\n');
+			if (n < 0 || !key.equals(content.substring(0, n)))
+				return null;
+
+			List<VersionedClause> runBundles = new ArrayList<>();
+			for (Map.Entry<String, Attrs> e : new Parameters(content.substring(n + 1)).entrySet()) {
+				runBundles.add(new VersionedClause(Processor.removeDuplicateMarker(e.getKey()), e.getValue()));
+			}
+			logger.debug("Using the cached resolution for {}", run.getPropertiesFile());
+			return runBundles;
+		} catch (Exception e) {
+			logger.debug("Cannot use the cached resolution for {}", run.getPropertiesFile(), e);
+			key = null;
+			return null;
+		}
+	}
+
+	/**
+	 * Store the resolved <code>-runbundles</code> for the inputs seen by
+	 * {@link #get()}.
+	 */
+	void put(List<VersionedClause> runBundles) {
+		if (key == null)
+			return;
+
+		StringBuilder sb = new StringBuilder(key).append('\n');
+		String del = "";
+		for (VersionedClause runBundle : runBundles) {
+			sb.append(del);
+			runBundle.formatTo(sb);
+			del = ",";
+		}
+
+		try {
+			IO.mkdirs(file.getParentFile());
+			File tmp = IO.createTempFile(file.getParentFile(), "resolve", ".tmp");
+			try {
+				IO.store(sb.toString(), tmp);
+				IO.rename(tmp, file);
+			} catch (IOException e) {
+				IO.delete(tmp);
+				throw e;
+			}
+		} catch (IOException e) {
+			logger.debug("Failed to cache the resolution for {}", run.getPropertiesFile(), e);
+		}
+	}
+
+	/*
+	 * Calculate the digest of all inputs of the resolver
+	 */
+	private String key() throws Exception {
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (DataOutputStream out = new DataOutputStream(digester)) {
+			write(out, About.CURRENT.toString());
+
+			for (String input : INPUTS) {
+				write(out, input);
+				write(out, run.mergeProperties(input));
+			}
+
+			for (ResolverHook hook : run.getPlugins(ResolverHook.class)) {
+				write(out, hook.getClass()
+					.getName());
+			}
+
+			//
+			// Bundles on the path come from the repositories, except for plain
+			// files
+			//
+
+			for (String input : new String[] {
+				Constants.RUNPATH, Constants.DISTRO
+			}) {
+				for (Map.Entry<String, Attrs> e : new Parameters(run.mergeProperties(input), run).entrySet()) {
+					if ("file".equals(e.getValue()
+						.getVersion())) {
+						File f = run.getFile(Processor.removeDuplicateMarker(e.getKey()));
+						write(out, f.getAbsolutePath());
+						out.writeLong(f.length());
+						out.writeLong(f.lastModified());
+					}
+				}
+			}
+
+			for (Repository repository : run.getPlugins(Repository.class)) {
+				write(out, repository instanceof RepositoryPlugin ? ((RepositoryPlugin) repository).getName()
+					: repository.getClass()
+						.getName());
+				out.write(digest(repository));
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	/**
+	 * Answer a digest of the content of a repository.
+	 */
+	static byte[] digest(Repository repository) throws Exception {
+		if (repository instanceof RepositoryDigest) {
+			byte[] digest = ((RepositoryDigest) repository).getDigest();
+			if (digest != null)
+				return digest;
+		}
+
+		Requirement all = new RequirementBuilder(IdentityNamespace.IDENTITY_NAMESPACE).buildSyntheticRequirement();
+		Collection<Capability> capabilities = repository.findProviders(Collections.singleton(all))
+			.get(all);
+
+		List<String> resources = new ArrayList<>();
+		if (capabilities != null) {
+			for (Capability capability : capabilities) {
+				resources.add(contentKey(capability.getResource()));
+			}
+		}
+		Collections.sort(resources);
+
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (DataOutputStream out = new DataOutputStream(digester)) {
+			for (String resource : resources) {
+				write(out, resource);
+			}
+		}
+		return digester.digest()
+			.digest();
+	}
+
+	/*
+	 * A resource is identified by its content hash. If there is none, all its
+	 * capabilities and requirements must be taken into account.
+	 */
+	static String contentKey(Resource resource) {
+		StringBuilder sb = new StringBuilder();
+		IdentityCapability identity = ResourceUtils.getIdentityCapability(resource);
+		if (identity != null) {
+			sb.append(identity.osgi_identity())
+				.append(';')
+				.append(identity.version());
+		}
+		List<ContentCapability> contents = ResourceUtils.getContentCapabilities(resource);
+		if (contents.isEmpty()) {
+			sb.append(resource.getCapabilities(null))
+				.append(resource.getRequirements(null));
+		} else {
+			for (ContentCapability content : contents) {
+				sb.append(';')
+					.append(content.osgi_content());
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void write(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
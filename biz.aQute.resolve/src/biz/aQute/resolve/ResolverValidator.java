@@ -3,10 +3,16 @@ package biz.aQute.resolve;
 import static aQute.bnd.osgi.resource.CapReqBuilder.createRequirementFromCapability;
 import static aQute.bnd.osgi.resource.ResourceUtils.createWildcardRequirement;
 import static aQute.bnd.osgi.resource.ResourceUtils.getIdentityCapability;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singleton;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -14,19 +20,28 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.osgi.resource.Capability;
+import org.osgi.resource.Namespace;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
 import org.osgi.service.repository.Repository;
 import org.osgi.service.resolver.ResolutionException;
 import org.osgi.service.resolver.Resolver;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import aQute.bnd.http.HttpClient;
+import aQute.bnd.osgi.About;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.BaseRepository;
 import aQute.bnd.osgi.repository.ResourcesRepository;
 import aQute.bnd.osgi.repository.XMLResourceParser;
 import aQute.bnd.osgi.resource.ResolutionDirective;
@@ -34,15 +49,26 @@ import aQute.bnd.osgi.resource.ResourceBuilder;
 import aQute.bnd.osgi.resource.ResourceUtils;
 import aQute.bnd.osgi.resource.ResourceUtils.IdentityCapability;
 import aQute.bnd.repository.osgi.OSGiRepository;
+import aQute.lib.exceptions.Exceptions;
+import aQute.lib.filter.Filter;
+import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
 
 public class ResolverValidator extends Processor {
 	private final static Logger	logger			= LoggerFactory.getLogger(ResolverValidator.class);
 
-	LogReporter					reporter		= new LogReporter(this);
-	Resolver					resolver		= new BndResolver(reporter);
+	/*
+	 * The number of resources that are resolved concurrently in parallel mode.
+	 * The report depends on it so it must not depend on the machine.
+	 */
+	final static int			WINDOW			= 64;
+
 	List<URI>					repositories	= new ArrayList<>();
 	Resource					system			= null;
+	boolean						parallel;
+	File						state;
 
 	public static class Resolution {
 		public Resource				resource;
@@ -54,6 +80,9 @@ public class ResolverValidator extends Processor {
 		public List<Requirement>	missing		= new ArrayList<>();
 		public List<Requirement>	optionals	= new ArrayList<>();
 		public List<Requirement>	unresolved	= new ArrayList<>();
+		Processor					reporter;
+		String						fingerprint;
+		List<String>				wiring;
 	}
 
 	public ResolverValidator(Processor parent) throws Exception {
@@ -71,6 +100,32 @@ public class ResolverValidator extends Processor {
 		this.system = resource;
 	}
 
+	/**
+	 * Resolve the resources concurrently. All resolves share an indexed read
+	 * only view of the repository and the providers found for a requirement.
+	 * The resolutions and the errors are reported in the same order as the
+	 * resources, regardless of the number of threads.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Validate incrementally. The fingerprints of the resources that resolved
+	 * are stored in the given file together with the resources of their
+	 * wiring. A fingerprint covers, for the resource and every resource in its
+	 * wiring, the requirements, the providers of these requirements in the
+	 * repository and the system resource. A resource that resolved before is
+	 * not resolved again if its fingerprint did not change. Resources that
+	 * failed are always resolved again.
+	 *
+	 * @param state the file with the fingerprints or {@code null} to validate
+	 *            all resources
+	 */
+	public void setIncremental(File state) {
+		this.state = state;
+	}
+
 	public List<Resolution> validate() throws Exception {
 		try (OSGiRepository repository = new OSGiRepository(); HttpClient httpClient = new HttpClient()) {
 			Map<String, String> map = new HashMap<>();
@@ -98,24 +153,257 @@ public class ResolverValidator extends Processor {
 
 	public List<Resolution> validateResources(Repository repository, Collection<Resource> resources) throws Exception {
 		setProperty("-runfw", "dummy");
+		if (parallel || state != null) {
+			Set<Resource> all = new LinkedHashSet<>(getAllResources(repository));
+			all.addAll(resources);
+			repository = new IndexedRepository(all);
+		}
+		Map<String, Validated> previous = readState();
+		Map<String, Validated> validated = new TreeMap<>();
+		Fingerprints fingerprints = state != null ? new Fingerprints(repository) : null;
+
+		// initialize the plugins before they are used concurrently
+		getPlugins();
+
+		int window = parallel ? WINDOW : 1;
 		List<Resolution> result = new ArrayList<>();
 		List<Resource> resourceList = new ArrayList<>(resources);
 		while (!resourceList.isEmpty()) {
-			Resource resource = resourceList.remove(0);
-			Resolution resolution = resolve(repository, resource);
-			result.add(resolution);
-			for (Resource resolved : resolution.resolved) {
-				if (resourceList.remove(resolved)) {
-					Resolution curResolution = new Resolution();
-					curResolution.resource = resolved;
-					curResolution.succeeded = true;
-					result.add(curResolution);
+			List<Resource> batch = resourceList.subList(0, Math.min(window, resourceList.size()));
+			List<Callable<Resolution>> tasks = new ArrayList<>(batch.size());
+			for (Resource resource : batch) {
+				Repository r = repository;
+				tasks.add(() -> validate(r, resource, previous, fingerprints));
+			}
+			batch.clear();
+
+			List<Resolution> resolutions = new ArrayList<>(tasks.size());
+			if (parallel) {
+				PromiseFactory promiseFactory = getPromiseFactory();
+				List<Promise<Resolution>> promises = new ArrayList<>(tasks.size());
+				for (Callable<Resolution> task : tasks) {
+					promises.add(promiseFactory.submit(task));
+				}
+				for (Promise<Resolution> promise : promises) {
+					try {
+						resolutions.add(promise.getValue());
+					} catch (InvocationTargetException e) {
+						throw Exceptions.duck(e.getCause());
+					}
+				}
+			} else {
+				for (Callable<Resolution> task : tasks) {
+					resolutions.add(task.call());
+				}
+			}
+
+			for (Resolution resolution : resolutions) {
+				report(resolution, validated);
+				result.add(resolution);
+				for (Resource resolved : resolution.resolved) {
+					if (resourceList.remove(resolved)) {
+						Resolution curResolution = new Resolution();
+						curResolution.resource = resolved;
+						curResolution.succeeded = true;
+						// the wiring of the resolution contains the wiring of
+						// the resources it resolved
+						curResolution.fingerprint = resolution.fingerprint;
+						curResolution.wiring = resolution.wiring;
+						report(curResolution, validated);
+						result.add(curResolution);
+					}
 				}
 			}
 		}
+		writeState(validated);
 		return result;
 	}
 
+	/*
+	 * Resolve a resource unless it resolved before with the same fingerprint.
+	 * Must not report to this processor since it can run concurrently.
+	 */
+	private Resolution validate(Repository repository, Resource resource, Map<String, Validated> previous,
+		Fingerprints fingerprints) throws Exception {
+		if (fingerprints != null) {
+			Validated validated = previous.get(id(resource));
+			if (validated != null && validated.wiring.contains(id(resource))
+				&& validated.fingerprint.equals(fingerprints.fingerprint(validated.wiring))) {
+				logger.debug("{} and its wiring did not change since it was resolved", resource);
+				Resolution resolution = new Resolution();
+				resolution.resource = resource;
+				resolution.succeeded = true;
+				resolution.fingerprint = validated.fingerprint;
+				resolution.wiring = validated.wiring;
+				return resolution;
+			}
+		}
+		Processor reporter = new Processor(this);
+		Resolution resolution = resolve(repository, resource, reporter);
+		if (fingerprints != null && resolution.succeeded) {
+			resolution.wiring = fingerprints.wiring(resource, resolution.resolved);
+			resolution.fingerprint = fingerprints.fingerprint(resolution.wiring);
+		}
+		return resolution;
+	}
+
+	private void report(Resolution resolution, Map<String, Validated> validated) throws Exception {
+		if (resolution.reporter != null) {
+			getInfo(resolution.reporter);
+			IO.close(resolution.reporter);
+			resolution.reporter = null;
+		}
+		if (resolution.succeeded && resolution.fingerprint != null) {
+			validated.put(id(resolution.resource), new Validated(resolution.fingerprint, resolution.wiring));
+		}
+	}
+
+	/*
+	 * A resolution that succeeded, its fingerprint and the ids of the resources
+	 * from the repository in its wiring
+	 */
+	private static final class Validated {
+		final String		fingerprint;
+		final List<String>	wiring;
+
+		Validated(String fingerprint, List<String> wiring) {
+			this.fingerprint = fingerprint;
+			this.wiring = wiring;
+		}
+	}
+
+	/*
+	 * The fingerprints of the resources of a validation. The fingerprint of a
+	 * resolution combines the direct fingerprints of all the resources in its
+	 * wiring so that it changes when any of these resources changes, is
+	 * resolved differently or can no longer be found.
+	 */
+	private final class Fingerprints {
+		final Repository			repository;
+		final Map<String, Resource>	resources	= new HashMap<>();
+		final Map<Resource, String>	direct		= new ConcurrentHashMap<>();
+
+		Fingerprints(Repository repository) throws Exception {
+			this.repository = repository;
+			for (Resource resource : getAllResources(repository)) {
+				resources.put(id(resource), resource);
+			}
+		}
+
+		List<String> wiring(Resource resource, Collection<Resource> resolved) throws Exception {
+			Set<String> wiring = new TreeSet<>();
+			wiring.add(id(resource));
+			for (Resource r : resolved) {
+				String id = id(r);
+				if (resources.containsKey(id))
+					wiring.add(id);
+			}
+			return new ArrayList<>(wiring);
+		}
+
+		String fingerprint(List<String> wiring) throws Exception {
+			Digester<SHA1> digester = SHA1.getDigester();
+			try (PrintWriter pw = IO.writer(digester)) {
+				for (String id : wiring) {
+					Resource resource = resources.get(id);
+					if (resource == null)
+						return null;
+					String fingerprint = direct.get(resource);
+					if (fingerprint == null) {
+						fingerprint = directFingerprint(repository, resource);
+						direct.put(resource, fingerprint);
+					}
+					pw.println(fingerprint);
+				}
+			}
+			return digester.digest()
+				.asHex();
+		}
+	}
+
+	/*
+	 * A resource in the state file is identified by a digest of its content key
+	 */
+	private static String id(Resource resource) throws Exception {
+		return SHA1.digest(ResolutionCache.contentKey(resource)
+			.getBytes(UTF_8))
+			.asHex();
+	}
+
+	/*
+	 * A digest of everything that the resolution of a resource depends on
+	 * directly
+	 */
+	private String directFingerprint(Repository repository, Resource resource) throws Exception {
+		ResourcesRepository systemRepository = new ResourcesRepository(system);
+		List<String> requirements = new ArrayList<>();
+		for (Requirement requirement : resource.getRequirements(null)) {
+			StringBuilder sb = new StringBuilder(requirement.toString());
+			sb.append(systemRepository.findProvider(requirement)
+				.isEmpty() ? ";repo" : ";system");
+			List<String> providers = new ArrayList<>();
+			for (Capability capability : repository.findProviders(singleton(requirement))
+				.get(requirement)) {
+				providers.add(ResolutionCache.contentKey(capability.getResource()));
+			}
+			Collections.sort(providers);
+			for (String provider : providers) {
+				sb.append(';')
+					.append(provider);
+			}
+			requirements.add(sb.toString());
+		}
+		Collections.sort(requirements);
+
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (PrintWriter pw = IO.writer(digester)) {
+			pw.println(About.CURRENT);
+			pw.println(ResolutionCache.contentKey(system));
+			pw.println(ResolutionCache.contentKey(resource));
+			for (String requirement : requirements) {
+				pw.println(requirement);
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	private Map<String, Validated> readState() {
+		Map<String, Validated> validated = new HashMap<>();
+		if (state == null || !state.isFile())
+			return validated;
+
+		try {
+			for (String line : IO.collect(state)
+				.split("\n")) {
+				String[] parts = line.split(" ");
+				if (parts.length == 3)
+					validated.put(parts[0], new Validated(parts[1], Strings.split(parts[2])));
+			}
+		} catch (IOException e) {
+			logger.debug("Ignoring invalid validation state {}", state, e);
+		}
+		return validated;
+	}
+
+	private void writeState(Map<String, Validated> validated) throws IOException {
+		if (state == null)
+			return;
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Validated> e : validated.entrySet()) {
+			sb.append(e.getKey())
+				.append(' ')
+				.append(e.getValue().fingerprint)
+				.append(' ')
+				.append(Strings.join(",", e.getValue().wiring))
+				.append('\n');
+		}
+		IO.mkdirs(state.getAbsoluteFile()
+			.getParentFile());
+		IO.store(sb.toString(), state);
+	}
+
 	public static Set<Resource> getAllResources(Repository repository) {
 		Requirement r = createWildcardRequirement();
 
@@ -124,8 +412,8 @@ public class ResolverValidator extends Processor {
 		return resources;
 	}
 
-	private BndrunResolveContext getResolveContext() throws Exception {
-		BndrunResolveContext context = new BndrunResolveContext(this, null, this, reporter) {
+	private BndrunResolveContext getResolveContext(Processor properties, LogReporter reporter) throws Exception {
+		BndrunResolveContext context = new BndrunResolveContext(properties, null, this, reporter) {
 			@Override
 			void loadFramework(ResourceBuilder systemBuilder) throws Exception {
 				systemBuilder.addCapabilities(system.getCapabilities(null));
@@ -140,12 +428,27 @@ public class ResolverValidator extends Processor {
 	}
 
 	public Resolution resolve(Repository repository, Resource resource) throws Exception {
+		try (Processor reporter = new Processor(this)) {
+			Resolution resolution = resolve(repository, resource, reporter);
+			report(resolution, new HashMap<>());
+			return resolution;
+		}
+	}
+
+	/*
+	 * Resolve a resource with its own properties and reporter so that
+	 * resources can be resolved concurrently
+	 */
+	private Resolution resolve(Repository repository, Resource resource, Processor properties) throws Exception {
 		Resolution resolution = new Resolution();
+		resolution.reporter = properties;
 
 		Requirement identity = getIdentity(resource);
-		setProperty("-runrequires", ResourceUtils.toRequireCapability(identity));
+		properties.setProperty("-runrequires", ResourceUtils.toRequireCapability(identity));
 
-		BndrunResolveContext context = getResolveContext();
+		LogReporter reporter = new LogReporter(properties);
+		Resolver resolver = new BndResolver(reporter);
+		BndrunResolveContext context = getResolveContext(properties, reporter);
 
 		context.addRepository(repository);
 		context.init();
@@ -200,14 +503,68 @@ public class ResolverValidator extends Processor {
 				}
 			}
 
-			error(ResolveProcess.format(e, false));
+			properties.error(ResolveProcess.format(e, false));
 		} catch (Exception e) {
 			e.printStackTrace();
-			error("resolving %s failed with %s", context.getInputResource()
+			properties.error("resolving %s failed with %s", context.getInputResource()
 				.getRequirements(null), e);
 			resolution.message = e.getMessage();
 		}
 
 		return resolution;
 	}
+
+	/*
+	 * A read only view of a repository that is shared between the resolves.
+	 * The capabilities are indexed on their namespace and the providers of a
+	 * requirement are only searched once.
+	 */
+	static class IndexedRepository extends BaseRepository {
+		private final Map<String, List<Capability>>			capabilities	= new HashMap<>();
+		private final Map<String, Filter>					filters			= new ConcurrentHashMap<>();
+		private final Map<List<String>, List<Capability>>	providers		= new ConcurrentHashMap<>();
+
+		IndexedRepository(Collection<Resource> resources) {
+			for (Resource resource : resources) {
+				for (Capability capability : resource.getCapabilities(null)) {
+					capabilities.computeIfAbsent(capability.getNamespace(), k -> new ArrayList<>())
+						.add(capability);
+				}
+			}
+		}
+
+		@Override
+		public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
+			Map<Requirement, Collection<Capability>> result = new HashMap<>();
+			for (Requirement requirement : requirements) {
+				result.put(requirement, new ArrayList<>(findProvider(requirement)));
+			}
+			return result;
+		}
+
+		private List<Capability> findProvider(Requirement requirement) {
+			Map<String, String> directives = requirement.getDirectives();
+			List<String> key = Arrays.asList(requirement.getNamespace(),
+				directives.get(Namespace.REQUIREMENT_FILTER_DIRECTIVE),
+				directives.get(Namespace.REQUIREMENT_EFFECTIVE_DIRECTIVE));
+			List<Capability> result = providers.get(key);
+			if (result == null) {
+				result = new ArrayList<>();
+				String filter = key.get(1);
+				for (Capability capability : capabilities.getOrDefault(key.get(0), Collections.emptyList())) {
+					if (!ResourceUtils.isEffective(requirement, capability))
+						continue;
+					try {
+						if (filter == null || filters.computeIfAbsent(filter, Filter::new)
+							.matchMap(capability.getAttributes()))
+							result.add(capability);
+					} catch (Exception e) {
+						// no match
+					}
+				}
+				providers.put(key, result);
+			}
+			return result;
+		}
+	}
 }
@@ -0,0 +1,82 @@
+package biz.aQute.resolve;
+
+import static test.lib.Utils.createRepo;
+
+import java.io.File;
+
+import aQute.bnd.build.Workspace;
+import aQute.lib.io.IO;
+import junit.framework.TestCase;
+
+public class ResolutionCacheTest extends TestCase {
+	private File		tmp;
+	private Workspace	ws;
+	private File		bndrun;
+
+	@Override
+	protected void setUp() throws Exception {
+		tmp = IO.getFile("generated/tmp/test/" + getName());
+		IO.delete(tmp);
+		IO.mkdirs(IO.getFile(tmp, "cnf"));
+		IO.store("", IO.getFile(tmp, "cnf/build.bnd"));
+		ws = new Workspace(tmp);
+		ws.addBasicPlugin(createRepo(IO.getFile("testdata/repo3.index.xml"), getName()));
+
+		bndrun = IO.getFile(tmp, "test.bndrun");
+		IO.store("-runfw: org.apache.felix.framework\n" //
+			+ "-runee: JavaSE-1.8\n" //
+			+ "-runrequires: osgi.identity;filter:='(osgi.identity=org.apache.felix.gogo.shell)'\n", bndrun);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ws.close();
+		IO.delete(tmp);
+	}
+
+	public void testCached() throws Exception {
+		String runbundles = resolve(null);
+		assertTrue(runbundles, runbundles.contains("org.apache.felix.gogo.shell"));
+
+		File[] files = ws.getCache("resolve")
+			.listFiles();
+		assertNotNull(files);
+		assertEquals(1, files.length);
+
+		//
+		// Replace the cached result to see that the resolver is skipped
+		//
+
+		String content = IO.collect(files[0]);
+		String key = content.substring(0, content.indexOf('\n'));
+		IO.store(key + "\ncached;version='[1.0.0,1.0.1)'", files[0]);
+		assertEquals("cached;version='[1.0.0,1.0.1)'", resolve(null));
+
+		//
+		// A change in the resolve instructions invalidates the cached result
+		//
+
+		assertEquals(runbundles, resolve("-runblacklist: osgi.identity;filter:='(osgi.identity=foo)'\n"));
+
+		//
+		// The cache can be disabled
+		//
+
+		content = IO.collect(files[0]);
+		assertFalse(content.startsWith(key));
+		key = content.substring(0, content.indexOf('\n'));
+		IO.store(key + "\ncached;version='[1.0.0,1.0.1)'", files[0]);
+		assertEquals(runbundles, resolve(Bndrun.RESOLVE_CACHE_INSTRUCTION + ": false\n"));
+	}
+
+	private String resolve(String extra) throws Exception {
+		if (extra != null) {
+			IO.store(IO.collect(bndrun) + extra, bndrun);
+		}
+		try (Bndrun run = new Bndrun(ws, bndrun)) {
+			String runbundles = run.resolve(false, false);
+			assertTrue(run.check());
+			return runbundles;
+		}
+	}
+}
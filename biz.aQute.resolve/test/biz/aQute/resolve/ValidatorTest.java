@@ -1,13 +1,21 @@
 package biz.aQute.resolve;
 
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toSet;
+
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.osgi.framework.namespace.PackageNamespace;
 import org.osgi.resource.Resource;
 
 import aQute.bnd.build.model.EE;
 import aQute.bnd.build.model.OSGI_CORE;
+import aQute.bnd.osgi.Domain;
 import aQute.bnd.osgi.repository.ResourcesRepository;
 import aQute.bnd.osgi.repository.XMLResourceParser;
 import aQute.bnd.osgi.resource.CapReqBuilder;
@@ -152,4 +160,124 @@ public class ValidatorTest extends TestCase {
 			assertTrue(validator.check());
 		}
 	}
+
+	public void testParallel() throws Exception {
+		List<Resolution> sequential = validate(false, null);
+		List<Resolution> parallel = validate(true, null);
+		assertEquals(toString(validate(true, null)), toString(parallel));
+
+		List<Resource> resources = XMLResourceParser.getResources(IO.getFile("testdata/larger-repo.xml")
+			.toURI());
+		assertEquals(resources.size(), parallel.size());
+		assertEquals(new HashSet<>(resources), parallel.stream()
+			.map(r -> r.resource)
+			.collect(toSet()));
+		assertEquals(sequential.stream()
+			.filter(r -> !r.succeeded)
+			.map(r -> r.resource)
+			.collect(toSet()),
+			parallel.stream()
+				.filter(r -> !r.succeeded)
+				.map(r -> r.resource)
+				.collect(toSet()));
+	}
+
+	public void testIncremental() throws Exception {
+		File state = IO.getFile("generated/tmp/test/" + getName() + "/state");
+		IO.delete(state);
+		try {
+			List<Resolution> first = validate(true, state);
+			assertTrue(state.isFile());
+			assertTrue(first.stream()
+				.anyMatch(r -> r.succeeded && !r.resolved.isEmpty()));
+
+			//
+			// Nothing changed, so the resources that succeeded are not resolved
+			// again and the failures are
+			//
+
+			List<Resolution> second = validate(true, state);
+			assertEquals(toString(first), toString(second));
+			for (Resolution r : second) {
+				if (r.succeeded)
+					assertTrue(r.resolved.isEmpty());
+				else
+					assertNotNull(r.message);
+			}
+		} finally {
+			IO.delete(state.getParentFile());
+		}
+	}
+
+	public void testIncrementalTransitiveChange() throws Exception {
+		File state = IO.getFile("generated/tmp/test/" + getName() + "/state");
+		IO.delete(state);
+		try {
+			Resource a = bundle("a", "1.0.0", "Import-Package", "p");
+			Resource b = bundle("b", "1.0.0", "Export-Package", "p", "Import-Package", "q");
+			Resource c = bundle("c", "1.0.0", "Export-Package", "q");
+			List<Resolution> first = validate(state, a, b, c);
+			assertTrue(first.stream()
+				.allMatch(r -> r.succeeded));
+
+			//
+			// The direct providers of a did not change but c no longer
+			// provides the package that b needs, so a must fail now
+			//
+
+			Resource c2 = bundle("c", "2.0.0", "Export-Package", "r");
+			List<Resolution> second = validate(state, a, b, c2);
+			Resolution resolution = second.stream()
+				.filter(r -> r.resource == a)
+				.findFirst()
+				.get();
+			assertFalse(resolution.succeeded);
+		} finally {
+			IO.delete(state.getParentFile());
+		}
+	}
+
+	private List<Resolution> validate(File state, Resource... resources) throws Exception {
+		try (ResolverValidator validator = new ResolverValidator();) {
+			ResourceBuilder system = new ResourceBuilder();
+			system.addEE(EE.JavaSE_1_8);
+			system.addManifest(OSGI_CORE.R6_0_0.getManifest());
+			validator.setSystem(system.build());
+			validator.setIncremental(state);
+			return validator.validate(Arrays.asList(resources));
+		}
+	}
+
+	private static Resource bundle(String bsn, String version, String... headers) throws Exception {
+		Map<String, String> manifest = new HashMap<>();
+		manifest.put("Bundle-ManifestVersion", "2");
+		manifest.put("Bundle-SymbolicName", bsn);
+		manifest.put("Bundle-Version", version);
+		for (int i = 0; i < headers.length; i += 2) {
+			manifest.put(headers[i], headers[i + 1]);
+		}
+		ResourceBuilder rb = new ResourceBuilder();
+		rb.addManifest(Domain.domain(manifest));
+		return rb.build();
+	}
+
+	private List<Resolution> validate(boolean parallel, File state) throws Exception {
+		try (ResolverValidator validator = new ResolverValidator();) {
+			ResourceBuilder system = new ResourceBuilder();
+			system.addEE(EE.JavaSE_1_8);
+			system.addManifest(OSGI_CORE.R6_0_0.getManifest());
+			validator.setSystem(system.build());
+			validator.setParallel(parallel);
+			validator.setIncremental(state);
+			validator.addRepository(IO.getFile("testdata/larger-repo.xml")
+				.toURI());
+			return validator.validate();
+		}
+	}
+
+	private static String toString(List<Resolution> resolutions) {
+		return resolutions.stream()
+			.map(r -> (r.succeeded ? "OK " : "** ") + r.resource)
+			.collect(joining("\n"));
+	}
 }
@@ -16,9 +16,16 @@ package aQute.bnd.maven.plugin;
  * limitations under the License.
  */
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -28,8 +35,10 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
@@ -71,6 +80,8 @@ import aQute.bnd.version.Version;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.lib.utf8properties.UTF8Properties;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
 import aQute.service.reporter.Report.Location;
 
 @Mojo(name = "bnd-process", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE)
@@ -154,6 +165,11 @@ public class BndMavenPlugin extends AbstractMojo {
 
 	private File									propertiesFile;
 
+	/**
+	 * The POM and bnd files the bnd instructions were loaded from.
+	 */
+	private final List<File>						loadedFiles				= new ArrayList<>();
+
 	@Override
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		if (skip) {
@@ -419,8 +435,22 @@ public class BndMavenPlugin extends AbstractMojo {
 			logger.debug("builder properties: {}", builder.getProperties());
 			logger.debug("builder delta: {}", delta);
 
-			if (delta || (builder.getJar() == null) || (builder.lastModified() > builder.getJar()
-				.lastModified())) {
+			// Skip the build if none of the inputs and outputs changed since
+			// the last successful build
+			File fingerprintFile = new File(targetDir, "bnd/" + mojoExecution.getExecutionId() + ".fingerprint");
+			String properties = propertiesDigest(builder);
+			boolean unchanged = manifestPath.isFile() && fingerprintFile.isFile()
+				&& IO.collect(fingerprintFile, UTF_8)
+					.equals(fingerprint(properties, buildpath, sourcepath));
+			logger.debug("builder inputs unchanged: {}", unchanged);
+			if (unchanged) {
+				logger.info("skip build, the bnd inputs did not change since the last build");
+			}
+
+			boolean build = !unchanged && (delta || (builder.getJar() == null) || (builder.lastModified() > builder
+				.getJar()
+				.lastModified()));
+			if (build) {
 				// Set builder paths
 				builder.setClasspath(buildpath);
 				builder.setSourcepath(sourcepath.toArray(new File[0]));
@@ -436,6 +466,11 @@ public class BndMavenPlugin extends AbstractMojo {
 
 			// Finally, report
 			reportErrorsAndWarnings(builder);
+
+			if (build) {
+				IO.mkdirs(fingerprintFile.getParentFile());
+				IO.store(fingerprint(properties, buildpath, sourcepath), fingerprintFile);
+			}
 		} catch (MojoExecutionException | MojoFailureException e) {
 			throw e;
 		} catch (Exception e) {
@@ -513,6 +548,8 @@ public class BndMavenPlugin extends AbstractMojo {
 			File bndFile = IO.getFile(baseDir, bndFileName);
 			if (bndFile.isFile()) {
 				logger.debug("loading bnd properties from file: {}", bndFile);
+				loadedFiles.add(pomFile);
+				loadedFiles.add(bndFile);
 				// we use setProperties to handle -include
 				builder.setProperties(bndFile.getParentFile(), builder.loadProperties(bndFile));
 				return bndFile;
@@ -525,6 +562,7 @@ public class BndMavenPlugin extends AbstractMojo {
 		File pomFile = pomProject.getFile();
 		if (baseDir != null) {
 			builder.updateModified(pomFile.lastModified(), "POM: " + pomFile);
+			loadedFiles.add(pomFile);
 		}
 		Xpp3Dom bndElement = configuration.getChild("bnd");
 		if (bndElement != null) {
@@ -621,6 +659,11 @@ public class BndMavenPlugin extends AbstractMojo {
 				}
 			}
 			if (!outFile.exists() || outFile.lastModified() < lastModified) {
+				// Leave outputs with the same content untouched
+				if (outFile.isFile() && resource.buffer()
+					.equals(IO.read(outFile.toPath()))) {
+					continue;
+				}
 				if (logger.isDebugEnabled()) {
 					if (outFile.exists())
 						logger.debug(String.format("Updating lastModified: %tF %<tT.%<tL '%s'", outFile.lastModified(),
@@ -644,15 +687,96 @@ public class BndMavenPlugin extends AbstractMojo {
 				else
 					logger.debug("Creating '{}'", manifestPath);
 			}
-			Files.createDirectories(manifestPath.toPath()
-				.getParent());
-			try (OutputStream manifestOut = buildContext.newFileOutputStream(manifestPath)) {
-				jar.writeManifest(manifestOut);
+			ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+			jar.writeManifest(manifest);
+			if (!manifestPath.isFile() || !ByteBuffer.wrap(manifest.toByteArray())
+				.equals(IO.read(manifestPath.toPath()))) {
+				Files.createDirectories(manifestPath.toPath()
+					.getParent());
+				try (OutputStream manifestOut = buildContext.newFileOutputStream(manifestPath)) {
+					manifest.writeTo(manifestOut);
+				}
 			}
 			buildContext.setValue(MANIFEST_LAST_MODIFIED, manifestPath.lastModified());
 		}
 	}
 
+	/**
+	 * Calculate a digest over the unprocessed bnd instructions. Macros are not
+	 * expanded, so a ${tstamp} in the instructions does not force a build.
+	 */
+	private String propertiesDigest(Builder builder) throws Exception {
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (DataOutputStream out = new DataOutputStream(digester)) {
+			for (String key : new TreeSet<>(builder.getPropertyKeys(true))) {
+				write(out, key);
+				write(out, builder.getUnprocessedProperty(key, ""));
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	/**
+	 * Calculate the fingerprint of a build: the digest of the bnd instructions
+	 * plus the path, size and last modified time of every input and output
+	 * file. The content of the files is not read, so a fingerprint is cheap
+	 * compared to opening the classpath.
+	 */
+	private String fingerprint(String properties, List<Object> buildpath, List<File> sourcepath) throws Exception {
+		Set<File> trees = new TreeSet<>();
+		Set<File> files = new TreeSet<>(loadedFiles);
+		if (propertiesFile != null) {
+			files.add(propertiesFile);
+		}
+		files.add(manifestPath);
+		for (Object cpe : buildpath) {
+			if (cpe instanceof Jar) {
+				trees.add(((Jar) cpe).getSource());
+			} else {
+				files.add((File) cpe);
+			}
+		}
+		trees.addAll(sourcepath);
+		trees.add(classesDir);
+		trees.add(outputDir);
+
+		Digester<SHA1> digester = SHA1.getDigester();
+		try (DataOutputStream out = new DataOutputStream(digester)) {
+			write(out, properties);
+			for (File file : files) {
+				write(out, file.getAbsolutePath());
+				out.writeLong(file.length());
+				out.writeLong(file.lastModified());
+			}
+			for (File tree : trees) {
+				write(out, tree.getAbsolutePath());
+				if (!tree.isDirectory()) {
+					continue;
+				}
+				Path root = tree.toPath();
+				try (Stream<Path> paths = Files.walk(root)) {
+					for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)
+						.sorted()::iterator) {
+						File file = path.toFile();
+						write(out, root.relativize(path)
+							.toString());
+						out.writeLong(file.length());
+						out.writeLong(file.lastModified());
+					}
+				}
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	private static void write(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
 	private boolean manifestOutOfDate() {
 		if (!manifestPath.isFile()) {
 			return true;
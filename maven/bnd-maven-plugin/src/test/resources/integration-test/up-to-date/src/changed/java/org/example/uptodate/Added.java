@@ -0,0 +1,3 @@
+package org.example.uptodate;
+
+public class Added {}
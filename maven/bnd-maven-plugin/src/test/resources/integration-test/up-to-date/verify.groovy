@@ -0,0 +1,23 @@
+import java.util.jar.*;
+
+println 'Tests for skipping unchanged builds of the bnd-maven-plugin'
+println " basedir: ${basedir}"
+
+// Every invocation of Maven logs to the same build log
+File build_log_file = new File(basedir, 'build.log')
+assert build_log_file.isFile()
+def builds = build_log_file.text.split(/\[INFO\] Scanning for projects\.\.\./).findAll { it.contains('bnd-maven-plugin') }
+assert builds.size() == 5
+
+def skipped = builds.collect { it.contains('[INFO] skip build, the bnd inputs did not change since the last build') }
+// first build, unchanged, instruction changed, class added, dependency changed
+assert skipped == [false, true, false, false, false]
+
+// The last build has all the changes
+File bundle = new File(basedir, 'target/up-to-date-0.0.1.jar')
+assert bundle.isFile()
+JarFile jar = new JarFile(bundle)
+Attributes manifest = jar.getManifest().getMainAttributes()
+assert manifest.getValue('X-Instruction') == 'two'
+assert jar.getEntry('org/example/uptodate/Example.class') != null
+assert jar.getEntry('org/example/uptodate/Added.class') != null